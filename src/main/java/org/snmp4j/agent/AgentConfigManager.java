@@ -43,6 +43,7 @@ import org.snmp4j.transport.TLSTM;
 import org.snmp4j.transport.tls.X509TlsTransportMappingConfig;
 import org.snmp4j.util.*;
 import org.snmp4j.agent.mo.util.MOTableSizeLimit;
+import org.snmp4j.agent.util.VirtualThreadWorkerPool;
 import org.snmp4j.agent.mo.snmp.NotificationLogMib.NlmConfigLogEntryRow;
 import org.snmp4j.agent.mo.MOFactory;
 import org.snmp4j.agent.mo.DefaultMOFactory;
@@ -63,8 +64,20 @@ public class AgentConfigManager implements Runnable, VariableProvider {
     private static final LogAdapter logger =
             LogFactory.getLogger(AgentConfigManager.class);
 
+    /**
+     * The system property that enables the execution of requests on virtual threads by default, if set to
+     * {@code true} (see {@link #setVirtualThreadRequestExecution(boolean)}).
+     *
+     * @since 3.4.0
+     */
+    public static final String PROPERTY_VIRTUAL_THREAD_REQUEST_EXECUTION =
+            "org.snmp4j.agent.virtualThreadRequestExecution";
+
     protected CommandProcessor agent;
     protected WorkerPool workerPool;
+    protected boolean virtualThreadRequestExecution =
+            Boolean.getBoolean(PROPERTY_VIRTUAL_THREAD_REQUEST_EXECUTION);
+    private VirtualThreadWorkerPool virtualThreadWorkerPool;
 
     protected VACM vacm;
     protected USM usm;
@@ -518,6 +531,11 @@ public class AgentConfigManager implements Runnable, VariableProvider {
         } catch (IOException ex) {
             logger.warn("Failed to close SNMP session: " + ex.getMessage());
         }
+        if (virtualThreadWorkerPool != null) {
+            logger.info("Shutdown agent: waiting for requests running on virtual threads");
+            virtualThreadWorkerPool.stop();
+            virtualThreadWorkerPool = null;
+        }
         logger.info("Shutdown agent: saving state");
         if (!saveState() && (persistenceProvider != null)) {
             logger.error("Agent state could not be saved!");
@@ -905,6 +923,50 @@ public class AgentConfigManager implements Runnable, VariableProvider {
         }
     }
 
+    /**
+     * Enables or disables the execution of requests on virtual threads. If enabled, the command processor
+     * created by {@link #initialize()} runs each request on its own virtual thread (see
+     * {@link VirtualThreadWorkerPool}) instead of the {@code WorkerPool} supplied to the constructor. That
+     * pool is still used if the Java runtime does not support virtual threads. This method has to be called
+     * before {@link #initialize()}. The default is determined by the system property
+     * {@link #PROPERTY_VIRTUAL_THREAD_REQUEST_EXECUTION}.
+     *
+     * @param virtualThreadRequestExecution
+     *         {@code true} to process requests on virtual threads.
+     *
+     * @since 3.4.0
+     */
+    public void setVirtualThreadRequestExecution(boolean virtualThreadRequestExecution) {
+        this.virtualThreadRequestExecution = virtualThreadRequestExecution;
+    }
+
+    public boolean isVirtualThreadRequestExecution() {
+        return virtualThreadRequestExecution;
+    }
+
+    /**
+     * Creates the {@code WorkerPool} that executes the requests processed by the command processor. By default,
+     * this is a {@link VirtualThreadWorkerPool} if virtual thread request execution is enabled and supported by
+     * the Java runtime, and the {@code WorkerPool} supplied to the constructor otherwise.
+     *
+     * @return the worker pool for request processing or {@code null} to process requests on the transport
+     * mapping's thread.
+     * @since 3.4.0
+     */
+    protected WorkerPool createRequestWorkerPool() {
+        if (virtualThreadRequestExecution) {
+            try {
+                virtualThreadWorkerPool = new VirtualThreadWorkerPool("AgentRequest");
+                logger.info("Processing requests on virtual threads");
+                return virtualThreadWorkerPool;
+            } catch (UnsupportedOperationException uoex) {
+                logger.warn("Virtual threads are not supported by Java " + System.getProperty("java.version") +
+                        " (" + uoex.getMessage() + "), processing requests with " + workerPool);
+            }
+        }
+        return workerPool;
+    }
+
     private VACM vacm() {
         if (vacm != null) {
             return vacm;
@@ -921,7 +983,7 @@ public class AgentConfigManager implements Runnable, VariableProvider {
         for (MOServer server : servers) {
             agent.addMOServer(server);
         }
-        agent.setWorkerPool(workerPool);
+        agent.setWorkerPool(createRequestWorkerPool());
         initSecurityModels(engineBootsProvider);
         initMessageDispatcherWithMPs(dispatcher);
         initMandatoryMIBs();
@@ -1080,6 +1142,10 @@ public class AgentConfigManager implements Runnable, VariableProvider {
             snmpMpdMib.registerMOs(server, getContext(snmpMpdMib, context));
             frameworkMIB.registerMOs(server, getContext(frameworkMIB, context));
             communityMIB.registerMOs(server, getContext(communityMIB, context));
+            agent.registerMOs(server, getContext(agent, context));
+            if (server instanceof DefaultMOServer) {
+                ((DefaultMOServer) server).registerMOs(server, getContext((DefaultMOServer) server, context));
+            }
             if (snmp4jLogMIB != null) {
                 snmp4jLogMIB.registerMOs(server, getContext(snmp4jLogMIB, context));
             }
@@ -1124,6 +1190,10 @@ public class AgentConfigManager implements Runnable, VariableProvider {
             snmpv2MIB.unregisterMOs(server, getContext(snmpv2MIB, context));
             frameworkMIB.unregisterMOs(server, getContext(frameworkMIB, context));
             communityMIB.unregisterMOs(server, getContext(communityMIB, context));
+            agent.unregisterMOs(server, getContext(agent, context));
+            if (server instanceof DefaultMOServer) {
+                ((DefaultMOServer) server).unregisterMOs(server, getContext((DefaultMOServer) server, context));
+            }
             if (snmp4jLogMIB != null) {
                 snmp4jLogMIB.unregisterMOs(server, getContext(snmp4jLogMIB, context));
             }
@@ -226,6 +226,8 @@ public abstract class BaseAgent implements Runnable {
             snmpMpdMib.registerMOs(server, getContext(snmpMpdMib));
             snmpFrameworkMIB.registerMOs(server, getContext(snmpFrameworkMIB));
             snmpCommunityMIB.registerMOs(server, getContext(snmpCommunityMIB));
+            agent.registerMOs(server, getContext(agent));
+            server.registerMOs(server, getContext(server));
             snmp4jLogMIB.registerMOs(server, getContext(snmp4jLogMIB));
             if (snmp4jConfigMIB != null) {
                 snmp4jConfigMIB.registerMOs(server, getContext(snmp4jConfigMIB));
@@ -248,6 +250,8 @@ public abstract class BaseAgent implements Runnable {
         snmpv2MIB.unregisterMOs(server, getContext(snmpv2MIB));
         snmpFrameworkMIB.unregisterMOs(server, getContext(snmpFrameworkMIB));
         snmpCommunityMIB.unregisterMOs(server, getContext(snmpCommunityMIB));
+        agent.unregisterMOs(server, getContext(agent));
+        server.unregisterMOs(server, getContext(server));
         snmp4jLogMIB.unregisterMOs(server, getContext(snmp4jLogMIB));
         if (snmp4jConfigMIB != null) {
             snmp4jConfigMIB.unregisterMOs(server, getContext(snmp4jConfigMIB));
@@ -21,9 +21,13 @@
 package org.snmp4j.agent;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.snmp4j.*;
 import org.snmp4j.agent.mo.GenericManagedObject;
+import org.snmp4j.agent.mo.MOAccessImpl;
+import org.snmp4j.agent.mo.MOScalar;
 import org.snmp4j.agent.mo.lock.LockRequest;
 import org.snmp4j.agent.request.*;
 import org.snmp4j.agent.security.*;
@@ -32,6 +36,7 @@ import org.snmp4j.mp.*;
 import org.snmp4j.smi.*;
 import org.snmp4j.util.*;
 import org.snmp4j.agent.util.TemporaryList;
+import org.snmp4j.agent.util.TimerWheelTemporaryList;
 import org.snmp4j.agent.mo.snmp.CoexistenceInfo;
 import org.snmp4j.agent.mo.snmp.CoexistenceInfoProvider;
 import org.snmp4j.log.LogAdapter;
@@ -44,7 +49,7 @@ import org.snmp4j.log.LogFactory;
  * @author Frank Fock
  * @version 3.1
  */
-public class CommandProcessor implements CommandResponder, NotificationOriginator {
+public class CommandProcessor implements CommandResponder, NotificationOriginator, MOGroup {
 
     private static final LogAdapter logger =
             LogFactory.getLogger(CommandProcessor.class);
@@ -55,7 +60,25 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
      */
     private static final int MAX_INTERNAL_REQUEST_TIMEOUT = 300000;
 
+    /**
+     * The counter OID of requests dropped because their deadline passed before their response had been sent
+     * (snmp4jAgentRequestsExpired of the SNMP4J-REQUEST-MIB).
+     */
+    public static final OID oidSnmp4jAgentRequestsExpired =
+            new OID(new int[]{1, 3, 6, 1, 4, 1, 4976, 10, 1, 1, 5, 2, 1, 0});
+
     protected WorkerPool threadPool = null;
+    protected FairRequestScheduler requestScheduler;
+    protected long defaultRequestDeadline;
+    protected final Map<OctetString, Long> requestDeadlines = new ConcurrentHashMap<>();
+    private final AtomicLong expiredRequests = new AtomicLong();
+    private final MOScalar<Counter32> snmp4jAgentRequestsExpired =
+            new MOScalar<Counter32>(oidSnmp4jAgentRequestsExpired, MOAccessImpl.ACCESS_READ_ONLY, new Counter32()) {
+                @Override
+                public Counter32 getValue() {
+                    return new Counter32(getExpiredRequestCount() & 0xFFFFFFFFL);
+                }
+            };
     protected VACM vacm = null;
     protected List<MOServer> moServers;
     protected List<OctetString> ownContextEngineIDs = new ArrayList<OctetString>(2);
@@ -81,7 +104,7 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
         this.ownContextEngineIDs.add(contextEngineID);
         this.ownContextEngineIDs.add(MPv3.LOCAL_ENGINE_ID);
         moServers = new ArrayList<>();
-        requestList = new TemporaryList<>(MAX_INTERNAL_REQUEST_TIMEOUT);
+        requestList = new TimerWheelTemporaryList<>(MAX_INTERNAL_REQUEST_TIMEOUT);
         pduHandler.add(new GetHandler());
         pduHandler.add(new GetNextHandler());
         pduHandler.add(new SetHandler());
@@ -112,6 +135,96 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
         return requestList.getTimeout();
     }
 
+    /**
+     * Sets the default request deadline. A request whose response cannot be sent within this time after its
+     * reception is abandoned: read requests (GET, GETNEXT, GETBULK) stop waiting for locks and looking up managed
+     * objects and no response is sent. SET requests are only dropped if the deadline has passed before their
+     * processing starts, because an interrupted commit could leave the agent in an inconsistent state. The
+     * deadline should be about the timeout used by the command senders.
+     *
+     * @param deadlineMillis
+     *         the number of milliseconds after the reception of a request its processing may be abandoned. Zero or
+     *         less disables deadlines (the default).
+     *
+     * @since 3.4.0
+     */
+    public void setDefaultRequestDeadline(long deadlineMillis) {
+        this.defaultRequestDeadline = Math.max(0, deadlineMillis);
+    }
+
+    public long getDefaultRequestDeadline() {
+        return defaultRequestDeadline;
+    }
+
+    /**
+     * Sets the request deadline for the requests of a security name (community for SNMPv1/v2c), for example for
+     * command senders with a timeout that differs from the others (see {@link #setDefaultRequestDeadline(long)}).
+     *
+     * @param securityName
+     *         a security name.
+     * @param deadlineMillis
+     *         the number of milliseconds after the reception of a request its processing may be abandoned. Zero
+     *         disables deadlines for the security name, a negative value removes the security name specific
+     *         deadline, so that the default deadline applies.
+     *
+     * @since 3.4.0
+     */
+    public void setRequestDeadline(OctetString securityName, long deadlineMillis) {
+        if (deadlineMillis < 0) {
+            requestDeadlines.remove(securityName);
+        } else {
+            requestDeadlines.put(new OctetString(securityName), deadlineMillis);
+        }
+    }
+
+    /**
+     * Gets the request deadline for the requests of the specified security name.
+     *
+     * @param securityName
+     *         a security name.
+     *
+     * @return the deadline in milliseconds after the reception of a request, zero if requests of the security name
+     * have no deadline.
+     * @since 3.4.0
+     */
+    public long getRequestDeadline(OctetString securityName) {
+        Long deadline = requestDeadlines.get(securityName);
+        return (deadline == null) ? defaultRequestDeadline : deadline;
+    }
+
+    /**
+     * Gets the number of requests that were abandoned because their deadline had passed.
+     *
+     * @return the number of expired requests since the creation of this command processor.
+     * @since 3.4.0
+     */
+    public long getExpiredRequestCount() {
+        return expiredRequests.get();
+    }
+
+    /**
+     * Registers the snmp4jAgentRequestsExpired counter of the SNMP4J-REQUEST-MIB, which returns
+     * {@link #getExpiredRequestCount()}.
+     *
+     * @param server
+     *         the {@code MOServer} where to register the managed objects.
+     * @param context
+     *         the context where to register the managed objects.
+     *
+     * @throws DuplicateRegistrationException
+     *         if the counter is already registered in the context.
+     * @since 3.4.0
+     */
+    @Override
+    public void registerMOs(MOServer server, OctetString context) throws DuplicateRegistrationException {
+        server.register(snmp4jAgentRequestsExpired, context);
+    }
+
+    @Override
+    public void unregisterMOs(MOServer server, OctetString context) {
+        server.unregister(snmp4jAgentRequestsExpired, context);
+    }
+
     @Override
     public <A extends Address> void processPdu(CommandResponderEvent<A> event) {
         if (event.getPDU() != null) {
@@ -148,11 +261,7 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
             if ((cinfo == null) || (ownContextEngineIDs.contains(cinfo.getContextEngineID()))) {
                 event.setProcessed(true);
                 Command<A> command = new Command<>(event, cinfo);
-                if (threadPool != null) {
-                    threadPool.execute(command);
-                } else {
-                    command.run();
-                }
+                execute(event, command);
             } else if (proxyForwarder != null) {
                 ProxyForwardRequest<A> request = new ProxyForwardRequest<>(event, cinfo);
                 ProxyForwarder proxy = proxyForwarder.get(cinfo.getContextEngineID(), request.getProxyType());
@@ -162,11 +271,7 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
                         logger.debug("Processsing proxy request with proxy forwarder " +
                                 proxy);
                     }
-                    if (threadPool != null) {
-                        threadPool.execute(command);
-                    } else {
-                        command.run();
-                    }
+                    execute(event, command);
                 } else {
                     fireIncrementCounter(new CounterEvent(this, SnmpConstants.snmpProxyDrops));
                 }
@@ -176,6 +281,49 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
         }
     }
 
+    /**
+     * Executes the task processing a request with the request scheduler, the worker pool, or (if neither is set)
+     * on the calling thread. Requests dropped by the request scheduler are counted as snmpSilentDrops.
+     *
+     * @param event
+     *         the request event.
+     * @param task
+     *         the task that processes the request.
+     * @param <A>
+     *         the address type of the request's source.
+     *
+     * @since 3.4.0
+     */
+    protected <A extends Address> void execute(CommandResponderEvent<A> event, WorkerTask task) {
+        FairRequestScheduler scheduler = requestScheduler;
+        if (scheduler != null) {
+            if (!scheduler.schedule(event, task)) {
+                fireIncrementCounter(new CounterEvent(this, SnmpConstants.snmpSilentDrops));
+            }
+        } else if (threadPool != null) {
+            threadPool.execute(task);
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Sets the scheduler that queues requests per source and executes them fairly with its own worker pool. If set,
+     * the worker pool of this command processor is no longer used for request processing.
+     *
+     * @param requestScheduler
+     *         a {@link FairRequestScheduler} or {@code null} to execute requests with the worker pool directly.
+     *
+     * @since 3.4.0
+     */
+    public void setRequestScheduler(FairRequestScheduler requestScheduler) {
+        this.requestScheduler = requestScheduler;
+    }
+
+    public FairRequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
     /**
      * Sets the internal thread pool for task execution.
      *
@@ -250,7 +398,10 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
      * NOTE: If this command processor is using a ThreadPool then the returned
      * object will be {@link NotificationTask} instance. If all response have
      * been received {@link Object#notify()} will be called on the returned
-     * {@code NotificationTask} object by the sending thread.
+     * {@code NotificationTask} object by the sending thread. Otherwise, if the
+     * notification originator dispatches notifications asynchronously, the
+     * {@link java.util.concurrent.CompletableFuture} of the response array is
+     * returned (see {@link NotificationTask#getResponsesFuture()}).
      */
     public Object notify(final OctetString context,
                          final OID notificationID,
@@ -270,6 +421,9 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
                 return notifyTask;
             } else {
                 notifyTask.run();
+                if (notifyTask.getResponsesFuture() != null) {
+                    return notifyTask.getResponsesFuture();
+                }
                 return notifyTask.getResponses();
             }
         } else {
@@ -319,10 +473,29 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
     }
 
     protected <A extends Address> void dispatchCommand(CommandResponderEvent<A> command, CoexistenceInfo cinfo) {
+        dispatchCommand(command, cinfo, System.nanoTime());
+    }
+
+    /**
+     * Dispatches a command to the request handler for its PDU type.
+     *
+     * @param command
+     *         the request event.
+     * @param cinfo
+     *         the coexistence information of the request.
+     * @param receivedNanos
+     *         the {@link System#nanoTime()} when the request has been received, the base of the request's deadline.
+     * @param <A>
+     *         the address type of the request's source.
+     *
+     * @since 3.4.0
+     */
+    protected <A extends Address> void dispatchCommand(CommandResponderEvent<A> command, CoexistenceInfo cinfo,
+                                                       long receivedNanos) {
         try {
             RequestHandler<SnmpRequest> handler = getHandler(command.getPDU().getType());
             if (handler != null) {
-                processRequest(command, cinfo, handler);
+                processRequest(command, cinfo, handler, receivedNanos);
             } else {
                 sendUnknownPDUHandlersReport(command);
             }
@@ -355,7 +528,38 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
 
     protected <A extends Address> void processRequest(CommandResponderEvent<A> command, CoexistenceInfo cinfo,
                                                       RequestHandler<SnmpRequest> handler) {
+        processRequest(command, cinfo, handler, System.nanoTime());
+    }
+
+    /**
+     * Creates a request for a command, assigns its deadline, and processes it with the supplied handler. Requests
+     * whose deadline already passed (for example while waiting in the queue of a {@link FairRequestScheduler}) are
+     * dropped without processing.
+     *
+     * @param command
+     *         the request event.
+     * @param cinfo
+     *         the coexistence information of the request.
+     * @param handler
+     *         the request handler for the command's PDU type.
+     * @param receivedNanos
+     *         the {@link System#nanoTime()} when the request has been received, the base of the request's deadline.
+     * @param <A>
+     *         the address type of the request's source.
+     *
+     * @since 3.4.0
+     */
+    protected <A extends Address> void processRequest(CommandResponderEvent<A> command, CoexistenceInfo cinfo,
+                                                      RequestHandler<SnmpRequest> handler, long receivedNanos) {
         SnmpRequest req = requestFactory.createRequest(command, cinfo);
+        long deadlineMillis = getRequestDeadline(req.getSecurityName());
+        if (deadlineMillis > 0) {
+            req.setDeadline(receivedNanos + deadlineMillis * SnmpConstants.MILLISECOND_TO_NANOSECOND);
+            if (req.isExpired()) {
+                dropExpiredRequest(req);
+                return;
+            }
+        }
         requestList.add(req);
 
         MOServer server = null;
@@ -413,16 +617,60 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
 
     protected <A extends Address> void finalizeRequest(CommandResponderEvent<A> command, SnmpRequest req,
                                                        MOServer server) {
-        if (req.isComplete()) {
+        if (req.isExpired() && (command.getPDU().getType() != PDU.SET)) {
             requestList.remove(req);
+            if (server != null) {
+                release(server, req);
+            }
+            dropExpiredRequest(req);
+        } else if (req.isComplete()) {
+            requestList.remove(req);
+            PDU response = req.getResponse();
+            // cut GETBULK responses to the maximum size before sending them
+            req.trimResponse(command.getMaxSizeResponsePDU());
             // send response
-            sendResponse(command, req.getResponse());
+            sendResponse(command, response);
             if (server != null) {
                 release(server, req);
             }
         }
     }
 
+    /**
+     * Counts a request that is dropped because its deadline has passed.
+     *
+     * @param req
+     *         the expired request.
+     *
+     * @since 3.4.0
+     */
+    protected void dropExpiredRequest(SnmpRequest req) {
+        expiredRequests.incrementAndGet();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Dropped request " + req.getTransactionID() + " from " + req.getSource().getPeerAddress() +
+                    " because its deadline has passed");
+        }
+        fireIncrementCounter(new CounterEvent(this, oidSnmp4jAgentRequestsExpired));
+    }
+
+    /**
+     * Creates the lock request for looking up managed objects for read access on behalf of the supplied request.
+     * The lock request uses the internal request timeout and the deadline of the request, if it has one.
+     *
+     * @param request
+     *         a GET, GETNEXT, or GETBULK request.
+     *
+     * @return a new lock request owned by {@code request}.
+     * @since 3.4.0
+     */
+    protected LockRequest createReadLockRequest(SnmpRequest request) {
+        LockRequest lockRequest = new LockRequest(request, requestList.getTimeout());
+        if (request.hasDeadline()) {
+            lockRequest.setDeadline(request.getDeadline());
+        }
+        return lockRequest;
+    }
+
     protected void release(MOServer server, SnmpRequest req) {
         for (Iterator<SnmpRequest.SnmpSubRequest> it = req.iterator(); it.hasNext(); ) {
             SnmpRequest.SnmpSubRequest sreq = it.next();
@@ -494,6 +742,33 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
         pduHandler.remove(handler);
     }
 
+    /**
+     * Replaces the request handlers that support the specified PDU type by the supplied handler, for example, to
+     * replace the default GETBULK handler by a {@link RowMajorGetBulkHandler}.
+     *
+     * @param pduType
+     *         a PDU type as defined by {@link PDU}.
+     * @param handler
+     *         the new handler for {@code pduType}.
+     *
+     * @return the removed handlers.
+     * @since 3.4.0
+     */
+    public List<RequestHandler<SnmpRequest>> replacePduHandler(int pduType, RequestHandler<SnmpRequest> handler) {
+        List<RequestHandler<SnmpRequest>> removed = new ArrayList<>(1);
+        synchronized (pduHandler) {
+            for (Iterator<RequestHandler<SnmpRequest>> it = pduHandler.iterator(); it.hasNext(); ) {
+                RequestHandler<SnmpRequest> h = it.next();
+                if (h.isSupported(pduType)) {
+                    removed.add(h);
+                    it.remove();
+                }
+            }
+            pduHandler.add(handler);
+        }
+        return removed;
+    }
+
     /**
      * Adds a {@link MOServer} to this command processor and returns {@code true} on success.
      * @param server
@@ -563,6 +838,7 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
 
         private CommandResponderEvent<A> request;
         private CoexistenceInfo cinfo;
+        private final long received = System.nanoTime();
 
         public Command(CommandResponderEvent<A> event, CoexistenceInfo cinfo) {
             this.request = event;
@@ -570,7 +846,7 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
         }
 
         public void run() {
-            dispatchCommand(request, cinfo);
+            dispatchCommand(request, cinfo, received);
         }
 
         public void terminate() {
@@ -654,12 +930,16 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
             sreq.setQuery(query);
         }
         ManagedObject<SubRequest<?>> mo;
-        LockRequest lockRequest = new LockRequest(request, requestList.getTimeout());
+        LockRequest lockRequest = createReadLockRequest(request);
         MOServerLookupEvent lookupEvent = new MOServerLookupEvent(this, null,
                 query, MOServerLookupEvent.IntendedUse.getNext, true);
         while (!sreq.getStatus().isProcessed()) {
             mo = server.lookup(query, lockRequest, lookupEvent, GenericManagedObject.class);
             if (mo == null) {
+                if (lockRequest.getLockRequestStatus() == LockRequest.LockStatus.lockTimedOut) {
+                    setLockTimedOut(request, sreq);
+                    continue;
+                }
                 if (logger.isDebugEnabled()) {
                     logger.debug("EndOfMibView at scope=" + scope + " and query " + query);
                 }
@@ -668,44 +948,95 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
                 continue;
             }
             try {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Processing NEXT query " + query + " with " + mo +
-                            " sub-request with index " + sreq.getIndex());
-                }
-                boolean counter64Skip = false;
-                if ((!mo.next(sreq)) ||
-                        (counter64Skip = ((request.getMessageProcessingModel() == MPv1.ID) &&
-                                (sreq.getVariableBinding().getSyntax() ==
-                                        SMIConstants.SYNTAX_COUNTER64)))) {
-                    sreq.getVariableBinding().setVariable(Null.instance);
-                    if (counter64Skip) {
-                        scope.lowerBound = sreq.getVariableBinding().getOid();
-                        scope.lowerIncluded = false;
-                        sreq.getStatus().setProcessed(false);
-                    } else {
-                        scope.substractScope(mo.getScope());
-                        // don't forget to update VACM query:
-                        query.substractScope(mo.getScope());
-                    }
-                }
-            } catch (Exception moex) {
-                if (logger.isDebugEnabled()) {
-                    moex.printStackTrace();
-                }
-                logger.error("Exception occurred while executing NEXT query: " +
-                        moex.getMessage(), moex);
-                if (sreq.getStatus().getErrorStatus() == PDU.noError) {
-                    sreq.getStatus().setErrorStatus(PDU.genErr);
-                }
-                if (SNMP4JSettings.isForwardRuntimeExceptions()) {
-                    throw new RuntimeException(moex);
-                }
+                processNextSubRequest(request, sreq, mo);
             } finally {
                 unlockManagedObjectIfLockedByLookup(server, mo, lockRequest);
             }
         }
     }
 
+    /**
+     * Processes a GETNEXT (or GETBULK) sub-request with the managed object returned by a preceding lookup for the
+     * sub-request's query. The caller has to hold the lock of {@code mo}, if the lookup acquired one. If {@code mo}
+     * has no successor for the sub-request, the scope of the sub-request and its query are moved beyond
+     * {@code mo} and the sub-request is left unprocessed. Then the search can be continued by
+     * {@link #processNextSubRequest(SnmpRequest, MOServer, OctetString, SubRequest)} without looking up {@code mo}
+     * again.
+     *
+     * @param request
+     *         the GETNEXT or GETBULK request.
+     * @param sreq
+     *         the sub-request with a {@link DefaultMOContextScope} and the query used to lookup {@code mo}.
+     * @param mo
+     *         the managed object found for the query of {@code sreq}.
+     *
+     * @since 3.4.0
+     */
+    protected void processNextSubRequest(SnmpRequest request, SubRequest<?> sreq, ManagedObject<SubRequest<?>> mo) {
+        DefaultMOContextScope scope = (DefaultMOContextScope) sreq.getScope();
+        MOQuery query = sreq.getQuery();
+        OID queryLowerBound = query.getScope().getLowerBound();
+        if ((queryLowerBound != null) && (queryLowerBound.compareTo(scope.getLowerBound()) > 0)) {
+            // the query skipped a region that is not in the view
+            scope.lowerBound = queryLowerBound;
+            scope.lowerIncluded = query.getScope().isLowerIncluded();
+        }
+        try {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Processing NEXT query " + query + " with " + mo +
+                        " sub-request with index " + sreq.getIndex());
+            }
+            boolean counter64Skip = false;
+            if ((!mo.next(sreq)) ||
+                    (counter64Skip = ((request.getMessageProcessingModel() == MPv1.ID) &&
+                            (sreq.getVariableBinding().getSyntax() ==
+                                    SMIConstants.SYNTAX_COUNTER64)))) {
+                sreq.getVariableBinding().setVariable(Null.instance);
+                if (counter64Skip) {
+                    scope.lowerBound = sreq.getVariableBinding().getOid();
+                    scope.lowerIncluded = false;
+                    sreq.getStatus().setProcessed(false);
+                } else {
+                    scope.substractScope(mo.getScope());
+                    // don't forget to update VACM query:
+                    query.substractScope(mo.getScope());
+                }
+            }
+        } catch (Exception moex) {
+            if (logger.isDebugEnabled()) {
+                moex.printStackTrace();
+            }
+            logger.error("Exception occurred while executing NEXT query: " +
+                    moex.getMessage(), moex);
+            if (sreq.getStatus().getErrorStatus() == PDU.noError) {
+                sreq.getStatus().setErrorStatus(PDU.genErr);
+            }
+            if (SNMP4JSettings.isForwardRuntimeExceptions()) {
+                throw new RuntimeException(moex);
+            }
+        }
+    }
+
+    /**
+     * Marks a read sub-request as failed because the managed object that would have answered it could not be locked
+     * within the timeout of the request. As for SET requests, the error status is set to {@link PDU#genErr} unless
+     * the sub-request already has an error.
+     *
+     * @param request
+     *         the request of {@code sreq}.
+     * @param sreq
+     *         the sub-request whose lookup timed out.
+     *
+     * @since 3.4.0
+     */
+    protected void setLockTimedOut(SnmpRequest request, SubRequest<?> sreq) {
+        logger.warn("Request " + request + " failed because the managed object for sub-request with index " +
+                sreq.getIndex() + " could not be locked");
+        if (sreq.getStatus().getErrorStatus() == PDU.noError) {
+            sreq.getStatus().setErrorStatus(PDU.genErr);
+        }
+    }
+
     /**
      * Unlock the provided {@link ManagedObject} if the also provided {@link LockRequest} indicates
      * that the managed object was locked by a preceding {@link MOServer#lookup(MOQuery, LockRequest)} operation.
@@ -1068,7 +1399,7 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
             OctetString context = request.getContext();
             try {
                 Iterator<SnmpRequest.SnmpSubRequest> it = request.iterator();
-                LockRequest lockRequest = new LockRequest(request, requestList.getTimeout());
+                LockRequest lockRequest = createReadLockRequest(request);
                 while (it.hasNext()) {
                     SnmpRequest.SnmpSubRequest sreq = it.next();
                     MOScope scope = sreq.getScope();
@@ -1173,6 +1504,8 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
     class VACMQuery extends MOQueryWithSource {
 
         private OctetString viewName;
+        private boolean boundAdvanced;
+        private boolean viewExhausted;
 
         /**
          * Creates a VACMQuery for read-only access.
@@ -1215,22 +1548,51 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
 
         public boolean isSearchQuery() {
             MOContextScope scope = getScope();
-            return ((!scope.isLowerIncluded()) &&
+            return ((boundAdvanced || !scope.isLowerIncluded()) &&
                     ((scope.getUpperBound() == null) ||
                             (!scope.getUpperBound().equals(scope.getLowerBound()))));
         }
 
+        /**
+         * Checks whether the supplied managed object contains an object instance within the scope of this
+         * query that is in the query's view. For search queries, excluded regions of the view are skipped by
+         * advancing the lower bound of this query to the bound returned by
+         * {@link VACM#getNextPermittedBound(OctetString, OID)}. The caller is responsible for applying the
+         * advanced lower bound to the sub-request's scope (see {@link #processNextSubRequest}).
+         *
+         * @param managedObject
+         *         a managed object overlapping the query's scope.
+         *
+         * @return {@code true} if the managed object contains an accessible instance within the scope.
+         */
         public boolean matchesQuery(ManagedObject<?> managedObject) {
+            if (!isSearchQuery()) {
+                return (vacm.isAccessAllowed(viewName, getScope().getLowerBound()) == VACM.VACM_OK);
+            }
+            if (viewExhausted) {
+                return false;
+            }
             OID oid;
-            if (isSearchQuery()) {
-                oid = managedObject.find(getScope());
-                if (oid == null) {
+            while ((oid = managedObject.find(getScope())) != null) {
+                if (vacm.isAccessAllowed(viewName, oid) == VACM.VACM_OK) {
+                    return true;
+                }
+                OID bound = vacm.getNextPermittedBound(viewName, oid);
+                if (bound == null) {
+                    // nothing after oid is in the view
+                    viewExhausted = true;
                     return false;
                 }
-            } else {
-                oid = getScope().getLowerBound();
+                if (bound.compareTo(oid) <= 0) {
+                    // no hint available
+                    return false;
+                }
+                DefaultMOContextScope scope = (DefaultMOContextScope) getScope();
+                scope.setLowerBound(bound);
+                scope.setLowerIncluded(true);
+                boundAdvanced = true;
             }
-            return (vacm.isAccessAllowed(viewName, oid) == VACM.VACM_OK);
+            return false;
         }
 
         public boolean isAccessAllowed(OID oid) {
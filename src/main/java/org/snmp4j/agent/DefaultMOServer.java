@@ -22,6 +22,10 @@ package org.snmp4j.agent;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.snmp4j.agent.mo.*;
 import org.snmp4j.agent.mo.lock.DefaultMOLockStrategy;
@@ -35,28 +39,132 @@ import org.snmp4j.smi.*;
 /**
  * The default MO server implementation uses a sorted map for the managed object
  * registry.
+ * <p>
+ * Modifications of the registry (see {@link #register(ManagedObject, OctetString)} and
+ * {@link #unregister(ManagedObject, OctetString)}) are serialized and copy the registry
+ * into an immutable snapshot. Lookups operate on the snapshot that was current when the lookup
+ * started and therefore neither acquire a monitor nor allocate an iterator.
+ * <p>
+ * Lookups of a single object instance (a query scope whose lower and upper bound are the same included OID,
+ * as issued for GET requests) remember the registry position of the first candidate managed object per
+ * context and OID. Repeated lookups of the same instance thus start with a single hash lookup instead of
+ * a binary search over the registry. The cache is discarded whenever the registry or the context set changes
+ * and its effectiveness can be monitored by {@link #getLookupCacheHits()} and {@link #getLookupCacheMisses()}.
+ * Registered as {@link MOGroup} (see {@link #registerMOs(MOServer, OctetString)}), the server provides these counters
+ * as objects of the SNMP4J-REQUEST-MIB.
+ * <p>
+ * Managed object locks (see {@link #lock(Object, ManagedObject, long)}) are guarded by a fixed number of
+ * {@link ReentrantLock} stripes, so that waiting for a lock on one object does not block or wake up
+ * lock operations on objects of other stripes. With fair locking, the lock of a managed object is granted to its
+ * waiters in the order of their arrival.
  *
  * @author Frank Fock
  * @version 3.1.0
  */
-public class DefaultMOServer implements MOServer {
+public class DefaultMOServer implements MOServer, MOGroup {
 
     private static final LogAdapter logger =
             LogFactory.getLogger(DefaultMOServer.class);
 
     private Set<OctetString> contexts;
-    private SortedMap<MOScope, ManagedObject<?>> registry;
-    private Map<ManagedObject<?>, Lock> lockList;
+    private final SortedMap<MOScope, ManagedObject<?>> registry;
+    private volatile RegistrySnapshot registrySnapshot;
+    private final MOScopeComparator scopeComparator = new MOScopeComparator();
+    private final Map<ManagedObject<?>, Lock> lockList;
+    private final ReentrantLock[] lockStripes;
+    private final Condition[] lockReleasedConditions;
+    private final boolean fairLocking;
+    private final LongAdder lockWaitCount = new LongAdder();
+    private final LongAdder lockWaitTimeNanos = new LongAdder();
+    private final LongAdder lockTimeoutCount = new LongAdder();
+    private final LongAdder lookupCacheHits = new LongAdder();
+    private final LongAdder lookupCacheMisses = new LongAdder();
+    private volatile int lookupCacheSize = DEFAULT_LOOKUP_CACHE_SIZE;
     private Map<ManagedObject<?>, List<MOServerLookupListener>> lookupListener;
     private transient List<ContextListener> contextListeners;
     private UpdateStrategy updateStrategy;
     private MOLockStrategy lockStrategy = new DefaultMOLockStrategy();
 
 
+    /**
+     * The default number of lock stripes used to guard the managed object locks.
+     * @since 3.4.0
+     */
+    public static final int DEFAULT_LOCK_STRIPES = 64;
+
+    /**
+     * The default maximum number of object instance lookups remembered by the lookup cache.
+     * @since 3.4.0
+     */
+    public static final int DEFAULT_LOOKUP_CACHE_SIZE = 10000;
+
+    /**
+     * The number of single instance lookups whose start position was found in the lookup cache (Counter32).
+     * @since 3.4.0
+     */
+    public static final OID oidSnmp4jRequestLookupCacheHits =
+            new OID(new int[]{1, 3, 6, 1, 4, 1, 4976, 10, 1, 1, 5, 4, 1, 0});
+    /**
+     * The number of single instance lookups whose start position had to be searched in the registry (Counter32).
+     * @since 3.4.0
+     */
+    public static final OID oidSnmp4jRequestLookupCacheMisses =
+            new OID(new int[]{1, 3, 6, 1, 4, 1, 4976, 10, 1, 1, 5, 4, 2, 0});
+
+    private final MOScalar<Counter32> snmp4jRequestLookupCacheHits =
+            new MOScalar<Counter32>(oidSnmp4jRequestLookupCacheHits, MOAccessImpl.ACCESS_READ_ONLY,
+                    new Counter32()) {
+                @Override
+                public Counter32 getValue() {
+                    return new Counter32(getLookupCacheHits() & 0xFFFFFFFFL);
+                }
+            };
+    private final MOScalar<Counter32> snmp4jRequestLookupCacheMisses =
+            new MOScalar<Counter32>(oidSnmp4jRequestLookupCacheMisses, MOAccessImpl.ACCESS_READ_ONLY,
+                    new Counter32()) {
+                @Override
+                public Counter32 getValue() {
+                    return new Counter32(getLookupCacheMisses() & 0xFFFFFFFFL);
+                }
+            };
+
+    /**
+     * Creates a managed object server with {@link #DEFAULT_LOCK_STRIPES} lock stripes and non-fair managed object
+     * locks.
+     */
     public DefaultMOServer() {
-        this.registry = new TreeMap<>(new MOScopeComparator());
+        this(DEFAULT_LOCK_STRIPES, false);
+    }
+
+    /**
+     * Creates a managed object server whose managed object locks are guarded by the specified number
+     * of lock stripes. Lock operations on managed objects mapped to different stripes do not contend
+     * with each other and releasing a lock wakes up only the waiters of the same stripe.
+     *
+     * @param lockStripes
+     *         the number of lock stripes, which will be rounded up to the next power of two.
+     * @param fairLocking
+     *         if {@code true}, each managed object lock is granted in the order of the lock requests: An owner that
+     *         does not hold the lock yet has to wait while there are older waiters, and a waiter gets the lock only
+     *         after all older waiters (consecutive shared waiters get a shared lock together). Recursive locks of
+     *         current owners are granted without waiting. The stripe locks are fair too. If {@code false}, waiters
+     *         compete for a released lock, but new shared owners still wait while an exclusive lock is awaited.
+     *
+     * @since 3.4.0
+     */
+    public DefaultMOServer(int lockStripes, boolean fairLocking) {
+        int stripes = (lockStripes <= 1) ? 1 : Integer.highestOneBit(lockStripes - 1) << 1;
+        this.lockStripes = new ReentrantLock[stripes];
+        this.lockReleasedConditions = new Condition[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.lockStripes[i] = new ReentrantLock(fairLocking);
+            this.lockReleasedConditions[i] = this.lockStripes[i].newCondition();
+        }
+        this.fairLocking = fairLocking;
+        this.registry = new TreeMap<>(scopeComparator);
+        this.registrySnapshot = new RegistrySnapshot(registry, scopeComparator);
         this.contexts = new LinkedHashSet<>(10);
-        this.lockList = new Hashtable<>(10);
+        this.lockList = new ConcurrentHashMap<>(16);
     }
 
 
@@ -129,40 +237,58 @@ public class DefaultMOServer implements MOServer {
                                                     boolean specificRegistrationsOnly, LockRequest lockRequest,
                                                     MOServerLookupEvent event, Class<MO> managedObjectType) {
 
-        SortedMap<MOScope, ManagedObject<?>> scope = registry.tailMap(query);
+        RegistrySnapshot snapshot = registrySnapshot;
         boolean timedOut = false;
         if (lockRequest != null) {
             lockRequest.setLockRequestStatus(LockRequest.LockStatus.notRequired);
         }
-        for (Entry<MOScope, ManagedObject<?>> entry : scope.entrySet()) {
-            MOScope key = entry.getKey();
+        int start = (specificRegistrationsOnly) ? snapshot.ceilingIndex(query) : firstCandidateIndex(snapshot, query);
+        for (int i = start; i < snapshot.size(); i++) {
+            MOScope key = snapshot.scopes[i];
             if (!MOScopeComparator.isQueryContextMatching(query, key)) {
                 continue;
             }
+            if ((lockRequest != null) && lockRequest.isExpired()) {
+                // the request is no longer worth processing
+                lockRequest.setLockRequestStatus(LockRequest.LockStatus.lockTimedOut);
+                return null;
+            }
             if ((specificRegistrationsOnly) &&
                     (!(key instanceof MOContextScope) || (((MOContextScope) key).getContext() == null))) {
                 continue;
             }
-            ManagedObject<?> managedObject = entry.getValue();
+            ManagedObject<?> managedObject = snapshot.managedObjects[i];
             MOScope moScope = managedObject.getScope();
             if ((managedObjectType.isInstance(managedObject)) && query.getScope().isOverlapping(moScope)) {
                 MO mo = managedObjectType.cast(managedObject);
                 event.setLookupResult(mo);
                 fireQueryEvent(mo, event);
                 // apply locking if needed
-                if ((lockStrategy != null) && (lockRequest != null) && (lockRequest.getLockOwner() != null) &&
-                        lockStrategy.isLockNeeded(mo, query)) {
-                    if (!lock(lockRequest.getLockOwner(), mo, lockRequest.getTimeoutMillis())) {
+                LockRequest.LockMode lockMode = null;
+                if ((lockStrategy != null) && (lockRequest != null) && (lockRequest.getLockOwner() != null)) {
+                    lockMode = lockStrategy.getLockMode(mo, query, event.getIntendedUse());
+                }
+                if (lockMode != null) {
+                    if (!lock(lockRequest.getLockOwner(), mo, lockRequest.getEffectiveTimeoutMillis(), lockMode)) {
                         timedOut = true;
                         continue;
                     } else {
                         lockRequest.setLockRequestStatus((timedOut) ?
                                 LockRequest.LockStatus.lockedAfterTimeout : LockRequest.LockStatus.locked);
+                        lockRequest.setLockMode(lockMode);
                     }
                 }
                 if (mo instanceof UpdatableManagedObject) {
-                    checkForUpdate((UpdatableManagedObject) mo, query);
+                    if (lockMode == LockRequest.LockMode.shared) {
+                        if (!checkForUpdateExclusively((UpdatableManagedObject<?>) mo, query, lockRequest)) {
+                            timedOut = true;
+                            continue;
+                        }
+                    } else {
+                        checkForUpdate((UpdatableManagedObject) mo, query);
+                    }
                 }
+                OID lowerBound = query.getScope().getLowerBound();
                 if (query.matchesQuery(mo)) {
                     event.setLookupResult(mo);
                     fireLookupEvent(mo, event);
@@ -170,6 +296,10 @@ public class DefaultMOServer implements MOServer {
                 } else if (lockRequest != null) {
                     unlock(lockRequest.getLockOwner(), mo);
                 }
+                if (query.getScope().getLowerBound() != lowerBound) {
+                    // the query skipped OIDs it is not interested in (e.g. a region excluded from the view)
+                    i = Math.max(i, snapshot.ceilingIndex(query) - 1);
+                }
             }
         }
         if (timedOut) {
@@ -178,6 +308,46 @@ public class DefaultMOServer implements MOServer {
         return null;
     }
 
+    /**
+     * Returns the registry position where a lookup for the supplied query has to start. For single instance
+     * queries, the position of the first managed object that matches the query's context and overlaps its
+     * scope is taken from (or added to) the lookup cache of the snapshot. For other queries, the position is
+     * determined by a binary search.
+     *
+     * @param snapshot
+     *         the registry snapshot the lookup operates on.
+     * @param query
+     *         the query.
+     *
+     * @return the registry position to start the lookup with.
+     */
+    private int firstCandidateIndex(RegistrySnapshot snapshot, MOQuery query) {
+        MOContextScope scope = query.getScope();
+        int maxCacheSize = lookupCacheSize;
+        if ((maxCacheSize <= 0) || !scope.isLowerIncluded() || !scope.isUpperIncluded() ||
+                (scope.getLowerBound() == null) || !scope.getLowerBound().equals(scope.getUpperBound())) {
+            return snapshot.ceilingIndex(query);
+        }
+        LookupKey key = new LookupKey(query.getContext(), scope.getLowerBound());
+        Integer cached = snapshot.lookupCache.get(key);
+        if (cached != null) {
+            lookupCacheHits.increment();
+            return cached;
+        }
+        lookupCacheMisses.increment();
+        int i = snapshot.ceilingIndex(query);
+        while ((i < snapshot.size()) && (!MOScopeComparator.isQueryContextMatching(query, snapshot.scopes[i]) ||
+                !scope.isOverlapping(snapshot.managedObjects[i].getScope()))) {
+            i++;
+        }
+        if (snapshot.lookupCache.size() >= maxCacheSize) {
+            snapshot.lookupCache.clear();
+        }
+        // copy the OID because the query's OID might be modified by the caller afterwards
+        snapshot.lookupCache.put(new LookupKey(key.context, new OID(key.oid)), i);
+        return i;
+    }
+
     /**
      * Checks {@link #updateStrategy} whether the queried managed object needs
      * to be updated. This method is called on behalf of
@@ -203,6 +373,51 @@ public class DefaultMOServer implements MOServer {
         }
     }
 
+    /**
+     * Updates an {@link UpdatableManagedObject} that has been locked in shared mode by the supplied lock request
+     * if the {@link #updateStrategy} requires it. Because shared lock owners must not update the managed object
+     * concurrently, the shared lock is temporarily replaced by an exclusive lock during the update. If the
+     * exclusive lock cannot be acquired within the lock request's timeout, the update is skipped and the shared
+     * lock is reacquired within the remaining time of that timeout. If that fails too, the status of the lock request
+     * is set to {@link LockRequest.LockStatus#lockTimedOut}.
+     *
+     * @param mo
+     *         an UpdatableManagedObject instance locked in shared mode by {@code lockRequest}.
+     * @param query
+     *         the query that is interested in content of {@code mo}.
+     * @param lockRequest
+     *         the lock request that holds the shared lock on {@code mo}.
+     *
+     * @return {@code true} if {@code mo} is still locked by {@code lockRequest} and {@code false} if the
+     * lock has been lost because neither the exclusive nor the shared lock could be (re)acquired in time.
+     * @since 3.4.0
+     */
+    protected boolean checkForUpdateExclusively(UpdatableManagedObject<?> mo, MOQuery query,
+                                                LockRequest lockRequest) {
+        if ((updateStrategy != null) && updateStrategy.isUpdateNeeded(this, mo, query)) {
+            Object owner = lockRequest.getLockOwner();
+            unlock(owner, mo);
+            long timeoutMillis = lockRequest.getEffectiveTimeoutMillis();
+            long start = System.nanoTime();
+            if (lock(owner, mo, timeoutMillis, LockRequest.LockMode.exclusive)) {
+                checkForUpdate(mo, query);
+                downgradeLock(owner, mo);
+            } else {
+                logger.warn("Skipped update of " + mo + " because exclusive lock could not be acquired for " + owner);
+                // the shared lock may only wait for the rest of the lock request's timeout
+                if (timeoutMillis > 0) {
+                    timeoutMillis = Math.max(1, timeoutMillis -
+                            (System.nanoTime() - start) / SnmpConstants.MILLISECOND_TO_NANOSECOND);
+                }
+                if (!lock(owner, mo, timeoutMillis, LockRequest.LockMode.shared)) {
+                    lockRequest.setLockRequestStatus(LockRequest.LockStatus.lockTimedOut);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns the {@code ManagedObject} with the specified {@code OID}
      * as ID returned by {@link RegisteredManagedObject#getID()} or the lower bound
@@ -236,13 +451,13 @@ public class DefaultMOServer implements MOServer {
         MOContextScope scope =
                 new DefaultMOContextScope(context, key, true, key, true);
         MOQuery query = new DefaultMOQuery(scope);
-        SortedMap<MOScope, ManagedObject<?>> reducedScope = registry.tailMap(query);
-        for (Entry<MOScope, ManagedObject<?>> entry : reducedScope.entrySet()) {
-            MOScope compareScope = entry.getKey();
+        RegistrySnapshot snapshot = registrySnapshot;
+        for (int i = snapshot.ceilingIndex(query); i < snapshot.size(); i++) {
+            MOScope compareScope = snapshot.scopes[i];
             if (!MOScopeComparator.isQueryContextMatching(query, compareScope)) {
                 continue;
             }
-            ManagedObject<?> mo = entry.getValue();
+            ManagedObject<?> mo = snapshot.managedObjects[i];
             if (((mo instanceof RegisteredManagedObject) && ((RegisteredManagedObject) mo).getID().equals(key)) ||
                     (!(mo instanceof RegisteredManagedObject) && key.equals(mo.getScope().getLowerBound()))) {
                 if (fireLookupEvents) {
@@ -412,8 +627,15 @@ public class DefaultMOServer implements MOServer {
         return contexts.contains(context);
     }
 
+    /**
+     * Returns the current registry snapshot of this server. The returned map is immutable and reflects
+     * the registrations at the time of the call. Registrations have to be modified by
+     * {@link #register(ManagedObject, OctetString)} and {@link #unregister(ManagedObject, OctetString)}.
+     *
+     * @return an unmodifiable sorted map of the registered {@link ManagedObject}s by their (context) scope.
+     */
     public SortedMap<MOScope, ManagedObject<?>> getRegistry() {
-        return registry;
+        return registrySnapshot.map;
     }
 
     /**
@@ -448,6 +670,13 @@ public class DefaultMOServer implements MOServer {
 
     @Override
     public void register(ManagedObject<?> mo, OctetString context) throws DuplicateRegistrationException {
+        synchronized (registry) {
+            registerInternal(mo, context);
+            updateRegistrySnapshot();
+        }
+    }
+
+    private void registerInternal(ManagedObject<?> mo, OctetString context) throws DuplicateRegistrationException {
         if ((context == null) || (context.length() == 0)) {
             MOContextScope contextScope =
                     new DefaultMOContextScope(null, mo.getScope());
@@ -490,22 +719,28 @@ public class DefaultMOServer implements MOServer {
         } else {
             key = new DefaultMOContextScope(context, mo.getScope());
         }
-        ManagedObject<?> r = registry.remove(key);
-        if (r == null) {
-            // OK, may be the upper bound of the scope has been adjusted so we need to
-            // check that by iterating
-            SortedMap<MOScope, ManagedObject<?>> tailMap = registry.tailMap(key);
-            for (Iterator<Entry<MOScope, ManagedObject<?>>> it = tailMap.entrySet().iterator(); it.hasNext(); ) {
-                Entry<MOScope, ManagedObject<?>> entry = it.next();
-                MOScope entryKey = entry.getKey();
-                if ((entry.getValue().equals(mo)) &&
-                        (context == null || ((entryKey instanceof MOContextScope) &&
-                                (context.equals(((MOContextScope) entryKey).getContext()))))) {
-                    r = entry.getValue();
-                    it.remove();
-                    break;
+        ManagedObject<?> r;
+        synchronized (registry) {
+            r = registry.remove(key);
+            if (r == null) {
+                // OK, may be the upper bound of the scope has been adjusted so we need to
+                // check that by iterating
+                SortedMap<MOScope, ManagedObject<?>> tailMap = registry.tailMap(key);
+                for (Iterator<Entry<MOScope, ManagedObject<?>>> it = tailMap.entrySet().iterator(); it.hasNext(); ) {
+                    Entry<MOScope, ManagedObject<?>> entry = it.next();
+                    MOScope entryKey = entry.getKey();
+                    if ((entry.getValue().equals(mo)) &&
+                            (context == null || ((entryKey instanceof MOContextScope) &&
+                                    (context.equals(((MOContextScope) entryKey).getContext()))))) {
+                        r = entry.getValue();
+                        it.remove();
+                        break;
+                    }
                 }
             }
+            if (r != null) {
+                updateRegistrySnapshot();
+            }
         }
         if (r != null) {
             MOServerLookupEvent event =
@@ -528,90 +763,296 @@ public class DefaultMOServer implements MOServer {
 
     public void addContext(OctetString context) {
         contexts.add(context);
+        invalidateLookupCache();
         fireContextChanged(new ContextEvent(this, ContextEvent.CONTEXT_ADDED, context));
     }
 
     public void removeContext(OctetString context) {
         contexts.remove(context);
+        invalidateLookupCache();
         fireContextChanged(new ContextEvent(this, ContextEvent.CONTEXT_REMOVED, context));
     }
 
-    public synchronized boolean lock(Object owner, ManagedObject<?> managedObject) {
+    public boolean lock(Object owner, ManagedObject<?> managedObject) {
         return lock(owner, managedObject, 0);
     }
 
-    public synchronized boolean lock(Object owner, ManagedObject<?> managedObject,
-                                     long timeoutMillis) {
-        Lock lock;
+    public boolean lock(Object owner, ManagedObject<?> managedObject, long timeoutMillis) {
+        return lock(owner, managedObject, timeoutMillis, LockRequest.LockMode.exclusive);
+    }
+
+    /**
+     * Locks a ManagedObject by the supplied owner in the specified mode. A {@link LockRequest.LockMode#shared}
+     * lock can be held by several owners at the same time, whereas an {@link LockRequest.LockMode#exclusive}
+     * lock excludes any other owner. An owner may lock the same managed object again (recursively) and
+     * needs to unlock it as many times as it has been locked. While an exclusive lock is awaited,
+     * new shared locks are only granted to owners that already hold a lock on the managed object.
+     * If this server uses fair locking, waiters are granted the lock in their order of arrival.
+     *
+     * @param owner
+     *         an Object.
+     * @param managedObject
+     *         the ManagedObject to lock.
+     * @param timeoutMillis
+     *         the number of 1/1000 seconds to wait for the lock. 0 or less disables
+     *         the timeout and waits forever until the lock is released by the current owner(s).
+     * @param lockMode
+     *         the lock mode to acquire.
+     *
+     * @return {@code true} if the lock could be acquired, {@code false}
+     * otherwise, i.e. if an InterruptedException or timeout has occurred.
+     * @since 3.4.0
+     */
+    public boolean lock(Object owner, ManagedObject<?> managedObject, long timeoutMillis,
+                        LockRequest.LockMode lockMode) {
+        int stripe = lockStripeIndex(managedObject);
+        ReentrantLock stripeLock = lockStripes[stripe];
+        Condition lockReleased = lockReleasedConditions[stripe];
         long start = System.nanoTime();
-        do {
-            lock = lockList.get(managedObject);
-            if ((lock == null) || ((lock.getOwner() != owner) && (lock.getCount() <= 0))) {
-                lockList.put(managedObject, new Lock(owner));
+        boolean exclusive = (lockMode == LockRequest.LockMode.exclusive);
+        boolean waited = false;
+        Lock.Ticket ticket = null;
+        stripeLock.lock();
+        Lock lock = lockList.computeIfAbsent(managedObject, k -> new Lock(fairLocking));
+        try {
+            while (true) {
+                if (lock.isAvailable(owner, exclusive, ticket)) {
+                    boolean reentered = lock.isHeldBy(owner);
+                    lock.acquire(owner, exclusive);
+                    if (waited) {
+                        lockWaitTimeNanos.add(System.nanoTime() - start);
+                    }
+                    if (logger.isDebugEnabled()) {
+                        logger.debug((reentered ? "Added " : "Acquired ") + lockMode + " lock on " + managedObject +
+                                " for " + owner);
+                    }
+                    return true;
+                }
+                if (!waited) {
+                    waited = true;
+                    lockWaitCount.increment();
+                    ticket = lock.addWaiter(exclusive);
+                }
                 if (logger.isDebugEnabled()) {
-                    logger.debug("Acquired lock on " + managedObject + " for " + owner);
+                    logger.debug("Waiting for " + lockMode + " lock on " + managedObject);
                 }
-                return true;
-            } else if (lock.getOwner() != owner) {
-                try {
-                    while ((lock.getCount() > 0) &&
-                            ((System.nanoTime() - start) / SnmpConstants.MILLISECOND_TO_NANOSECOND < timeoutMillis)) {
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("Waiting for lock on " + managedObject);
-                        }
-                        if (timeoutMillis <= 0) {
-                            wait();
-                        } else {
-                            wait(Math.max(timeoutMillis -
-                                    (System.nanoTime() - start) / SnmpConstants.MILLISECOND_TO_NANOSECOND, 1));
-                        }
+                if (timeoutMillis <= 0) {
+                    lockReleased.await();
+                } else {
+                    long remainingNanos =
+                            timeoutMillis * SnmpConstants.MILLISECOND_TO_NANOSECOND - (System.nanoTime() - start);
+                    if (remainingNanos <= 0) {
+                        lockWaitTimeNanos.add(System.nanoTime() - start);
+                        lockTimeoutCount.increment();
+                        return false;
                     }
-                } catch (InterruptedException ex) {
-                    logger.warn("Waiting for lock on " + managedObject +
-                            " has been interrupted!");
-                    break;
+                    lockReleased.awaitNanos(remainingNanos);
                 }
-            } else {
-                lock.add();
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Added lock on " + managedObject + " for " + owner);
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("Waiting for lock on " + managedObject + " has been interrupted!");
+            lockWaitTimeNanos.add(System.nanoTime() - start);
+            return false;
+        } finally {
+            if (waited) {
+                lock.removeWaiter(exclusive, ticket);
+                if (exclusive || (ticket != null)) {
+                    // lock requests might have been blocked by this (exclusive or older) lock request
+                    lockReleased.signalAll();
                 }
+            }
+            if (lock.isFree()) {
+                lockList.remove(managedObject);
+            }
+            stripeLock.unlock();
+        }
+    }
+
+    /**
+     * Converts the exclusive lock held by the specified owner on the supplied managed object into a
+     * shared lock (with the same hold count) without releasing the lock in between.
+     *
+     * @param owner
+     *         the owner of the exclusive lock.
+     * @param managedObject
+     *         the locked ManagedObject.
+     *
+     * @return {@code true} if the lock has been downgraded, {@code false} if the owner does not hold an
+     * exclusive lock on the managed object.
+     * @since 3.4.0
+     */
+    public boolean downgradeLock(Object owner, ManagedObject<?> managedObject) {
+        int stripe = lockStripeIndex(managedObject);
+        ReentrantLock stripeLock = lockStripes[stripe];
+        stripeLock.lock();
+        try {
+            Lock lock = lockList.get(managedObject);
+            if ((lock != null) && lock.downgrade(owner)) {
+                lockReleasedConditions[stripe].signalAll();
                 return true;
             }
+            return false;
+        } finally {
+            stripeLock.unlock();
         }
-        while (((timeoutMillis <= 0) ||
-                ((System.nanoTime() - start) / SnmpConstants.MILLISECOND_TO_NANOSECOND < timeoutMillis)));
-        return false;
     }
 
-    public synchronized boolean unlock(Object owner, ManagedObject<?> managedObject) {
+    public boolean unlock(Object owner, ManagedObject<?> managedObject) {
         if (managedObject != null) {
-            Lock lock = lockList.get(managedObject);
-            if (lock != null) {
-                if (lock.getOwner() != owner) {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Object '" + owner + "' is not owner of lock: " + lock);
-                    }
-                } else if (lock.remove()) {
-                    lockList.remove(managedObject);
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Removed lock on " + managedObject + " by " + owner);
+            int stripe = lockStripeIndex(managedObject);
+            ReentrantLock stripeLock = lockStripes[stripe];
+            stripeLock.lock();
+            try {
+                Lock lock = lockList.get(managedObject);
+                if (lock != null) {
+                    if (!lock.isHeldBy(owner)) {
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Object '" + owner + "' is not owner of lock: " + lock);
+                        }
+                    } else {
+                        boolean released = lock.release(owner);
+                        if (lock.isFree()) {
+                            lockList.remove(managedObject);
+                        }
+                        lockReleasedConditions[stripe].signalAll();
+                        if (released && logger.isDebugEnabled()) {
+                            logger.debug("Removed lock on " + managedObject + " by " + owner);
+                        }
+                        return released;
                     }
-                    notify();
-                    return true;
                 }
+            } finally {
+                stripeLock.unlock();
             }
         }
         return false;
     }
 
+    private int lockStripeIndex(ManagedObject<?> managedObject) {
+        int h = managedObject.hashCode();
+        return (h ^ (h >>> 16)) & (lockStripes.length - 1);
+    }
+
+    /**
+     * Returns the number of lock operations that had to wait for another owner to release its lock.
+     *
+     * @return the number of contended lock operations since creation of this server.
+     * @since 3.4.0
+     */
+    public long getLockWaitCount() {
+        return lockWaitCount.sum();
+    }
+
+    /**
+     * Returns the accumulated time lock operations have spent waiting for a lock (regardless whether they
+     * acquired it eventually or timed out).
+     *
+     * @return the total lock wait time in nanoseconds since creation of this server.
+     * @since 3.4.0
+     */
+    public long getLockWaitTimeNanos() {
+        return lockWaitTimeNanos.sum();
+    }
+
+    /**
+     * Returns the number of lock operations that failed because their timeout elapsed.
+     *
+     * @return the number of timed out lock operations since creation of this server.
+     * @since 3.4.0
+     */
+    public long getLockTimeoutCount() {
+        return lockTimeoutCount.sum();
+    }
+
+    /**
+     * Returns the number of single instance lookups whose start position was found in the lookup cache.
+     *
+     * @return the number of lookup cache hits since creation of this server.
+     * @since 3.4.0
+     */
+    public long getLookupCacheHits() {
+        return lookupCacheHits.sum();
+    }
+
+    /**
+     * Returns the number of single instance lookups whose start position had to be searched in the registry.
+     *
+     * @return the number of lookup cache misses since creation of this server.
+     * @since 3.4.0
+     */
+    public long getLookupCacheMisses() {
+        return lookupCacheMisses.sum();
+    }
+
+    /**
+     * Registers the lookup cache hit and miss counters of the SNMP4J-REQUEST-MIB, which return
+     * {@link #getLookupCacheHits()} and {@link #getLookupCacheMisses()}. Usually, {@code server} is this server.
+     *
+     * @param server
+     *         the {@code MOServer} where to register the managed objects.
+     * @param context
+     *         the context where to register the managed objects.
+     *
+     * @throws DuplicateRegistrationException
+     *         if the counters are already registered in the context.
+     * @since 3.4.0
+     */
+    @Override
+    public void registerMOs(MOServer server, OctetString context) throws DuplicateRegistrationException {
+        server.register(snmp4jRequestLookupCacheHits, context);
+        server.register(snmp4jRequestLookupCacheMisses, context);
+    }
+
+    @Override
+    public void unregisterMOs(MOServer server, OctetString context) {
+        server.unregister(snmp4jRequestLookupCacheHits, context);
+        server.unregister(snmp4jRequestLookupCacheMisses, context);
+    }
+
+    /**
+     * Returns the maximum number of object instance lookups remembered by the lookup cache.
+     *
+     * @return the maximum lookup cache size, {@code 0} if the cache is disabled.
+     * @since 3.4.0
+     */
+    public int getLookupCacheSize() {
+        return lookupCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of object instance lookups remembered by the lookup cache. If the cache is full,
+     * it is cleared before a new entry is added.
+     *
+     * @param lookupCacheSize
+     *         the maximum number of cached lookups, {@code 0} disables the cache.
+     * @since 3.4.0
+     */
+    public void setLookupCacheSize(int lookupCacheSize) {
+        this.lookupCacheSize = Math.max(0, lookupCacheSize);
+        invalidateLookupCache();
+    }
+
+    /**
+     * Discards all cached lookup results. Registering and unregistering managed objects as well as adding
+     * and removing contexts invalidate the cache automatically. This method needs to be called only if the
+     * scope of a registered managed object has been modified in place.
+     *
+     * @since 3.4.0
+     */
+    public void invalidateLookupCache() {
+        registrySnapshot.lookupCache.clear();
+    }
+
     public Iterator<Entry<MOScope, ManagedObject<?>>> iterator() {
-        SortedMap<MOScope, ManagedObject<?>> m = getRegistry();
-        synchronized (m) {
-            SortedMap<MOScope, ManagedObject<?>> r = new TreeMap<>(new MOScopeComparator());
-            r.putAll(m);
-            return r.entrySet().iterator();
-        }
+        return registrySnapshot.map.entrySet().iterator();
+    }
+
+    /**
+     * Replaces the current registry snapshot by a copy of the registry. This method must be called
+     * while holding the {@link #registry} monitor.
+     */
+    private void updateRegistrySnapshot() {
+        registrySnapshot = new RegistrySnapshot(registry, scopeComparator);
     }
 
     public synchronized void addLookupListener(MOServerLookupListener listener,
@@ -661,6 +1102,7 @@ public class DefaultMOServer implements MOServer {
         buf.append("[contexts=");
         buf.append(contexts);
         buf.append("[keys={");
+        SortedMap<MOScope, ManagedObject<?>> registry = getRegistry();
         for (Iterator<MOScope> it = registry.keySet().iterator(); it.hasNext(); ) {
             MOScope scope = it.next();
             buf.append(scope.getLowerBound());
@@ -690,7 +1132,7 @@ public class DefaultMOServer implements MOServer {
     @Override
     public OctetString[] getRegisteredContexts(ManagedObject<?> managedObject) {
         Set<OctetString> contextSet = new HashSet<>();
-        SortedMap<MOScope, ManagedObject<?>> scope = registry.tailMap(new DefaultMOContextScope(null,
+        SortedMap<MOScope, ManagedObject<?>> scope = getRegistry().tailMap(new DefaultMOContextScope(null,
                 managedObject.getScope()));
         for (Entry<MOScope, ManagedObject<?>> entry : scope.entrySet()) {
             MOScope key = entry.getKey();
@@ -824,46 +1266,268 @@ public class DefaultMOServer implements MOServer {
     }
 
 
+    /**
+     * An immutable copy of the registry that provides array based access to its entries in the order
+     * defined by the {@link MOScopeComparator}.
+     */
+    private static final class RegistrySnapshot {
+        private final MOScope[] scopes;
+        private final ManagedObject<?>[] managedObjects;
+        private final SortedMap<MOScope, ManagedObject<?>> map;
+        private final MOScopeComparator comparator;
+        private final Map<LookupKey, Integer> lookupCache = new ConcurrentHashMap<>();
+
+        RegistrySnapshot(SortedMap<MOScope, ManagedObject<?>> registry, MOScopeComparator comparator) {
+            this.comparator = comparator;
+            this.scopes = new MOScope[registry.size()];
+            this.managedObjects = new ManagedObject<?>[registry.size()];
+            int i = 0;
+            for (Entry<MOScope, ManagedObject<?>> entry : registry.entrySet()) {
+                scopes[i] = entry.getKey();
+                managedObjects[i++] = entry.getValue();
+            }
+            this.map = Collections.unmodifiableSortedMap(new TreeMap<>(registry));
+        }
+
+        int size() {
+            return scopes.length;
+        }
+
+        /**
+         * Returns the index of the first scope that is greater than or equal to the provided query scope
+         * (which is the first entry of {@code tailMap(query)}).
+         *
+         * @param query
+         *         the lower bound scope.
+         *
+         * @return the index of the first matching scope or {@link #size()} if there is none.
+         */
+        int ceilingIndex(MOScope query) {
+            int low = 0;
+            int high = scopes.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (comparator.compare(scopes[mid], query) < 0) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * The key of a cached single instance lookup.
+     */
+    private static final class LookupKey {
+        private final OctetString context;
+        private final OID oid;
+
+        LookupKey(OctetString context, OID oid) {
+            this.context = context;
+            this.oid = oid;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LookupKey)) {
+                return false;
+            }
+            LookupKey other = (LookupKey) o;
+            return oid.equals(other.oid) && Objects.equals(context, other.context);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * oid.hashCode() + ((context == null) ? 0 : context.hashCode());
+        }
+    }
+
     static class Lock {
         private Object owner;
         private long creationTime;
         private int count = 0;
+        private Map<Object, Integer> sharedOwners;
+        private int waiters = 0;
+        private int exclusiveWaiters = 0;
+        /**
+         * The tickets of the waiters in order of arrival if this lock is fair, {@code null} otherwise.
+         */
+        private final Deque<Ticket> queue;
 
-        private Lock() {
+        Lock(boolean fair) {
             this.creationTime = System.currentTimeMillis();
             this.count = 0;
-        }
-
-        Lock(Object owner) {
-            this();
-            this.owner = owner;
-            this.count = 1;
+            this.queue = (fair) ? new ArrayDeque<>(4) : null;
         }
 
         public long getCreationTime() {
             return creationTime;
         }
 
+        /**
+         * Returns the number of (recursive) exclusive locks held by the {@link #getOwner()}.
+         * @return
+         *    the exclusive lock count.
+         */
         public int getCount() {
             return count;
         }
 
-        public synchronized void add() {
-            count++;
+        /**
+         * Returns the exclusive owner of this lock.
+         * @return
+         *    the exclusive lock owner or {@code null} if this lock is not held exclusively.
+         */
+        public Object getOwner() {
+            return owner;
         }
 
-        public synchronized boolean remove() {
-            if ((--count) <= 0) {
-                if (count != 0) {
-                    count = 0;
-                }
+        int getSharedCount(Object requester) {
+            if (sharedOwners == null) {
+                return 0;
+            }
+            Integer c = sharedOwners.get(requester);
+            return (c == null) ? 0 : c;
+        }
+
+        boolean isHeldBy(Object requester) {
+            return (owner == requester) || (getSharedCount(requester) > 0);
+        }
+
+        /**
+         * Checks whether the supplied requester can acquire this lock now.
+         * @param requester
+         *    the lock owner to be.
+         * @param exclusive
+         *    {@code true} for an exclusive lock.
+         * @param ticket
+         *    the ticket returned by {@link #addWaiter(boolean)} if the requester is waiting for this lock.
+         * @return
+         *    {@code true} if the lock is compatible with the current owners and, for a fair lock, no older waiter
+         *    has to be served first.
+         */
+        boolean isAvailable(Object requester, boolean exclusive, Ticket ticket) {
+            if ((owner != null) && (owner != requester)) {
+                return false;
+            }
+            if (exclusive && (sharedOwners != null) && !sharedOwners.isEmpty() &&
+                    ((sharedOwners.size() > 1) || (getSharedCount(requester) == 0))) {
+                return false;
+            }
+            if (isHeldBy(requester)) {
+                // recursive locks must not wait for other waiters that wait for the requester
                 return true;
             }
+            if (queue != null) {
+                return isFirstInLine(ticket, exclusive);
+            }
+            // prefer waiting exclusive lock requests over new shared lock owners
+            return exclusive || (exclusiveWaiters == 0);
+        }
+
+        private boolean isFirstInLine(Ticket ticket, boolean exclusive) {
+            if (ticket == null) {
+                // new lock requests may only overtake if nobody is waiting
+                return queue.isEmpty();
+            }
+            for (Ticket t : queue) {
+                if (t == ticket) {
+                    return true;
+                }
+                if (exclusive || t.exclusive) {
+                    return false;
+                }
+            }
             return false;
         }
 
-        public Object getOwner() {
-            return owner;
+        void acquire(Object requester, boolean exclusive) {
+            if (exclusive || (owner == requester)) {
+                owner = requester;
+                count++;
+            } else {
+                if (sharedOwners == null) {
+                    sharedOwners = new IdentityHashMap<>(4);
+                }
+                sharedOwners.merge(requester, 1, Integer::sum);
+            }
+        }
+
+        /**
+         * Releases one (recursive) lock of the supplied requester, exclusive locks first.
+         * @param requester
+         *    the lock owner.
+         * @return
+         *    {@code true} if the requester does not hold any lock anymore.
+         */
+        boolean release(Object requester) {
+            if (owner == requester) {
+                if ((--count) <= 0) {
+                    count = 0;
+                    owner = null;
+                }
+            } else {
+                int c = getSharedCount(requester);
+                if (c > 1) {
+                    sharedOwners.put(requester, c - 1);
+                } else if (c == 1) {
+                    sharedOwners.remove(requester);
+                }
+            }
+            return !isHeldBy(requester);
+        }
+
+        boolean downgrade(Object requester) {
+            if ((owner != requester) || (count <= 0)) {
+                return false;
+            }
+            if (sharedOwners == null) {
+                sharedOwners = new IdentityHashMap<>(4);
+            }
+            sharedOwners.merge(requester, count, Integer::sum);
+            owner = null;
+            count = 0;
+            return true;
+        }
+
+        /**
+         * Registers a waiter for this lock.
+         * @param exclusive
+         *    {@code true} if the waiter waits for an exclusive lock.
+         * @return
+         *    the ticket that determines the waiter's position if this lock is fair, {@code null} otherwise.
+         */
+        Ticket addWaiter(boolean exclusive) {
+            waiters++;
+            if (exclusive) {
+                exclusiveWaiters++;
+            }
+            if (queue == null) {
+                return null;
+            }
+            Ticket ticket = new Ticket(exclusive);
+            queue.addLast(ticket);
+            return ticket;
+        }
+
+        void removeWaiter(boolean exclusive, Ticket ticket) {
+            waiters--;
+            if (exclusive) {
+                exclusiveWaiters--;
+            }
+            if ((queue != null) && (ticket != null)) {
+                queue.remove(ticket);
+            }
+        }
+
+        boolean isFree() {
+            return (owner == null) && ((sharedOwners == null) || sharedOwners.isEmpty()) && (waiters == 0);
         }
 
         @Override
@@ -872,8 +1536,21 @@ public class DefaultMOServer implements MOServer {
                     "owner=" + owner +
                     ", creationTime=" + creationTime +
                     ", count=" + count +
+                    ", sharedOwners=" + ((sharedOwners == null) ? 0 : sharedOwners.size()) +
+                    ", waiters=" + waiters +
                     ']';
         }
+
+        /**
+         * The position of a waiter of a fair {@link Lock}.
+         */
+        static final class Ticket {
+            private final boolean exclusive;
+
+            Ticket(boolean exclusive) {
+                this.exclusive = exclusive;
+            }
+        }
     }
 
 }
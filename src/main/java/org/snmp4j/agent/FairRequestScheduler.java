@@ -0,0 +1,565 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - FairRequestScheduler.java
+  _##
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent;
+
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.PDU;
+import org.snmp4j.PDUv1;
+import org.snmp4j.agent.mo.MOAccessImpl;
+import org.snmp4j.agent.mo.MOScalar;
+import org.snmp4j.log.LogAdapter;
+import org.snmp4j.log.LogFactory;
+import org.snmp4j.smi.*;
+import org.snmp4j.util.WorkerPool;
+import org.snmp4j.util.WorkerTask;
+
+import java.util.*;
+
+/**
+ * The {@code FairRequestScheduler} distributes the execution of requests fairly among their sources, so that a
+ * single command sender flooding the agent (for example with many large GETBULK requests) cannot starve the other
+ * command senders. It is set on a {@link CommandProcessor} with
+ * {@link CommandProcessor#setRequestScheduler(FairRequestScheduler)} and then executes the processing tasks of all
+ * incoming requests with its {@link WorkerPool}.
+ * <p>
+ * At most {@link #getMaxConcurrentRequests()} requests are executed concurrently. Further requests are queued per
+ * source, which is either the IP address of the command sender or the security name of the request (see
+ * {@link SourceKey}). The queues are served by deficit round robin: in each round a source may dequeue requests
+ * whose costs sum up to its weight (default 1) times {@link #getQuantum()}. The cost of a request is the number of
+ * variable bindings of its response (for GETBULK requests including all repetitions). Thus, a source sending large
+ * requests gets the same share of the agent as a source sending many small requests.
+ * <p>
+ * A request is dropped early, if the queue of its source already holds {@link #getMaxQueueLengthPerSource()}
+ * requests or all queues together hold {@link #getMaxQueueLength()} requests. The {@link CommandProcessor} counts
+ * dropped requests in snmpSilentDrops. The number of dropped requests, the queue depth, and the time requests waited
+ * in the queues are available through getters and, if this group is registered at a {@link MOServer}, as read-only
+ * objects of the SNMP4J-REQUEST-MIB.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+public class FairRequestScheduler implements MOGroup {
+
+    private static final LogAdapter logger = LogFactory.getLogger(FairRequestScheduler.class);
+
+    /**
+     * The number of queued requests of all sources (Gauge32).
+     */
+    public static final OID oidSnmp4jRequestSchedulerQueueDepth =
+            new OID(new int[]{1, 3, 6, 1, 4, 1, 4976, 10, 1, 1, 5, 1, 1, 0});
+    /**
+     * The number of requests dropped because their queue was full (Counter32).
+     */
+    public static final OID oidSnmp4jRequestSchedulerDropped =
+            new OID(new int[]{1, 3, 6, 1, 4, 1, 4976, 10, 1, 1, 5, 1, 2, 0});
+    /**
+     * The average time in milliseconds requests waited for their execution (Gauge32).
+     */
+    public static final OID oidSnmp4jRequestSchedulerAvgWaitTime =
+            new OID(new int[]{1, 3, 6, 1, 4, 1, 4976, 10, 1, 1, 5, 1, 3, 0});
+    /**
+     * The maximum time in milliseconds a request waited for its execution (Gauge32).
+     */
+    public static final OID oidSnmp4jRequestSchedulerMaxWaitTime =
+            new OID(new int[]{1, 3, 6, 1, 4, 1, 4976, 10, 1, 1, 5, 1, 4, 0});
+
+    public static final int DEFAULT_QUANTUM = 100;
+    public static final int DEFAULT_MAX_QUEUE_LENGTH_PER_SOURCE = 100;
+    public static final int DEFAULT_MAX_QUEUE_LENGTH = 10000;
+
+    /**
+     * The minimum BER length of a response variable binding (SEQUENCE header, an OID with one octet, and NULL).
+     */
+    private static final int MIN_VARIABLE_BINDING_BER_LENGTH = 7;
+    private static final int MAX_MESSAGE_SIZE = 65535;
+
+    /**
+     * The key that identifies the source of a request.
+     */
+    public enum SourceKey {
+        /**
+         * The {@link java.net.InetAddress} of the command sender (without port), or the peer address itself for
+         * non IP transports.
+         */
+        peerAddress,
+        /**
+         * The security name (community for SNMPv1/v2c) of the request as {@link OctetString}.
+         */
+        securityName
+    }
+
+    private final WorkerPool workerPool;
+    private final int maxConcurrentRequests;
+    private final SourceKey sourceKey;
+
+    private int quantum = DEFAULT_QUANTUM;
+    private int maxQueueLengthPerSource = DEFAULT_MAX_QUEUE_LENGTH_PER_SOURCE;
+    private int maxQueueLength = DEFAULT_MAX_QUEUE_LENGTH;
+    private final Map<Object, Integer> weights = new HashMap<>();
+
+    private final Map<Object, SourceQueue> sourceQueues = new HashMap<>();
+    private final ArrayDeque<SourceQueue> activeQueues = new ArrayDeque<>();
+    private int runningRequests;
+    private int queuedRequests;
+
+    private long dropped;
+    private long dequeued;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    private final MOScalar<Gauge32> snmp4jRequestSchedulerQueueDepth =
+            new MOScalar<Gauge32>(oidSnmp4jRequestSchedulerQueueDepth, MOAccessImpl.ACCESS_READ_ONLY, new Gauge32()) {
+                @Override
+                public Gauge32 getValue() {
+                    return new Gauge32(getQueueDepth());
+                }
+            };
+    private final MOScalar<Counter32> snmp4jRequestSchedulerDropped =
+            new MOScalar<Counter32>(oidSnmp4jRequestSchedulerDropped, MOAccessImpl.ACCESS_READ_ONLY,
+                    new Counter32()) {
+                @Override
+                public Counter32 getValue() {
+                    return new Counter32(getDropped() & 0xFFFFFFFFL);
+                }
+            };
+    private final MOScalar<Gauge32> snmp4jRequestSchedulerAvgWaitTime =
+            new MOScalar<Gauge32>(oidSnmp4jRequestSchedulerAvgWaitTime, MOAccessImpl.ACCESS_READ_ONLY,
+                    new Gauge32()) {
+                @Override
+                public Gauge32 getValue() {
+                    return new Gauge32(Math.min(getAverageWaitTime(), 0xFFFFFFFFL));
+                }
+            };
+    private final MOScalar<Gauge32> snmp4jRequestSchedulerMaxWaitTime =
+            new MOScalar<Gauge32>(oidSnmp4jRequestSchedulerMaxWaitTime, MOAccessImpl.ACCESS_READ_ONLY,
+                    new Gauge32()) {
+                @Override
+                public Gauge32 getValue() {
+                    return new Gauge32(Math.min(getMaxWaitTime(), 0xFFFFFFFFL));
+                }
+            };
+
+    /**
+     * Creates a fair request scheduler.
+     *
+     * @param workerPool
+     *         the worker pool that executes the requests. To avoid blocking the transport mapping's thread, the pool
+     *         should provide at least {@code maxConcurrentRequests} threads.
+     * @param maxConcurrentRequests
+     *         the maximum number of requests executed concurrently (at least 1).
+     * @param sourceKey
+     *         determines the source of a request and thus its queue.
+     */
+    public FairRequestScheduler(WorkerPool workerPool, int maxConcurrentRequests, SourceKey sourceKey) {
+        this.workerPool = workerPool;
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+        this.sourceKey = sourceKey;
+    }
+
+    public WorkerPool getWorkerPool() {
+        return workerPool;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public SourceKey getSourceKey() {
+        return sourceKey;
+    }
+
+    /**
+     * Sets the cost (number of response variable bindings) a source with weight 1 may dequeue per round.
+     *
+     * @param quantum
+     *         the quantum of the deficit round robin (at least 1).
+     */
+    public synchronized void setQuantum(int quantum) {
+        this.quantum = Math.max(1, quantum);
+    }
+
+    public synchronized int getQuantum() {
+        return quantum;
+    }
+
+    /**
+     * Sets the weight of a source. A source with weight {@code n} may dequeue {@code n} times the quantum per round
+     * and thus gets {@code n} times the share of a source with the default weight 1, as long as both have queued
+     * requests.
+     *
+     * @param source
+     *         the source, an {@link java.net.InetAddress} for {@link SourceKey#peerAddress} or an
+     *         {@link OctetString} for {@link SourceKey#securityName}.
+     * @param weight
+     *         the weight of the source (at least 1).
+     */
+    public synchronized void setWeight(Object source, int weight) {
+        weights.put(source, Math.max(1, weight));
+        SourceQueue queue = sourceQueues.get(source);
+        if (queue != null) {
+            queue.weight = Math.max(1, weight);
+        }
+    }
+
+    public synchronized int getWeight(Object source) {
+        Integer weight = weights.get(source);
+        return (weight == null) ? 1 : weight;
+    }
+
+    /**
+     * Sets the maximum number of requests queued per source. Requests arriving while the queue of their source is
+     * full are dropped.
+     *
+     * @param maxQueueLengthPerSource
+     *         the maximum queue length per source (at least 1).
+     */
+    public synchronized void setMaxQueueLengthPerSource(int maxQueueLengthPerSource) {
+        this.maxQueueLengthPerSource = Math.max(1, maxQueueLengthPerSource);
+    }
+
+    public synchronized int getMaxQueueLengthPerSource() {
+        return maxQueueLengthPerSource;
+    }
+
+    /**
+     * Sets the maximum number of requests queued for all sources together.
+     *
+     * @param maxQueueLength
+     *         the maximum total queue length (at least 1).
+     */
+    public synchronized void setMaxQueueLength(int maxQueueLength) {
+        this.maxQueueLength = Math.max(1, maxQueueLength);
+    }
+
+    public synchronized int getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    /**
+     * Schedules the execution of a request. The task is executed immediately if less than the maximum number of
+     * concurrent requests are running, otherwise it is queued for its source.
+     *
+     * @param event
+     *         the request event that determines the source and the cost of the request.
+     * @param task
+     *         the task that processes the request.
+     *
+     * @return {@code true} if the request has been executed or queued, {@code false} if it has been dropped because
+     * its queue is full.
+     */
+    public boolean schedule(CommandResponderEvent<?> event, WorkerTask task) {
+        Object source = getSource(event);
+        QueuedRequest request = new QueuedRequest(source, task, getCost(event), System.nanoTime());
+        synchronized (this) {
+            if ((runningRequests >= maxConcurrentRequests) || (queuedRequests > 0)) {
+                return enqueue(request);
+            }
+            runningRequests++;
+            dequeued++;
+        }
+        workerPool.execute(new DispatchTask(request));
+        return true;
+    }
+
+    private boolean enqueue(QueuedRequest request) {
+        SourceQueue queue = sourceQueues.get(request.source);
+        if ((queuedRequests >= maxQueueLength) ||
+                ((queue != null) && (queue.requests.size() >= maxQueueLengthPerSource))) {
+            dropped++;
+            if (logger.isDebugEnabled()) {
+                logger.debug("Dropped request from " + request.source + " because its queue is full");
+            }
+            return false;
+        }
+        if (queue == null) {
+            queue = new SourceQueue(request.source, getWeight(request.source));
+            sourceQueues.put(request.source, queue);
+        }
+        queue.requests.add(request);
+        if (queue.requests.size() == 1) {
+            activeQueues.addLast(queue);
+        }
+        queuedRequests++;
+        return true;
+    }
+
+    /**
+     * Removes the next request from the queues by deficit round robin or decrements the number of running requests
+     * if there are no queued requests.
+     *
+     * @return the next request to execute or {@code null} if there is none.
+     */
+    private synchronized QueuedRequest next() {
+        int rotations = 0;
+        while (!activeQueues.isEmpty()) {
+            SourceQueue queue = activeQueues.peekFirst();
+            if (!queue.turnStarted) {
+                queue.deficit += (long) quantum * queue.weight;
+                queue.turnStarted = true;
+            }
+            QueuedRequest head = queue.requests.peekFirst();
+            if (head.cost <= queue.deficit) {
+                queue.requests.removeFirst();
+                queue.deficit -= head.cost;
+                queuedRequests--;
+                if (queue.requests.isEmpty()) {
+                    activeQueues.removeFirst();
+                    sourceQueues.remove(queue.source);
+                }
+                long waitNanos = System.nanoTime() - head.queued;
+                dequeued++;
+                totalWaitNanos += waitNanos;
+                maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+                return head;
+            }
+            // the turn of this source is over, its deficit is kept for its next turn
+            queue.turnStarted = false;
+            activeQueues.addLast(activeQueues.removeFirst());
+            if (++rotations == activeQueues.size()) {
+                skipRounds();
+                rotations = 0;
+            }
+        }
+        runningRequests--;
+        return null;
+    }
+
+    /**
+     * Adds the quanta of the rounds in which none of the active queues can dequeue its head request to the deficits
+     * of the queues at once, instead of rotating through these rounds. Must be called after a round in which no
+     * request has been dequeued.
+     */
+    private void skipRounds() {
+        long rounds = Long.MAX_VALUE;
+        for (SourceQueue queue : activeQueues) {
+            long queueQuantum = (long) quantum * queue.weight;
+            long missing = queue.requests.peekFirst().cost - queue.deficit;
+            rounds = Math.min(rounds, (missing + queueQuantum - 1) / queueQuantum);
+        }
+        if (rounds > 1) {
+            for (SourceQueue queue : activeQueues) {
+                queue.deficit += (rounds - 1) * quantum * queue.weight;
+            }
+        }
+    }
+
+    /**
+     * Gets the source of a request according to the {@link SourceKey} of this scheduler.
+     *
+     * @param event
+     *         a request event.
+     *
+     * @return the source key object.
+     */
+    protected Object getSource(CommandResponderEvent<?> event) {
+        if (sourceKey == SourceKey.securityName) {
+            return new OctetString(event.getSecurityName());
+        }
+        Address peerAddress = event.getPeerAddress();
+        if (peerAddress instanceof IpAddress) {
+            return ((IpAddress) peerAddress).getInetAddress();
+        }
+        return peerAddress;
+    }
+
+    /**
+     * Gets the cost of a request, which is the number of variable bindings of its response. For GETBULK requests,
+     * the cost is bounded by the number of variable bindings that fit into the maximum response size of the
+     * request.
+     *
+     * @param event
+     *         the request event.
+     *
+     * @return the number of response variable bindings (at least 1).
+     */
+    protected int getCost(CommandResponderEvent<?> event) {
+        PDU pdu = event.getPDU();
+        if ((pdu.getType() == PDU.GETBULK) && !(pdu instanceof PDUv1)) {
+            int nonRepeaters = Math.max(0, Math.min(pdu.getNonRepeaters(), pdu.size()));
+            long cost = nonRepeaters + (long) Math.max(0, pdu.getMaxRepetitions()) * (pdu.size() - nonRepeaters);
+            int maxSizeResponsePDU = (event.getMaxSizeResponsePDU() > 0) ?
+                    event.getMaxSizeResponsePDU() : MAX_MESSAGE_SIZE;
+            long maxCost = Math.max(pdu.size(), maxSizeResponsePDU / MIN_VARIABLE_BINDING_BER_LENGTH);
+            return (int) Math.max(1, Math.min(cost, maxCost));
+        }
+        return Math.max(1, pdu.size());
+    }
+
+    /**
+     * Gets the number of queued requests.
+     *
+     * @return the number of requests waiting for their execution.
+     */
+    public synchronized int getQueueDepth() {
+        return queuedRequests;
+    }
+
+    /**
+     * Gets the number of queued requests of a source.
+     *
+     * @param source
+     *         the source, an {@link java.net.InetAddress} for {@link SourceKey#peerAddress} or an
+     *         {@link OctetString} for {@link SourceKey#securityName}.
+     *
+     * @return the number of requests of the source waiting for their execution.
+     */
+    public synchronized int getQueueDepth(Object source) {
+        SourceQueue queue = sourceQueues.get(source);
+        return (queue == null) ? 0 : queue.requests.size();
+    }
+
+    /**
+     * Gets the number of requests currently executed.
+     *
+     * @return the number of running requests.
+     */
+    public synchronized int getRunningRequests() {
+        return runningRequests;
+    }
+
+    /**
+     * Gets the number of requests dropped because their queue was full.
+     *
+     * @return the number of dropped requests since the creation of this scheduler.
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Gets the average time requests waited for their execution, including the requests executed without waiting.
+     *
+     * @return the average wait time in milliseconds.
+     */
+    public synchronized long getAverageWaitTime() {
+        return (dequeued == 0) ? 0 : totalWaitNanos / dequeued / 1000000L;
+    }
+
+    /**
+     * Gets the maximum time a request waited for its execution.
+     *
+     * @return the maximum wait time in milliseconds since the creation of this scheduler or the last call of
+     * {@link #resetMaxWaitTime()}.
+     */
+    public synchronized long getMaxWaitTime() {
+        return maxWaitNanos / 1000000L;
+    }
+
+    public synchronized void resetMaxWaitTime() {
+        maxWaitNanos = 0;
+    }
+
+    @Override
+    public void registerMOs(MOServer server, OctetString context) throws DuplicateRegistrationException {
+        server.register(snmp4jRequestSchedulerQueueDepth, context);
+        server.register(snmp4jRequestSchedulerDropped, context);
+        server.register(snmp4jRequestSchedulerAvgWaitTime, context);
+        server.register(snmp4jRequestSchedulerMaxWaitTime, context);
+    }
+
+    @Override
+    public void unregisterMOs(MOServer server, OctetString context) {
+        server.unregister(snmp4jRequestSchedulerQueueDepth, context);
+        server.unregister(snmp4jRequestSchedulerDropped, context);
+        server.unregister(snmp4jRequestSchedulerAvgWaitTime, context);
+        server.unregister(snmp4jRequestSchedulerMaxWaitTime, context);
+    }
+
+    private static final class QueuedRequest {
+
+        private final Object source;
+        private final WorkerTask task;
+        private final int cost;
+        private final long queued;
+
+        private QueuedRequest(Object source, WorkerTask task, int cost, long queued) {
+            this.source = source;
+            this.task = task;
+            this.cost = cost;
+            this.queued = queued;
+        }
+    }
+
+    private static final class SourceQueue {
+
+        private final Object source;
+        private final ArrayDeque<QueuedRequest> requests = new ArrayDeque<>();
+        private int weight;
+        private long deficit;
+        private boolean turnStarted;
+
+        private SourceQueue(Object source, int weight) {
+            this.source = source;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Executes a request and then the next queued requests until the queues are empty. Thus, each dispatch task
+     * holds one of the {@link #getMaxConcurrentRequests()} execution slots.
+     */
+    private class DispatchTask implements WorkerTask {
+
+        private volatile QueuedRequest current;
+
+        private DispatchTask(QueuedRequest first) {
+            this.current = first;
+        }
+
+        @Override
+        public void run() {
+            QueuedRequest request = current;
+            while (request != null) {
+                try {
+                    request.task.run();
+                } catch (RuntimeException rex) {
+                    logger.error("Request of " + request.source + " failed: " + rex.getMessage(), rex);
+                }
+                request = next();
+                current = request;
+            }
+        }
+
+        @Override
+        public void terminate() {
+            QueuedRequest request = current;
+            if (request != null) {
+                request.task.terminate();
+            }
+        }
+
+        @Override
+        public void join() throws InterruptedException {
+            QueuedRequest request = current;
+            if (request != null) {
+                request.task.join();
+            }
+        }
+
+        @Override
+        public void interrupt() {
+            QueuedRequest request = current;
+            if (request != null) {
+                request.task.interrupt();
+            }
+        }
+    }
+}
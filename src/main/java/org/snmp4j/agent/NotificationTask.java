@@ -24,6 +24,8 @@ import org.snmp4j.event.*;
 import org.snmp4j.smi.*;
 import org.snmp4j.util.WorkerTask;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * The <code>NotificationTask</code> is a <code>Runnable</code> that sends a notification or a series of
  * notifications/traps/informs - depending on the configuration associated with the supplied
@@ -40,6 +42,7 @@ public class NotificationTask implements WorkerTask {
     private TimeTicks sysUpTime;
     private VariableBinding[] vbs;
     private ResponseEvent<?>[] responses;
+    private CompletableFuture<ResponseEvent<?>[]> responsesFuture;
 
     public NotificationTask(NotificationOriginator notificationOriginator,
                             OctetString context,
@@ -54,18 +57,29 @@ public class NotificationTask implements WorkerTask {
     }
 
     /**
-     * Send the notification a notify this object afterwards.
+     * Send the notification a notify this object afterwards. If the notification originator dispatches the
+     * notification asynchronously, this object is notified when the returned future completes.
      */
+    @SuppressWarnings("unchecked")
     public synchronized void run() {
+        Object result;
         if (sysUpTime != null) {
-            this.responses = (ResponseEvent<?>[])
-                    notificationOriginator.notify(context, notificationID,
-                            sysUpTime, vbs);
+            result = notificationOriginator.notify(context, notificationID, sysUpTime, vbs);
+        } else {
+            result = notificationOriginator.notify(context, notificationID, vbs);
+        }
+        if (result instanceof CompletableFuture) {
+            this.responsesFuture = (CompletableFuture<ResponseEvent<?>[]>) result;
+            this.responsesFuture.whenComplete((responses, throwable) -> {
+                synchronized (this) {
+                    this.responses = responses;
+                    notifyAll();
+                }
+            });
         } else {
-            this.responses = (ResponseEvent<?>[])
-                    notificationOriginator.notify(context, notificationID, vbs);
+            this.responses = (ResponseEvent<?>[]) result;
+            notify();
         }
-        notify();
     }
 
     public OctetString getContext() {
@@ -88,10 +102,22 @@ public class NotificationTask implements WorkerTask {
      *
      * @return an array of ResponseEvent instances (informs) or <code>null</code> values (for traps/notifications).
      */
-    public ResponseEvent<?>[] getResponses() {
+    public synchronized ResponseEvent<?>[] getResponses() {
         return responses;
     }
 
+    /**
+     * Returns the future of the responses if the notification originator dispatched the notification
+     * asynchronously.
+     *
+     * @return the future returned by the notification originator or {@code null} if the notification has not been
+     * sent yet or has been sent synchronously.
+     * @since 3.4.0
+     */
+    public synchronized CompletableFuture<ResponseEvent<?>[]> getResponsesFuture() {
+        return responsesFuture;
+    }
+
     public TimeTicks getSysUpTime() {
         return sysUpTime;
     }
@@ -0,0 +1,224 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - RowMajorGetBulkHandler.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent;
+
+import org.snmp4j.PDU;
+import org.snmp4j.agent.mo.DefaultMOTable;
+import org.snmp4j.agent.mo.GenericManagedObject;
+import org.snmp4j.agent.mo.lock.LockRequest;
+import org.snmp4j.agent.request.Request;
+import org.snmp4j.agent.request.SnmpRequest;
+import org.snmp4j.log.LogAdapter;
+import org.snmp4j.log.LogFactory;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OctetString;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The {@code RowMajorGetBulkHandler} processes GETBULK requests row by row for tables. For each repetition, the
+ * repeaters that continue walks in the same {@link DefaultMOTable} are processed together: The table is looked up
+ * (and locked) only once and {@link DefaultMOTable#nextRow(List, java.util.function.Predicate)} searches the
+ * successor row only once for all columns walked from the same row. Repeaters that cannot be processed that way
+ * (e.g. at the end of a column, for sparse rows, or for scalars) are processed with the managed object found by the
+ * same lookup while it is still locked. Only if that object has no successor, the search continues with the next
+ * managed object like by the default GETBULK handler of the {@link CommandProcessor}. If the lookup cannot lock the
+ * managed object in time, the repeater fails with a {@link PDU#genErr}.
+ * <p>
+ * In contrast to the default handler, {@link MOServerLookupListener}s receive a single lookup event per table and
+ * repetition instead of one per repeater. To use this handler, replace the default handler by
+ * {@code commandProcessor.replacePduHandler(PDU.GETBULK, new RowMajorGetBulkHandler(commandProcessor))}.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+public class RowMajorGetBulkHandler implements RequestHandler<SnmpRequest> {
+
+    private static final LogAdapter logger = LogFactory.getLogger(RowMajorGetBulkHandler.class);
+
+    private final CommandProcessor commandProcessor;
+
+    /**
+     * Creates a row-major GETBULK handler.
+     *
+     * @param commandProcessor
+     *         the command processor that provides VACM, lock timeout, and the processing of single repeaters.
+     */
+    public RowMajorGetBulkHandler(CommandProcessor commandProcessor) {
+        this.commandProcessor = commandProcessor;
+    }
+
+    @Override
+    public boolean isSupported(int pduType) {
+        return (pduType == PDU.GETBULK);
+    }
+
+    @Override
+    public void processPdu(SnmpRequest request, MOServer server) {
+        if (request.getPhase() == Request.PHASE_INIT) {
+            request.nextPhase();
+        }
+        OctetString context = request.getContext();
+        int nonRep = request.getNonRepeaters();
+        try {
+            Iterator<SnmpRequest.SnmpSubRequest> it = request.iterator();
+            // non repeaters
+            for (int i = 0; ((i < nonRep) && it.hasNext()); i++) {
+                SnmpRequest.SnmpSubRequest sreq = it.next();
+                if (!sreq.isComplete()) {
+                    commandProcessor.processNextSubRequest(request, server, context, sreq);
+                }
+            }
+            if (request.getMaxRepetitions() <= 0) {
+                while (it.hasNext()) {
+                    it.next().completed();
+                }
+                return;
+            }
+            int repeaters = Math.max(1, request.getRepeaterCount());
+            List<SnmpRequest.SnmpSubRequest> repetition = new ArrayList<>(repeaters);
+            List<SnmpRequest.SnmpSubRequest> pending = new ArrayList<>(repeaters);
+            boolean sizeLimitReached = false;
+            while (!sizeLimitReached) {
+                repetition.clear();
+                try {
+                    while ((repetition.size() < repeaters) && it.hasNext()) {
+                        repetition.add(it.next());
+                    }
+                } catch (NoSuchElementException nsex) {
+                    sizeLimitReached = true;
+                }
+                if (repetition.isEmpty()) {
+                    break;
+                }
+                pending.clear();
+                for (SnmpRequest.SnmpSubRequest sreq : repetition) {
+                    if (!sreq.isComplete()) {
+                        pending.add(sreq);
+                    }
+                }
+                List<SnmpRequest.SnmpSubRequest> processed = new ArrayList<>(pending);
+                processRepetition(request, server, context, pending);
+                for (SnmpRequest.SnmpSubRequest sreq : processed) {
+                    sreq.updateNextRepetition();
+                }
+            }
+            if (sizeLimitReached && logger.isDebugEnabled()) {
+                logger.debug("GETBULK request response PDU size limit reached");
+            }
+        } catch (NoSuchElementException nsex) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("GETBULK request response PDU size limit reached");
+            }
+        }
+    }
+
+    /**
+     * Processes the pending repeaters of a single repetition.
+     *
+     * @param request
+     *         the GETBULK request.
+     * @param server
+     *         the managed object server.
+     * @param context
+     *         the context of the request.
+     * @param pending
+     *         the repeaters not yet processed. The list is empty on return.
+     */
+    protected void processRepetition(SnmpRequest request, MOServer server, OctetString context,
+                                     List<SnmpRequest.SnmpSubRequest> pending) {
+        List<SnmpRequest.SnmpSubRequest> batch = new ArrayList<>(pending.size());
+        while (!pending.isEmpty()) {
+            SnmpRequest.SnmpSubRequest first = pending.get(0);
+            batch.clear();
+            CommandProcessor.VACMQuery query = getQuery(request, context, first);
+            LockRequest lockRequest = commandProcessor.createReadLockRequest(request);
+            MOServerLookupEvent lookupEvent = new MOServerLookupEvent(this, null,
+                    query, MOServerLookupEvent.IntendedUse.getNext, true);
+            GenericManagedObject mo = server.lookup(query, lockRequest, lookupEvent, GenericManagedObject.class);
+            if (mo == null) {
+                pending.remove(0);
+                if (lockRequest.getLockRequestStatus() == LockRequest.LockStatus.lockTimedOut) {
+                    commandProcessor.setLockTimedOut(request, first);
+                } else {
+                    first.getVariableBinding().setVariable(Null.endOfMibView);
+                    first.getStatus().setPhaseComplete(true);
+                }
+                continue;
+            }
+            try {
+                if (mo instanceof DefaultMOTable) {
+                    DefaultMOTable<?, ?, ?> table = (DefaultMOTable<?, ?, ?>) mo;
+                    for (Iterator<SnmpRequest.SnmpSubRequest> it = pending.iterator(); it.hasNext(); ) {
+                        SnmpRequest.SnmpSubRequest sreq = it.next();
+                        if (table.covers(sreq.getScope().getLowerBound())) {
+                            batch.add(sreq);
+                            it.remove();
+                        }
+                    }
+                    table.nextRow(batch, query::isAccessAllowed);
+                }
+                if (batch.isEmpty()) {
+                    // a scalar or a table that starts after the lower bound
+                    pending.remove(0);
+                    batch.add(first);
+                }
+                // process the rest with the already locked managed object, before continuing the search beyond it
+                for (SnmpRequest.SnmpSubRequest sreq : batch) {
+                    if (!sreq.isComplete()) {
+                        CommandProcessor.VACMQuery sreqQuery = getQuery(request, context, sreq);
+                        if ((sreq == first) || sreqQuery.matchesQuery(mo)) {
+                            commandProcessor.processNextSubRequest(request, sreq, mo);
+                        } else {
+                            // like a lookup, skip mo if none of its instances after the lower bound is in the view
+                            ((DefaultMOContextScope) sreq.getScope()).substractScope(mo.getScope());
+                            sreqQuery.substractScope(mo.getScope());
+                        }
+                    }
+                }
+            } finally {
+                commandProcessor.unlockManagedObjectIfLockedByLookup(server, mo, lockRequest);
+            }
+            for (SnmpRequest.SnmpSubRequest sreq : batch) {
+                if (!sreq.isComplete()) {
+                    commandProcessor.processNextSubRequest(request, server, context, sreq);
+                }
+            }
+        }
+    }
+
+    private CommandProcessor.VACMQuery getQuery(SnmpRequest request, OctetString context,
+                                                SnmpRequest.SnmpSubRequest sreq) {
+        MOQuery query = sreq.getQuery();
+        if (query instanceof CommandProcessor.VACMQuery) {
+            return (CommandProcessor.VACMQuery) query;
+        }
+        DefaultMOContextScope scope = (DefaultMOContextScope) sreq.getScope();
+        CommandProcessor.VACMQuery vacmQuery = commandProcessor.new VACMQuery(context,
+                scope.getLowerBound(), scope.isLowerIncluded(), scope.getUpperBound(), scope.isUpperIncluded(),
+                request.getViewName(), false, request);
+        sreq.setQuery(vacmQuery);
+        return vacmQuery;
+    }
+}
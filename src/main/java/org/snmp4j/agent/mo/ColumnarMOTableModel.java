@@ -0,0 +1,1127 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - ColumnarMOTableModel.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.snmp4j.smi.*;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The {@code ColumnarMOTableModel} is a {@link MOMutableTableModel} that stores the cell values of its rows column
+ * by column in primitive arrays instead of a {@link Variable} array per row:
+ * <ul>
+ * <li>{@code Counter32}, {@code Gauge32} ({@code Unsigned32}), {@code TimeTicks}, and {@code Counter64} columns
+ * are stored in a {@code long[]},</li>
+ * <li>{@code Integer32} columns in an {@code int[]},</li>
+ * <li>{@code OCTET STRING} columns in a byte slab shared by all cells of the column, and</li>
+ * <li>columns of any other syntax in a {@code Variable[]}.</li>
+ * </ul>
+ * The rows returned by this model are lightweight {@link ColumnarRow} views on a row slot of the model. They
+ * materialize a {@link Variable} only when {@link ColumnarRow#getValue(int)} is called, typically while a response
+ * is being built. Thus, a large table of counters needs about eight bytes per cell instead of a {@link Counter64}
+ * object and its reference.
+ * <p>
+ * The row index values are held by a packed index (see {@link PackedIndexMOTableModel}). The model acts as its
+ * own row factory: {@link #createRow(OID, Variable[])} returns a detached {@link ColumnarRow} that holds its values
+ * until it is added to the model. When a row is removed, the model returns a detached copy of it, whereas views
+ * obtained before the removal return {@code null} for all columns.
+ * <p>
+ * The model is safe for concurrent use. Read access does not synchronize on the model instance and its iterators
+ * are weakly consistent.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+public class ColumnarMOTableModel implements MOMutableTableModel<ColumnarMOTableModel.ColumnarRow>,
+        ConcurrentMOTableModel<ColumnarMOTableModel.ColumnarRow> {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private final Column[] columns;
+    private final SlotIndex index;
+    /** The row slots not in use, as a stack. */
+    private int[] freeSlots;
+    private int freeSlotCount;
+    private int slotCount;
+    /** Incremented when a slot is freed to invalidate views on the removed row. */
+    private int[] generations;
+    private volatile int modCount;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    protected MOTableRowFactory<ColumnarRow> rowFactory;
+    private transient List<MOTableModelListener> moTableModelListeners;
+
+    /**
+     * Creates an empty columnar table model for columns of the specified SMI syntaxes.
+     *
+     * @param columnSyntaxes
+     *         the SMI syntax (see {@link SMIConstants}) of each column of the table, in column order.
+     */
+    public ColumnarMOTableModel(int[] columnSyntaxes) {
+        this(columnSyntaxes, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an empty columnar table model for columns of the specified SMI syntaxes with room for the specified
+     * number of rows.
+     *
+     * @param columnSyntaxes
+     *         the SMI syntax (see {@link SMIConstants}) of each column of the table, in column order.
+     * @param initialCapacity
+     *         the number of rows the model can hold before its internal arrays need to grow.
+     */
+    public ColumnarMOTableModel(int[] columnSyntaxes, int initialCapacity) {
+        this.index = new SlotIndex(initialCapacity);
+        int capacity = index.capacity();
+        this.columns = new Column[columnSyntaxes.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = createColumn(columnSyntaxes[i], capacity);
+        }
+        this.generations = new int[capacity];
+        this.freeSlots = new int[capacity];
+        this.rowFactory = new ColumnarRowFactory();
+    }
+
+    /**
+     * Creates a columnar table model for the columns of the specified table.
+     *
+     * @param columns
+     *         the columns of the table (as returned by {@link MOTable#getColumns()}).
+     *
+     * @return a new {@code ColumnarMOTableModel} with a column storage per table column.
+     */
+    public static ColumnarMOTableModel forColumns(MOColumn<?>[] columns) {
+        int[] syntaxes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            syntaxes[i] = columns[i].getSyntax();
+        }
+        return new ColumnarMOTableModel(syntaxes);
+    }
+
+    /**
+     * Creates the storage for a column. Subclasses may override this method to provide specialized storages.
+     *
+     * @param syntax
+     *         the SMI syntax of the column.
+     * @param capacity
+     *         the initial number of row slots.
+     *
+     * @return a column storage.
+     */
+    protected Column createColumn(int syntax, int capacity) {
+        switch (syntax) {
+            case SMIConstants.SYNTAX_COUNTER32:
+            case SMIConstants.SYNTAX_GAUGE32:
+            case SMIConstants.SYNTAX_TIMETICKS:
+            case SMIConstants.SYNTAX_COUNTER64:
+                return new LongColumn(syntax, capacity);
+            case SMIConstants.SYNTAX_INTEGER:
+                return new IntColumn(capacity);
+            case SMIConstants.SYNTAX_OCTET_STRING:
+                return new OctetStringColumn(capacity);
+            default:
+                return new VariableColumn(syntax, capacity);
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slotCount == generations.length) {
+            int capacity = generations.length + (generations.length >> 1) + 1;
+            generations = Arrays.copyOf(generations, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+            for (Column column : columns) {
+                column.grow(capacity);
+            }
+        }
+        return slotCount++;
+    }
+
+    private void freeSlot(int slot) {
+        for (Column column : columns) {
+            column.set(slot, null);
+        }
+        generations[slot]++;
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private Variable[] readSlot(int slot) {
+        Variable[] values = new Variable[columns.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = columns[i].get(slot);
+        }
+        return values;
+    }
+
+    private void writeSlot(int slot, Variable[] values) {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].set(slot, (i < values.length) ? values[i] : null);
+        }
+    }
+
+    /**
+     * Returns the value of a cell.
+     *
+     * @param row
+     *         an attached row view.
+     * @param column
+     *         the zero based column index.
+     *
+     * @return the value or {@code null} if the cell is empty or the row has been removed.
+     */
+    Variable getValue(ColumnarRow row, int column) {
+        lock.readLock().lock();
+        try {
+            if (generations[row.slot] != row.generation) {
+                return null;
+            }
+            return columns[column].get(row.slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns all values of a row consistently.
+     *
+     * @param row
+     *         an attached row view.
+     *
+     * @return the values of the row or {@code null} values if the row has been removed.
+     */
+    Variable[] getValues(ColumnarRow row) {
+        lock.readLock().lock();
+        try {
+            if (generations[row.slot] != row.generation) {
+                return new Variable[columns.length];
+            }
+            return readSlot(row.slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the value of a cell. Nothing is changed if the row has been removed from the model.
+     *
+     * @param row
+     *         an attached row view.
+     * @param column
+     *         the zero based column index.
+     * @param value
+     *         the new value or {@code null} to clear the cell.
+     */
+    void setValue(ColumnarRow row, int column, Variable value) {
+        lock.writeLock().lock();
+        try {
+            if (generations[row.slot] == row.generation) {
+                columns[column].set(row.slot, value);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private ColumnarRow rowAt(int position) {
+        int slot = index.slots[position];
+        return new ColumnarRow(this, index.getIndex(position), slot, generations[slot]);
+    }
+
+    private ColumnarRow detachedRowAt(int position) {
+        return new ColumnarRow(index.getIndex(position), readSlot(index.slots[position]));
+    }
+
+    /**
+     * Adds a row with the specified index and values to the model. This is a shortcut for
+     * {@code addRow(createRow(index, values))}.
+     *
+     * @param index
+     *         the row index.
+     * @param values
+     *         the values of the row.
+     *
+     * @return the previous row with the same index as a detached copy or {@code null} if there was none.
+     */
+    public ColumnarRow addRow(OID index, Variable[] values) {
+        return addRow(new ColumnarRow(index, values));
+    }
+
+    /**
+     * Adds a row to the model. The values of the supplied row are copied into the column storages and the row
+     * becomes a view on its slot in this model.
+     *
+     * @param row
+     *         the row to add.
+     *
+     * @return the previous row with the same index as a detached copy or {@code null} if there was none.
+     */
+    @Override
+    public ColumnarRow addRow(ColumnarRow row) {
+        ColumnarRow replacedRow = null;
+        OID rowIndex = row.getIndex();
+        Variable[] values = row.getValues();
+        lock.writeLock().lock();
+        try {
+            int pos = index.search(rowIndex);
+            int slot;
+            if (pos >= 0) {
+                replacedRow = detachedRowAt(pos);
+                slot = index.slots[pos];
+            } else {
+                slot = allocateSlot();
+                pos = -(pos + 1);
+                index.insert(pos, rowIndex);
+                index.slots[pos] = slot;
+            }
+            writeSlot(slot, values);
+            row.attach(this, slot, generations[slot]);
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (moTableModelListeners != null) {
+            fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_ADDED, row));
+        }
+        return replacedRow;
+    }
+
+    private ColumnarRow removeAt(int position) {
+        ColumnarRow row = detachedRowAt(position);
+        freeSlot(index.slots[position]);
+        index.remove(position);
+        modCount++;
+        return row;
+    }
+
+    /**
+     * Removes the row with the specified index.
+     *
+     * @param index
+     *         the row index.
+     *
+     * @return the removed row as a detached copy or {@code null} if there was no such row.
+     */
+    @Override
+    public ColumnarRow removeRow(OID index) {
+        ColumnarRow row = null;
+        lock.writeLock().lock();
+        try {
+            int pos = this.index.search(index);
+            if (pos >= 0) {
+                row = removeAt(pos);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if ((row != null) && (moTableModelListeners != null)) {
+            fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_REMOVED, row));
+        }
+        return row;
+    }
+
+    @Override
+    public void clear() {
+        fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.TABLE_CLEAR));
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < index.size(); i++) {
+                freeSlot(index.slots[i]);
+            }
+            index.clear();
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ColumnarRow> clear(MOTableRowFilter<ColumnarRow> filter) {
+        List<ColumnarRow> removedRows = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (int i = index.size() - 1; i >= 0; i--) {
+                if (!filter.passesFilter(rowAt(i))) {
+                    removedRows.add(removeAt(i));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Collections.reverse(removedRows);
+        if (moTableModelListeners != null) {
+            for (ColumnarRow row : removedRows) {
+                fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_REMOVED, row));
+            }
+        }
+        return removedRows;
+    }
+
+    /**
+     * Applies the cell updates while holding the write lock of the model and then fires a single
+     * {@link MOTableModelEvent#ROWS_UPDATED} event. Numeric values whose syntax matches the syntax of the column
+     * are written into the primitive column storage without creating {@link Variable} instances. Each read of a
+     * single cell and each read of all values of a row with {@link ColumnarRow#getValues()} is atomic with
+     * respect to bulk updates, i.e. it sees either none or all of the updates. Reads that follow each other
+     * (like the cells of a table walk) observe the bulk updates in the order they have been applied, but may see
+     * the state before and after a bulk update that is applied between them. A reader that needs a consistent
+     * view of several rows must hold the read lock of {@link #getLock()} while reading them.
+     *
+     * @param bulkUpdate
+     *         the cell updates to apply.
+     *
+     * @return the number of updated cells.
+     */
+    @Override
+    public int applyUpdates(MOTableBulkUpdate bulkUpdate) {
+        int updated = 0;
+        lock.writeLock().lock();
+        try {
+            OID lastIndex = null;
+            int slot = -1;
+            for (int i = 0; i < bulkUpdate.size(); i++) {
+                OID rowIndex = bulkUpdate.getIndex(i);
+                if ((lastIndex == null) || (rowIndex != lastIndex && !rowIndex.equals(lastIndex))) {
+                    int pos = index.search(rowIndex);
+                    slot = (pos >= 0) ? index.slots[pos] : -1;
+                    lastIndex = rowIndex;
+                }
+                if (slot >= 0) {
+                    Column column = columns[bulkUpdate.getColumn(i)];
+                    if (bulkUpdate.isPrimitive(i)) {
+                        column.setLong(slot, bulkUpdate.getSyntax(i), bulkUpdate.getLongValue(i));
+                    } else {
+                        column.set(slot, bulkUpdate.getValue(i));
+                    }
+                    updated++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if ((updated > 0) && (moTableModelListeners != null)) {
+            fireTableModelChanged(new MOTableModelEvent(this, bulkUpdate, updated));
+        }
+        return updated;
+    }
+
+    /**
+     * Returns the read-write lock that guards the cells and the structure of this model.
+     *
+     * @return the model's lock.
+     */
+    public ReentrantReadWriteLock getLock() {
+        return lock;
+    }
+
+    @Override
+    public ReadWriteLock getBulkUpdateLock() {
+        return lock;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Returns the SMI syntax of the specified column.
+     *
+     * @param column
+     *         the zero based column index.
+     *
+     * @return the syntax the column storage has been created for.
+     */
+    public int getColumnSyntax(int column) {
+        return columns[column].syntax;
+    }
+
+    @Override
+    public int getRowCount() {
+        return index.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.size() == 0;
+    }
+
+    @Override
+    public boolean containsRow(OID index) {
+        lock.readLock().lock();
+        try {
+            return this.index.search(index) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ColumnarRow getRow(OID index) {
+        lock.readLock().lock();
+        try {
+            int pos = this.index.search(index);
+            return (pos >= 0) ? rowAt(pos) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<ColumnarRow> iterator() {
+        return new RowIterator(null);
+    }
+
+    @Override
+    public Iterator<ColumnarRow> tailIterator(OID lowerBound) {
+        return new RowIterator(lowerBound);
+    }
+
+    @Override
+    public OID firstIndex() {
+        lock.readLock().lock();
+        try {
+            return (index.size() > 0) ? index.getIndex(0) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public OID lastIndex() {
+        lock.readLock().lock();
+        try {
+            return (index.size() > 0) ? index.getIndex(index.size() - 1) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ColumnarRow firstRow() {
+        lock.readLock().lock();
+        try {
+            return (index.size() > 0) ? rowAt(0) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ColumnarRow lastRow() {
+        lock.readLock().lock();
+        try {
+            return (index.size() > 0) ? rowAt(index.size() - 1) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ColumnarRow createRow(OID index, Variable[] values) throws UnsupportedOperationException {
+        if (rowFactory == null) {
+            throw new UnsupportedOperationException("No row factory");
+        }
+        return rowFactory.createRow(index, values);
+    }
+
+    @Override
+    public void freeRow(ColumnarRow row) {
+        if (rowFactory != null) {
+            rowFactory.freeRow(row);
+        }
+    }
+
+    /**
+     * Sets the row factory. By default, the model creates detached {@link ColumnarRow}s itself.
+     *
+     * @param rowFactory
+     *         a row factory or {@code null} to disable row creation.
+     */
+    @Override
+    public void setRowFactory(MOTableRowFactory<ColumnarRow> rowFactory) {
+        this.rowFactory = rowFactory;
+    }
+
+    @Override
+    public MOTableRowFactory<ColumnarRow> getRowFactory() {
+        return rowFactory;
+    }
+
+    public synchronized void addMOTableModelListener(MOTableModelListener l) {
+        if (moTableModelListeners == null) {
+            moTableModelListeners = new ArrayList<>(2);
+        }
+        moTableModelListeners.add(l);
+    }
+
+    public synchronized void removeMOTableModelListener(MOTableModelListener l) {
+        if (moTableModelListeners != null) {
+            moTableModelListeners.remove(l);
+        }
+    }
+
+    protected void fireTableModelChanged(MOTableModelEvent event) {
+        final List<MOTableModelListener> listeners = moTableModelListeners;
+        if (listeners != null) {
+            synchronized (listeners) {
+                for (MOTableModelListener listener : listeners) {
+                    listener.tableModelChanged(event);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarMOTableModel[rows=" + index.size() + ",columnCount=" + columns.length +
+                ",slots=" + slotCount + ",freeSlots=" + freeSlotCount + "]";
+    }
+
+    /**
+     * A {@code ColumnarRow} is either a detached row that holds its values itself, or a view on a row slot of a
+     * {@link ColumnarMOTableModel} that reads and writes the column storages of the model.
+     */
+    public static final class ColumnarRow implements MOMutableTableRow {
+
+        private final OID index;
+        /** The values of a detached row, {@code null} when attached. */
+        private volatile Variable[] values;
+        private volatile ColumnarMOTableModel model;
+        private int slot;
+        private int generation;
+        private MOTableRow baseRow;
+
+        /**
+         * Creates a detached row.
+         *
+         * @param index
+         *         the row index.
+         * @param values
+         *         the row values.
+         */
+        public ColumnarRow(OID index, Variable[] values) {
+            this.index = index;
+            this.values = values;
+        }
+
+        ColumnarRow(ColumnarMOTableModel model, OID index, int slot, int generation) {
+            this.index = index;
+            this.slot = slot;
+            this.generation = generation;
+            this.model = model;
+        }
+
+        void attach(ColumnarMOTableModel model, int slot, int generation) {
+            this.slot = slot;
+            this.generation = generation;
+            // publishes slot and generation
+            this.model = model;
+            this.values = null;
+        }
+
+        /**
+         * Checks whether this row is a view on a row of a {@link ColumnarMOTableModel}.
+         *
+         * @return {@code true} if the row has been added to (or obtained from) a model.
+         */
+        public boolean isAttached() {
+            return model != null;
+        }
+
+        /**
+         * Returns a copy of the values of this row. The values of an attached row are read atomically, i.e. they
+         * reflect either none or all cell updates of a {@link #applyUpdates(MOTableBulkUpdate) bulk update}.
+         *
+         * @return a new array with the materialized values of this row.
+         */
+        public Variable[] getValues() {
+            Variable[] detachedValues = values;
+            ColumnarMOTableModel m = model;
+            if (m == null) {
+                return detachedValues.clone();
+            }
+            return m.getValues(this);
+        }
+
+        @Override
+        public OID getIndex() {
+            return index;
+        }
+
+        @Override
+        public Variable getValue(int column) {
+            Variable[] detachedValues = values;
+            ColumnarMOTableModel m = model;
+            return (m == null) ? detachedValues[column] : m.getValue(this, column);
+        }
+
+        @Override
+        public void setValue(int column, Variable value) {
+            Variable[] detachedValues = values;
+            ColumnarMOTableModel m = model;
+            if (m == null) {
+                detachedValues[column] = value;
+            } else {
+                m.setValue(this, column, value);
+            }
+        }
+
+        @Override
+        public MOTableRow getBaseRow() {
+            return baseRow;
+        }
+
+        @Override
+        public void setBaseRow(MOTableRow baseRow) {
+            this.baseRow = baseRow;
+        }
+
+        @Override
+        public int size() {
+            Variable[] detachedValues = values;
+            ColumnarMOTableModel m = model;
+            return (m == null) ? detachedValues.length : m.columns.length;
+        }
+
+        @Override
+        public String toString() {
+            return "ColumnarRow[index=" + index + ",values=" + Arrays.asList(getValues()) + "]";
+        }
+    }
+
+    private static final class ColumnarRowFactory implements MOTableRowFactory<ColumnarRow> {
+
+        @Override
+        public ColumnarRow createRow(OID index, Variable[] values) throws UnsupportedOperationException {
+            return new ColumnarRow(index, values);
+        }
+
+        @Override
+        public void freeRow(ColumnarRow row) {
+        }
+    }
+
+    /**
+     * A {@code Column} stores the cell values of one column by row slot. Values whose syntax differs from the
+     * syntax of the column (e.g. {@link Null} values of a row that is not ready) are kept as objects.
+     */
+    protected abstract static class Column {
+
+        protected final int syntax;
+        private final BitSet present = new BitSet();
+        private Variable[] foreign;
+
+        protected Column(int syntax) {
+            this.syntax = syntax;
+        }
+
+        Variable get(int slot) {
+            if (!present.get(slot)) {
+                return null;
+            }
+            if ((foreign != null) && (foreign[slot] != null)) {
+                return foreign[slot];
+            }
+            return getPrimitive(slot);
+        }
+
+        void set(int slot, Variable value) {
+            if (value == null) {
+                if (present.get(slot)) {
+                    clearPrimitive(slot);
+                    present.clear(slot);
+                }
+                if (foreign != null) {
+                    foreign[slot] = null;
+                }
+            } else if (value.getSyntax() == syntax) {
+                if (foreign != null) {
+                    foreign[slot] = null;
+                }
+                setPrimitive(slot, value);
+                present.set(slot);
+            } else {
+                if (foreign == null) {
+                    foreign = new Variable[capacity()];
+                }
+                clearPrimitive(slot);
+                foreign[slot] = value;
+                present.set(slot);
+            }
+        }
+
+        /**
+         * Sets a numeric value without creating a {@link Variable} if the value syntax matches the column.
+         */
+        void setLong(int slot, int valueSyntax, long value) {
+            set(slot, MOTableBulkUpdate.createVariable(valueSyntax, value));
+        }
+
+        /**
+         * Marks the primitive value of a slot as the current value of the cell.
+         */
+        protected void markPrimitive(int slot) {
+            if (foreign != null) {
+                foreign[slot] = null;
+            }
+            present.set(slot);
+        }
+
+        void grow(int capacity) {
+            if (foreign != null) {
+                foreign = Arrays.copyOf(foreign, capacity);
+            }
+            growPrimitive(capacity);
+        }
+
+        protected abstract int capacity();
+
+        protected abstract void growPrimitive(int capacity);
+
+        protected abstract Variable getPrimitive(int slot);
+
+        protected abstract void setPrimitive(int slot, Variable value);
+
+        protected abstract void clearPrimitive(int slot);
+    }
+
+    private static final class LongColumn extends Column {
+
+        private long[] values;
+
+        LongColumn(int syntax, int capacity) {
+            super(syntax);
+            this.values = new long[capacity];
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void growPrimitive(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        protected Variable getPrimitive(int slot) {
+            long value = values[slot];
+            switch (syntax) {
+                case SMIConstants.SYNTAX_COUNTER32:
+                    return new Counter32(value);
+                case SMIConstants.SYNTAX_GAUGE32:
+                    return new Gauge32(value);
+                case SMIConstants.SYNTAX_TIMETICKS:
+                    return new TimeTicks(value);
+                default:
+                    return new Counter64(value);
+            }
+        }
+
+        @Override
+        protected void setPrimitive(int slot, Variable value) {
+            values[slot] = value.toLong();
+        }
+
+        @Override
+        void setLong(int slot, int valueSyntax, long value) {
+            if (valueSyntax == syntax) {
+                values[slot] = value;
+                markPrimitive(slot);
+            } else {
+                super.setLong(slot, valueSyntax, value);
+            }
+        }
+
+        @Override
+        protected void clearPrimitive(int slot) {
+            values[slot] = 0L;
+        }
+    }
+
+    private static final class IntColumn extends Column {
+
+        private int[] values;
+
+        IntColumn(int capacity) {
+            super(SMIConstants.SYNTAX_INTEGER);
+            this.values = new int[capacity];
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void growPrimitive(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        protected Variable getPrimitive(int slot) {
+            return new Integer32(values[slot]);
+        }
+
+        @Override
+        protected void setPrimitive(int slot, Variable value) {
+            values[slot] = value.toInt();
+        }
+
+        @Override
+        void setLong(int slot, int valueSyntax, long value) {
+            if (valueSyntax == syntax) {
+                values[slot] = (int) value;
+                markPrimitive(slot);
+            } else {
+                super.setLong(slot, valueSyntax, value);
+            }
+        }
+
+        @Override
+        protected void clearPrimitive(int slot) {
+            values[slot] = 0;
+        }
+    }
+
+    /**
+     * Stores the octets of all cells of a column in a single slab. Replaced values leave garbage in the slab that
+     * is removed by compaction when it exceeds half of the slab.
+     */
+    private static final class OctetStringColumn extends Column {
+
+        private static final int MIN_SLAB_SIZE = 64;
+
+        private byte[] slab = new byte[MIN_SLAB_SIZE];
+        private int slabSize;
+        private int slabGarbage;
+        /** Per slot: the offset of the value in the slab (upper 32 bits) and its length. */
+        private long[] refs;
+
+        OctetStringColumn(int capacity) {
+            super(SMIConstants.SYNTAX_OCTET_STRING);
+            this.refs = new long[capacity];
+        }
+
+        @Override
+        protected int capacity() {
+            return refs.length;
+        }
+
+        @Override
+        protected void growPrimitive(int capacity) {
+            refs = Arrays.copyOf(refs, capacity);
+        }
+
+        @Override
+        protected Variable getPrimitive(int slot) {
+            long ref = refs[slot];
+            int offset = (int) (ref >>> 32);
+            // empty values are stored with a zero reference
+            return new OctetString(Arrays.copyOfRange(slab, offset, offset + (int) ref));
+        }
+
+        @Override
+        protected void setPrimitive(int slot, Variable value) {
+            byte[] octets = ((OctetString) value).getValue();
+            long ref = refs[slot];
+            int length = (int) ref;
+            if ((octets.length > 0) && (octets.length <= length)) {
+                // reuse the current extent
+                int offset = (int) (ref >>> 32);
+                System.arraycopy(octets, 0, slab, offset, octets.length);
+                slabGarbage += length - octets.length;
+                refs[slot] = (((long) offset) << 32) | octets.length;
+                return;
+            }
+            clearPrimitive(slot);
+            if (octets.length == 0) {
+                return;
+            }
+            if (slabSize + octets.length > slab.length) {
+                if (slabGarbage > (slabSize >> 1)) {
+                    compact();
+                }
+                if (slabSize + octets.length > slab.length) {
+                    slab = Arrays.copyOf(slab, Math.max(slabSize + octets.length, slab.length + (slab.length >> 1)));
+                }
+            }
+            System.arraycopy(octets, 0, slab, slabSize, octets.length);
+            refs[slot] = (((long) slabSize) << 32) | octets.length;
+            slabSize += octets.length;
+        }
+
+        @Override
+        protected void clearPrimitive(int slot) {
+            slabGarbage += (int) refs[slot];
+            refs[slot] = 0L;
+        }
+
+        private void compact() {
+            byte[] compacted = new byte[Math.max(slabSize - slabGarbage, MIN_SLAB_SIZE)];
+            int pos = 0;
+            for (int slot = 0; slot < refs.length; slot++) {
+                long ref = refs[slot];
+                int length = (int) ref;
+                if (length > 0) {
+                    System.arraycopy(slab, (int) (ref >>> 32), compacted, pos, length);
+                    refs[slot] = (((long) pos) << 32) | length;
+                    pos += length;
+                }
+            }
+            slab = compacted;
+            slabSize = pos;
+            slabGarbage = 0;
+        }
+    }
+
+    private static final class VariableColumn extends Column {
+
+        private Variable[] values;
+
+        VariableColumn(int syntax, int capacity) {
+            super(syntax);
+            this.values = new Variable[capacity];
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void growPrimitive(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        protected Variable getPrimitive(int slot) {
+            return values[slot];
+        }
+
+        @Override
+        protected void setPrimitive(int slot, Variable value) {
+            values[slot] = value;
+        }
+
+        @Override
+        protected void clearPrimitive(int slot) {
+            values[slot] = null;
+        }
+    }
+
+    /**
+     * The packed index of this model with the row slots as payload.
+     */
+    private static final class SlotIndex extends PackedOIDIndex {
+
+        private int[] slots;
+
+        SlotIndex(int initialCapacity) {
+            super(initialCapacity);
+            this.slots = new int[capacity()];
+        }
+
+        @Override
+        protected void growPayload(int capacity) {
+            slots = Arrays.copyOf(slots, capacity);
+        }
+
+        @Override
+        protected void movePayload(int fromPosition, int toPosition, int length) {
+            System.arraycopy(slots, fromPosition, slots, toPosition, length);
+        }
+    }
+
+    /**
+     * A weakly consistent iterator over row views. If the model has been modified since the last call of
+     * {@link #next()}, the iterator repositions itself to the successor of the last returned row.
+     */
+    private class RowIterator implements Iterator<ColumnarRow> {
+
+        private final OID lowerBound;
+        private int position;
+        private int expectedModCount;
+        private ColumnarRow lastReturned;
+        private ColumnarRow next;
+
+        RowIterator(OID lowerBound) {
+            this.lowerBound = lowerBound;
+            lock.readLock().lock();
+            try {
+                this.position = index.ceilingPosition(lowerBound, true);
+                this.expectedModCount = modCount;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = fetchNext();
+            }
+            return (next != null);
+        }
+
+        @Override
+        public ColumnarRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = null;
+            return lastReturned;
+        }
+
+        private ColumnarRow fetchNext() {
+            lock.readLock().lock();
+            try {
+                if (expectedModCount != modCount) {
+                    position = (lastReturned != null) ?
+                            index.ceilingPosition(lastReturned.getIndex(), false) :
+                            index.ceilingPosition(lowerBound, true);
+                }
+                expectedModCount = modCount;
+                if (position < index.size()) {
+                    return rowAt(position++);
+                }
+                return null;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            removeRow(lastReturned.getIndex());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - ConcurrentMOMutableTableModel.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.snmp4j.smi.OID;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The {@code ConcurrentMOMutableTableModel} is a drop-in replacement for {@link DefaultMOMutableTableModel} that
+ * stores its rows in a {@link ConcurrentSkipListMap}. Read access (row lookup and iteration) does not acquire the
+ * model's monitor and therefore does not block other readers or writers. Modifications are still serialized by
+ * the model's monitor, so that {@link MOTableModelEvent}s are fired in modification order.
+ * <p>
+ * Iterators returned by this model are weakly consistent: They reflect the rows present when they were created and
+ * may (or may not) reflect modifications made afterwards.
+ * <p>
+ * Bulk updates ({@link #applyUpdates(MOTableBulkUpdate)}) additionally hold the write lock of
+ * {@link #getBulkUpdateLock()}, so that readers holding its read lock see either none or all of the updates without
+ * blocking each other.
+ *
+ * @param <R>
+ *         the row type of the model.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+public class ConcurrentMOMutableTableModel<R extends MOTableRow> extends DefaultMOMutableTableModel<R>
+        implements ConcurrentMOTableModel<R> {
+
+    protected final ConcurrentNavigableMap<OID, R> concurrentRows;
+    private final ReentrantReadWriteLock bulkUpdateLock = new ReentrantReadWriteLock();
+
+    public ConcurrentMOMutableTableModel() {
+        this.concurrentRows = new ConcurrentSkipListMap<>();
+        this.rows = concurrentRows;
+    }
+
+    @Override
+    public R getRow(OID index) {
+        return concurrentRows.get(index);
+    }
+
+    @Override
+    public OID firstIndex() {
+        Map.Entry<OID, R> first = concurrentRows.firstEntry();
+        return (first == null) ? null : first.getKey();
+    }
+
+    @Override
+    public R firstRow() {
+        Map.Entry<OID, R> first = concurrentRows.firstEntry();
+        return (first == null) ? null : first.getValue();
+    }
+
+    @Override
+    public OID lastIndex() {
+        Map.Entry<OID, R> last = concurrentRows.lastEntry();
+        return (last == null) ? null : last.getKey();
+    }
+
+    @Override
+    public R lastRow() {
+        Map.Entry<OID, R> last = concurrentRows.lastEntry();
+        return (last == null) ? null : last.getValue();
+    }
+
+    @Override
+    public Iterator<R> iterator() {
+        return concurrentRows.values().iterator();
+    }
+
+    @Override
+    public Iterator<R> tailIterator(OID lowerBound) {
+        if (lowerBound == null) {
+            return iterator();
+        }
+        return concurrentRows.tailMap(lowerBound, true).values().iterator();
+    }
+
+    @Override
+    public Iterator<R> iterator(MOTableRowFilter<R> filter) {
+        return new FilteredRowIterator(filter);
+    }
+
+    @Override
+    public List<MOTableRow> getRows(OID lowerBound, OID upperBoundEx) {
+        return new ArrayList<>(getConcurrentView(lowerBound, upperBoundEx).values());
+    }
+
+    @Override
+    public List<R> getRows(OID lowerBound, OID upperBoundEx, MOTableRowFilter<R> filter) {
+        List<R> result = new ArrayList<>();
+        for (R row : getConcurrentView(lowerBound, upperBoundEx).values()) {
+            if (filter.passesFilter(row)) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    private NavigableMap<OID, R> getConcurrentView(OID lowerBound, OID upperBoundEx) {
+        if ((lowerBound == null) && (upperBoundEx == null)) {
+            return concurrentRows;
+        } else if (lowerBound == null) {
+            return concurrentRows.headMap(upperBoundEx, false);
+        } else if (upperBoundEx == null) {
+            return concurrentRows.tailMap(lowerBound, true);
+        }
+        return concurrentRows.subMap(lowerBound, true, upperBoundEx, false);
+    }
+
+    @Override
+    protected synchronized int applyUpdatesToRows(MOTableBulkUpdate bulkUpdate) {
+        // acquire the monitor first, like DefaultMOTable when a commit reads cells while holding it
+        bulkUpdateLock.writeLock().lock();
+        try {
+            return bulkUpdate.applyTo(this);
+        } finally {
+            bulkUpdateLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public ReadWriteLock getBulkUpdateLock() {
+        return bulkUpdateLock;
+    }
+
+    @Override
+    public void dump(OutputStream os) throws IOException {
+        os.write(("Dump of " + getClass().getName() + ":\n").getBytes());
+        for (Map.Entry<OID, R> e : concurrentRows.entrySet()) {
+            os.write((e.getKey() + " # " + e.getValue() + "\n").getBytes());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - ConcurrentMOTableModel.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+/**
+ * The {@code ConcurrentMOTableModel} interface marks {@link MOTableModel} implementations that can be read
+ * concurrently with modifications without synchronizing on the model instance. The iterators returned by
+ * {@link #iterator()} and {@link #tailIterator(org.snmp4j.smi.OID)} of such models are weakly consistent, i.e.
+ * they never throw a {@link java.util.ConcurrentModificationException} and reflect the rows of the model at
+ * some point at or since their creation.
+ * <p>
+ * {@link DefaultMOTable} does not hold the model's monitor while searching cells of a concurrent table model.
+ *
+ * @param <R>
+ *         the row type of the model.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+public interface ConcurrentMOTableModel<R extends MOTableRow> extends MOTableModel<R> {
+
+}
@@ -203,6 +203,41 @@ public class DefaultMOMutableTableModel<R extends MOTableRow> extends DefaultMOT
         }
     }
 
+    /**
+     * Applies the cell updates while holding the model's monitor and then fires a single
+     * {@link MOTableModelEvent#ROWS_UPDATED} event. Readers that synchronize on this model, like
+     * {@link DefaultMOTable} does while reading cells, see either none or all of the updates.
+     *
+     * @param bulkUpdate
+     *         the cell updates to apply.
+     *
+     * @return the number of updated cells.
+     * @since 3.4.0
+     */
+    @Override
+    public int applyUpdates(MOTableBulkUpdate bulkUpdate) {
+        int updated = applyUpdatesToRows(bulkUpdate);
+        if ((updated > 0) && (moTableModelListeners != null)) {
+            fireTableModelChanged(new MOTableModelEvent(this, bulkUpdate, updated));
+        }
+        return updated;
+    }
+
+    /**
+     * Applies the cell updates to the rows of this model while holding the model's monitor.
+     *
+     * @param bulkUpdate
+     *         the cell updates to apply.
+     *
+     * @return the number of updated cells.
+     * @since 3.4.0
+     */
+    protected int applyUpdatesToRows(MOTableBulkUpdate bulkUpdate) {
+        synchronized (this) {
+            return bulkUpdate.applyTo(this);
+        }
+    }
+
     public synchronized void addMOTableModelListener(MOTableModelListener l) {
         if (moTableModelListeners == null) {
             moTableModelListeners = new ArrayList<>(2);
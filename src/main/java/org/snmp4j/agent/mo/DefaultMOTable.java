@@ -38,6 +38,10 @@ import org.snmp4j.smi.VariableBinding;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * The {@code DefaultMOTable} class is the default implementation of the {@link MOTable} class. For most use cases, it
@@ -73,7 +77,10 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
     protected transient List<MOChangeListener> moChangeListeners;
     protected transient List<MOTableRowListener<R>> moTableRowListeners;
 
-    private transient WeakHashMap<Request<?, ?, ?>, RowCacheEntry> walkCache;
+    /**
+     * The key of the {@link WalkCursors} of this table in the processing user objects of a request.
+     */
+    private final transient Object walkCursorsKey = new Object();
 
     protected transient List<RowModificationControlColumn> rowModificationControlColumns;
 
@@ -441,7 +448,8 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
 
     private MOTableCellInfo getNextCell(int col,
                                         OID indexLowerBound,
-                                        boolean isLowerBoundIncluded) {
+                                        boolean isLowerBoundIncluded,
+                                        WalkCursors<R> cursors) {
         for (int i = col; i < columns.length; i++) {
             Iterator<R> it = model.tailIterator(indexLowerBound);
             if (!it.hasNext()) {
@@ -452,27 +460,81 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
                 isLowerBoundIncluded = true;
             } else {
                 if ((indexLowerBound != null) && (!isLowerBoundIncluded)) {
-                    MOTableRow row = it.next();
+                    R row = it.next();
                     if (row.getIndex().compareTo(indexLowerBound) > 0) {
                         // the specified index does not exists so we can use this next one:
-                        return new CellInfo(this, row.getIndex(), i, columns[i].getColumnID(),
-                                row);
+                        return newCursorCell(i, row, it, cursors);
                     }
                 }
                 indexLowerBound = null;
                 isLowerBoundIncluded = true;
                 if (it.hasNext()) {
-                    MOTableRow row = it.next();
+                    R row = it.next();
                     if (row == null) {
                         continue;
                     }
-                    return new CellInfo(this, row.getIndex(), i, columns[i].getColumnID(), row);
+                    return newCursorCell(i, row, it, cursors);
                 }
             }
         }
         return null;
     }
 
+    private MOTableCellInfo newCursorCell(int col, R row, Iterator<R> it, WalkCursors<R> cursors) {
+        if (cursors != null) {
+            cursors.add(col, row, it);
+        }
+        return new CellInfo(this, row.getIndex(), col, columns[col].getColumnID(), row);
+    }
+
+    /**
+     * Advances a walk cursor to the next row of its column.
+     *
+     * @param cursor
+     *         a walk cursor whose row matches the search lower bound (excluded).
+     *
+     * @return the next cell in the cursor's column or {@code null} if the column has no more rows or the cursor's
+     * iterator has been invalidated by a model modification.
+     */
+    private MOTableCellInfo advanceCursor(WalkCursor<R> cursor) {
+        try {
+            if (cursor.iterator.hasNext()) {
+                R row = cursor.iterator.next();
+                if (row != null) {
+                    cursor.row = row;
+                    return new CellInfo(this, row.getIndex(), cursor.column,
+                            columns[cursor.column].getColumnID(), row);
+                }
+            }
+        } catch (ConcurrentModificationException cmex) {
+            // fall through to a new search
+        }
+        cursor.row = null;
+        return null;
+    }
+
+    /**
+     * Gets the walk cursors of this table for the supplied request.
+     *
+     * @param request
+     *         a sub-request.
+     *
+     * @return the walk cursors stored in the request or {@code null} if there is no request.
+     */
+    @SuppressWarnings("unchecked")
+    private WalkCursors<R> getWalkCursors(SubRequest<?> request) {
+        Request<?, ?, ?> req = request.getRequest();
+        if (req == null) {
+            return null;
+        }
+        WalkCursors<R> cursors = (WalkCursors<R>) req.getProcessingUserObject(walkCursorsKey);
+        if (cursors == null) {
+            cursors = new WalkCursors<>(columns.length + 1);
+            req.setProcessingUserObject(walkCursorsKey, cursors);
+        }
+        return cursors;
+    }
+
     public OID find(MOScope range) {
         MOTableCellInfo cellInfo = findCell(range, null);
         if (cellInfo != null) {
@@ -481,68 +543,59 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
         return null;
     }
 
+    /**
+     * Finds the first cell within the supplied range. If the table model is a {@link ConcurrentMOTableModel}, the
+     * search is performed without synchronizing on the model, otherwise the model's monitor is held during the
+     * search.
+     *
+     * @param range
+     *         the search range.
+     * @param request
+     *         the optional sub-request on whose behalf the search is performed.
+     *
+     * @return the first cell in {@code range} or {@code null} if there is no such cell.
+     */
     protected MOTableCellInfo findCell(MOScope range, SubRequest<?> request) {
+        if (model instanceof ConcurrentMOTableModel) {
+            return findCellInModel(range, request);
+        }
         synchronized (model) {
-            update(range, request);
-            // determine column
-            if (model.isEmpty()) {
-                return null;
-            }
-            MOTableCellInfo cellInfo = getCellInfo(range.getLowerBound());
-            int col = cellInfo.getColumn();
-            boolean exactMatch = true;
-            if (col < 0) {
-                col = (-col) - 1;
-                exactMatch = false;
-            }
-            if (col >= columns.length) {
-                return null;
-            }
-            boolean lowerIncluded = (!exactMatch) || range.isLowerIncluded();
-            RowCacheEntry rowEntry = null;
-            if (request != null) {
-                rowEntry = getWalkCacheEntry(request, cellInfo, lowerIncluded);
-            }
-            MOTableCellInfo next;
-            if (rowEntry != null) {
-                next = new CellInfo(this, rowEntry.row.getIndex(),
-                        col, cellInfo.getColumnID(), rowEntry.row);
-            } else {
-                next = getNextCell(col, cellInfo.getIndex(), lowerIncluded);
-                if ((request != null) && (next != null) && (next.getColumn() == col)) {
-                    addWalkCacheEntry(request, cellInfo.getIndex(), lowerIncluded,
-                            ((CellInfo) next).row);
-                }
-            }
-            if (next != null) {
-                OID cellOID = next.getCellOID();
-                if (range.isCovered(new OIDScope(cellOID))) {
-                    return next;
-                }
-            }
+            return findCellInModel(range, request);
         }
-        return null;
     }
 
-    private void addWalkCacheEntry(SubRequest<?> request, OID lowerBound, boolean lowerIncluded, MOTableRow row) {
-        if (walkCache == null) {
-            walkCache = new WeakHashMap<>(4);
+    private MOTableCellInfo findCellInModel(MOScope range, SubRequest<?> request) {
+        update(range, request);
+        // determine column
+        if (model.isEmpty()) {
+            return null;
         }
-        walkCache.put(request.getRequest(),
-                new RowCacheEntry(row, lowerBound, lowerIncluded));
-    }
-
-    private RowCacheEntry getWalkCacheEntry(SubRequest<?> request, MOTableCellInfo cellInfo, boolean lowerIncluded) {
-        if (walkCache != null) {
-            RowCacheEntry entry = walkCache.get(request.getRequest());
-            if (entry == null) {
-                return null;
+        MOTableCellInfo cellInfo = getCellInfo(range.getLowerBound());
+        int col = cellInfo.getColumn();
+        boolean exactMatch = true;
+        if (col < 0) {
+            col = (-col) - 1;
+            exactMatch = false;
+        }
+        if (col >= columns.length) {
+            return null;
+        }
+        boolean lowerIncluded = (!exactMatch) || range.isLowerIncluded();
+        WalkCursors<R> cursors = (request != null) ? getWalkCursors(request) : null;
+        MOTableCellInfo next = null;
+        if ((cursors != null) && (!lowerIncluded) && (cellInfo.getIndex() != null)) {
+            WalkCursor<R> cursor = cursors.get(col, cellInfo.getIndex());
+            if (cursor != null) {
+                next = advanceCursor(cursor);
             }
-            if (((entry.searchLowerBound == null) && (cellInfo.getIndex() == null)) ||
-                    ((entry.searchLowerBound != null) &&
-                            (entry.searchLowerBound.equals(cellInfo.getIndex())) &&
-                            (lowerIncluded == entry.searchLowerBoundIncluded))) {
-                return entry;
+        }
+        if (next == null) {
+            next = getNextCell(col, cellInfo.getIndex(), lowerIncluded, cursors);
+        }
+        if (next != null) {
+            OID cellOID = next.getCellOID();
+            if (range.isCovered(new OIDScope(cellOID))) {
+                return next;
             }
         }
         return null;
@@ -563,14 +616,47 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
     }
 
     public Variable getValue(OID index, int col, SubRequest<?> req) {
-        MOTableRow row = model.getRow(index);
-        return getValue(row, col, req);
+        return readAtomically(() -> getValue(model.getRow(index), col, req));
     }
 
     @Override
     public Variable getValue(OID index, int col) {
-        MOTableRow row = model.getRow(index);
-        return getValue(row, col, null);
+        return readAtomically(() -> getValue(model.getRow(index), col, null));
+    }
+
+    /**
+     * Reads cells of the table model atomically with respect to bulk updates
+     * ({@link MOMutableTableModel#applyUpdates(MOTableBulkUpdate)}). The reader runs while holding the read lock of
+     * the model's {@link MOMutableTableModel#getBulkUpdateLock()} or, if the model has none, the model's monitor.
+     * Readers of a {@link ConcurrentMOTableModel} that is not mutable do not synchronize. Because an update of the
+     * table may apply bulk updates, {@link #update(MOScope, SubRequest)} has to be called before.
+     *
+     * @param reader
+     *         reads the cells.
+     * @param <T>
+     *         the result type.
+     *
+     * @return the result of {@code reader}.
+     */
+    private <T> T readAtomically(Supplier<T> reader) {
+        ReadWriteLock bulkUpdateLock = null;
+        if (model instanceof MOMutableTableModel) {
+            bulkUpdateLock = ((MOMutableTableModel<?>) model).getBulkUpdateLock();
+        } else if (model instanceof ConcurrentMOTableModel) {
+            return reader.get();
+        }
+        if (bulkUpdateLock == null) {
+            synchronized (model) {
+                return reader.get();
+            }
+        }
+        Lock readLock = bulkUpdateLock.readLock();
+        readLock.lock();
+        try {
+            return reader.get();
+        } finally {
+            readLock.unlock();
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -605,6 +691,12 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
      * implement its interface in a subclass. Then it is recommended to overwrite this method by an empty method.
      * Otherwise, do not implement the {@link UpdatableManagedObject} interface.
      * </p>
+     * <p>
+     * If the table model is a {@link ConcurrentMOTableModel}, this method is called without holding the model's
+     * monitor and implementations need to synchronize their model modifications themselves. For sub-requests of a
+     * {@link Request}, this method is called before the cells are read while holding the model's bulk update read
+     * lock (see {@link MOMutableTableModel#getBulkUpdateLock()}), thus it may apply bulk updates to the model.
+     * </p>
      *
      * @param range
      *         the search range.
@@ -634,14 +726,17 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
             update(request.getScope(), request);
 
             MOColumn<?> col = getColumn(cell.getColumn());
-            MOTableRow row = model.getRow(cell.getIndex());
-            if (row == null) {
-                request.getVariableBinding().setVariable(Null.noSuchInstance);
-            } else if (col != null) {
-                col.get(request, row, cell.getColumn());
-            } else {
-                request.getStatus().setErrorStatus(PDU.noAccess);
-            }
+            readAtomically(() -> {
+                MOTableRow row = model.getRow(cell.getIndex());
+                if (row == null) {
+                    request.getVariableBinding().setVariable(Null.noSuchInstance);
+                } else if (col != null) {
+                    col.get(request, row, cell.getColumn());
+                } else {
+                    request.getStatus().setErrorStatus(PDU.noAccess);
+                }
+                return null;
+            });
         } else {
             if (cell.getColumn() >= 0) {
                 request.getVariableBinding().setVariable(Null.noSuchInstance);
@@ -654,6 +749,11 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
 
     @Override
     public boolean next(SubRequest<?> request) {
+        update(request.getScope(), request);
+        return readAtomically(() -> nextInModel(request));
+    }
+
+    private boolean nextInModel(SubRequest<?> request) {
         DefaultMOScope scope = new DefaultMOScope(request.getScope());
         MOTableCellInfo nextCell;
         while ((nextCell = findCell(scope, request)) != null) {
@@ -689,6 +789,114 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
         return false;
     }
 
+    /**
+     * Processes GETNEXT sub-requests that continue column walks of this table row by row: Sub-requests whose scope
+     * starts after a cell of this table (lower bound excluded) and that refer to the same row index share a single
+     * search for the successor row. Then the successor row's value of each sub-request's column is returned. This
+     * avoids a lookup and search per sub-request when a GETBULK request walks several columns of a table in
+     * parallel.
+     * <p>
+     * A sub-request is left unprocessed if its successor cell is not in this table's column (i.e. the column walk
+     * ends), the cell has no value (sparse table), the column is not readable, or {@code accessFilter} denies access
+     * to the cell. The caller is responsible for processing these sub-requests by {@link #next(SubRequest)} or by
+     * a regular lookup of the next managed object. The caller also has to hold the lock of this table, if needed.
+     * The cells of a row are read atomically with respect to bulk updates of the table model, thus the values
+     * returned for the columns of the same row stem from the same {@link #applyUpdates(MOTableBulkUpdate)} call.
+     *
+     * @param subRequests
+     *         the GETNEXT (or GETBULK repetition) sub-requests.
+     * @param accessFilter
+     *         returns {@code true} if the supplied cell OID may be returned, for example, because it is in the
+     *         request's MIB view.
+     *
+     * @return the number of completed sub-requests.
+     * @since 3.4.0
+     */
+    public int nextRow(List<? extends SubRequest<?>> subRequests, Predicate<OID> accessFilter) {
+        if (subRequests.isEmpty()) {
+            return 0;
+        }
+        SubRequest<?> first = subRequests.get(0);
+        update(first.getScope(), first);
+        return readAtomically(() -> nextRowInModel(subRequests, accessFilter));
+    }
+
+    private int nextRowInModel(List<? extends SubRequest<?>> subRequests, Predicate<OID> accessFilter) {
+        WalkCursors<R> cursors = getWalkCursors(subRequests.get(0));
+        int completed = 0;
+        OID lastIndex = null;
+        R nextRow = null;
+        for (SubRequest<?> sreq : subRequests) {
+            MOScope scope = sreq.getScope();
+            OID lowerBound = scope.getLowerBound();
+            if (sreq.isComplete() || (lowerBound == null) || scope.isLowerIncluded() ||
+                    (lowerBound.size() <= oid.size()) || !lowerBound.startsWith(oid)) {
+                continue;
+            }
+            MOTableCellInfo cellInfo = getCellInfo(lowerBound);
+            int col = cellInfo.getColumn();
+            OID index = cellInfo.getIndex();
+            if ((col < 0) || (col >= columns.length) || (index == null) ||
+                    (!columns[col].getAccess().isAccessibleForRead())) {
+                continue;
+            }
+            if (!index.equals(lastIndex)) {
+                nextRow = getSuccessorRow(index, cursors);
+                lastIndex = index;
+            }
+            if (nextRow == null) {
+                continue;
+            }
+            OID cellOID = getCellOID(nextRow.getIndex(), col);
+            if (!scope.isCovered(new OIDScope(cellOID)) || !accessFilter.test(cellOID)) {
+                continue;
+            }
+            Variable value = getValue(nextRow, col, sreq);
+            if (value != null) {
+                sreq.getVariableBinding().setOid(cellOID);
+                sreq.getVariableBinding().setVariable(value);
+                sreq.completed();
+                completed++;
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Returns the row following the supplied index. A row walk cursor of the request is advanced if it is
+     * positioned at {@code index}, otherwise the model is searched and a new row walk cursor is created.
+     *
+     * @param index
+     *         a row index.
+     * @param cursors
+     *         the walk cursors of the current request or {@code null}.
+     *
+     * @return the successor row or {@code null} if there is none.
+     */
+    private R getSuccessorRow(OID index, WalkCursors<R> cursors) {
+        WalkCursor<R> cursor = (cursors != null) ? cursors.get(WalkCursor.ROW_CURSOR, index) : null;
+        if (cursor != null) {
+            try {
+                R row = cursor.iterator.hasNext() ? cursor.iterator.next() : null;
+                cursor.row = row;
+                return row;
+            } catch (ConcurrentModificationException cmex) {
+                cursor.row = null;
+            }
+        }
+        Iterator<R> it = model.tailIterator(index);
+        while (it.hasNext()) {
+            R row = it.next();
+            if ((row != null) && (row.getIndex().compareTo(index) > 0)) {
+                if (cursors != null) {
+                    cursors.add(WalkCursor.ROW_CURSOR, row, it);
+                }
+                return row;
+            }
+        }
+        return null;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public void prepare(SubRequest<?> request) {
@@ -1764,16 +1972,95 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
         return false;
     }
 
-    private static class RowCacheEntry {
+    /**
+     * Applies the cell updates of the supplied bulk update to the rows of this table in a single atomic step by
+     * {@link MOMutableTableModel#applyUpdates(MOTableBulkUpdate)}. This table reads each cell, and all cells of a
+     * row in {@link #nextRow(List, Predicate)}, atomically with respect to bulk updates. The sub-requests of a
+     * request are processed one after another, thus a request may see the state before and after a bulk update
+     * applied meanwhile, but a later cell never shows an older state than an earlier one. In contrast to
+     * {@link #setValue(VariableBinding)}, the values are not validated and no {@link MOChangeEvent}s are fired.
+     * Instead, the table model fires a single {@link MOTableModelEvent#ROWS_UPDATED} event. This method is intended
+     * for refreshing volatile (e.g. counter) values of many rows from a collector thread.
+     *
+     * @param bulkUpdate
+     *         the cell updates where the column is specified by its zero based index (see
+     *         {@link #getColumnIndex(int)}).
+     *
+     * @return the number of updated cells or -1 if the table model is not mutable.
+     * @since 3.4.0
+     */
+    public int applyUpdates(MOTableBulkUpdate bulkUpdate) {
+        if (model instanceof MOMutableTableModel) {
+            return ((MOMutableTableModel<?>) model).applyUpdates(bulkUpdate);
+        }
+        return -1;
+    }
+
+    /**
+     * A {@code WalkCursor} holds the position of a column walk: the last returned row and the model iterator
+     * positioned behind it.
+     *
+     * @param <R>
+     *         the row type.
+     */
+    private static final class WalkCursor<R extends MOTableRow> {
+        /** The column value of a cursor that walks rows instead of a single column. */
+        private static final int ROW_CURSOR = -1;
+
+        private int column;
         private MOTableRow row;
-        private OID searchLowerBound;
-        private boolean searchLowerBoundIncluded;
+        private Iterator<R> iterator;
+    }
 
-        RowCacheEntry(MOTableRow row,
-                      OID searchLowerBound, boolean searchLowerBoundIncluded) {
-            this.row = row;
-            this.searchLowerBound = searchLowerBound;
-            this.searchLowerBoundIncluded = searchLowerBoundIncluded;
+    /**
+     * The {@code WalkCursors} hold the column walk positions of a single request in this table. They are stored
+     * as processing user object in the request, so that GETNEXT and GETBULK repetitions that continue a walk
+     * retrieve the successor row from the model iterator of the previous repetition instead of searching it.
+     * If there are more concurrent walks than cursors, the oldest cursor is replaced.
+     *
+     * @param <R>
+     *         the row type.
+     */
+    private static final class WalkCursors<R extends MOTableRow> {
+        private final WalkCursor<R>[] cursors;
+        private int size;
+        private int nextReplaced;
+
+        @SuppressWarnings("unchecked")
+        WalkCursors(int columnCount) {
+            this.cursors = new WalkCursor[Math.max(1, columnCount)];
+        }
+
+        WalkCursor<R> get(int column, OID lowerBound) {
+            for (int i = 0; i < size; i++) {
+                WalkCursor<R> cursor = cursors[i];
+                if ((cursor.column == column) && (cursor.row != null) && lowerBound.equals(cursor.row.getIndex())) {
+                    return cursor;
+                }
+            }
+            return null;
+        }
+
+        void add(int column, MOTableRow row, Iterator<R> iterator) {
+            WalkCursor<R> cursor = null;
+            for (int i = 0; (i < size) && (cursor == null); i++) {
+                if (cursors[i].row == null) {
+                    // reuse an exhausted or invalidated cursor
+                    cursor = cursors[i];
+                }
+            }
+            if (cursor == null) {
+                if (size < cursors.length) {
+                    cursor = new WalkCursor<>();
+                    cursors[size++] = cursor;
+                } else {
+                    cursor = cursors[nextReplaced];
+                    nextReplaced = (nextReplaced + 1) % cursors.length;
+                }
+            }
+            cursor.column = column;
+            cursor.row = row;
+            cursor.iterator = iterator;
         }
     }
 }
@@ -24,6 +24,7 @@ package org.snmp4j.agent.mo;
 import org.snmp4j.smi.OID;
 
 import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
 
 /**
  * The {@code MOMutableTableModel} defines the interface for mutable
@@ -92,4 +93,52 @@ public interface MOMutableTableModel<R extends MOTableRow>
    * @since 2.4.0
    */
   MOTableRowFactory<R> getRowFactory();
+
+  /**
+   * Applies the cell updates of the supplied bulk update in a single atomic
+   * step. Readers that hold the read lock of {@link #getBulkUpdateLock()}
+   * (or the model's monitor, if that method returns {@code null}) see either
+   * none or all of the updates. {@link DefaultMOTable} does so for each cell
+   * it reads and for all cells of a row read by
+   * {@link DefaultMOTable#nextRow(List, java.util.function.Predicate)}.
+   * Models that support {@link MOTableModelListener}s fire a single
+   * {@link MOTableModelEvent#ROWS_UPDATED} event after the updates have been
+   * applied, instead of an event per cell.
+   * <p>
+   * The default implementation applies the updates while holding the model's
+   * monitor and fires no event.
+   *
+   * @param bulkUpdate
+   *    the cell updates to apply. Updates of rows that are not part of the
+   *    model are skipped.
+   * @return
+   *    the number of updated cells.
+   * @since 3.4.0
+   */
+  default int applyUpdates(MOTableBulkUpdate bulkUpdate) {
+    synchronized (this) {
+      return bulkUpdate.applyTo(this);
+    }
+  }
+
+  /**
+   * Returns the lock whose write lock is held by
+   * {@link #applyUpdates(MOTableBulkUpdate)} while applying the updates.
+   * Readers hold its read lock to read cells atomically with respect to bulk
+   * updates. The read lock must not be held while calling
+   * {@link #applyUpdates(MOTableBulkUpdate)}. {@link DefaultMOTable}
+   * acquires the read lock before it synchronizes on a model that is not a
+   * {@link ConcurrentMOTableModel}.
+   * <p>
+   * The default implementation returns {@code null}, because the default
+   * {@link #applyUpdates(MOTableBulkUpdate)} synchronizes on the model.
+   *
+   * @return
+   *    the bulk update lock or {@code null} if bulk updates are applied while
+   *    holding the model's monitor.
+   * @since 3.4.0
+   */
+  default ReadWriteLock getBulkUpdateLock() {
+    return null;
+  }
 }
@@ -0,0 +1,258 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - MOTableBulkUpdate.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.snmp4j.smi.*;
+
+import java.util.Arrays;
+
+/**
+ * A {@code MOTableBulkUpdate} collects cell updates for a {@link MOMutableTableModel} that are applied in a single
+ * atomic step by {@link MOMutableTableModel#applyUpdates(MOTableBulkUpdate)}. Numeric values can be added as
+ * primitive {@code long} values together with their SMI syntax. Models with primitive column storage, like
+ * {@link ColumnarMOTableModel}, apply such values without creating {@link Variable} instances.
+ * <p>
+ * Updates are applied in the order they have been added. Consecutive updates of the same row need only a single
+ * row lookup, thus adding the updates row by row is most efficient. A bulk update instance is not thread-safe, but
+ * it can be reused after {@link #clear()}.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+public class MOTableBulkUpdate {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 64;
+
+    private OID[] indexes;
+    private int[] columns;
+    private int[] syntaxes;
+    private long[] primitiveValues;
+    private Variable[] values;
+    private int size;
+
+    /**
+     * Creates an empty bulk update.
+     */
+    public MOTableBulkUpdate() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an empty bulk update with room for the specified number of cell updates.
+     *
+     * @param initialCapacity
+     *         the number of cell updates that can be added before the internal arrays need to grow.
+     */
+    public MOTableBulkUpdate(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        this.indexes = new OID[capacity];
+        this.columns = new int[capacity];
+        this.syntaxes = new int[capacity];
+        this.primitiveValues = new long[capacity];
+        this.values = new Variable[capacity];
+    }
+
+    private int append(OID index, int column, int syntax) {
+        if (size == indexes.length) {
+            int capacity = size + (size >> 1) + 1;
+            indexes = Arrays.copyOf(indexes, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            syntaxes = Arrays.copyOf(syntaxes, capacity);
+            primitiveValues = Arrays.copyOf(primitiveValues, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        indexes[size] = index;
+        columns[size] = column;
+        syntaxes[size] = syntax;
+        return size++;
+    }
+
+    /**
+     * Adds a cell update with a numeric value.
+     *
+     * @param index
+     *         the index of the row to update.
+     * @param column
+     *         the zero based column index (not the column ID) of the cell.
+     * @param syntax
+     *         the SMI syntax of the value, one of {@link SMIConstants#SYNTAX_INTEGER32},
+     *         {@link SMIConstants#SYNTAX_COUNTER32}, {@link SMIConstants#SYNTAX_GAUGE32},
+     *         {@link SMIConstants#SYNTAX_TIMETICKS}, or {@link SMIConstants#SYNTAX_COUNTER64}.
+     * @param value
+     *         the new value.
+     *
+     * @return this bulk update.
+     * @throws IllegalArgumentException
+     *         if {@code syntax} is not a numeric syntax.
+     */
+    public MOTableBulkUpdate add(OID index, int column, int syntax, long value) {
+        switch (syntax) {
+            case SMIConstants.SYNTAX_INTEGER32:
+            case SMIConstants.SYNTAX_COUNTER32:
+            case SMIConstants.SYNTAX_GAUGE32:
+            case SMIConstants.SYNTAX_TIMETICKS:
+            case SMIConstants.SYNTAX_COUNTER64:
+                break;
+            default:
+                throw new IllegalArgumentException("Syntax " + syntax + " is not numeric");
+        }
+        int i = append(index, column, syntax);
+        primitiveValues[i] = value;
+        values[i] = null;
+        return this;
+    }
+
+    /**
+     * Adds a cell update.
+     *
+     * @param index
+     *         the index of the row to update.
+     * @param column
+     *         the zero based column index (not the column ID) of the cell.
+     * @param value
+     *         the new value.
+     *
+     * @return this bulk update.
+     */
+    public MOTableBulkUpdate add(OID index, int column, Variable value) {
+        int i = append(index, column, value.getSyntax());
+        values[i] = value;
+        return this;
+    }
+
+    /**
+     * Returns the number of cell updates.
+     *
+     * @return the number of cell updates added since creation or the last {@link #clear()}.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all cell updates.
+     */
+    public void clear() {
+        Arrays.fill(indexes, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    public OID getIndex(int i) {
+        return indexes[i];
+    }
+
+    public int getColumn(int i) {
+        return columns[i];
+    }
+
+    public int getSyntax(int i) {
+        return syntaxes[i];
+    }
+
+    /**
+     * Checks whether the i-th update has been added as primitive numeric value.
+     *
+     * @param i
+     *         the update position.
+     *
+     * @return {@code true} if {@link #getLongValue(int)} returns the value of the update.
+     */
+    public boolean isPrimitive(int i) {
+        return values[i] == null;
+    }
+
+    /**
+     * Returns the numeric value of the i-th update.
+     *
+     * @param i
+     *         the update position.
+     *
+     * @return the primitive value or {@link Variable#toLong()} of the object value.
+     */
+    public long getLongValue(int i) {
+        Variable value = values[i];
+        return (value == null) ? primitiveValues[i] : value.toLong();
+    }
+
+    /**
+     * Returns the value of the i-th update. A primitive value is converted into a new {@link Variable} instance.
+     *
+     * @param i
+     *         the update position.
+     *
+     * @return the new value of the cell.
+     */
+    public Variable getValue(int i) {
+        Variable value = values[i];
+        return (value == null) ? createVariable(syntaxes[i], primitiveValues[i]) : value;
+    }
+
+    /**
+     * Applies all cell updates to the rows of the supplied model one by one. If consecutive updates refer to the
+     * same row index, the row is looked up only once. Updates of rows that do not exist or are not mutable are
+     * skipped. The caller is responsible for synchronization.
+     *
+     * @param model
+     *         the table model to update.
+     * @param <R>
+     *         the row type of the model.
+     *
+     * @return the number of updated cells.
+     */
+    public <R extends MOTableRow> int applyTo(MOTableModel<R> model) {
+        int updated = 0;
+        OID lastIndex = null;
+        R row = null;
+        for (int i = 0; i < size; i++) {
+            OID index = indexes[i];
+            if ((lastIndex == null) || (index != lastIndex && !index.equals(lastIndex))) {
+                row = model.getRow(index);
+                lastIndex = index;
+            }
+            if (row instanceof MOMutableTableRow) {
+                ((MOMutableTableRow) row).setValue(columns[i], getValue(i));
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    static Variable createVariable(int syntax, long value) {
+        switch (syntax) {
+            case SMIConstants.SYNTAX_COUNTER32:
+                return new Counter32(value);
+            case SMIConstants.SYNTAX_GAUGE32:
+                return new Gauge32(value);
+            case SMIConstants.SYNTAX_TIMETICKS:
+                return new TimeTicks(value);
+            case SMIConstants.SYNTAX_COUNTER64:
+                return new Counter64(value);
+            default:
+                return new Integer32((int) value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MOTableBulkUpdate[size=" + size + "]";
+    }
+}
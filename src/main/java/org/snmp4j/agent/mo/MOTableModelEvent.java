@@ -38,10 +38,18 @@ public class MOTableModelEvent extends EventObject {
   public static final int ROW_ADDED = 1;
   public static final int ROW_REMOVED = 2;
   public static final int TABLE_CLEAR = 3;
+  /**
+   * Several cells of possibly several rows have been updated at once by
+   * {@link MOMutableTableModel#applyUpdates(MOTableBulkUpdate)}.
+   * @since 3.4.0
+   */
+  public static final int ROWS_UPDATED = 4;
 
   private int type;
   private MOTableRow affectedRow;
   private int columnIndex = -1;
+  private transient MOTableBulkUpdate bulkUpdate;
+  private int updatedCells;
 
   /**
    * Creates a model event associated with a single row and column.
@@ -86,6 +94,23 @@ public class MOTableModelEvent extends EventObject {
     this(source, type, null);
   }
 
+  /**
+   * Creates a {@link #ROWS_UPDATED} event for a bulk update.
+   * @param source
+   *    the event source.
+   * @param bulkUpdate
+   *    the applied bulk update.
+   * @param updatedCells
+   *    the number of cells that have been updated.
+   * @since 3.4.0
+   */
+  public MOTableModelEvent(Object source, MOTableBulkUpdate bulkUpdate,
+                           int updatedCells) {
+    this(source, ROWS_UPDATED, null);
+    this.bulkUpdate = bulkUpdate;
+    this.updatedCells = updatedCells;
+  }
+
   /**
    * Returns the type of event.
    * @return
@@ -115,8 +140,30 @@ public class MOTableModelEvent extends EventObject {
     return columnIndex;
   }
 
+  /**
+   * Returns the bulk update of a {@link #ROWS_UPDATED} event.
+   * @return
+   *    the applied {@code MOTableBulkUpdate} or {@code null} for other event
+   *    types.
+   * @since 3.4.0
+   */
+  public MOTableBulkUpdate getBulkUpdate() {
+    return bulkUpdate;
+  }
+
+  /**
+   * Returns the number of updated cells of a {@link #ROWS_UPDATED} event.
+   * @return
+   *    the number of updated cells.
+   * @since 3.4.0
+   */
+  public int getUpdatedCells() {
+    return updatedCells;
+  }
+
   public String toString() {
     return MOTableModelEvent.class.getName()+"[type="+type+
-        ",affectedRow="+affectedRow+",columnIndex="+columnIndex+"]";
+        ",affectedRow="+affectedRow+",columnIndex="+columnIndex+
+        ",updatedCells="+updatedCells+"]";
   }
 }
@@ -0,0 +1,541 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - PackedIndexMOTableModel.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.Variable;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The {@code PackedIndexMOTableModel} is a {@link MOMutableTableModel} that keeps its rows and the sub-identifier
+ * arrays of their indexes in two flat arrays in lexicographic order instead of a tree of {@link OID} keys. The index
+ * arrays are those of the rows' index OIDs, thus each index is stored only once. Row lookups and successor searches
+ * are binary searches that compare sub-identifiers directly, without allocating objects and without following tree
+ * node and {@link OID} references. Compared to {@link DefaultMOMutableTableModel}, this saves the tree entry object
+ * per row (the model needs two array slots per row instead) and improves GETNEXT searches on large tables.
+ * <p>
+ * The index OID of a row must not be modified while the row is part of the model.
+ * <p>
+ * Adding a row with an index greater than the last index and looking up rows is fast, whereas inserting or removing
+ * rows in the middle of the table needs to shift the row references behind the modified position. Thus, this model
+ * suits large tables with mostly ascending inserts (e.g. interface or flow tables).
+ * <p>
+ * The model is safe for concurrent use. Read access does not synchronize on the model instance and its iterators
+ * are weakly consistent: After a modification, an iterator continues with the successor of the last returned row.
+ *
+ * @param <R>
+ *         the row type of the model.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+public class PackedIndexMOTableModel<R extends MOTableRow>
+        implements MOMutableTableModel<R>, ConcurrentMOTableModel<R> {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private final RowIndex index;
+    private volatile int modCount;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    protected int columnCount = 0;
+    protected MOTableRowFactory<R> rowFactory;
+    private transient List<MOTableModelListener> moTableModelListeners;
+
+    /**
+     * Creates an empty packed index table model.
+     */
+    public PackedIndexMOTableModel() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an empty packed index table model with room for the specified number of rows.
+     *
+     * @param initialCapacity
+     *         the number of rows the model can hold before its internal arrays need to grow.
+     */
+    public PackedIndexMOTableModel(int initialCapacity) {
+        this.index = new RowIndex(initialCapacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private R rowAt(int position) {
+        return (R) index.rows[position];
+    }
+
+    private void insertAt(int position, R row) {
+        index.insert(position, row);
+        modCount++;
+    }
+
+    private R removeAt(int position) {
+        R row = rowAt(position);
+        index.remove(position);
+        modCount++;
+        return row;
+    }
+
+    @Override
+    public R addRow(R row) {
+        R replacedRow = null;
+        lock.writeLock().lock();
+        try {
+            columnCount = Math.max(row.size(), columnCount);
+            int pos = index.search(row.getIndex());
+            if (pos >= 0) {
+                replacedRow = rowAt(pos);
+                index.set(pos, row);
+                modCount++;
+            } else {
+                insertAt(-(pos + 1), row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (moTableModelListeners != null) {
+            fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_ADDED, row));
+        }
+        return replacedRow;
+    }
+
+    @Override
+    public R removeRow(OID index) {
+        R row = null;
+        lock.writeLock().lock();
+        try {
+            int pos = this.index.search(index);
+            if (pos >= 0) {
+                row = removeAt(pos);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if ((row != null) && (moTableModelListeners != null)) {
+            fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_REMOVED, row));
+        }
+        return row;
+    }
+
+    @Override
+    public void clear() {
+        fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.TABLE_CLEAR));
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<R> clear(MOTableRowFilter<R> filter) {
+        List<R> removedRows = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (int i = index.size() - 1; i >= 0; i--) {
+                R row = rowAt(i);
+                if (!filter.passesFilter(row)) {
+                    removedRows.add(removeAt(i));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Collections.reverse(removedRows);
+        if (moTableModelListeners != null) {
+            for (R row : removedRows) {
+                fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_REMOVED, row));
+            }
+        }
+        return removedRows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public void setColumnCount(int columnCount) {
+        this.columnCount = columnCount;
+    }
+
+    @Override
+    public int getRowCount() {
+        return index.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.size() == 0;
+    }
+
+    @Override
+    public boolean containsRow(OID index) {
+        return getRow(index) != null;
+    }
+
+    @Override
+    public R getRow(OID index) {
+        lock.readLock().lock();
+        try {
+            int pos = this.index.search(index);
+            return (pos >= 0) ? rowAt(pos) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<R> iterator() {
+        return new RowIterator(null);
+    }
+
+    @Override
+    public Iterator<R> tailIterator(OID lowerBound) {
+        return new RowIterator(lowerBound);
+    }
+
+    @Override
+    public OID firstIndex() {
+        R row = firstRow();
+        return (row == null) ? null : row.getIndex();
+    }
+
+    @Override
+    public OID lastIndex() {
+        R row = lastRow();
+        return (row == null) ? null : row.getIndex();
+    }
+
+    @Override
+    public R firstRow() {
+        lock.readLock().lock();
+        try {
+            return (index.size() > 0) ? rowAt(0) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public R lastRow() {
+        lock.readLock().lock();
+        try {
+            return (index.size() > 0) ? rowAt(index.size() - 1) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public R createRow(OID index, Variable[] values) throws UnsupportedOperationException {
+        if (rowFactory == null) {
+            throw new UnsupportedOperationException("No row factory");
+        }
+        return rowFactory.createRow(index, values);
+    }
+
+    @Override
+    public void freeRow(R row) {
+        if (rowFactory != null) {
+            rowFactory.freeRow(row);
+        }
+    }
+
+    @Override
+    public void setRowFactory(MOTableRowFactory<R> rowFactory) {
+        this.rowFactory = rowFactory;
+    }
+
+    @Override
+    public MOTableRowFactory<R> getRowFactory() {
+        return rowFactory;
+    }
+
+    /**
+     * Applies the cell updates while holding the write lock of the model and then fires a single
+     * {@link MOTableModelEvent#ROWS_UPDATED} event. The cells of the rows are read without the lock, thus readers
+     * need to hold the read lock of {@link #getLock()} (which {@link DefaultMOTable} does while reading cells) to
+     * see either none or all of the updates.
+     *
+     * @param bulkUpdate
+     *         the cell updates to apply.
+     *
+     * @return the number of updated cells.
+     */
+    @Override
+    public int applyUpdates(MOTableBulkUpdate bulkUpdate) {
+        int updated;
+        lock.writeLock().lock();
+        try {
+            updated = bulkUpdate.applyTo(this);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if ((updated > 0) && (moTableModelListeners != null)) {
+            fireTableModelChanged(new MOTableModelEvent(this, bulkUpdate, updated));
+        }
+        return updated;
+    }
+
+    /**
+     * Returns the read-write lock that guards the structure of this model.
+     *
+     * @return the model's lock.
+     */
+    public ReentrantReadWriteLock getLock() {
+        return lock;
+    }
+
+    @Override
+    public ReadWriteLock getBulkUpdateLock() {
+        return lock;
+    }
+
+    public synchronized void addMOTableModelListener(MOTableModelListener l) {
+        if (moTableModelListeners == null) {
+            moTableModelListeners = new ArrayList<>(2);
+        }
+        moTableModelListeners.add(l);
+    }
+
+    public synchronized void removeMOTableModelListener(MOTableModelListener l) {
+        if (moTableModelListeners != null) {
+            moTableModelListeners.remove(l);
+        }
+    }
+
+    protected void fireTableModelChanged(MOTableModelEvent event) {
+        final List<MOTableModelListener> listeners = moTableModelListeners;
+        if (listeners != null) {
+            synchronized (listeners) {
+                for (MOTableModelListener listener : listeners) {
+                    listener.tableModelChanged(event);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PackedIndexMOTableModel[rows=" + index.size() + ",columnCount=" + columnCount + "]";
+    }
+
+    /**
+     * A weakly consistent iterator over the rows of the model. If the model has been modified since the last call
+     * of {@link #next()}, the iterator repositions itself to the successor of the last returned row.
+     */
+    private class RowIterator implements Iterator<R> {
+
+        private final OID lowerBound;
+        private int position;
+        private int expectedModCount;
+        private R lastReturned;
+        private R next;
+
+        RowIterator(OID lowerBound) {
+            this.lowerBound = lowerBound;
+            lock.readLock().lock();
+            try {
+                this.position = index.ceilingPosition(lowerBound, true);
+                this.expectedModCount = modCount;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = fetchNext();
+            }
+            return (next != null);
+        }
+
+        @Override
+        public R next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = null;
+            return lastReturned;
+        }
+
+        private R fetchNext() {
+            lock.readLock().lock();
+            try {
+                if (expectedModCount != modCount) {
+                    position = (lastReturned != null) ?
+                            index.ceilingPosition(lastReturned.getIndex(), false) :
+                            index.ceilingPosition(lowerBound, true);
+                }
+                expectedModCount = modCount;
+                if (position < index.size()) {
+                    return rowAt(position++);
+                }
+                return null;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            removeRow(lastReturned.getIndex());
+        }
+    }
+
+    /**
+     * The ordered rows of this model together with the sub-identifier arrays of their indexes. The arrays are
+     * referenced, not copied, from the rows' index {@link OID}s ({@link OID#getValue()}).
+     * <p>
+     * This class is not thread-safe, callers have to synchronize access.
+     */
+    private static final class RowIndex {
+
+        private int[][] keys;
+        private Object[] rows;
+        private int size;
+
+        RowIndex(int initialCapacity) {
+            int capacity = Math.max(1, initialCapacity);
+            this.keys = new int[capacity][];
+            this.rows = new Object[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Compares two indexes by the same (unsigned) lexicographic order as
+         * {@link OID#compareTo(org.snmp4j.smi.Variable)}.
+         */
+        private static int compare(int[] key, int[] subIDs) {
+            int n = Math.min(key.length, subIDs.length);
+            for (int i = 0; i < n; i++) {
+                int c = Integer.compareUnsigned(key[i], subIDs[i]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return key.length - subIDs.length;
+        }
+
+        /**
+         * Searches the position of the supplied index.
+         *
+         * @param index
+         *         a row index.
+         *
+         * @return the position of the index if it is contained, otherwise {@code (-(insertion point) - 1)}.
+         */
+        int search(OID index) {
+            int[] subIDs = index.getValue();
+            int low = 0;
+            int high = size - 1;
+            if ((high >= 0) && (compare(keys[high], subIDs) < 0)) {
+                // fast path for appending
+                return -(size + 1);
+            }
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int c = compare(keys[mid], subIDs);
+                if (c < 0) {
+                    low = mid + 1;
+                } else if (c > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * Returns the position of the first index that is greater than (or equal to, if {@code included}) the
+         * supplied lower bound.
+         *
+         * @param lowerBound
+         *         the lower bound or {@code null} for the first position.
+         * @param included
+         *         whether an index equal to {@code lowerBound} is included.
+         *
+         * @return a position between zero and {@link #size()}.
+         */
+        int ceilingPosition(OID lowerBound, boolean included) {
+            if (lowerBound == null) {
+                return 0;
+            }
+            int pos = search(lowerBound);
+            if (pos >= 0) {
+                return (included) ? pos : pos + 1;
+            }
+            return -(pos + 1);
+        }
+
+        void insert(int position, MOTableRow row) {
+            if (size == keys.length) {
+                int capacity = keys.length + (keys.length >> 1) + 1;
+                keys = Arrays.copyOf(keys, capacity);
+                rows = Arrays.copyOf(rows, capacity);
+            }
+            if (position < size) {
+                System.arraycopy(keys, position, keys, position + 1, size - position);
+                System.arraycopy(rows, position, rows, position + 1, size - position);
+            }
+            set(position, row);
+            size++;
+        }
+
+        void set(int position, MOTableRow row) {
+            keys[position] = row.getIndex().getValue();
+            rows[position] = row;
+        }
+
+        void remove(int position) {
+            int moved = size - position - 1;
+            if (moved > 0) {
+                System.arraycopy(keys, position + 1, keys, position, moved);
+                System.arraycopy(rows, position + 1, rows, position, moved);
+            }
+            size--;
+            keys[size] = null;
+            rows[size] = null;
+        }
+
+        void clear() {
+            Arrays.fill(keys, 0, size, null);
+            Arrays.fill(rows, 0, size, null);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - PackedOIDIndex.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.snmp4j.smi.OID;
+
+import java.util.Arrays;
+
+/**
+ * The {@code PackedOIDIndex} holds a lexicographically ordered set of row index {@link OID}s whose sub-identifiers
+ * are stored in a single flat {@code int[]} arena. Each position refers to the arena by a {@code long} that packs
+ * offset and length of the index value. Subclasses hold the payload associated with each position in parallel
+ * arrays and keep them aligned through {@link #growPayload(int)} and {@link #movePayload(int, int, int)}.
+ * <p>
+ * This class is not thread-safe, callers have to synchronize access.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+abstract class PackedOIDIndex {
+
+    private static final int MIN_ARENA_SIZE = 16;
+    private static final int SUB_IDS_PER_INDEX_ESTIMATE = 4;
+
+    /** The sub-identifiers of all indexes. The arena order is the insertion order, not the index order. */
+    private int[] arena;
+    private int arenaSize;
+    private int arenaGarbage;
+    /** Per position (in index order): the offset of the index in the arena (upper 32 bits) and its length. */
+    private long[] keys;
+    private int size;
+
+    PackedOIDIndex(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        this.keys = new long[capacity];
+        this.arena = new int[capacity * SUB_IDS_PER_INDEX_ESTIMATE];
+    }
+
+    /**
+     * Grows the payload arrays to the specified capacity.
+     *
+     * @param capacity
+     *         the new capacity of the index.
+     */
+    protected abstract void growPayload(int capacity);
+
+    /**
+     * Moves payload entries within the payload arrays (like {@link System#arraycopy}).
+     *
+     * @param fromPosition
+     *         the source position.
+     * @param toPosition
+     *         the target position.
+     * @param length
+     *         the number of entries to move.
+     */
+    protected abstract void movePayload(int fromPosition, int toPosition, int length);
+
+    private static long key(int offset, int length) {
+        return (((long) offset) << 32) | (length & 0xFFFFFFFFL);
+    }
+
+    private static int offset(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int length(long key) {
+        return (int) key;
+    }
+
+    final int size() {
+        return size;
+    }
+
+    final int capacity() {
+        return keys.length;
+    }
+
+    final int getArenaSize() {
+        return arenaSize;
+    }
+
+    final int getArenaGarbage() {
+        return arenaGarbage;
+    }
+
+    /**
+     * Compares the index at the specified position with the supplied sub-identifiers by the same
+     * (unsigned) lexicographic order as {@link OID#compareTo(org.snmp4j.smi.Variable)}.
+     */
+    private int compareAt(int position, int[] subIDs, int subIDsLength) {
+        long k = keys[position];
+        int offset = offset(k);
+        int length = length(k);
+        int n = Math.min(length, subIDsLength);
+        for (int i = 0; i < n; i++) {
+            int c = Integer.compareUnsigned(arena[offset + i], subIDs[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return length - subIDsLength;
+    }
+
+    /**
+     * Searches the position of the supplied index.
+     *
+     * @param index
+     *         a row index.
+     *
+     * @return the position of the index if it is contained, otherwise {@code (-(insertion point) - 1)}.
+     */
+    final int search(OID index) {
+        int[] subIDs = index.getValue();
+        int subIDsLength = index.size();
+        int low = 0;
+        int high = size - 1;
+        if ((high >= 0) && (compareAt(high, subIDs, subIDsLength) < 0)) {
+            // fast path for appending
+            return -(size + 1);
+        }
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = compareAt(mid, subIDs, subIDsLength);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Returns the position of the first index that is greater than (or equal to, if {@code included}) the
+     * supplied lower bound.
+     *
+     * @param lowerBound
+     *         the lower bound or {@code null} for the first position.
+     * @param included
+     *         whether an index equal to {@code lowerBound} is included.
+     *
+     * @return a position between zero and {@link #size()}.
+     */
+    final int ceilingPosition(OID lowerBound, boolean included) {
+        if (lowerBound == null) {
+            return 0;
+        }
+        int pos = search(lowerBound);
+        if (pos >= 0) {
+            return (included) ? pos : pos + 1;
+        }
+        return -(pos + 1);
+    }
+
+    /**
+     * Creates a new {@link OID} instance for the index at the specified position.
+     *
+     * @param position
+     *         a position less than {@link #size()}.
+     *
+     * @return a new OID.
+     */
+    final OID getIndex(int position) {
+        long k = keys[position];
+        return new OID(arena, offset(k), length(k));
+    }
+
+    /**
+     * Inserts an index at the specified position and makes room for its payload there.
+     *
+     * @param position
+     *         the insertion point as returned by {@link #search(OID)}.
+     * @param index
+     *         the index to insert.
+     */
+    final void insert(int position, OID index) {
+        int length = index.size();
+        if (size == keys.length) {
+            int capacity = keys.length + (keys.length >> 1) + 1;
+            keys = Arrays.copyOf(keys, capacity);
+            growPayload(capacity);
+        }
+        if (arenaSize + length > arena.length) {
+            if (arenaGarbage > (arenaSize >> 1)) {
+                compactArena();
+            }
+            if (arenaSize + length > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arenaSize + length, arena.length + (arena.length >> 1)));
+            }
+        }
+        System.arraycopy(index.getValue(), 0, arena, arenaSize, length);
+        if (position < size) {
+            System.arraycopy(keys, position, keys, position + 1, size - position);
+            movePayload(position, position + 1, size - position);
+        }
+        keys[position] = key(arenaSize, length);
+        arenaSize += length;
+        size++;
+    }
+
+    /**
+     * Removes the index at the specified position and moves the payload behind it.
+     *
+     * @param position
+     *         a position less than {@link #size()}.
+     */
+    final void remove(int position) {
+        arenaGarbage += length(keys[position]);
+        int moved = size - position - 1;
+        if (moved > 0) {
+            System.arraycopy(keys, position + 1, keys, position, moved);
+            movePayload(position + 1, position, moved);
+        }
+        size--;
+        if ((arenaGarbage > MIN_ARENA_SIZE) && (arenaGarbage > (arenaSize >> 1))) {
+            compactArena();
+        }
+    }
+
+    /**
+     * Removes all indexes.
+     */
+    void clear() {
+        size = 0;
+        arenaSize = 0;
+        arenaGarbage = 0;
+    }
+
+    /**
+     * Rewrites the arena in index order and thereby drops the sub-identifiers of removed indexes.
+     */
+    private void compactArena() {
+        int[] compacted = new int[Math.max(arenaSize - arenaGarbage, MIN_ARENA_SIZE)];
+        int pos = 0;
+        for (int i = 0; i < size; i++) {
+            long k = keys[i];
+            int length = length(k);
+            System.arraycopy(arena, offset(k), compacted, pos, length);
+            keys[i] = key(pos, length);
+            pos += length;
+        }
+        arena = compacted;
+        arenaSize = pos;
+        arenaGarbage = 0;
+    }
+}
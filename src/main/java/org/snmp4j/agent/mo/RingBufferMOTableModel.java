@@ -0,0 +1,609 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - RingBufferMOTableModel.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.Variable;
+
+import java.util.*;
+
+/**
+ * The {@code RingBufferMOTableModel} is a {@link MOMutableTableModel} for log-like tables whose rows are appended
+ * with ascending indexes and removed oldest first, like the nlmLogTable of the NOTIFICATION-LOG-MIB. The rows are
+ * grouped into partitions by their index prefix, which is the index without its last {@code
+ * partitionSuffixLength} sub-identifiers (for example the log name of a nlmLogTable index). Each partition keeps
+ * its rows sorted by index in a ring buffer:
+ * <ul>
+ * <li>Appending a row with an index greater than the last index of its partition and removing the oldest row(s)
+ * of a partition are O(1).</li>
+ * <li>Row lookups and GETNEXT searches are binary searches in the ring buffer of the partition.</li>
+ * <li>Inserting or removing rows in the middle of a partition needs to shift the rows behind the modified
+ * position.</li>
+ * </ul>
+ * The partitions are ordered by their prefix. Thus, the index prefixes must not be prefixes of each other, which is
+ * the case if the prefix consists of fixed length or length prefixed (non implied) sub-indexes. The number of
+ * partitions is expected to be small.
+ * <p>
+ * The model is synchronized on its instance like {@link DefaultMOMutableTableModel}. Its iterators are weakly
+ * consistent: After a modification, an iterator continues with the successor of the last returned row.
+ *
+ * @param <R>
+ *         the row type of the model.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+public class RingBufferMOTableModel<R extends MOTableRow> implements MOMutableTableModel<R> {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private final int partitionSuffixLength;
+    private final SortedMap<OID, Partition> partitions = new TreeMap<>();
+    private int rowCount;
+    private long nextSequence;
+    private int modCount;
+
+    protected int columnCount = 0;
+    protected MOTableRowFactory<R> rowFactory;
+    private transient List<MOTableModelListener> moTableModelListeners;
+
+    /**
+     * Creates an empty ring buffer table model.
+     *
+     * @param partitionSuffixLength
+     *         the number of trailing index sub-identifiers that are not part of the partition prefix, for example 1
+     *         for the nlmLogTable (nlmLogIndex) and 2 for the nlmLogVariableTable (nlmLogIndex and
+     *         nlmLogVariableIndex).
+     */
+    public RingBufferMOTableModel(int partitionSuffixLength) {
+        this.partitionSuffixLength = partitionSuffixLength;
+    }
+
+    private OID getPartitionPrefix(OID index) {
+        return new OID(index.getValue(), 0, Math.max(0, index.size() - partitionSuffixLength));
+    }
+
+    @Override
+    public R addRow(R row) {
+        R replacedRow = null;
+        synchronized (this) {
+            columnCount = Math.max(row.size(), columnCount);
+            OID prefix = getPartitionPrefix(row.getIndex());
+            Partition partition = partitions.get(prefix);
+            if (partition == null) {
+                partition = new Partition(prefix);
+                partitions.put(prefix, partition);
+            }
+            int pos = partition.search(row.getIndex());
+            if (pos >= 0) {
+                replacedRow = partition.get(pos);
+                partition.set(pos, row);
+            } else {
+                partition.insert(-(pos + 1), row, nextSequence++);
+                rowCount++;
+            }
+            modCount++;
+        }
+        if (moTableModelListeners != null) {
+            fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_ADDED, row));
+        }
+        return replacedRow;
+    }
+
+    @Override
+    public R removeRow(OID index) {
+        R row = null;
+        synchronized (this) {
+            Partition partition = partitions.get(getPartitionPrefix(index));
+            if (partition != null) {
+                int pos = partition.search(index);
+                if (pos >= 0) {
+                    row = partition.get(pos);
+                    removeRange(partition, pos, pos + 1);
+                }
+            }
+        }
+        if ((row != null) && (moTableModelListeners != null)) {
+            fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_REMOVED, row));
+        }
+        return row;
+    }
+
+    /**
+     * Removes the rows with indexes in the specified range.
+     *
+     * @param lowerBoundIncl
+     *         the lowest index to remove or {@code null} to remove from the first row.
+     * @param upperBoundExcl
+     *         the upper bound (exclusive) of the removed indexes or {@code null} to remove up to the last row.
+     *
+     * @return the removed rows in ascending index order.
+     */
+    public List<R> removeRows(OID lowerBoundIncl, OID upperBoundExcl) {
+        List<R> removedRows = new ArrayList<>();
+        synchronized (this) {
+            for (Partition partition : new ArrayList<>(getPartitionsFrom(lowerBoundIncl))) {
+                int from = (lowerBoundIncl == null) ? 0 : partition.ceiling(lowerBoundIncl);
+                int to = (upperBoundExcl == null) ? partition.size : partition.ceiling(upperBoundExcl);
+                if ((to == 0) && (from == 0) && (upperBoundExcl != null)) {
+                    break;
+                }
+                for (int i = from; i < to; i++) {
+                    removedRows.add(partition.get(i));
+                }
+                if (from < to) {
+                    removeRange(partition, from, to);
+                }
+            }
+        }
+        fireRowsRemoved(removedRows);
+        return removedRows;
+    }
+
+    /**
+     * Returns the oldest row of the specified partition. If all rows of the partition have been appended in
+     * ascending index order, this is the row added first, otherwise it is the row with the lowest index.
+     *
+     * @param partitionPrefix
+     *         a partition prefix or {@code null} to return the oldest row of all partitions.
+     *
+     * @return the oldest row or {@code null} if there is none.
+     */
+    public synchronized R getOldestRow(OID partitionPrefix) {
+        Partition partition = getOldestPartition(partitionPrefix);
+        return (partition == null) ? null : partition.get(0);
+    }
+
+    /**
+     * Removes the oldest row of the specified partition as defined by {@link #getOldestRow(OID)}.
+     *
+     * @param partitionPrefix
+     *         a partition prefix or {@code null} to remove the oldest row of all partitions.
+     *
+     * @return the removed row or {@code null} if there is none.
+     */
+    public R removeOldestRow(OID partitionPrefix) {
+        R row = null;
+        synchronized (this) {
+            Partition partition = getOldestPartition(partitionPrefix);
+            if (partition != null) {
+                row = partition.get(0);
+                removeRange(partition, 0, 1);
+            }
+        }
+        if ((row != null) && (moTableModelListeners != null)) {
+            fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_REMOVED, row));
+        }
+        return row;
+    }
+
+    /**
+     * Returns the number of rows in the specified partition.
+     *
+     * @param partitionPrefix
+     *         a partition prefix.
+     *
+     * @return the number of rows with that index prefix.
+     */
+    public synchronized int getRowCount(OID partitionPrefix) {
+        Partition partition = partitions.get(partitionPrefix);
+        return (partition == null) ? 0 : partition.size;
+    }
+
+    private Partition getOldestPartition(OID partitionPrefix) {
+        if (partitionPrefix != null) {
+            return partitions.get(partitionPrefix);
+        }
+        Partition oldest = null;
+        for (Partition partition : partitions.values()) {
+            if ((oldest == null) || (partition.getSequence(0) < oldest.getSequence(0))) {
+                oldest = partition;
+            }
+        }
+        return oldest;
+    }
+
+    private Collection<Partition> getPartitionsFrom(OID lowerBound) {
+        if (lowerBound == null) {
+            return partitions.values();
+        }
+        // all rows of partitions before the floor partition are less than the lower bound
+        SortedMap<OID, Partition> head = partitions.headMap(lowerBound);
+        return head.isEmpty() ? partitions.values() : partitions.tailMap(head.lastKey()).values();
+    }
+
+    private void removeRange(Partition partition, int from, int to) {
+        partition.remove(from, to);
+        rowCount -= (to - from);
+        if (partition.size == 0) {
+            partitions.remove(partition.prefix);
+        }
+        modCount++;
+    }
+
+    private void fireRowsRemoved(List<R> removedRows) {
+        if (moTableModelListeners != null) {
+            for (R row : removedRows) {
+                fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_REMOVED, row));
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.TABLE_CLEAR));
+        synchronized (this) {
+            partitions.clear();
+            rowCount = 0;
+            modCount++;
+        }
+    }
+
+    @Override
+    public List<R> clear(MOTableRowFilter<R> filter) {
+        List<R> removedRows = new ArrayList<>();
+        synchronized (this) {
+            for (Partition partition : new ArrayList<>(partitions.values())) {
+                for (int i = partition.size - 1; i >= 0; i--) {
+                    R row = partition.get(i);
+                    if (!filter.passesFilter(row)) {
+                        removedRows.add(row);
+                        removeRange(partition, i, i + 1);
+                    }
+                }
+            }
+        }
+        removedRows.sort(Comparator.comparing(MOTableRow::getIndex));
+        fireRowsRemoved(removedRows);
+        return removedRows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public void setColumnCount(int columnCount) {
+        this.columnCount = columnCount;
+    }
+
+    @Override
+    public synchronized int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return rowCount == 0;
+    }
+
+    @Override
+    public boolean containsRow(OID index) {
+        return getRow(index) != null;
+    }
+
+    @Override
+    public synchronized R getRow(OID index) {
+        Partition partition = partitions.get(getPartitionPrefix(index));
+        if (partition != null) {
+            int pos = partition.search(index);
+            if (pos >= 0) {
+                return partition.get(pos);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Iterator<R> iterator() {
+        return new RowIterator(null);
+    }
+
+    @Override
+    public Iterator<R> tailIterator(OID lowerBound) {
+        return new RowIterator(lowerBound);
+    }
+
+    @Override
+    public OID firstIndex() {
+        R row = firstRow();
+        return (row == null) ? null : row.getIndex();
+    }
+
+    @Override
+    public OID lastIndex() {
+        R row = lastRow();
+        return (row == null) ? null : row.getIndex();
+    }
+
+    @Override
+    public synchronized R firstRow() {
+        return partitions.isEmpty() ? null : partitions.get(partitions.firstKey()).get(0);
+    }
+
+    @Override
+    public synchronized R lastRow() {
+        if (partitions.isEmpty()) {
+            return null;
+        }
+        Partition partition = partitions.get(partitions.lastKey());
+        return partition.get(partition.size - 1);
+    }
+
+    @Override
+    public R createRow(OID index, Variable[] values) throws UnsupportedOperationException {
+        if (rowFactory == null) {
+            throw new UnsupportedOperationException("No row factory");
+        }
+        return rowFactory.createRow(index, values);
+    }
+
+    @Override
+    public void freeRow(R row) {
+        if (rowFactory != null) {
+            rowFactory.freeRow(row);
+        }
+    }
+
+    @Override
+    public void setRowFactory(MOTableRowFactory<R> rowFactory) {
+        this.rowFactory = rowFactory;
+    }
+
+    @Override
+    public MOTableRowFactory<R> getRowFactory() {
+        return rowFactory;
+    }
+
+    public synchronized void addMOTableModelListener(MOTableModelListener l) {
+        if (moTableModelListeners == null) {
+            moTableModelListeners = new ArrayList<>(2);
+        }
+        moTableModelListeners.add(l);
+    }
+
+    public synchronized void removeMOTableModelListener(MOTableModelListener l) {
+        if (moTableModelListeners != null) {
+            moTableModelListeners.remove(l);
+        }
+    }
+
+    protected void fireTableModelChanged(MOTableModelEvent event) {
+        final List<MOTableModelListener> listeners = moTableModelListeners;
+        if (listeners != null) {
+            synchronized (listeners) {
+                for (MOTableModelListener listener : listeners) {
+                    listener.tableModelChanged(event);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RingBufferMOTableModel[rows=" + rowCount + ",partitions=" + partitions.size() +
+                ",columnCount=" + columnCount + "]";
+    }
+
+    /**
+     * A weakly consistent iterator over the rows of the model. If the model has been modified since the last call
+     * of {@link #next()}, the iterator repositions itself to the successor of the last returned row.
+     */
+    private class RowIterator implements Iterator<R> {
+
+        private final OID lowerBound;
+        private Partition partition;
+        private int position;
+        private int expectedModCount;
+        private R lastReturned;
+        private R next;
+
+        RowIterator(OID lowerBound) {
+            this.lowerBound = lowerBound;
+            synchronized (RingBufferMOTableModel.this) {
+                seek(lowerBound, true);
+            }
+        }
+
+        private void seek(OID bound, boolean inclusive) {
+            expectedModCount = modCount;
+            partition = null;
+            for (Partition p : getPartitionsFrom(bound)) {
+                int pos = (bound == null) ? 0 : (inclusive ? p.ceiling(bound) : p.higher(bound));
+                if (pos < p.size) {
+                    partition = p;
+                    position = pos;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = fetchNext();
+            }
+            return (next != null);
+        }
+
+        @Override
+        public R next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = null;
+            return lastReturned;
+        }
+
+        private R fetchNext() {
+            synchronized (RingBufferMOTableModel.this) {
+                if (expectedModCount != modCount) {
+                    if (lastReturned != null) {
+                        seek(lastReturned.getIndex(), false);
+                    } else {
+                        seek(lowerBound, true);
+                    }
+                }
+                while (partition != null) {
+                    if (position < partition.size) {
+                        return partition.get(position++);
+                    }
+                    SortedMap<OID, Partition> tail = partitions.tailMap(partition.prefix.successor());
+                    partition = tail.isEmpty() ? null : tail.get(tail.firstKey());
+                    position = 0;
+                }
+                return null;
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            removeRow(lastReturned.getIndex());
+        }
+    }
+
+    /**
+     * The rows of a partition sorted by index in a ring buffer whose capacity is a power of two.
+     */
+    private final class Partition {
+
+        private final OID prefix;
+        private MOTableRow[] rows = new MOTableRow[DEFAULT_INITIAL_CAPACITY];
+        private long[] sequences = new long[DEFAULT_INITIAL_CAPACITY];
+        private int head;
+        private int size;
+
+        private Partition(OID prefix) {
+            this.prefix = prefix;
+        }
+
+        private int slot(int position) {
+            return (head + position) & (rows.length - 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        private R get(int position) {
+            return (R) rows[slot(position)];
+        }
+
+        private void set(int position, R row) {
+            rows[slot(position)] = row;
+        }
+
+        private long getSequence(int position) {
+            return sequences[slot(position)];
+        }
+
+        /**
+         * Searches the specified index.
+         *
+         * @return the position of the index or {@code -(insertionPosition + 1)} if it is not found.
+         */
+        private int search(OID index) {
+            // appending is the common case
+            if ((size == 0) || (get(size - 1).getIndex().compareTo(index) < 0)) {
+                return -(size + 1);
+            }
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int c = get(mid).getIndex().compareTo(index);
+                if (c < 0) {
+                    low = mid + 1;
+                } else if (c > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * Returns the position of the first row with an index greater than or equal to the specified index.
+         */
+        private int ceiling(OID index) {
+            int pos = search(index);
+            return (pos >= 0) ? pos : -(pos + 1);
+        }
+
+        /**
+         * Returns the position of the first row with an index greater than the specified index.
+         */
+        private int higher(OID index) {
+            int pos = search(index);
+            return (pos >= 0) ? pos + 1 : -(pos + 1);
+        }
+
+        private void insert(int position, R row, long sequence) {
+            if (size == rows.length) {
+                grow();
+            }
+            if (position == 0) {
+                head = (head - 1) & (rows.length - 1);
+            } else {
+                for (int i = size; i > position; i--) {
+                    rows[slot(i)] = rows[slot(i - 1)];
+                    sequences[slot(i)] = sequences[slot(i - 1)];
+                }
+            }
+            rows[slot(position)] = row;
+            sequences[slot(position)] = sequence;
+            size++;
+        }
+
+        private void remove(int from, int to) {
+            int count = to - from;
+            if (from == 0) {
+                for (int i = 0; i < count; i++) {
+                    rows[slot(i)] = null;
+                }
+                head = slot(count);
+            } else {
+                for (int i = from; i + count < size; i++) {
+                    rows[slot(i)] = rows[slot(i + count)];
+                    sequences[slot(i)] = sequences[slot(i + count)];
+                }
+                for (int i = size - count; i < size; i++) {
+                    rows[slot(i)] = null;
+                }
+            }
+            size -= count;
+        }
+
+        private void grow() {
+            MOTableRow[] newRows = new MOTableRow[rows.length * 2];
+            long[] newSequences = new long[rows.length * 2];
+            for (int i = 0; i < size; i++) {
+                newRows[i] = rows[slot(i)];
+                newSequences[i] = sequences[slot(i)];
+            }
+            rows = newRows;
+            sequences = newSequences;
+            head = 0;
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package org.snmp4j.agent.mo.lock;
 
 import org.snmp4j.agent.MOQuery;
+import org.snmp4j.agent.MOServerLookupEvent;
 import org.snmp4j.agent.ManagedObject;
 import org.snmp4j.agent.UpdatableManagedObject;
 import org.snmp4j.agent.request.SubRequest;
@@ -31,6 +32,12 @@ import org.snmp4j.agent.request.SubRequest;
  * A managed object server that uses this lock strategy ensures that two concurrently received
  * SET requests will not modify the same managed object at the same time with probably undefined result.
  * In addition, managed objects that need to be updated regularly are protected against access while
+ * they are being updated.
+ * <p>
+ * Read-only access ({@link MOServerLookupEvent.IntendedUse#get} and {@link MOServerLookupEvent.IntendedUse#getNext})
+ * requires a {@link LockRequest.LockMode#shared} lock only, so that concurrent GET requests on the same
+ * {@link UpdatableManagedObject} do not serialize. All other accesses, in particular the SET two-phase-commit
+ * phases, require an {@link LockRequest.LockMode#exclusive} lock.
  *
  * @author Frank Fock
  * @since 2.4.0
@@ -41,4 +48,20 @@ public class DefaultMOLockStrategy implements MOLockStrategy {
     public boolean isLockNeeded(ManagedObject<?> managedObjectLookedUp, MOQuery query) {
         return query.isWriteAccessQuery() || (managedObjectLookedUp instanceof UpdatableManagedObject);
     }
+
+    @Override
+    public LockRequest.LockMode getLockMode(ManagedObject<?> managedObjectLookedUp, MOQuery query,
+                                            MOServerLookupEvent.IntendedUse intendedUse) {
+        if (!isLockNeeded(managedObjectLookedUp, query)) {
+            return null;
+        }
+        if (!query.isWriteAccessQuery() && (intendedUse != null)) {
+            switch (intendedUse) {
+                case get:
+                case getNext:
+                    return LockRequest.LockMode.shared;
+            }
+        }
+        return LockRequest.LockMode.exclusive;
+    }
 }
@@ -47,6 +47,23 @@ public class LockRequest {
     lockTimedOut
   }
 
+  /**
+   * The mode of a lock on a {@link ManagedObject}.
+   * @since 3.4.0
+   */
+  public enum LockMode {
+    /**
+     * A shared lock can be held by several owners at the same time, but not while another owner holds an
+     * exclusive lock. Shared locks are sufficient for read-only access (GET, GETNEXT, GETBULK).
+     */
+    shared,
+    /**
+     * An exclusive lock can be held by a single owner only and excludes shared locks of other owners.
+     * Exclusive locks are required for write access (SET two-phase-commit phases).
+     */
+    exclusive
+  }
+
   /** The owner of the lock, must be not <code>null</code> (otherwise no lock can be acquired).*/
   private Object lockOwner;
   /**
@@ -58,6 +75,13 @@ public class LockRequest {
   /** Returns the information about the status of the lock request. Initially this attribute is <code>value</code>.*/
   private LockStatus lockRequestStatus;
 
+  /** The mode of the lock acquired on behalf of this request, <code>null</code> if no lock has been acquired.*/
+  private LockMode lockMode;
+
+  /** The {@link System#nanoTime()} after which lock waits and lookups are abandoned (if set).*/
+  private long deadlineNanos;
+  private boolean deadlineSet;
+
   /**
    * Creates a new lock request with owner and timeout.
    * @param lockOwner
@@ -87,4 +111,55 @@ public class LockRequest {
   public void setLockRequestStatus(LockStatus lockRequestStatus) {
     this.lockRequestStatus = lockRequestStatus;
   }
+
+  /**
+   * Returns the mode of the lock acquired by the last lock operation of this request.
+   * @return
+   *    the {@link LockMode} of the acquired lock or <code>null</code> if no lock has been acquired.
+   * @since 3.4.0
+   */
+  public LockMode getLockMode() {
+    return lockMode;
+  }
+
+  public void setLockMode(LockMode lockMode) {
+    this.lockMode = lockMode;
+  }
+
+  /**
+   * Sets a deadline for this lock request. A lock is not waited for beyond the deadline, even if the timeout has
+   * not yet elapsed, and lookups with an expired lock request are abandoned.
+   * @param deadlineNanos
+   *    the deadline as {@link System#nanoTime()} value.
+   * @since 3.4.0
+   */
+  public void setDeadline(long deadlineNanos) {
+    this.deadlineNanos = deadlineNanos;
+    this.deadlineSet = true;
+  }
+
+  /**
+   * Checks whether the deadline of this lock request has passed.
+   * @return
+   *    <code>true</code> if a deadline has been set and has passed.
+   * @since 3.4.0
+   */
+  public boolean isExpired() {
+    return deadlineSet && (System.nanoTime() - deadlineNanos >= 0);
+  }
+
+  /**
+   * Returns the number of 1/1000 seconds to wait for a lock, which is the timeout of this request, limited by the
+   * time remaining until its deadline.
+   * @return
+   *    the effective lock timeout in milliseconds. 0 or less waits forever (only if there is no deadline).
+   * @since 3.4.0
+   */
+  public long getEffectiveTimeoutMillis() {
+    if (!deadlineSet) {
+      return timeoutMillis;
+    }
+    long remainingMillis = Math.max(1, (deadlineNanos - System.nanoTime()) / 1000000L);
+    return (timeoutMillis <= 0) ? remainingMillis : Math.min(timeoutMillis, remainingMillis);
+  }
 }
@@ -20,6 +20,7 @@
 package org.snmp4j.agent.mo.lock;
 
 import org.snmp4j.agent.MOQuery;
+import org.snmp4j.agent.MOServerLookupEvent;
 import org.snmp4j.agent.ManagedObject;
 import org.snmp4j.agent.request.SubRequest;
 
@@ -46,4 +47,26 @@ public interface MOLockStrategy {
      */
     boolean isLockNeeded(ManagedObject<?> managedObjectLookedUp, MOQuery query);
 
+    /**
+     * Determines the lock mode needed to access the provided managed object. By default, an
+     * {@link LockRequest.LockMode#exclusive} lock is returned if {@link #isLockNeeded(ManagedObject, MOQuery)}
+     * returns {@code true}.
+     *
+     * @param managedObjectLookedUp
+     *         the ManagedObject instance that is looked up and potentially accessed.
+     * @param query
+     *         the query on which behalf the lookup took place.
+     * @param intendedUse
+     *         the intended use of the managed object as specified by the {@link MOServerLookupEvent}
+     *         of the lookup (may be {@code null} if unknown).
+     *
+     * @return the {@link LockRequest.LockMode} required to access the provided managed object or {@code null}
+     * if no lock is needed.
+     * @since 3.4.0
+     */
+    default LockRequest.LockMode getLockMode(ManagedObject<?> managedObjectLookedUp, MOQuery query,
+                                             MOServerLookupEvent.IntendedUse intendedUse) {
+        return isLockNeeded(managedObjectLookedUp, query) ? LockRequest.LockMode.exclusive : null;
+    }
+
 }
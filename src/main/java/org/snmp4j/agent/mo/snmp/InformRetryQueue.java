@@ -0,0 +1,607 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - InformRetryQueue.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo.snmp;
+
+import org.snmp4j.PDU;
+import org.snmp4j.SNMP4JSettings;
+import org.snmp4j.ScopedPDU;
+import org.snmp4j.Session;
+import org.snmp4j.agent.DuplicateRegistrationException;
+import org.snmp4j.agent.MOGroup;
+import org.snmp4j.agent.MOServer;
+import org.snmp4j.agent.mo.MOAccessImpl;
+import org.snmp4j.agent.mo.MOScalar;
+import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BEROutputStream;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.log.LogAdapter;
+import org.snmp4j.log.LogFactory;
+import org.snmp4j.smi.*;
+import org.snmp4j.util.CommonTimer;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * The {@code InformRetryQueue} keeps informs that have not been acknowledged by their receiver after all retries of
+ * the SNMP session and retries them later. Each target of the snmpTargetAddrTable has its own queue. The informs of a
+ * queue are retried one after the other in the order they have been queued, with an exponential backoff between
+ * unsuccessful attempts. As soon as an inform is acknowledged, the remaining informs of the target are replayed
+ * without delay. An inform acknowledged for a target also triggers the replay of its queue.
+ * <p>
+ * The queues are stored in an append-only journal file (typically in the agent's configuration directory) and are
+ * restored when an {@code InformRetryQueue} is created for an existing journal. The journal is compacted when it
+ * is opened and when it contains mostly acknowledged informs. The informs are resent with the current target
+ * address and parameters of their target, identified by its snmpTargetAddrName. Informs of targets that do not
+ * exist (anymore) are kept and retried with backoff until they are dropped because their queue is full.
+ * <p>
+ * Each queue holds at most {@link #getMaxQueuedInformsPerTarget()} informs, the oldest inform is dropped when that
+ * limit is exceeded. The queue depth and the age of the oldest pending inform are available through getters and,
+ * if this group is registered at a {@link MOServer}, as read-only objects of the SNMP4J-NOTIFICATION-MIB.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+public class InformRetryQueue implements MOGroup {
+
+    private static final LogAdapter logger = LogFactory.getLogger(InformRetryQueue.class);
+
+    /**
+     * The number of queued informs of all targets (Gauge32).
+     */
+    public static final OID oidSnmp4jNotifyRetryQueueDepth =
+            new OID(new int[]{1, 3, 6, 1, 4, 1, 4976, 10, 1, 1, 4, 2, 1, 0});
+    /**
+     * The age in seconds of the oldest queued inform (Gauge32), zero if the queues are empty.
+     */
+    public static final OID oidSnmp4jNotifyRetryQueueOldestAge =
+            new OID(new int[]{1, 3, 6, 1, 4, 1, 4976, 10, 1, 1, 4, 2, 2, 0});
+    /**
+     * The number of informs dropped because their queue was full (Counter32).
+     */
+    public static final OID oidSnmp4jNotifyRetryQueueDropped =
+            new OID(new int[]{1, 3, 6, 1, 4, 1, 4976, 10, 1, 1, 4, 2, 3, 0});
+
+    public static final int DEFAULT_MAX_QUEUED_INFORMS_PER_TARGET = 100;
+    public static final long DEFAULT_INITIAL_RETRY_DELAY = 5000;
+    public static final long DEFAULT_MAX_RETRY_DELAY = 300000;
+
+    private static final int JOURNAL_MAGIC = 0x534e4951;
+    private static final int JOURNAL_VERSION = 1;
+    private static final int RECORD_ADD = 1;
+    private static final int RECORD_REMOVE = 2;
+    private static final int MIN_REMOVED_RECORDS_BEFORE_COMPACTION = 1000;
+
+    private final File journalFile;
+    private DataOutputStream journal;
+    private int removedRecords;
+    private long nextID = 1;
+    private long dropped;
+    private boolean closed;
+
+    private final Map<OctetString, TargetQueue> targetQueues = new LinkedHashMap<>();
+    private final CommonTimer timer = SNMP4JSettings.getTimerFactory().createTimer();
+    private NotificationOriginatorImpl notificationOriginator;
+
+    private int maxQueuedInformsPerTarget = DEFAULT_MAX_QUEUED_INFORMS_PER_TARGET;
+    private long initialRetryDelay = DEFAULT_INITIAL_RETRY_DELAY;
+    private long maxRetryDelay = DEFAULT_MAX_RETRY_DELAY;
+
+    private final MOScalar<Gauge32> snmp4jNotifyRetryQueueDepth =
+            new MOScalar<Gauge32>(oidSnmp4jNotifyRetryQueueDepth, MOAccessImpl.ACCESS_READ_ONLY, new Gauge32()) {
+                @Override
+                public Gauge32 getValue() {
+                    return new Gauge32(getQueueDepth());
+                }
+            };
+    private final MOScalar<Gauge32> snmp4jNotifyRetryQueueOldestAge =
+            new MOScalar<Gauge32>(oidSnmp4jNotifyRetryQueueOldestAge, MOAccessImpl.ACCESS_READ_ONLY, new Gauge32()) {
+                @Override
+                public Gauge32 getValue() {
+                    return new Gauge32(Math.min(getOldestPendingAge() / 1000, 0xFFFFFFFFL));
+                }
+            };
+    private final MOScalar<Counter32> snmp4jNotifyRetryQueueDropped =
+            new MOScalar<Counter32>(oidSnmp4jNotifyRetryQueueDropped, MOAccessImpl.ACCESS_READ_ONLY,
+                    new Counter32()) {
+                @Override
+                public Counter32 getValue() {
+                    return new Counter32(getDropped() & 0xFFFFFFFFL);
+                }
+            };
+
+    /**
+     * Creates an inform retry queue that is stored in the specified journal file. If the file exists, the queued
+     * informs are restored from it. They are replayed when the queue is set on a {@link NotificationOriginatorImpl}
+     * with {@link NotificationOriginatorImpl#setInformRetryQueue(InformRetryQueue)}. An incomplete last record is
+     * ignored. A journal that cannot be parsed is renamed with the suffix {@code .unreadable} before a new journal
+     * is started.
+     *
+     * @param journalFile
+     *         the journal file.
+     *
+     * @throws IOException
+     *         if the journal file cannot be written.
+     */
+    public InformRetryQueue(File journalFile) throws IOException {
+        this.journalFile = journalFile;
+        if (journalFile.exists()) {
+            readJournal();
+        }
+        compactJournal();
+    }
+
+    /**
+     * Sets the maximum number of informs queued per target. If a queue exceeds this limit, its oldest informs are
+     * dropped.
+     *
+     * @param maxQueuedInformsPerTarget
+     *         the maximum queue depth per target (at least 1).
+     */
+    public synchronized void setMaxQueuedInformsPerTarget(int maxQueuedInformsPerTarget) {
+        this.maxQueuedInformsPerTarget = Math.max(1, maxQueuedInformsPerTarget);
+    }
+
+    public synchronized int getMaxQueuedInformsPerTarget() {
+        return maxQueuedInformsPerTarget;
+    }
+
+    /**
+     * Sets the delay of the first retry of a queued inform. The delay doubles with each unsuccessful retry up to
+     * the maximum retry delay.
+     *
+     * @param initialRetryDelay
+     *         the initial retry delay in milliseconds.
+     * @param maxRetryDelay
+     *         the maximum retry delay in milliseconds.
+     */
+    public synchronized void setRetryDelay(long initialRetryDelay, long maxRetryDelay) {
+        this.initialRetryDelay = Math.max(0, initialRetryDelay);
+        this.maxRetryDelay = Math.max(this.initialRetryDelay, maxRetryDelay);
+    }
+
+    public synchronized long getInitialRetryDelay() {
+        return initialRetryDelay;
+    }
+
+    public synchronized long getMaxRetryDelay() {
+        return maxRetryDelay;
+    }
+
+    /**
+     * Sets the notification originator that resends the queued informs and starts the replay of the informs
+     * restored from the journal.
+     *
+     * @param notificationOriginator
+     *         the notification originator or {@code null} to stop retrying.
+     */
+    synchronized void setNotificationOriginator(NotificationOriginatorImpl notificationOriginator) {
+        this.notificationOriginator = notificationOriginator;
+        if (notificationOriginator != null) {
+            for (TargetQueue targetQueue : targetQueues.values()) {
+                scheduleRetry(targetQueue, 0);
+            }
+        }
+    }
+
+    /**
+     * Queues an inform that has not been acknowledged.
+     *
+     * @param targetName
+     *         the snmpTargetAddrName of the target.
+     * @param context
+     *         the context of the inform.
+     * @param pdu
+     *         the inform PDU, a copy of it is queued.
+     *
+     * @return {@code true} if the inform has been queued, {@code false} if this queue has been closed.
+     */
+    public synchronized boolean enqueue(OctetString targetName, OctetString context, PDU pdu) {
+        if (closed) {
+            return false;
+        }
+        QueuedInform inform = new QueuedInform(nextID++, System.currentTimeMillis(), new OctetString(targetName),
+                new OctetString(context), (PDU) pdu.clone());
+        TargetQueue targetQueue = targetQueues.computeIfAbsent(inform.targetName, TargetQueue::new);
+        add(targetQueue, inform);
+        writeRecord(inform);
+        if (logger.isInfoEnabled()) {
+            logger.info("Queued unacknowledged inform " + pdu.getRequestID() + " for target '" + targetName +
+                    "', queue depth is " + targetQueue.informs.size());
+        }
+        if (!targetQueue.inFlight && (targetQueue.retryTask == null)) {
+            scheduleRetry(targetQueue, targetQueue.retryDelay);
+        }
+        return true;
+    }
+
+    /**
+     * Informs this queue that an inform has been acknowledged by the specified target. If informs are queued for
+     * that target, their replay starts immediately.
+     *
+     * @param targetName
+     *         the snmpTargetAddrName of the target.
+     */
+    public synchronized void informDelivered(OctetString targetName) {
+        TargetQueue targetQueue = targetQueues.get(targetName);
+        if ((targetQueue != null) && !targetQueue.inFlight) {
+            targetQueue.retryDelay = initialRetryDelay;
+            scheduleRetry(targetQueue, 0);
+        }
+    }
+
+    /**
+     * Gets the number of queued informs of all targets.
+     *
+     * @return the total queue depth.
+     */
+    public synchronized int getQueueDepth() {
+        int depth = 0;
+        for (TargetQueue targetQueue : targetQueues.values()) {
+            depth += targetQueue.informs.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Gets the number of queued informs of the specified target.
+     *
+     * @param targetName
+     *         the snmpTargetAddrName of a target.
+     *
+     * @return the queue depth of the target.
+     */
+    public synchronized int getQueueDepth(OctetString targetName) {
+        TargetQueue targetQueue = targetQueues.get(targetName);
+        return (targetQueue == null) ? 0 : targetQueue.informs.size();
+    }
+
+    /**
+     * Gets the age of the oldest queued inform of all targets.
+     *
+     * @return the age in milliseconds or zero if no inform is queued.
+     */
+    public synchronized long getOldestPendingAge() {
+        long age = 0;
+        for (TargetQueue targetQueue : targetQueues.values()) {
+            age = Math.max(age, getOldestPendingAge(targetQueue));
+        }
+        return age;
+    }
+
+    /**
+     * Gets the age of the oldest queued inform of the specified target.
+     *
+     * @param targetName
+     *         the snmpTargetAddrName of a target.
+     *
+     * @return the age in milliseconds or zero if no inform is queued for the target.
+     */
+    public synchronized long getOldestPendingAge(OctetString targetName) {
+        TargetQueue targetQueue = targetQueues.get(targetName);
+        return (targetQueue == null) ? 0 : getOldestPendingAge(targetQueue);
+    }
+
+    private long getOldestPendingAge(TargetQueue targetQueue) {
+        QueuedInform oldest = targetQueue.informs.peek();
+        return (oldest == null) ? 0 : Math.max(0, System.currentTimeMillis() - oldest.queued);
+    }
+
+    /**
+     * Gets the number of informs dropped because their queue was full.
+     *
+     * @return the number of dropped informs since the creation of this queue.
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Stops retrying and closes the journal. The queued informs remain in the journal.
+     */
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            timer.cancel();
+            try {
+                journal.close();
+            } catch (IOException iox) {
+                logger.error("Failed to close inform journal '" + journalFile + "': " + iox.getMessage(), iox);
+            }
+        }
+    }
+
+    @Override
+    public void registerMOs(MOServer server, OctetString context) throws DuplicateRegistrationException {
+        server.register(snmp4jNotifyRetryQueueDepth, context);
+        server.register(snmp4jNotifyRetryQueueOldestAge, context);
+        server.register(snmp4jNotifyRetryQueueDropped, context);
+    }
+
+    @Override
+    public void unregisterMOs(MOServer server, OctetString context) {
+        server.unregister(snmp4jNotifyRetryQueueDepth, context);
+        server.unregister(snmp4jNotifyRetryQueueOldestAge, context);
+        server.unregister(snmp4jNotifyRetryQueueDropped, context);
+    }
+
+    private void add(TargetQueue targetQueue, QueuedInform inform) {
+        targetQueue.informs.add(inform);
+        while (targetQueue.informs.size() > maxQueuedInformsPerTarget) {
+            QueuedInform oldest = targetQueue.informs.poll();
+            dropped++;
+            if (journal != null) {
+                writeRemoveRecord(oldest);
+            }
+            if (logger.isWarnEnabled()) {
+                logger.warn("Dropped inform queued at " + new Date(oldest.queued) + " for target '" +
+                        targetQueue.targetName + "' because its queue is full");
+            }
+        }
+    }
+
+    private void scheduleRetry(TargetQueue targetQueue, long delay) {
+        if (closed || targetQueue.informs.isEmpty() || (notificationOriginator == null)) {
+            return;
+        }
+        if (targetQueue.retryTask != null) {
+            targetQueue.retryTask.cancel();
+        }
+        targetQueue.retryTask = new RetryTask(targetQueue);
+        timer.schedule(targetQueue.retryTask, delay);
+    }
+
+    private void retry(RetryTask task) {
+        TargetQueue targetQueue = task.targetQueue;
+        QueuedInform inform;
+        NotificationOriginatorImpl originator;
+        PDU pdu;
+        synchronized (this) {
+            if (targetQueue.retryTask != task) {
+                return;
+            }
+            targetQueue.retryTask = null;
+            inform = targetQueue.informs.peek();
+            originator = notificationOriginator;
+            if (closed || targetQueue.inFlight || (inform == null) || (originator == null)) {
+                return;
+            }
+            targetQueue.inFlight = true;
+            pdu = (PDU) inform.pdu.clone();
+        }
+        // let the session assign a new request ID
+        pdu.setRequestID(new Integer32(0));
+        if (!originator.resendInform(inform.targetName, inform.context, pdu, inform,
+                new RetryResponseListener(targetQueue))) {
+            retryCompleted(targetQueue, inform, false);
+        }
+    }
+
+    private synchronized void retryCompleted(TargetQueue targetQueue, QueuedInform inform, boolean acknowledged) {
+        targetQueue.inFlight = false;
+        if (closed) {
+            return;
+        }
+        if (acknowledged) {
+            if (targetQueue.informs.remove(inform)) {
+                writeRemoveRecord(inform);
+            }
+            targetQueue.retryDelay = initialRetryDelay;
+            if (targetQueue.informs.isEmpty()) {
+                targetQueues.remove(targetQueue.targetName);
+            } else {
+                scheduleRetry(targetQueue, 0);
+            }
+        } else {
+            long delay = targetQueue.retryDelay;
+            targetQueue.retryDelay = Math.min(maxRetryDelay, Math.max(1, delay) * 2);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Retry of inform for target '" + targetQueue.targetName + "' failed, next retry in " +
+                        delay + "ms");
+            }
+            scheduleRetry(targetQueue, delay);
+        }
+    }
+
+    private void readJournal() throws IOException {
+        Map<Long, QueuedInform> informs = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            if ((in.readInt() != JOURNAL_MAGIC) || (in.readInt() != JOURNAL_VERSION)) {
+                throw new IOException("Unsupported journal format");
+            }
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                } else if (type == RECORD_ADD) {
+                    QueuedInform inform = readInform(in);
+                    informs.put(inform.id, inform);
+                    nextID = Math.max(nextID, inform.id + 1);
+                } else if (type == RECORD_REMOVE) {
+                    informs.remove(in.readLong());
+                } else {
+                    throw new IOException("Unknown journal record type " + type);
+                }
+            }
+        } catch (EOFException eofex) {
+            // a record was only partially written before the agent stopped, it is ignored
+            logger.warn("Ignoring incomplete last record of inform journal '" + journalFile + "'");
+        } catch (IOException iox) {
+            // keep the journal for inspection instead of compacting over it
+            File unreadableFile = new File(journalFile.getPath() + ".unreadable");
+            logger.error("Failed to read inform journal '" + journalFile + "', it is preserved as '" +
+                    unreadableFile + "' and only the " + informs.size() + " informs read before the error are " +
+                    "restored: " + iox.getMessage(), iox);
+            Files.move(journalFile.toPath(), unreadableFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        for (QueuedInform inform : informs.values()) {
+            add(targetQueues.computeIfAbsent(inform.targetName, TargetQueue::new), inform);
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("Restored " + getQueueDepth() + " queued informs from '" + journalFile + "'");
+        }
+    }
+
+    private static QueuedInform readInform(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        long queued = in.readLong();
+        OctetString targetName = new OctetString(readBytes(in));
+        OctetString context = new OctetString(readBytes(in));
+        boolean scoped = in.readBoolean();
+        PDU pdu = scoped ? new ScopedPDU() : new PDU();
+        pdu.decodeBER(new BERInputStream(ByteBuffer.wrap(readBytes(in))));
+        return new QueuedInform(id, queued, targetName, context, pdu);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeInform(DataOutputStream out, QueuedInform inform) throws IOException {
+        BEROutputStream ber = new BEROutputStream(ByteBuffer.allocate(inform.pdu.getBERLength()));
+        inform.pdu.encodeBER(ber);
+        out.write(RECORD_ADD);
+        out.writeLong(inform.id);
+        out.writeLong(inform.queued);
+        writeBytes(out, inform.targetName.getValue());
+        writeBytes(out, inform.context.getValue());
+        out.writeBoolean(inform.pdu instanceof ScopedPDU);
+        writeBytes(out, ber.getBuffer().array());
+    }
+
+    /**
+     * Rewrites the journal with the queued informs only and opens it for appending.
+     */
+    private void compactJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        File tempFile = new File(journalFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(JOURNAL_MAGIC);
+            out.writeInt(JOURNAL_VERSION);
+            for (TargetQueue targetQueue : targetQueues.values()) {
+                for (QueuedInform inform : targetQueue.informs) {
+                    writeInform(out, inform);
+                }
+            }
+        }
+        Files.move(tempFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+        removedRecords = 0;
+    }
+
+    private void writeRecord(QueuedInform inform) {
+        try {
+            writeInform(journal, inform);
+            journal.flush();
+        } catch (IOException iox) {
+            logger.error("Failed to write inform to journal '" + journalFile + "': " + iox.getMessage(), iox);
+        }
+    }
+
+    private void writeRemoveRecord(QueuedInform inform) {
+        try {
+            journal.write(RECORD_REMOVE);
+            journal.writeLong(inform.id);
+            journal.flush();
+            if (++removedRecords > Math.max(MIN_REMOVED_RECORDS_BEFORE_COMPACTION, getQueueDepth())) {
+                compactJournal();
+            }
+        } catch (IOException iox) {
+            logger.error("Failed to update inform journal '" + journalFile + "': " + iox.getMessage(), iox);
+        }
+    }
+
+    /**
+     * An inform waiting for its retry.
+     */
+    private static final class QueuedInform {
+        private final long id;
+        private final long queued;
+        private final OctetString targetName;
+        private final OctetString context;
+        private final PDU pdu;
+
+        private QueuedInform(long id, long queued, OctetString targetName, OctetString context, PDU pdu) {
+            this.id = id;
+            this.queued = queued;
+            this.targetName = targetName;
+            this.context = context;
+            this.pdu = pdu;
+        }
+    }
+
+    /**
+     * The queued informs of a target and the state of their retries.
+     */
+    private final class TargetQueue {
+        private final OctetString targetName;
+        private final Deque<QueuedInform> informs = new ArrayDeque<>();
+        private long retryDelay = initialRetryDelay;
+        private RetryTask retryTask;
+        private boolean inFlight;
+
+        private TargetQueue(OctetString targetName) {
+            this.targetName = targetName;
+        }
+    }
+
+    private final class RetryTask extends TimerTask {
+        private final TargetQueue targetQueue;
+
+        private RetryTask(TargetQueue targetQueue) {
+            this.targetQueue = targetQueue;
+        }
+
+        @Override
+        public void run() {
+            retry(this);
+        }
+    }
+
+    private final class RetryResponseListener implements ResponseListener {
+        private final TargetQueue targetQueue;
+
+        private RetryResponseListener(TargetQueue targetQueue) {
+            this.targetQueue = targetQueue;
+        }
+
+        @Override
+        public <A extends Address> void onResponse(ResponseEvent<A> event) {
+            if (event.getSource() instanceof Session) {
+                ((Session) event.getSource()).cancel(event.getRequest(), this);
+            }
+            retryCompleted(targetQueue, (QueuedInform) event.getUserObject(), event.getResponse() != null);
+        }
+    }
+}
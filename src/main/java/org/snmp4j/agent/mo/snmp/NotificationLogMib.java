@@ -223,7 +223,7 @@ public class NotificationLogMib
     @SuppressWarnings("rawtypes")
     private MOTable<NlmLogEntryRow, MOColumn, MOTableModel<NlmLogEntryRow>>
             nlmLogEntry;
-    private MOTableModel<NlmLogEntryRow> nlmLogEntryModel;
+    private RingBufferMOTableModel<NlmLogEntryRow> nlmLogEntryModel;
     public static final OID oidNlmLogVariableEntry =
             new OID(new int[]{1, 3, 6, 1, 2, 1, 92, 1, 3, 2, 1});
 
@@ -269,7 +269,7 @@ public class NotificationLogMib
     @SuppressWarnings("rawtypes")
     private MOTable<NlmLogVariableEntryRow, MOColumn, MOTableModel<NlmLogVariableEntryRow>>
             nlmLogVariableEntry;
-    private MOTableModel<NlmLogVariableEntryRow> nlmLogVariableEntryModel;
+    private RingBufferMOTableModel<NlmLogVariableEntryRow> nlmLogVariableEntryModel;
 
 
     //--AgentGen BEGIN=_MEMBERS
@@ -300,7 +300,6 @@ public class NotificationLogMib
     private long nextLogIndex = 0;
     private TDomainAddressFactory addressFactory = new TDomainAddressFactoryImpl();
     private MOTableRelation<NlmConfigLogEntryRow, NlmStatsLogEntryRow> nlmStatsLogEntryAugmentation;
-    private List<OID> nlmLogEntries = new ArrayList<OID>();
 
     private MOScalar<Integer32> snmp4jNotificationLogMode;
 
@@ -601,13 +600,9 @@ public class NotificationLogMib
                 moFactory.createColumn(colNlmLogNotificationID,
                         SMIConstants.SYNTAX_OBJECT_IDENTIFIER,
                         moFactory.createAccess(MOAccessImpl.ACCESSIBLE_FOR_READ_ONLY));
-        // Table model
-        nlmLogEntryModel =
-                moFactory.createTableModel(oidNlmLogEntry,
-                        nlmLogEntryIndex,
-                        nlmLogEntryColumns);
-        ((MOMutableTableModel<NlmLogEntryRow>) nlmLogEntryModel).setRowFactory(
-                new NlmLogEntryRowFactory());
+        // Table model: log entries are appended per log name (nlmLogName) and removed oldest first
+        nlmLogEntryModel = new RingBufferMOTableModel<NlmLogEntryRow>(1);
+        nlmLogEntryModel.setRowFactory(new NlmLogEntryRowFactory());
         nlmLogEntry =
                 moFactory.createTable(oidNlmLogEntry,
                         nlmLogEntryIndex,
@@ -683,13 +678,9 @@ public class NotificationLogMib
                 moFactory.createColumn(colNlmLogVariableOpaqueVal,
                         SMIConstants.SYNTAX_OPAQUE,
                         moFactory.createAccess(MOAccessImpl.ACCESSIBLE_FOR_READ_ONLY));
-        // Table model
-        nlmLogVariableEntryModel =
-                moFactory.createTableModel(oidNlmLogVariableEntry,
-                        nlmLogVariableEntryIndex,
-                        nlmLogVariableEntryColumns);
-        ((MOMutableTableModel<NlmLogVariableEntryRow>) nlmLogVariableEntryModel).setRowFactory(
-                new NlmLogVariableEntryRowFactory());
+        // Table model: variables are appended per log name (nlmLogName) and removed with their log entry
+        nlmLogVariableEntryModel = new RingBufferMOTableModel<NlmLogVariableEntryRow>(2);
+        nlmLogVariableEntryModel.setRowFactory(new NlmLogVariableEntryRowFactory());
         nlmLogVariableEntry =
                 moFactory.createTable(oidNlmLogVariableEntry,
                         nlmLogVariableEntryIndex,
@@ -1621,9 +1612,7 @@ public class NotificationLogMib
                                                             notificationLogEvent.getNotificationID()
                                                     }
                                             );
-                                    if (nlmLogEntry.addRow(logRow)) {
-                                        nlmLogEntries.add(logRow.getIndex());
-                                    }
+                                    nlmLogEntry.addRow(logRow);
                                     for (int i = 0; i < notificationLogEvent.getVariables().length;
                                          i++) {
                                         addVariable(logIndex, i + 1,
@@ -1654,28 +1643,15 @@ public class NotificationLogMib
         }
         long ageOut = nlmConfigGlobalAgeOut.getValue().getValue();
         if (ageOut > 0) {
-            List<OID> victims = new ArrayList<OID>();
             synchronized (nlmLogEntryModel) {
                 TimeTicks uptime = SNMPv2MIB.getSysUpTime(null).get();
-                for (Iterator<NlmLogEntryRow> it = nlmLogEntryModel.iterator(); it.hasNext(); ) {
-                    NlmLogEntryRow row = it.next();
-                    if (uptime.getValue() - row.getNlmLogTime().getValue() >
-                            ageOut * 6000) {
-                        NlmStatsLogEntryRow statsRow = nlmStatsLogEntryModel.getRow(row.getIndex().trim());
-                        if (statsRow != null) {
-                            statsRow.getNlmStatsLogNotificationsBumped().increment();
-                            victims.add(statsRow.getIndex());
-                        }
-                    }
+                // log entries are added in chronological order, thus the aged out entries are the oldest ones
+                NlmLogEntryRow oldest;
+                while (((oldest = nlmLogEntryModel.getOldestRow(null)) != null) &&
+                        (uptime.getValue() - oldest.getNlmLogTime().getValue() > ageOut * 6000)) {
+                    bumpLogRow(oldest);
                 }
             }
-            for (OID index : victims) {
-                nlmLogEntries.remove(index);
-                nlmLogEntry.removeRow(index);
-                ((DefaultMOMutableTableModel) nlmLogVariableEntryModel).
-                        removeRows(index, index.nextPeer());
-                nlmStatsGlobalNotificationsBumped.getValue().increment();
-            }
         }
         if (profileName != null) {
             NlmConfigLogEntryRow profile = nlmConfigLogEntry.getModel().getRow(profileName.toSubIndex(false));
@@ -1691,33 +1667,46 @@ public class NotificationLogMib
         }
     }
 
+    /**
+     * Removes the oldest log entries until the specified limit is met.
+     *
+     * @param limit
+     *         the maximum number of log entries.
+     * @param profileName
+     *         the log name whose entries are limited or {@code null} to limit the entries of all logs.
+     */
     private void deleteLogRows(long limit, OctetString profileName) {
-        long delta = nlmLogEntry.getModel().getRowCount() - limit;
-        if (delta > 0) {
-            synchronized (nlmLogEntries) {
-                for (int i = 0; (i < delta) && (nlmLogEntries.size() > 0); i++) {
-                    OID firstIndex = nlmLogEntries.remove(0);
-                    if (firstIndex != null) {
-                        nlmLogEntry.removeRow(firstIndex);
-                        ((DefaultMOMutableTableModel)
-                                nlmLogVariableEntryModel).removeRows(firstIndex, firstIndex.nextPeer());
-                        NlmStatsLogEntryRow statsRow = nlmStatsLogEntryModel.getRow(firstIndex.trim());
-                        if (statsRow != null) {
-                            statsRow.getNlmStatsLogNotificationsBumped().increment();
-                        }
-                        nlmStatsGlobalNotificationsBumped.getValue().increment();
-                        if (profileName != null) {
-                            NlmStatsLogEntryRow profile = nlmStatsLogEntry.getModel().getRow(profileName.toSubIndex(false));
-                            if (profile != null) {
-                                profile.getNlmStatsLogNotificationsBumped().increment();
-                            }
-                        }
-                    }
+        OID logName = (profileName == null) ? null : profileName.toSubIndex(false);
+        synchronized (nlmLogEntryModel) {
+            long delta = ((logName == null) ?
+                    nlmLogEntryModel.getRowCount() : nlmLogEntryModel.getRowCount(logName)) - limit;
+            for (; delta > 0; delta--) {
+                NlmLogEntryRow oldest = nlmLogEntryModel.getOldestRow(logName);
+                if (oldest == null) {
+                    break;
                 }
+                bumpLogRow(oldest);
             }
         }
     }
 
+    /**
+     * Removes a log entry together with its variables and counts it as bumped.
+     *
+     * @param row
+     *         the log entry to remove.
+     */
+    private void bumpLogRow(NlmLogEntryRow row) {
+        OID index = row.getIndex();
+        nlmLogEntry.removeRow(index);
+        nlmLogVariableEntryModel.removeRows(index, index.nextPeer());
+        NlmStatsLogEntryRow statsRow = nlmStatsLogEntryModel.getRow(index.trim());
+        if (statsRow != null) {
+            statsRow.getNlmStatsLogNotificationsBumped().increment();
+        }
+        nlmStatsGlobalNotificationsBumped.getValue().increment();
+    }
+
     private boolean addVariable(OID logIndex, int varIndex, VariableBinding vb) {
         OID vIndex = new OID(logIndex);
         vIndex.append(varIndex);
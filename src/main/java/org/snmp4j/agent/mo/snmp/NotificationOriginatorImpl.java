@@ -22,6 +22,9 @@
 package org.snmp4j.agent.mo.snmp;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.snmp4j.*;
 import org.snmp4j.agent.*;
@@ -44,10 +47,21 @@ import java.net.InetAddress;
 /**
  * The {@code NotificationOriginatorImpl} class implements a notification originator application for SNMP4J.
  * See also RFC 3411 for a description of notification originators.
- *
+ * <p>
+ * By default, {@link #notify(OctetString, OID, TimeTicks, VariableBinding[])} sends the notifications to the
+ * targets one after another and waits for the response of each inform. In asynchronous dispatch mode (see
+ * {@link #setAsyncDispatch(boolean)}) the notifications are sent to all targets without waiting for responses and
+ * a {@link CompletableFuture} is returned instead. Informs are then retransmitted by the timer of the SNMP session
+ * and the number of informs awaiting a response from the same target address is bounded by
+ * {@link #getMaxOutstandingInformsPerTarget()}.
+ * <p>
+ * The targets of a notification ID (including their parameters and the verdict of their notification filter
+ * profile on the notification ID) are computed once and cached until the snmpNotifyTable, snmpTargetAddrTable,
+ * snmpTargetParamsTable, snmpNotifyFilterProfileTable, or snmpNotifyFilterTable changes. The VACM access and the
+ * filtering of the variable bindings are checked for each notification.
  *
  * @author Frank Fock
- * @version 3.0.0
+ * @version 3.4.0
  */
 public class NotificationOriginatorImpl implements NotificationOriginator {
 
@@ -65,6 +79,30 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
 
     private static OctetString EMPTY_CONTEXT_ENGINE_ID = new OctetString();
 
+    /**
+     * The default maximum number of informs awaiting a response per target address in asynchronous dispatch mode.
+     * @since 3.4.0
+     */
+    public static final int DEFAULT_MAX_OUTSTANDING_INFORMS_PER_TARGET = 4;
+
+    private volatile boolean asyncDispatch;
+    private volatile int maxOutstandingInformsPerTarget = DEFAULT_MAX_OUTSTANDING_INFORMS_PER_TARGET;
+    private final Map<Address, TargetDispatcher> targetDispatchers = new ConcurrentHashMap<>();
+    private final ResponseListener informResponseListener = new InformResponseListener();
+
+    /**
+     * The default maximum number of notification IDs whose routes are cached.
+     * @since 3.4.0
+     */
+    public static final int DEFAULT_ROUTING_CACHE_SIZE = 1000;
+
+    private final Map<OID, NotificationRoutes> routingCache = new ConcurrentHashMap<>();
+    private final AtomicLong routingCacheGeneration = new AtomicLong();
+    private volatile int routingCacheSize = DEFAULT_ROUTING_CACHE_SIZE;
+
+    private volatile NotificationThrottle notificationThrottle;
+    private volatile InformRetryQueue informRetryQueue;
+
     /**
      * Creates a notification originator.
      *
@@ -90,6 +128,18 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
         this.vacm = vacm;
         this.targetMIB = targetMIB;
         this.notificationMIB = notificationMIB;
+        if (notificationMIB != null) {
+            addRoutingCacheInvalidation(notificationMIB.getNotifyTable(), notificationMIB.getNotifyTable().getModel());
+            addRoutingCacheInvalidation(notificationMIB.getNotifyFilterProfileTable(),
+                    notificationMIB.getNotifyFilterProfileTable().getModel());
+            addRoutingCacheInvalidation(notificationMIB.getNotifyFilterTable(),
+                    notificationMIB.getNotifyFilterTable().getModel());
+        }
+        if (targetMIB != null) {
+            addRoutingCacheInvalidation(targetMIB.getSnmpTargetAddrEntry(), targetMIB.getSnmpTargetAddrEntryModel());
+            addRoutingCacheInvalidation(targetMIB.getSnmpTargetParamsEntry(),
+                    targetMIB.getSnmpTargetParamsEntry().getModel());
+        }
     }
 
     /**
@@ -134,18 +184,20 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
      * {@code NotificationOriginator} determines on behalf of the
      * SNMP-NOTIFICATION-MIB contents whether a notification is sent as trap/notification or as inform request, the
      * returned array contains an element for each addressed target, but only a response PDU for inform targets.
+     * In asynchronous dispatch mode, a {@link CompletableFuture} of that array is returned instead.
      */
     public Object notify(OctetString context, OID notificationID,
                          VariableBinding[] vbs) {
         return notify(context, notificationID, null, vbs);
     }
 
-    private <A extends Address> ResponseEvent<A> sendNotification(A address, Integer32 timeout, Integer32 retries,
-                                                                  SnmpTargetAddrEntryRow targetAddrEntryRow,
-                                                                  MOTableRow paramsRow, OctetString context,
-                                                                  OID notificationID, TimeTicks sysUpTime,
-                                                                  VariableBinding[] vbs, int type,
-                                                                  long notificationEventID) {
+    private <A extends Address> OutgoingNotification<A> createNotification(A address, Integer32 timeout,
+                                                                           Integer32 retries,
+                                                                           SnmpTargetAddrEntryRow targetAddrEntryRow,
+                                                                           MOTableRow paramsRow, OctetString context,
+                                                                           OID notificationID, TimeTicks sysUpTime,
+                                                                           VariableBinding[] vbs, int type,
+                                                                           long notificationEventID) {
         Integer32 mpModel = (Integer32) paramsRow.getValue(SnmpTargetMIB.idxSnmpTargetParamsMPModel);
         OctetString secName = (OctetString) paramsRow.getValue(SnmpTargetMIB.idxSnmpTargetParamsSecurityName);
         Integer32 secLevel = (Integer32) paramsRow.getValue(SnmpTargetMIB.idxSnmpTargetParamsSecurityLevel);
@@ -261,30 +313,186 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
         pdu.setType((type == SnmpNotificationMIB.SnmpNotifyTypeEnum.inform) ?
                 PDU.INFORM : (mpModel.getValue() == MessageProcessingModel.MPv1)
                 ? PDU.V1TRAP : PDU.TRAP);
+        OctetString localEngineID = new OctetString();
+        OctetString contextEngineID = new OctetString();
+        if (pdu instanceof ScopedPDU) {
+            localEngineID.setValue(targetMIB.getLocalEngineID());
+            contextEngineID = ((ScopedPDU) pdu).getContextEngineID();
+        }
+        NotificationLogEvent<A> logEvent = new NotificationLogEvent<A>(this,
+                localEngineID,
+                t,
+                contextEngineID,
+                context, notificationID,
+                sysUpTime,
+                vbs, notificationEventID, true);
+        OctetString targetName = new OctetString();
+        targetName.fromSubIndex(targetAddrEntryRow.getIndex(), true);
+        return new OutgoingNotification<A>(t, pdu, logEvent, notificationEventID, targetName, context);
+    }
+
+    private <A extends Address> ResponseEvent<A> sendNotification(OutgoingNotification<A> notification) {
         try {
-            OctetString localEngineID = new OctetString();
-            OctetString contextEngineID = new OctetString();
-            if (pdu instanceof ScopedPDU) {
-                localEngineID.setValue(targetMIB.getLocalEngineID());
-                contextEngineID = ((ScopedPDU) pdu).getContextEngineID();
+            ResponseEvent<A> response = session.send(notification.pdu, notification.target);
+            fireNotificationLogEvent(notification.logEvent);
+            logger.info("Sent notification with ID " + notification.notificationEventID +
+                    " " + notification.pdu + " to " + notification.target);
+            if (notification.pdu.getType() == PDU.INFORM) {
+                informFinished(notification, response);
             }
-            ResponseEvent<A> response = session.send(pdu, t);
-            fireNotificationLogEvent(new NotificationLogEvent<A>(this,
-                    localEngineID,
-                    t,
-                    contextEngineID,
-                    context, notificationID,
-                    sysUpTime,
-                    vbs, notificationEventID, true));
-            logger.info("Sent notification with ID " + notificationEventID +
-                    " " + pdu + " to " + t);
             return response;
         } catch (IOException iox) {
             logger.error("Failed to send notification: " + iox.getMessage(), iox);
+            if (notification.pdu.getType() == PDU.INFORM) {
+                informFinished(notification, null);
+            }
         }
         return null;
     }
 
+    /**
+     * Passes an unacknowledged inform to the inform retry queue or triggers the replay of the informs queued for
+     * the target of an acknowledged inform.
+     *
+     * @param notification
+     *         the inform.
+     * @param response
+     *         the response event or {@code null} if the inform could not be sent.
+     */
+    private void informFinished(OutgoingNotification<?> notification, ResponseEvent<?> response) {
+        InformRetryQueue retryQueue = informRetryQueue;
+        if (retryQueue != null) {
+            if ((response != null) && (response.getResponse() != null)) {
+                retryQueue.informDelivered(notification.targetName);
+            } else {
+                retryQueue.enqueue(notification.targetName, notification.context, notification.pdu);
+            }
+        }
+    }
+
+    /**
+     * Resends a queued inform to the current address of the specified target.
+     *
+     * @param targetName
+     *         the snmpTargetAddrName of the target.
+     * @param context
+     *         the context of the inform.
+     * @param pdu
+     *         the inform PDU.
+     * @param userHandle
+     *         the user object of the response event.
+     * @param listener
+     *         the listener that receives the response (or timeout).
+     *
+     * @return {@code true} if the inform has been sent, {@code false} if the target is not (anymore) active or the
+     * inform could not be sent.
+     */
+    boolean resendInform(OctetString targetName, OctetString context, PDU pdu, Object userHandle,
+                         ResponseListener listener) {
+        // informs use the discovered authoritative engine ID of the receiver
+        Target<?> target = (targetMIB == null) ? null : targetMIB.getTarget(targetName, new OctetString(), context);
+        if (target == null) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("Queued inform not sent, because target '" + targetName + "' is not active");
+            }
+            return false;
+        }
+        try {
+            session.send(pdu, target, userHandle, listener);
+            logger.info("Resent queued inform " + pdu + " to " + target);
+            return true;
+        } catch (IOException iox) {
+            logger.error("Failed to resend inform: " + iox.getMessage(), iox);
+        }
+        return false;
+    }
+
+    /**
+     * Sends a notification in asynchronous dispatch mode. Traps are sent immediately. Informs are sent immediately
+     * if less than {@link #getMaxOutstandingInformsPerTarget()} informs to the same target address await a response,
+     * otherwise they are queued until a response (or timeout) for a previous inform to that address is received.
+     *
+     * @param notification
+     *         the notification to send.
+     * @param aggregate
+     *         the result of the {@code notify} call the notification belongs to.
+     * @param slot
+     *         the position of the notification's response in the result.
+     */
+    private void dispatchNotification(OutgoingNotification<?> notification, AsyncNotification aggregate, int slot) {
+        if (notification.pdu.getType() != PDU.INFORM) {
+            aggregate.done(slot, sendNotification(notification));
+            return;
+        }
+        PendingInform inform = new PendingInform(notification, aggregate, slot);
+        Address address = notification.target.getAddress();
+        while (true) {
+            TargetDispatcher dispatcher = targetDispatchers.computeIfAbsent(address, TargetDispatcher::new);
+            synchronized (dispatcher) {
+                if (dispatcher.retired) {
+                    // removed concurrently, get a new one
+                    continue;
+                }
+                if (dispatcher.outstanding >= maxOutstandingInformsPerTarget) {
+                    dispatcher.queue.add(inform);
+                    return;
+                }
+                dispatcher.outstanding++;
+            }
+            inform.dispatcher = dispatcher;
+            if (!sendInform(inform)) {
+                informCompleted(inform, null);
+            }
+            return;
+        }
+    }
+
+    private boolean sendInform(PendingInform inform) {
+        OutgoingNotification<?> notification = inform.notification;
+        try {
+            session.send(notification.pdu, notification.target, inform, informResponseListener);
+            fireNotificationLogEvent(notification.logEvent);
+            logger.info("Sent notification with ID " + notification.notificationEventID +
+                    " " + notification.pdu + " to " + notification.target);
+            return true;
+        } catch (IOException iox) {
+            logger.error("Failed to send notification: " + iox.getMessage(), iox);
+        }
+        return false;
+    }
+
+    /**
+     * Completes an inform and sends the next inform queued for the same target address, if any.
+     *
+     * @param inform
+     *         the completed inform.
+     * @param response
+     *         the response event or {@code null} if the inform could not be sent.
+     */
+    private void informCompleted(PendingInform inform, ResponseEvent<?> response) {
+        while (inform != null) {
+            informFinished(inform.notification, response);
+            inform.aggregate.done(inform.slot, response);
+            TargetDispatcher dispatcher = inform.dispatcher;
+            PendingInform next;
+            synchronized (dispatcher) {
+                next = dispatcher.queue.poll();
+                if ((next == null) && (--dispatcher.outstanding == 0)) {
+                    dispatcher.retired = true;
+                    targetDispatchers.remove(dispatcher.address, dispatcher);
+                }
+            }
+            inform = null;
+            if (next != null) {
+                next.dispatcher = dispatcher;
+                if (!sendInform(next)) {
+                    inform = next;
+                    response = null;
+                }
+            }
+        }
+    }
+
     /**
      * Sets the context engine ID of the scoped PDU to the local engine ID provided by the {@code targetMIB}
      * member.
@@ -304,11 +512,12 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
         scopedPDU.setContextEngineID(new OctetString(targetMIB.getLocalEngineID()));
     }
 
-    private boolean isAccessGranted(MOTableRow addr, MOTableRow paramsRow,
+    private boolean isAccessGranted(NotificationRoute route,
                                     OctetString context,
                                     OID notificationID,
                                     VariableBinding[] vbs) {
-        if (!notificationMIB.passesFilter(paramsRow.getIndex(), notificationID, vbs)) {
+        MOTableRow paramsRow = route.paramsRow;
+        if ((route.notifyFilter != null) && !route.notifyFilter.passesVariableBindings(vbs)) {
             if (logger.isInfoEnabled()) {
                 logger.info("Notification " + notificationID + " did not pass filter " +
                         paramsRow.getIndex());
@@ -335,6 +544,41 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
     }
 
     public Object notify(OctetString context, OID notificationID, TimeTicks sysUpTime, VariableBinding[] vbs) {
+        if (asyncDispatch) {
+            return notifyAsync(context, notificationID, sysUpTime, vbs);
+        }
+        return routeNotification(context, notificationID, sysUpTime, vbs, null).toArray(new ResponseEvent<?>[0]);
+    }
+
+    /**
+     * Sends notifications (traps) to all appropriate notification targets without waiting for the responses to
+     * informs, regardless of the dispatch mode set by {@link #setAsyncDispatch(boolean)}.
+     *
+     * @param context
+     *         the context name of the context on whose behalf this notification has been generated.
+     * @param notificationID
+     *         the object ID that uniquely identifies this notification.
+     * @param sysUpTime
+     *         the value of the sysUpTime for the context {@code context} or {@code null} to use the current
+     *         sysUpTime.
+     * @param vbs
+     *         an array of {@code VariableBinding} instances representing the payload of the notification.
+     *
+     * @return a future that is completed when all informs have been responded or timed out. Its value contains an
+     * element for each addressed target like the array returned by {@link #notify(OctetString, OID, TimeTicks,
+     * VariableBinding[])} in synchronous mode.
+     * @since 3.4.0
+     */
+    public CompletableFuture<ResponseEvent<?>[]> notifyAsync(OctetString context, OID notificationID,
+                                                             TimeTicks sysUpTime, VariableBinding[] vbs) {
+        AsyncNotification aggregate = new AsyncNotification();
+        routeNotification(context, notificationID, sysUpTime, vbs, aggregate);
+        aggregate.done(-1, null);
+        return aggregate.future;
+    }
+
+    private List<ResponseEvent<?>> routeNotification(OctetString context, OID notificationID, TimeTicks sysUpTime,
+                                                     VariableBinding[] vbs, AsyncNotification aggregate) {
         if (logger.isInfoEnabled()) {
             logger.info("Notification " + notificationID + " reported with " +
                     Arrays.asList(vbs) + " for context " + context);
@@ -343,8 +587,9 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
             context = new OctetString();
         }
         List<ResponseEvent<?>> responses = new LinkedList<>();
+        long notificationEventID;
         synchronized (this) {
-            notificationEventID++;
+            notificationEventID = ++this.notificationEventID;
         }
         OctetString localEngineID = null;
         if ((targetMIB != null) && (targetMIB.getLocalEngineID() != null)) {
@@ -352,6 +597,70 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
         }
         fireNotificationLogEvent(new NotificationLogEvent<Address>(this, localEngineID, null,
                 EMPTY_CONTEXT_ENGINE_ID, context, notificationID, sysUpTime, vbs, notificationEventID, false));
+        for (NotificationRoute route : getRoutes(notificationID)) {
+            SnmpTargetAddrEntryRow address = route.targetAddrRow;
+            if (isAccessGranted(route, context, notificationID, vbs)) {
+                NotificationThrottle throttle = notificationThrottle;
+                if ((throttle != null) && !throttle.acquireTargetPermit(route.targetName)) {
+                    continue;
+                }
+                Integer32 timeout = (Integer32)
+                        address.getValue(SnmpTargetMIB.idxSnmpTargetAddrTimeout);
+                Integer32 retries = (Integer32)
+                        address.getValue(SnmpTargetMIB.idxSnmpTargetAddrRetryCount);
+                OutgoingNotification<?> notification =
+                        createNotification(address.getAddress(), timeout, retries, address, route.paramsRow,
+                                context, notificationID,
+                                sysUpTime,
+                                vbs, route.type, notificationEventID);
+                if (aggregate == null) {
+                    responses.add((notification == null) ? null : sendNotification(notification));
+                } else {
+                    int slot = aggregate.reserve();
+                    if (notification == null) {
+                        aggregate.done(slot, null);
+                    } else {
+                        dispatchNotification(notification, aggregate, slot);
+                    }
+                }
+            } else {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("Access denied by VACM for " + notificationID);
+                }
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Returns the routes of the specified notification ID from the routing cache or computes them if they are not
+     * cached or outdated.
+     *
+     * @param notificationID
+     *         a notification ID.
+     *
+     * @return the routes of the notification in the order of the snmpNotifyTable.
+     */
+    private NotificationRoute[] getRoutes(OID notificationID) {
+        // read the generation before the tables, so that routes computed during a change are outdated
+        long generation = routingCacheGeneration.get();
+        NotificationRoutes routes = routingCache.get(notificationID);
+        if ((routes != null) && (routes.generation == generation)) {
+            return routes.routes;
+        }
+        NotificationRoute[] computedRoutes = computeRoutes(notificationID);
+        int maxSize = routingCacheSize;
+        if (maxSize > 0) {
+            if (routingCache.size() >= maxSize) {
+                routingCache.clear();
+            }
+            routingCache.put(new OID(notificationID), new NotificationRoutes(generation, computedRoutes));
+        }
+        return computedRoutes;
+    }
+
+    private NotificationRoute[] computeRoutes(OID notificationID) {
+        List<NotificationRoute> routes = new ArrayList<>();
         for (Iterator<DefaultMOMutableRow2PC> it = notificationMIB.getNotifyTable().getModel().iterator();
              it.hasNext(); ) {
             MOTableRow notifyRow = it.next();
@@ -366,22 +675,18 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
                     MOTableRow paramsRow = targetMIB.getTargetParamsRow(params);
                     if (paramsRow != null) {
                         if (RowStatus.isRowActive(paramsRow, SnmpTargetMIB.idxSnmpTargetParamsRowStatus)) {
-                            if (isAccessGranted(address, paramsRow, context, notificationID, vbs)) {
-                                Integer32 timeout = (Integer32)
-                                        address.getValue(SnmpTargetMIB.idxSnmpTargetAddrTimeout);
-                                Integer32 retries = (Integer32)
-                                        address.getValue(SnmpTargetMIB.idxSnmpTargetAddrRetryCount);
-                                ResponseEvent<?> response =
-                                        sendNotification(address.getAddress(), timeout, retries, address, paramsRow,
-                                                context, notificationID,
-                                                sysUpTime,
-                                                vbs, type.getValue(), notificationEventID);
-                                responses.add(response);
-                            } else {
-                                if (logger.isWarnEnabled()) {
-                                    logger.warn("Access denied by VACM for " + notificationID);
+                            SnmpNotificationMIB.NotifyFilter notifyFilter =
+                                    notificationMIB.getNotifyFilter(paramsRow.getIndex());
+                            if ((notifyFilter != null) && !notifyFilter.passesNotificationID(notificationID)) {
+                                if (logger.isInfoEnabled()) {
+                                    logger.info("Notification " + notificationID + " did not pass filter " +
+                                            paramsRow.getIndex());
                                 }
+                                continue;
                             }
+                            routes.add(new NotificationRoute(address, paramsRow, type.getValue(),
+                                    ((notifyFilter != null) && notifyFilter.hasExcludedSubtrees()) ?
+                                            notifyFilter : null));
                         } else {
                             logger.warn("Found active target address but corresponding params " +
                                     " are not active");
@@ -394,7 +699,107 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
                 }
             }
         }
-        return responses.toArray(new ResponseEvent<?>[0]);
+        return routes.toArray(new NotificationRoute[0]);
+    }
+
+    private <R extends MOTableRow> void addRoutingCacheInvalidation(MOTable<R, ?, ?> table,
+                                                                     DefaultMOMutableTableModel<R> model) {
+        model.addMOTableModelListener(changeEvent -> invalidateRoutingCache());
+        table.addMOTableRowListener(event -> {
+            if (event.getType() == MOTableRowEvent.UPDATED) {
+                invalidateRoutingCache();
+            }
+        });
+    }
+
+    /**
+     * Discards all cached notification routes. The routing cache is invalidated automatically when the
+     * snmpNotifyTable, snmpTargetAddrTable, snmpTargetParamsTable, snmpNotifyFilterProfileTable, or
+     * snmpNotifyFilterTable is changed through its table model or by a SET request. Changes of row values by other
+     * means require a call of this method.
+     *
+     * @since 3.4.0
+     */
+    public void invalidateRoutingCache() {
+        routingCacheGeneration.incrementAndGet();
+        routingCache.clear();
+    }
+
+    /**
+     * Sets the maximum number of notification IDs whose routes are cached. If the cache is full, it is cleared.
+     *
+     * @param routingCacheSize
+     *         the maximum number of cached notification IDs, zero disables the cache.
+     *
+     * @since 3.4.0
+     */
+    public void setRoutingCacheSize(int routingCacheSize) {
+        this.routingCacheSize = routingCacheSize;
+        routingCache.clear();
+    }
+
+    /**
+     * Gets the maximum number of notification IDs whose routes are cached.
+     *
+     * @return the maximum routing cache size.
+     * @since 3.4.0
+     */
+    public int getRoutingCacheSize() {
+        return routingCacheSize;
+    }
+
+    /**
+     * Sets the notification throttle that limits the rate of notifications sent to each target. This method is
+     * called by the {@link NotificationThrottle} constructor.
+     *
+     * @param notificationThrottle
+     *         the throttle whose target rate limit is applied or {@code null} to send notifications without rate
+     *         limit.
+     *
+     * @since 3.4.0
+     */
+    public void setNotificationThrottle(NotificationThrottle notificationThrottle) {
+        this.notificationThrottle = notificationThrottle;
+    }
+
+    /**
+     * Gets the notification throttle that limits the rate of notifications sent to each target.
+     *
+     * @return the throttle or {@code null} if there is no rate limit.
+     * @since 3.4.0
+     */
+    public NotificationThrottle getNotificationThrottle() {
+        return notificationThrottle;
+    }
+
+    /**
+     * Sets the queue that keeps informs which have not been acknowledged after all retries and resends them later.
+     * Informs restored by the queue from its journal are replayed.
+     *
+     * @param informRetryQueue
+     *         an inform retry queue or {@code null} to drop unacknowledged informs.
+     *
+     * @since 3.4.0
+     */
+    public void setInformRetryQueue(InformRetryQueue informRetryQueue) {
+        InformRetryQueue previous = this.informRetryQueue;
+        this.informRetryQueue = informRetryQueue;
+        if ((previous != null) && (previous != informRetryQueue)) {
+            previous.setNotificationOriginator(null);
+        }
+        if (informRetryQueue != null) {
+            informRetryQueue.setNotificationOriginator(this);
+        }
+    }
+
+    /**
+     * Gets the inform retry queue.
+     *
+     * @return the queue for unacknowledged informs or {@code null} if there is none.
+     * @since 3.4.0
+     */
+    public InformRetryQueue getInformRetryQueue() {
+        return informRetryQueue;
     }
 
     /**
@@ -409,6 +814,59 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
         this.session = snmpSession;
     }
 
+    /**
+     * Enables or disables the asynchronous dispatch mode. In asynchronous mode,
+     * {@link #notify(OctetString, OID, TimeTicks, VariableBinding[])} returns a {@link CompletableFuture} of the
+     * {@link ResponseEvent} array instead of the array itself (see {@link #notifyAsync}). By default, asynchronous
+     * dispatch is disabled.
+     *
+     * @param asyncDispatch
+     *         {@code true} to send notifications to all targets in parallel without blocking on inform responses.
+     *
+     * @since 3.4.0
+     */
+    public void setAsyncDispatch(boolean asyncDispatch) {
+        this.asyncDispatch = asyncDispatch;
+    }
+
+    /**
+     * Checks whether the asynchronous dispatch mode is enabled.
+     *
+     * @return {@code true} if {@code notify} returns a {@link CompletableFuture}.
+     * @since 3.4.0
+     */
+    public boolean isAsyncDispatch() {
+        return asyncDispatch;
+    }
+
+    /**
+     * Sets the maximum number of informs that await a response from the same target address at a time when sent
+     * asynchronously. Further informs to that address are queued until a response or timeout is received.
+     *
+     * @param maxOutstandingInformsPerTarget
+     *         a value greater than zero (default is {@link #DEFAULT_MAX_OUTSTANDING_INFORMS_PER_TARGET}).
+     *
+     * @since 3.4.0
+     */
+    public void setMaxOutstandingInformsPerTarget(int maxOutstandingInformsPerTarget) {
+        if (maxOutstandingInformsPerTarget < 1) {
+            throw new IllegalArgumentException("Maximum outstanding informs per target must be greater than zero: " +
+                    maxOutstandingInformsPerTarget);
+        }
+        this.maxOutstandingInformsPerTarget = maxOutstandingInformsPerTarget;
+    }
+
+    /**
+     * Gets the maximum number of informs that await a response from the same target address at a time when sent
+     * asynchronously.
+     *
+     * @return the maximum number of outstanding informs per target address.
+     * @since 3.4.0
+     */
+    public int getMaxOutstandingInformsPerTarget() {
+        return maxOutstandingInformsPerTarget;
+    }
+
 
     public synchronized void addNotificationLogListener(NotificationLogListener l) {
         if (notificationLogListeners == null) {
@@ -432,4 +890,153 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
         }
     }
 
+    /**
+     * A notification PDU ready to be sent to a target together with its notification log event.
+     */
+    private static final class OutgoingNotification<A extends Address> {
+        private final Target<A> target;
+        private final PDU pdu;
+        private final NotificationLogEvent<A> logEvent;
+        private final long notificationEventID;
+        private final OctetString targetName;
+        private final OctetString context;
+
+        private OutgoingNotification(Target<A> target, PDU pdu, NotificationLogEvent<A> logEvent,
+                                     long notificationEventID, OctetString targetName, OctetString context) {
+            this.target = target;
+            this.pdu = pdu;
+            this.logEvent = logEvent;
+            this.notificationEventID = notificationEventID;
+            this.targetName = targetName;
+            this.context = context;
+        }
+    }
+
+    /**
+     * The aggregated result of an asynchronously dispatched notification. The future is completed when the routing
+     * of the notification has finished and all reserved slots are done.
+     */
+    private static final class AsyncNotification {
+        private final CompletableFuture<ResponseEvent<?>[]> future = new CompletableFuture<>();
+        private final List<ResponseEvent<?>> responses = new ArrayList<>();
+        // one for the routing in progress
+        private int pending = 1;
+
+        private synchronized int reserve() {
+            responses.add(null);
+            pending++;
+            return responses.size() - 1;
+        }
+
+        /**
+         * Marks a slot as done.
+         *
+         * @param slot
+         *         a slot returned by {@link #reserve()} or -1 if the routing has finished.
+         * @param response
+         *         the response event for the slot.
+         */
+        private void done(int slot, ResponseEvent<?> response) {
+            ResponseEvent<?>[] result = null;
+            synchronized (this) {
+                if (slot >= 0) {
+                    responses.set(slot, response);
+                }
+                if (--pending == 0) {
+                    result = responses.toArray(new ResponseEvent<?>[0]);
+                }
+            }
+            if (result != null) {
+                future.complete(result);
+            }
+        }
+    }
+
+    /**
+     * An inform that is queued or awaits its response.
+     */
+    private static final class PendingInform {
+        private final OutgoingNotification<?> notification;
+        private final AsyncNotification aggregate;
+        private final int slot;
+        private TargetDispatcher dispatcher;
+
+        private PendingInform(OutgoingNotification<?> notification, AsyncNotification aggregate, int slot) {
+            this.notification = notification;
+            this.aggregate = aggregate;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * Bounds the number of informs awaiting a response from a target address. A dispatcher is removed when it becomes
+     * idle.
+     */
+    private static final class TargetDispatcher {
+        private final Address address;
+        private final Deque<PendingInform> queue = new ArrayDeque<>();
+        private int outstanding;
+        private boolean retired;
+
+        private TargetDispatcher(Address address) {
+            this.address = address;
+        }
+    }
+
+    private class InformResponseListener implements ResponseListener {
+        @Override
+        public <A extends Address> void onResponse(ResponseEvent<A> event) {
+            if (event.getSource() instanceof Session) {
+                // stop retransmissions and release the pending request
+                ((Session) event.getSource()).cancel(event.getRequest(), this);
+            }
+            informCompleted((PendingInform) event.getUserObject(), event);
+        }
+    }
+
+    /**
+     * The cached routes of a notification ID computed from the given routing cache generation.
+     */
+    private static final class NotificationRoutes {
+        private final long generation;
+        private final NotificationRoute[] routes;
+
+        private NotificationRoutes(long generation, NotificationRoute[] routes) {
+            this.generation = generation;
+            this.routes = routes;
+        }
+    }
+
+    /**
+     * An active target address with active target parameters whose filter profile includes a notification ID.
+     */
+    private static final class NotificationRoute {
+        private final SnmpTargetAddrEntryRow targetAddrRow;
+        private final OctetString targetName;
+        private final MOTableRow paramsRow;
+        private final int type;
+        private final SnmpNotificationMIB.NotifyFilter notifyFilter;
+
+        /**
+         * Creates a route.
+         *
+         * @param targetAddrRow
+         *         the target address.
+         * @param paramsRow
+         *         the target parameters.
+         * @param type
+         *         the notification type (trap or inform).
+         * @param notifyFilter
+         *         the filter to apply to the variable bindings or {@code null} if no variable binding can be excluded.
+         */
+        private NotificationRoute(SnmpTargetAddrEntryRow targetAddrRow, MOTableRow paramsRow, int type,
+                                  SnmpNotificationMIB.NotifyFilter notifyFilter) {
+            this.targetAddrRow = targetAddrRow;
+            this.targetName = new OctetString();
+            this.targetName.fromSubIndex(targetAddrRow.getIndex(), true);
+            this.paramsRow = paramsRow;
+            this.type = type;
+            this.notifyFilter = notifyFilter;
+        }
+    }
 }
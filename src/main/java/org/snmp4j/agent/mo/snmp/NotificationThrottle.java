@@ -0,0 +1,426 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - NotificationThrottle.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo.snmp;
+
+import org.snmp4j.agent.DuplicateRegistrationException;
+import org.snmp4j.agent.MOGroup;
+import org.snmp4j.agent.MOServer;
+import org.snmp4j.agent.NotificationOriginator;
+import org.snmp4j.agent.mo.MOAccessImpl;
+import org.snmp4j.agent.mo.MOScalar;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.log.LogAdapter;
+import org.snmp4j.log.LogFactory;
+import org.snmp4j.smi.*;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code NotificationThrottle} is a {@link NotificationOriginator} stage in front of a {@link
+ * NotificationOriginatorImpl} that protects the agent and the notification receivers from notification storms, for
+ * example caused by flapping links:
+ * <ul>
+ * <li>Notifications that are equal to a notification forwarded within the deduplication window are suppressed. Two
+ * notifications are equal, if they have the same notification ID and equal deduplication keys. By default, the key
+ * of a notification consists of all its variable bindings. With {@link #setDeduplicationKey(OID, OID...)} the key
+ * can be restricted to the variable bindings of certain objects, for example the ifIndex of linkDown and
+ * linkUp.</li>
+ * <li>The notifications sent to each target of the snmpTargetAddrTable are limited by a token bucket. A
+ * notification is not sent to a target whose bucket is empty.</li>
+ * </ul>
+ * Both stages are disabled until they are configured. The numbers of suppressed notifications are available through
+ * getters and, if this group is registered at a {@link MOServer}, as the read-only counters {@link
+ * #oidSnmp4jNotifyThrottleDuplicates} and {@link #oidSnmp4jNotifyThrottleRateLimited}.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+public class NotificationThrottle implements NotificationOriginator, MOGroup {
+
+    private static final LogAdapter logger = LogFactory.getLogger(NotificationThrottle.class);
+
+    /**
+     * The number of notifications suppressed as duplicates (Counter32).
+     */
+    public static final OID oidSnmp4jNotifyThrottleDuplicates =
+            new OID(new int[]{1, 3, 6, 1, 4, 1, 4976, 10, 1, 1, 4, 1, 1, 0});
+    /**
+     * The number of notifications not sent to a target because its rate limit was exceeded (Counter32).
+     */
+    public static final OID oidSnmp4jNotifyThrottleRateLimited =
+            new OID(new int[]{1, 3, 6, 1, 4, 1, 4976, 10, 1, 1, 4, 1, 2, 0});
+
+    /**
+     * The default maximum number of distinct notifications remembered for deduplication.
+     */
+    public static final int DEFAULT_MAX_DEDUPLICATION_ENTRIES = 10000;
+
+    private final NotificationOriginatorImpl notificationOriginator;
+
+    private long deduplicationWindowNanos;
+    private int maxDeduplicationEntries = DEFAULT_MAX_DEDUPLICATION_ENTRIES;
+    private final Map<OID, OID[]> deduplicationKeys = new ConcurrentHashMap<>();
+    private final LinkedHashMap<DeduplicationKey, Long> forwarded = new LinkedHashMap<>();
+
+    private volatile double targetRatePerSecond;
+    private volatile int targetBurstSize;
+    private final Map<OctetString, TokenBucket> tokenBuckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong duplicatesSuppressed = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    private final MOScalar<Counter32> snmp4jNotifyThrottleDuplicates =
+            new CounterScalar(oidSnmp4jNotifyThrottleDuplicates, duplicatesSuppressed);
+    private final MOScalar<Counter32> snmp4jNotifyThrottleRateLimited =
+            new CounterScalar(oidSnmp4jNotifyThrottleRateLimited, rateLimited);
+
+    /**
+     * Creates a notification throttle for the supplied notification originator. The throttle registers itself as
+     * target rate limiter at the originator.
+     *
+     * @param notificationOriginator
+     *         the notification originator that sends the notifications passing the deduplication.
+     */
+    public NotificationThrottle(NotificationOriginatorImpl notificationOriginator) {
+        this.notificationOriginator = notificationOriginator;
+        notificationOriginator.setNotificationThrottle(this);
+    }
+
+    public NotificationOriginatorImpl getNotificationOriginator() {
+        return notificationOriginator;
+    }
+
+    /**
+     * Sets the time window within which equal notifications are suppressed after a notification has been forwarded.
+     *
+     * @param windowMillis
+     *         the deduplication window in milliseconds, zero disables the deduplication.
+     */
+    public synchronized void setDeduplicationWindow(long windowMillis) {
+        this.deduplicationWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+        forwarded.clear();
+    }
+
+    /**
+     * Gets the deduplication window.
+     *
+     * @return the deduplication window in milliseconds, zero if deduplication is disabled.
+     */
+    public synchronized long getDeduplicationWindow() {
+        return TimeUnit.NANOSECONDS.toMillis(deduplicationWindowNanos);
+    }
+
+    /**
+     * Sets the maximum number of distinct notifications remembered within the deduplication window. If more
+     * distinct notifications are forwarded within the window, the oldest ones are forgotten and may be forwarded
+     * again.
+     *
+     * @param maxDeduplicationEntries
+     *         the maximum number of remembered notifications.
+     */
+    public synchronized void setMaxDeduplicationEntries(int maxDeduplicationEntries) {
+        this.maxDeduplicationEntries = maxDeduplicationEntries;
+    }
+
+    public synchronized int getMaxDeduplicationEntries() {
+        return maxDeduplicationEntries;
+    }
+
+    /**
+     * Sets the objects whose variable bindings form the deduplication key of a notification. Variable bindings
+     * whose OID starts with one of the supplied key object OIDs are part of the key, all others are ignored when
+     * notifications with the supplied ID are compared.
+     *
+     * @param notificationID
+     *         a notification ID.
+     * @param keyObjects
+     *         the OIDs of the key objects (for example ifIndex). If no OID is given, the default key consisting of all
+     *         variable bindings is used for the notification.
+     */
+    public void setDeduplicationKey(OID notificationID, OID... keyObjects) {
+        if (keyObjects.length == 0) {
+            deduplicationKeys.remove(notificationID);
+        } else {
+            deduplicationKeys.put(new OID(notificationID), keyObjects.clone());
+        }
+    }
+
+    /**
+     * Sets the rate limit of the notifications sent to each target of the snmpTargetAddrTable. Each target has a
+     * token bucket that holds up to {@code burstSize} tokens and is refilled with {@code ratePerSecond} tokens per
+     * second. Sending a notification to the target takes one token.
+     *
+     * @param ratePerSecond
+     *         the sustained number of notifications per second and target, zero or less disables the rate limit.
+     * @param burstSize
+     *         the maximum number of notifications sent to a target in a burst (at least 1).
+     */
+    public void setTargetRateLimit(double ratePerSecond, int burstSize) {
+        this.targetRatePerSecond = ratePerSecond;
+        this.targetBurstSize = Math.max(1, burstSize);
+        tokenBuckets.clear();
+    }
+
+    public double getTargetRatePerSecond() {
+        return targetRatePerSecond;
+    }
+
+    public int getTargetBurstSize() {
+        return targetBurstSize;
+    }
+
+    /**
+     * Gets the number of notifications suppressed as duplicates.
+     *
+     * @return the number of suppressed duplicates since the creation of this throttle.
+     */
+    public long getDuplicatesSuppressed() {
+        return duplicatesSuppressed.get();
+    }
+
+    /**
+     * Gets the number of notifications not sent to a target because of its rate limit.
+     *
+     * @return the number of rate limited notifications summed over all targets.
+     */
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    /**
+     * Gets the number of notifications not sent to the specified target because of its rate limit since the rate
+     * limit has been set.
+     *
+     * @param targetName
+     *         the snmpTargetAddrName of a target.
+     *
+     * @return the number of rate limited notifications of the target.
+     */
+    public long getRateLimited(OctetString targetName) {
+        TokenBucket bucket = tokenBuckets.get(targetName);
+        return (bucket == null) ? 0 : bucket.getRateLimited();
+    }
+
+    @Override
+    public Object notify(OctetString context, OID notificationID, VariableBinding[] vbs) {
+        return notify(context, notificationID, null, vbs);
+    }
+
+    @Override
+    public Object notify(OctetString context, OID notificationID, TimeTicks sysUpTime, VariableBinding[] vbs) {
+        if (isDuplicate(notificationID, vbs)) {
+            duplicatesSuppressed.incrementAndGet();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Suppressed duplicate notification " + notificationID + " with " + Arrays.asList(vbs));
+            }
+            ResponseEvent<?>[] noResponses = new ResponseEvent<?>[0];
+            return notificationOriginator.isAsyncDispatch() ? CompletableFuture.completedFuture(noResponses) :
+                    noResponses;
+        }
+        return notificationOriginator.notify(context, notificationID, sysUpTime, vbs);
+    }
+
+    /**
+     * Checks whether a notification equal to the specified one has been forwarded within the deduplication window
+     * and remembers the notification if not.
+     *
+     * @param notificationID
+     *         the notification ID.
+     * @param vbs
+     *         the variable bindings of the notification.
+     *
+     * @return {@code true} if the notification has to be suppressed.
+     */
+    protected synchronized boolean isDuplicate(OID notificationID, VariableBinding[] vbs) {
+        if (deduplicationWindowNanos <= 0) {
+            return false;
+        }
+        long now = System.nanoTime();
+        // entries are ordered by the time they were forwarded, thus expired entries are at the head
+        for (Iterator<Long> it = forwarded.values().iterator(); it.hasNext(); ) {
+            if (now - it.next() >= deduplicationWindowNanos) {
+                it.remove();
+            } else {
+                break;
+            }
+        }
+        DeduplicationKey key = new DeduplicationKey(notificationID, vbs, deduplicationKeys.get(notificationID));
+        if (forwarded.containsKey(key)) {
+            return true;
+        }
+        if (forwarded.size() >= maxDeduplicationEntries) {
+            Iterator<DeduplicationKey> eldest = forwarded.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+        forwarded.put(key, now);
+        return false;
+    }
+
+    /**
+     * Takes a token from the bucket of the specified target. This method is called by the {@link
+     * NotificationOriginatorImpl} for each target of a notification.
+     *
+     * @param targetName
+     *         the snmpTargetAddrName of the target.
+     *
+     * @return {@code true} if the notification may be sent to the target, {@code false} if the rate limit of the
+     * target is exceeded.
+     */
+    protected boolean acquireTargetPermit(OctetString targetName) {
+        double ratePerSecond = targetRatePerSecond;
+        if (ratePerSecond <= 0) {
+            return true;
+        }
+        TokenBucket bucket =
+                tokenBuckets.computeIfAbsent(targetName, name -> new TokenBucket(ratePerSecond, targetBurstSize));
+        if (bucket.tryAcquire()) {
+            return true;
+        }
+        rateLimited.incrementAndGet();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Rate limit exceeded for notification target " + targetName);
+        }
+        return false;
+    }
+
+    @Override
+    public void registerMOs(MOServer server, OctetString context) throws DuplicateRegistrationException {
+        server.register(snmp4jNotifyThrottleDuplicates, context);
+        server.register(snmp4jNotifyThrottleRateLimited, context);
+    }
+
+    @Override
+    public void unregisterMOs(MOServer server, OctetString context) {
+        server.unregister(snmp4jNotifyThrottleDuplicates, context);
+        server.unregister(snmp4jNotifyThrottleRateLimited, context);
+    }
+
+    /**
+     * The notification ID and the key variable bindings of a notification.
+     */
+    private static final class DeduplicationKey {
+
+        private final OID notificationID;
+        private final VariableBinding[] keyBindings;
+        private final int hashCode;
+
+        private DeduplicationKey(OID notificationID, VariableBinding[] vbs, OID[] keyObjects) {
+            this.notificationID = new OID(notificationID);
+            List<VariableBinding> key = new ArrayList<>((vbs == null) ? 0 : vbs.length);
+            if (vbs != null) {
+                for (VariableBinding vb : vbs) {
+                    if ((keyObjects == null) || isKeyObject(vb.getOid(), keyObjects)) {
+                        // copy the binding, because the caller may reuse it
+                        key.add((VariableBinding) vb.clone());
+                    }
+                }
+            }
+            this.keyBindings = key.toArray(new VariableBinding[0]);
+            this.hashCode = 31 * this.notificationID.hashCode() + Arrays.hashCode(keyBindings);
+        }
+
+        private static boolean isKeyObject(OID oid, OID[] keyObjects) {
+            for (OID keyObject : keyObjects) {
+                if (oid.startsWith(keyObject)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DeduplicationKey)) {
+                return false;
+            }
+            DeduplicationKey other = (DeduplicationKey) o;
+            return (hashCode == other.hashCode) && notificationID.equals(other.notificationID) &&
+                    Arrays.equals(keyBindings, other.keyBindings);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * A token bucket that is refilled continuously.
+     */
+    private static final class TokenBucket {
+
+        private final double tokensPerNano;
+        private final int capacity;
+        private double tokens;
+        private long lastRefill;
+        private long rateLimited;
+
+        private TokenBucket(double ratePerSecond, int capacity) {
+            this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        private synchronized boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                return true;
+            }
+            rateLimited++;
+            return false;
+        }
+
+        private synchronized long getRateLimited() {
+            return rateLimited;
+        }
+    }
+
+    /**
+     * A read-only Counter32 scalar that reports the value of a counter.
+     */
+    private static final class CounterScalar extends MOScalar<Counter32> {
+
+        private final AtomicLong counter;
+
+        private CounterScalar(OID id, AtomicLong counter) {
+            super(id, MOAccessImpl.ACCESS_READ_ONLY, new Counter32());
+            this.counter = counter;
+            setVolatile(true);
+        }
+
+        @Override
+        public Counter32 getValue() {
+            return new Counter32(counter.get() & 0xFFFFFFFFL);
+        }
+    }
+}
@@ -24,7 +24,6 @@ package org.snmp4j.agent.mo.snmp;
 //--AgentGen END
 
 import org.snmp4j.agent.mo.snmp.tc.SnmpEngineIDTC;
-import org.snmp4j.agent.mo.util.RowIndexComparator;
 import org.snmp4j.smi.*;
 import org.snmp4j.mp.SnmpConstants;
 import org.snmp4j.agent.*;
@@ -35,6 +34,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.snmp4j.agent.mo.snmp.SnmpTargetMIB.SnmpTargetAddrEntryRow;
 import org.snmp4j.log.LogAdapter;
@@ -123,8 +123,18 @@ public class SnmpCommunityMIB
     private static final LogAdapter logger =
             LogFactory.getLogger(SnmpCommunityMIB.class);
 
-    private Map<Variable, SortedSet<SnmpCommunityEntryRow>> coexistenceInfo;
+    /**
+     * The immutable community to coexistence information index used by {@link #getCoexistenceInfo(OctetString)}.
+     * A {@code null} value indicates that the index has to be rebuilt from the snmpCommunityTable.
+     */
+    private volatile Map<OctetString, CoexistenceInfo[]> coexistenceIndex;
     private Map<Variable, List<SnmpCommunityEntryRow>> communityInfo;
+    /**
+     * The compiled source address filters used by {@link #passesFilter(Address, CoexistenceInfo)}. They are rebuilt
+     * if their generation is not the current {@link #sourceAddressFilterGeneration}.
+     */
+    private volatile SourceAddressFilters sourceAddressFilters;
+    private final AtomicLong sourceAddressFilterGeneration = new AtomicLong();
     private SnmpTargetMIB targetMIB;
     private boolean sourceAddressFiltering;
     private SnmpEngineIDTC snmpEngineIDTC;
@@ -133,6 +143,13 @@ public class SnmpCommunityMIB
         this(new OctetString(targetMIB.getLocalEngineID()));
         this.targetMIB = targetMIB;
         setBaseTableSnmpTargetAddrEntry(targetMIB.getSnmpTargetAddrEntry());
+        targetMIB.getSnmpTargetAddrEntryModel().addMOTableModelListener(
+                changeEvent -> invalidateSourceAddressFilters());
+        targetMIB.getSnmpTargetAddrEntry().addMOTableRowListener(event -> {
+            if (event.getType() == MOTableRowEvent.UPDATED) {
+                invalidateSourceAddressFilters();
+            }
+        });
     }
 
 //--AgentGen END
@@ -197,8 +214,10 @@ public class SnmpCommunityMIB
                         true);
         snmpCommunityEntryColumns[idxSnmpCommunityStatus] = new RowStatus<>(colSnmpCommunityStatus);
 
-        snmpCommunityEntryModel = new DefaultMOMutableTableModel<>();
-        snmpCommunityEntryModel.setRowFactory(new SnmpCommunityEntryRowFactory());
+        DefaultMOMutableTableModel<SnmpCommunityEntryRow> communityEntryModel = new DefaultMOMutableTableModel<>();
+        communityEntryModel.setRowFactory(new SnmpCommunityEntryRowFactory());
+        communityEntryModel.addMOTableModelListener(changeEvent -> invalidateCoexistenceIndex());
+        snmpCommunityEntryModel = communityEntryModel;
         snmpCommunityEntry =
                 moFactory.createTable(oidSnmpCommunityEntry,
                         snmpCommunityEntryIndex,
@@ -238,8 +257,11 @@ public class SnmpCommunityMIB
         ((MOMutableColumn) snmpTargetAddrExtEntryColumns[idxSnmpTargetAddrMMS]).
                 addMOValueValidationListener(new SnmpTargetAddrMMSValidator());
 
-        snmpTargetAddrExtEntryModel = new DefaultMOMutableTableModel<>();
-        snmpTargetAddrExtEntryModel.setRowFactory(new SnmpTargetAddrExtEntryRowFactory());
+        DefaultMOMutableTableModel<SnmpTargetAddrExtEntryRow> targetAddrExtEntryModel =
+                new DefaultMOMutableTableModel<>();
+        targetAddrExtEntryModel.setRowFactory(new SnmpTargetAddrExtEntryRowFactory());
+        targetAddrExtEntryModel.addMOTableModelListener(changeEvent -> invalidateSourceAddressFilters());
+        snmpTargetAddrExtEntryModel = targetAddrExtEntryModel;
         snmpTargetAddrExtEntry =
                 moFactory.createTable(oidSnmpTargetAddrExtEntry,
                         snmpTargetAddrExtEntryIndex,
@@ -387,16 +409,6 @@ public class SnmpCommunityMIB
                 throws UnsupportedOperationException {
             SnmpCommunityEntryRow row = new SnmpCommunityEntryRow(index, values);
             //--AgentGen BEGIN=snmpCommunityEntry::createRow
-            if (coexistenceInfo == null) {
-                coexistenceInfo = Collections.synchronizedMap(new HashMap<Variable, SortedSet<SnmpCommunityEntryRow>>());
-            }
-            SortedSet<SnmpCommunityEntryRow> cinfos =
-                    coexistenceInfo.get(values[idxSnmpCommunityName]);
-            if (cinfos == null) {
-                cinfos = new TreeSet<SnmpCommunityEntryRow>(new RowIndexComparator());
-                coexistenceInfo.put(values[idxSnmpCommunityName], cinfos);
-            }
-            cinfos.add(row);
             if (communityInfo == null) {
                 communityInfo = Collections.synchronizedMap(new HashMap<Variable, List<SnmpCommunityEntryRow>>());
             }
@@ -412,14 +424,6 @@ public class SnmpCommunityMIB
 
         public synchronized void freeRow(SnmpCommunityEntryRow row) {
             //--AgentGen BEGIN=snmpCommunityEntry::freeRow
-            SortedSet<SnmpCommunityEntryRow> cinfos =
-                    coexistenceInfo.get(row.getValue(idxSnmpCommunityName));
-            if (cinfos != null) {
-                cinfos.remove(row);
-                if (cinfos.isEmpty()) {
-                    coexistenceInfo.remove(row.getValue(idxSnmpCommunityName));
-                }
-            }
             List<SnmpCommunityEntryRow> l =
                     communityInfo.get(row.getValue(idxSnmpCommunitySecurityName));
             if (l != null) {
@@ -447,26 +451,9 @@ public class SnmpCommunityMIB
 
         @Override
         public void setValue(int column, Variable value) {
-            if (column == idxSnmpCommunityName) {
-                SortedSet<SnmpCommunityEntryRow> cinfos = coexistenceInfo.get(getSnmpCommunityName());
-                if (cinfos != null) {
-                    for (SnmpCommunityEntryRow row : cinfos) {
-                        if (row.getIndex().equals(getIndex())) {
-                            cinfos.remove(row);
-                            break;
-                        }
-                    }
-                }
-            }
             super.setValue(column, value);
-            if (column == idxSnmpCommunityName) {
-                SortedSet<SnmpCommunityEntryRow> cinfos = coexistenceInfo.get(value);
-                if (cinfos == null) {
-                    cinfos = new TreeSet<SnmpCommunityEntryRow>();
-                    coexistenceInfo.put(values[idxSnmpCommunityName], cinfos);
-                }
-                cinfos.add(this);
-            }
+            // any column (including the row status) may change the coexistence information of the community
+            invalidateCoexistenceIndex();
         }
 
         public OctetString getSnmpCommunitySecurityName() {
@@ -559,6 +546,12 @@ public class SnmpCommunityMIB
             setValue(idxSnmpTargetAddrMMS, newValue);
         }
 
+        @Override
+        public void setValue(int column, Variable value) {
+            super.setValue(column, value);
+            invalidateSourceAddressFilters();
+        }
+
 
         //--AgentGen BEGIN=snmpTargetAddrExtEntry::RowFactory
         //--AgentGen END
@@ -567,44 +560,89 @@ public class SnmpCommunityMIB
 
 //--AgentGen BEGIN=_METHODS
 
+    /**
+     * Returns the coexistence information of the active snmpCommunityTable rows with the specified community name.
+     * The information is looked up in an immutable index that is built from the snmpCommunityTable on the first lookup
+     * after a change of that table and then replaced as a whole. Thus, if source address filtering is disabled, a
+     * lookup does not allocate any objects and the returned array and its elements are shared between lookups and
+     * must not be modified by the caller. If source address filtering is enabled, copies of the elements are returned
+     * because {@link #passesFilter(Address, CoexistenceInfo)} sets their maximum message size.
+     *
+     * @param community
+     *         the community name.
+     *
+     * @return the coexistence information in the order of the snmpCommunityTable or {@code null} if there is no active
+     * row for the community.
+     */
     public CoexistenceInfo[] getCoexistenceInfo(OctetString community) {
         if (logger.isDebugEnabled()) {
             logger.debug("Looking up coexistence info for '" + community + "'");
         }
-        if (coexistenceInfo == null) {
+        Map<OctetString, CoexistenceInfo[]> index = coexistenceIndex;
+        if (index == null) {
+            index = buildCoexistenceIndex();
+        }
+        CoexistenceInfo[] infos = index.get(community);
+        if (infos == null) {
             return null;
         }
-        SortedSet<SnmpCommunityEntryRow> cinfos = coexistenceInfo.get(community);
-        if (cinfos != null) {
-            // make a copy to improve consistency on concurrent access
-            SortedSet<SnmpCommunityEntryRow> cinfosCopy = new TreeSet<SnmpCommunityEntryRow>(cinfos);
-            ArrayList<CoexistenceInfo> infos = new ArrayList<CoexistenceInfo>(cinfosCopy.size());
-            for (SnmpCommunityEntryRow row : cinfosCopy) {
-                // check if cache is up-to-date:
-                SnmpCommunityEntryRow modelRow = getSnmpCommunityEntry().getModel().getRow(row.getIndex());
-                if (modelRow != row) {
-                    cinfos.remove(row);
-                    if (modelRow == null) {
-                        continue;
-                    }
-                    cinfos.add(modelRow);
-                    row = modelRow;
-                }
-                if (row.getSnmpCommunityStatus() == null || row.getSnmpCommunityStatus().getValue() != RowStatus.active) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Found coexistence info for '" + community + "'=" + Arrays.asList(infos));
+        }
+        if (isSourceAddressFiltering()) {
+            CoexistenceInfo[] copies = new CoexistenceInfo[infos.length];
+            for (int i = 0; i < infos.length; i++) {
+                copies[i] = new CoexistenceInfo(infos[i].getSecurityName(), infos[i].getContextEngineID(),
+                        infos[i].getContextName(), infos[i].getTransportTag());
+            }
+            return copies;
+        }
+        return infos;
+    }
+
+    /**
+     * Builds the community to coexistence information index from the active rows of the snmpCommunityTable while
+     * holding the monitor of its table model. Since the model fires its removal events while holding the same monitor
+     * and all other changes invalidate the index after the change, a stale index is never published.
+     *
+     * @return the new index.
+     */
+    private Map<OctetString, CoexistenceInfo[]> buildCoexistenceIndex() {
+        synchronized (snmpCommunityEntryModel) {
+            Map<OctetString, CoexistenceInfo[]> index = coexistenceIndex;
+            if (index != null) {
+                return index;
+            }
+            Map<OctetString, List<CoexistenceInfo>> infos = new HashMap<>();
+            for (Iterator<SnmpCommunityEntryRow> it = snmpCommunityEntryModel.iterator(); it.hasNext(); ) {
+                SnmpCommunityEntryRow row = it.next();
+                if (row.getSnmpCommunityStatus() == null ||
+                        row.getSnmpCommunityStatus().getValue() != RowStatus.active) {
                     continue;
                 }
-                CoexistenceInfo coexistenceInfo = new CoexistenceInfo(row.getSnmpCommunitySecurityName(),
-                        row.getSnmpCommunityContextEngineID(),
-                        row.getSnmpCommunityContextName(),
-                        row.getSnmpCommunityTransportTag());
-                infos.add(coexistenceInfo);
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Found coexistence info for '" + community + "'=" + coexistenceInfo);
-                }
+                infos.computeIfAbsent(row.getSnmpCommunityName(), k -> new ArrayList<>(1)).add(
+                        new CoexistenceInfo(row.getSnmpCommunitySecurityName(),
+                                row.getSnmpCommunityContextEngineID(),
+                                row.getSnmpCommunityContextName(),
+                                row.getSnmpCommunityTransportTag()));
+            }
+            index = new HashMap<>(infos.size() * 2);
+            for (Map.Entry<OctetString, List<CoexistenceInfo>> entry : infos.entrySet()) {
+                index.put(entry.getKey(), entry.getValue().toArray(new CoexistenceInfo[0]));
             }
-            return infos.toArray(new CoexistenceInfo[infos.size()]);
+            index = Collections.unmodifiableMap(index);
+            coexistenceIndex = index;
+            return index;
+        }
+    }
+
+    /**
+     * Discards the community to coexistence information index, so that it is rebuilt on the next lookup.
+     */
+    private void invalidateCoexistenceIndex() {
+        synchronized (snmpCommunityEntryModel) {
+            coexistenceIndex = null;
         }
-        return null;
     }
 
     /**
@@ -640,37 +678,107 @@ public class SnmpCommunityMIB
             }
             return true;
         }
-        Collection<SnmpTargetAddrEntryRow> matches =
-                targetMIB.getTargetAddrRowsForTag(coexistenceInfo.getTransportTag());
-        for (SnmpTargetAddrEntryRow row : matches) {
-            SnmpTargetAddrExtEntryRow extRow =
-                    snmpTargetAddrExtEntryModel.getRow(row.getIndex());
-            OctetString filterTAddress =
-                    (OctetString) row.getValue(SnmpTargetMIB.idxSnmpTargetAddrTAddress);
-            if (extRow != null) {
-                OctetString mask = extRow.getSnmpTargetAddrTMask();
-                OctetString matchAddress = row.getTAddress(address);
-                if ((mask.length() == 0) &&
-                        (matchAddress != null) && (matchAddress.equals(filterTAddress))) {
-                    coexistenceInfo.setMaxMessageSize(
-                            extRow.getSnmpTargetAddrMMS().getValue());
-                    return true;
-                } else if ((matchAddress != null) &&
-                        (mask.length() == matchAddress.length()) &&
-                        (matchAddress.length() == filterTAddress.length())) {
-                    OctetString maskedFilterTAddress = filterTAddress.mask(mask);
-                    OctetString maskedMatchTAddress = matchAddress.mask(mask);
-                    if (maskedFilterTAddress.equals(maskedMatchTAddress)) {
-                        coexistenceInfo.setMaxMessageSize(
-                                extRow.getSnmpTargetAddrMMS().getValue());
-                        return true;
-                    }
+        SourceAddressFilters filters = sourceAddressFilters;
+        if ((filters == null) || (filters.generation != sourceAddressFilterGeneration.get())) {
+            filters = buildSourceAddressFilters();
+        }
+        TransportDomainFilter[] domainFilters = filters.filtersByTag.get(coexistenceInfo.getTransportTag());
+        if (domainFilters == null) {
+            return false;
+        }
+        SourceAddressFilterEntry match = null;
+        for (TransportDomainFilter domainFilter : domainFilters) {
+            OctetString matchAddress = domainFilter.targetAddrRow.getTAddress(address);
+            if (matchAddress == null) {
+                continue;
+            }
+            byte[] matchBytes = matchAddress.getValue();
+            // the entries are ordered by decreasing specificity, thus the first match is the longest prefix match
+            for (SourceAddressFilterEntry entry : domainFilter.entries) {
+                if ((match != null) && (entry.prefixLength <= match.prefixLength)) {
+                    break;
+                }
+                if (entry.matches(matchBytes)) {
+                    match = entry;
+                    break;
                 }
             }
         }
+        if (match != null) {
+            coexistenceInfo.setMaxMessageSize(match.maxMessageSize);
+            return true;
+        }
         return false;
     }
 
+    /**
+     * Compiles the source address filters of all transport tags from the snmpTargetAddrTable and the
+     * snmpTargetAddrExtTable while holding the monitors of both table models. Since the models fire their removal
+     * events while holding their monitor and all other changes invalidate the filters after the change, the compiled
+     * filters are never based on a partially applied change.
+     *
+     * @return the compiled filters.
+     */
+    private SourceAddressFilters buildSourceAddressFilters() {
+        DefaultMOMutableTableModel<SnmpTargetAddrEntryRow> targetAddrEntryModel =
+                targetMIB.getSnmpTargetAddrEntryModel();
+        synchronized (targetAddrEntryModel) {
+            synchronized (snmpTargetAddrExtEntryModel) {
+                long generation = sourceAddressFilterGeneration.get();
+                SourceAddressFilters filters = sourceAddressFilters;
+                if ((filters != null) && (filters.generation == generation)) {
+                    return filters;
+                }
+                Map<OctetString, Map<OID, List<SourceAddressFilterEntry>>> entriesByTag = new HashMap<>();
+                Map<OctetString, Map<OID, SnmpTargetAddrEntryRow>> rowsByTag = new HashMap<>();
+                for (Iterator<SnmpTargetAddrEntryRow> it = targetAddrEntryModel.iterator(); it.hasNext(); ) {
+                    SnmpTargetAddrEntryRow row = it.next();
+                    SnmpTargetAddrExtEntryRow extRow = snmpTargetAddrExtEntryModel.getRow(row.getIndex());
+                    OctetString tagList = (OctetString) row.getValue(SnmpTargetMIB.idxSnmpTargetAddrTagList);
+                    OID tDomain = (OID) row.getValue(SnmpTargetMIB.idxSnmpTargetAddrTDomain);
+                    OctetString tAddress = (OctetString) row.getValue(SnmpTargetMIB.idxSnmpTargetAddrTAddress);
+                    if ((extRow == null) || (tagList == null) || (tDomain == null) || (tAddress == null)) {
+                        continue;
+                    }
+                    SourceAddressFilterEntry entry =
+                            new SourceAddressFilterEntry(tAddress, extRow.getSnmpTargetAddrTMask(),
+                                    extRow.getSnmpTargetAddrMMS().getValue());
+                    for (OctetString tag : SnmpTagList.getTags(tagList)) {
+                        entriesByTag.computeIfAbsent(tag, k -> new LinkedHashMap<>()).
+                                computeIfAbsent(tDomain, k -> new ArrayList<>()).add(entry);
+                        rowsByTag.computeIfAbsent(tag, k -> new HashMap<>()).putIfAbsent(tDomain, row);
+                    }
+                }
+                Map<OctetString, TransportDomainFilter[]> filtersByTag = new HashMap<>(entriesByTag.size() * 2);
+                for (Map.Entry<OctetString, Map<OID, List<SourceAddressFilterEntry>>> tagEntry :
+                        entriesByTag.entrySet()) {
+                    List<TransportDomainFilter> domainFilters = new ArrayList<>(tagEntry.getValue().size());
+                    for (Map.Entry<OID, List<SourceAddressFilterEntry>> domainEntry :
+                            tagEntry.getValue().entrySet()) {
+                        List<SourceAddressFilterEntry> entries = domainEntry.getValue();
+                        // stable sort: equally specific entries keep the order of the snmpTargetAddrTable
+                        entries.sort((a, b) -> Integer.compare(b.prefixLength, a.prefixLength));
+                        domainFilters.add(new TransportDomainFilter(
+                                rowsByTag.get(tagEntry.getKey()).get(domainEntry.getKey()),
+                                entries.toArray(new SourceAddressFilterEntry[0])));
+                    }
+                    filtersByTag.put(tagEntry.getKey(), domainFilters.toArray(new TransportDomainFilter[0]));
+                }
+                filters = new SourceAddressFilters(generation, filtersByTag);
+                sourceAddressFilters = filters;
+                return filters;
+            }
+        }
+    }
+
+    /**
+     * Marks the compiled source address filters as outdated, so that they are rebuilt on the next call of {@link
+     * #passesFilter(Address, CoexistenceInfo)}.
+     */
+    private void invalidateSourceAddressFilters() {
+        sourceAddressFilterGeneration.incrementAndGet();
+    }
+
     /**
      * Enables or disables source address filtering for incoming SNMPv1 or SNMPv2c packets. By default source address
      * filtering is disabled! If enabled, only messages received for community based security models are processed, that
@@ -784,6 +892,86 @@ public class SnmpCommunityMIB
     //--AgentGen END
 
 //--AgentGen BEGIN=_CLASSES
+
+    /**
+     * The immutable source address filters of all transport tags compiled from a given generation of the
+     * snmpTargetAddrTable and snmpTargetAddrExtTable.
+     */
+    private static final class SourceAddressFilters {
+        private final long generation;
+        private final Map<OctetString, TransportDomainFilter[]> filtersByTag;
+
+        private SourceAddressFilters(long generation, Map<OctetString, TransportDomainFilter[]> filtersByTag) {
+            this.generation = generation;
+            this.filtersByTag = filtersByTag;
+        }
+    }
+
+    /**
+     * The source address filter entries of a transport tag that share the same transport domain. The transport
+     * address of an incoming message is computed once per domain through a representative row of that domain.
+     */
+    private static final class TransportDomainFilter {
+        private final SnmpTargetAddrEntryRow targetAddrRow;
+        private final SourceAddressFilterEntry[] entries;
+
+        private TransportDomainFilter(SnmpTargetAddrEntryRow targetAddrRow, SourceAddressFilterEntry[] entries) {
+            this.targetAddrRow = targetAddrRow;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * A compiled snmpTargetAddrTAddress and snmpTargetAddrTMask pair. An empty mask requires an exact match of the
+     * transport address, otherwise mask, filter address, and transport address must have the same length and the
+     * address bits selected by the mask must be equal.
+     */
+    private static final class SourceAddressFilterEntry {
+        private final byte[] maskedAddress;
+        private final byte[] mask;
+        private final int prefixLength;
+        private final int maxMessageSize;
+
+        private SourceAddressFilterEntry(OctetString tAddress, OctetString tMask, int maxMessageSize) {
+            this.maxMessageSize = maxMessageSize;
+            byte[] address = tAddress.toByteArray();
+            if (tMask.length() == 0) {
+                this.mask = null;
+                this.maskedAddress = address;
+                // an exact match is more specific than any mask
+                this.prefixLength = Integer.MAX_VALUE;
+            } else if (tMask.length() != address.length) {
+                // cannot match any address
+                this.mask = tMask.toByteArray();
+                this.maskedAddress = null;
+                this.prefixLength = -1;
+            } else {
+                this.mask = tMask.toByteArray();
+                this.maskedAddress = new byte[address.length];
+                int bits = 0;
+                for (int i = 0; i < address.length; i++) {
+                    maskedAddress[i] = (byte) (address[i] & mask[i]);
+                    bits += Integer.bitCount(mask[i] & 0xFF);
+                }
+                this.prefixLength = bits;
+            }
+        }
+
+        private boolean matches(byte[] address) {
+            if ((maskedAddress == null) || (address.length != maskedAddress.length)) {
+                return false;
+            }
+            if (mask == null) {
+                return Arrays.equals(maskedAddress, address);
+            }
+            for (int i = 0; i < address.length; i++) {
+                if ((address[i] & mask[i]) != maskedAddress[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 //--AgentGen END
 
 //--AgentGen BEGIN=_END
@@ -29,10 +29,9 @@ import org.snmp4j.mp.SnmpConstants;
 import org.snmp4j.agent.*;
 import org.snmp4j.agent.mo.*;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.TreeMap;
 
 import org.snmp4j.log.LogAdapter;
 import org.snmp4j.log.LogFactory;
@@ -307,28 +306,45 @@ public class SnmpNotificationMIB implements MOGroup {
         };
         List<DefaultMOMutableRow2PC> profiles =
                 snmpNotifyFilterProfileEntryModel.getRows(null, null, selectFilter);
-        return passesFilter(notificationID, vbs, profiles);
+        if (profiles.size() == 0) {
+            // no profile -> passes filter
+            return true;
+        }
+        return compileNotifyFilter(filterName).passesFilter(notificationID, vbs);
     }
 
     public boolean passesFilter(OID paramsIndex, OID notificationID,
                                 VariableBinding[] vbs) {
+        NotifyFilter notifyFilter = getNotifyFilter(paramsIndex);
+        return (notifyFilter == null) || notifyFilter.passesFilter(notificationID, vbs);
+    }
+
+    /**
+     * Returns the notification filter of the active filter profile associated with the specified
+     * snmpTargetParamsTable row. The returned filter is a snapshot of the snmpNotifyFilterTable rows of the profile
+     * and is not updated when the table changes.
+     *
+     * @param paramsIndex
+     *         the index of a snmpTargetParamsTable row.
+     *
+     * @return the filter or {@code null} if there is no active profile for the parameters and thus all notifications
+     * pass.
+     * @since 3.4.0
+     */
+    public NotifyFilter getNotifyFilter(OID paramsIndex) {
         MOTableRowFilter<DefaultMOMutableRow2PC> activeFilter =
                 new RowStatus.ActiveRowsFilter<DefaultMOMutableRow2PC>(idxSnmpNotifyFilterProfileRowStatus);
         List<DefaultMOMutableRow2PC> profiles =
                 snmpNotifyFilterProfileEntryModel.getRows(paramsIndex,
                         paramsIndex.successor(),
                         activeFilter);
-        return passesFilter(notificationID, vbs, profiles);
-    }
-
-    private boolean passesFilter(OID notificationID, VariableBinding[] vbs,
-                                 List<DefaultMOMutableRow2PC> profiles) {
         if (profiles.size() == 0) {
-            // no profile -> passes filter
-            return true;
+            return null;
         }
-        OctetString profileName = (OctetString)
-                (profiles.get(0)).getValue(idxSnmpNotifyFilterProfileName);
+        return compileNotifyFilter((OctetString) (profiles.get(0)).getValue(idxSnmpNotifyFilterProfileName));
+    }
+
+    private NotifyFilter compileNotifyFilter(OctetString profileName) {
         OID profileNameOID = profileName.toSubIndex(false);
         OID profileNameOIDNext = profileNameOID.nextPeer();
         MOTableRowFilter<DefaultMOMutableRow2PC> activeFilter =
@@ -337,78 +353,163 @@ public class SnmpNotificationMIB implements MOGroup {
                 snmpNotifyFilterEntryModel.getRows(profileNameOID,
                         profileNameOIDNext,
                         activeFilter);
-        if (filters.size() == 0) {
-            // no filters -> no trap is sent
-            return false;
-        }
-        TreeMap<OID, Integer32> oidMatches = new TreeMap<OID, Integer32>();
-        List<TreeMap<OID, Integer32>> vbMatches = new ArrayList<TreeMap<OID, Integer32>>(vbs.length);
+        OID[] subtrees = new OID[filters.size()];
+        OctetString[] masks = new OctetString[filters.size()];
+        boolean[] included = new boolean[filters.size()];
+        Integer[] order = new Integer[filters.size()];
+        int n = 0;
         for (MOTableRow row : filters) {
             Variable[] indexValues =
                     snmpNotifyFilterEntryIndex.getIndexValues(row.getIndex());
-            OID subtree = (OID) indexValues[idxSnmpNotifyFilterSubtree];
-            OctetString mask = (OctetString) row.getValue(idxSnmpNotifyFilterMask);
-            Integer32 type = (Integer32) row.getValue(idxSnmpNotifyFilterType);
-            OID subtreeWithLength = new OID();
-            subtreeWithLength.append(subtree.size());
-            subtreeWithLength.append(subtree);
-            if (isInSubtree(notificationID, subtree, mask)) {
-                oidMatches.put(subtreeWithLength, type);
+            subtrees[n] = (OID) indexValues[idxSnmpNotifyFilterSubtree];
+            masks[n] = (OctetString) row.getValue(idxSnmpNotifyFilterMask);
+            included[n] = ((Integer32) row.getValue(idxSnmpNotifyFilterType)).getValue() ==
+                    SnmpNotifyFilterTypeEnum.included;
+            order[n] = n;
+            n++;
+        }
+        // the longest and then lexicographically largest matching subtree determines the filter type (RFC 3413)
+        Arrays.sort(order, (a, b) -> {
+            int c = Integer.compare(subtrees[a].size(), subtrees[b].size());
+            return (c != 0) ? c : subtrees[a].compareTo(subtrees[b]);
+        });
+        return new NotifyFilter(profileName, subtrees, masks, included, order);
+    }
+
+    /**
+     * A {@code NotifyFilter} is an immutable snapshot of the snmpNotifyFilterTable rows of a filter profile. A
+     * notification passes the filter if the most specific filter subtree matching its notification ID is included
+     * and the most specific subtree matching the OID of any of its variable bindings is not excluded.
+     *
+     * @since 3.4.0
+     */
+    public static final class NotifyFilter {
+
+        private final OctetString profileName;
+        private final OID[] maskedSubtrees;
+        private final OctetString[] masks;
+        private final boolean[] included;
+
+        private NotifyFilter(OctetString profileName, OID[] subtrees, OctetString[] masks, boolean[] included,
+                             Integer[] order) {
+            this.profileName = profileName;
+            this.maskedSubtrees = new OID[order.length];
+            this.masks = new OctetString[order.length];
+            this.included = new boolean[order.length];
+            for (int i = 0; i < order.length; i++) {
+                this.masks[i] = masks[order[i]];
+                this.maskedSubtrees[i] = subtrees[order[i]].mask(masks[order[i]]);
+                this.included[i] = included[order[i]];
             }
-            // filter VBs
-            for (int i = 0; i < vbs.length; i++) {
-                if (isInSubtree(vbs[i].getOid(), subtree, mask)) {
-                    if ((vbMatches.size() > i) && (vbMatches.get(i) == null)) {
-                        vbMatches.set(i, new TreeMap<OID, Integer32>());
-                    } else if (vbMatches.size() <= i) {
-                        for (int j = 0; j <= i - vbMatches.size(); j++) {
-                            vbMatches.add(new TreeMap<OID, Integer32>());
-                        }
-                    } else {
-                        vbMatches.get(i).put(subtreeWithLength, type);
-                    }
+        }
+
+        /**
+         * Returns the position of the most specific filter subtree matching the supplied OID.
+         *
+         * @param oid
+         *         an OID.
+         *
+         * @return the position or -1 if no subtree matches.
+         */
+        private int match(OID oid) {
+            for (int i = maskedSubtrees.length - 1; i >= 0; i--) {
+                if (oid.mask(masks[i]).startsWith(maskedSubtrees[i])) {
+                    return i;
                 }
             }
+            return -1;
         }
-        if (oidMatches.size() == 0) {
-            // no matches against notification ID
-            if (logger.isInfoEnabled()) {
-                logger.info("Filter " + profileName +
-                        " has no matches for notification ID " +
-                        notificationID);
+
+        /**
+         * Checks whether the specified notification ID is included by this filter.
+         *
+         * @param notificationID
+         *         a notification ID.
+         *
+         * @return {@code true} if the most specific matching subtree is included.
+         */
+        public boolean passesNotificationID(OID notificationID) {
+            if (maskedSubtrees.length == 0) {
+                // no filters -> no trap is sent
+                return false;
             }
-            return false;
-        } else if ((oidMatches.get(oidMatches.lastKey())).getValue() ==
-                SnmpNotifyFilterTypeEnum.excluded) {
-            if (logger.isInfoEnabled()) {
-                logger.info("Notification ID " + notificationID +
-                        " is excluded from filter " + profileName);
+            int match = match(notificationID);
+            if (match < 0) {
+                // no matches against notification ID
+                if (logger.isInfoEnabled()) {
+                    logger.info("Filter " + profileName +
+                            " has no matches for notification ID " +
+                            notificationID);
+                }
+                return false;
+            } else if (!included[match]) {
+                if (logger.isInfoEnabled()) {
+                    logger.info("Notification ID " + notificationID +
+                            " is excluded from filter " + profileName);
+                }
+                return false;
             }
-            return false;
+            return true;
         }
-        for (int i = 0; i < vbMatches.size(); i++) {
-            TreeMap<OID, Integer32> vbMatch = vbMatches.get(i);
-            if ((vbMatch != null) && (vbMatch.size() > 0)) {
-                if ((vbMatches.get(i).get(vbMatch.lastKey())).getValue() ==
-                        SnmpNotifyFilterTypeEnum.excluded) {
+
+        /**
+         * Checks whether none of the specified variable bindings is excluded by this filter.
+         *
+         * @param vbs
+         *         the variable bindings of a notification.
+         *
+         * @return {@code false} if the most specific subtree matching any of the variable binding OIDs is excluded.
+         */
+        public boolean passesVariableBindings(VariableBinding[] vbs) {
+            for (VariableBinding vb : vbs) {
+                int match = match(vb.getOid());
+                if ((match >= 0) && !included[match]) {
                     if (logger.isInfoEnabled()) {
-                        logger.info("Variable binding " + vbs[i] +
+                        logger.info("Variable binding " + vb +
                                 " is not in filter " + profileName);
                     }
                     return false;
                 }
             }
+            return true;
         }
-        return true;
-    }
 
-    private static boolean isInSubtree(OID oid, OID subtree, OctetString mask) {
-        OID maskedSubtree = subtree.mask(mask);
-        OID maskedOID = oid.mask(mask);
-        if (maskedOID.equals(maskedSubtree)) {
-            return true;
+        /**
+         * Checks whether a notification passes this filter.
+         *
+         * @param notificationID
+         *         the notification ID.
+         * @param vbs
+         *         the variable bindings of the notification.
+         *
+         * @return {@code true} if the notification passes the filter.
+         */
+        public boolean passesFilter(OID notificationID, VariableBinding[] vbs) {
+            return passesNotificationID(notificationID) && passesVariableBindings(vbs);
+        }
+
+        /**
+         * Checks whether variable bindings can be excluded by this filter.
+         *
+         * @return {@code true} if this filter has an excluded subtree.
+         */
+        public boolean hasExcludedSubtrees() {
+            for (boolean include : included) {
+                if (!include) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public OctetString getProfileName() {
+            return profileName;
+        }
+
+        @Override
+        public String toString() {
+            return "NotifyFilter[profileName=" + profileName + ",subtrees=" + Arrays.asList(maskedSubtrees) + "]";
         }
-        return maskedOID.startsWith(maskedSubtree);
     }
 
     // Enumerations
@@ -947,6 +947,16 @@ public class SnmpTargetMIB implements MOGroup, CounterListener, MOTableRowListen
         return snmpTargetAddrEntry;
     }
 
+    /**
+     * Returns the table model of the snmpTargetAddrTable.
+     *
+     * @return the snmpTargetAddrTable model.
+     * @since 3.4.0
+     */
+    DefaultMOMutableTableModel<SnmpTargetAddrEntryRow> getSnmpTargetAddrEntryModel() {
+        return snmpTargetAddrEntryModel;
+    }
+
     @SuppressWarnings("rawtypes")
     public DefaultMOTable<DefaultMOMutableRow2PC, MOColumn, DefaultMOMutableTableModel<DefaultMOMutableRow2PC>>
     getSnmpTargetParamsEntry() {
@@ -22,6 +22,8 @@
 package org.snmp4j.agent.mo.snmp;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.snmp4j.log.*;
 import org.snmp4j.agent.*;
@@ -36,6 +38,14 @@ import org.snmp4j.smi.*;
  * This concrete implementation of the SNMP-VIEW-BASED-ACM-MIB (RFC 3415). The configuration of the view access model
  * can be changed programatically (see {@link MutableVACM}) or via SNMP but an initial configuration must be created
  * programatically in order to allow any access to the agent via SNMP.
+ * <p>
+ * The view tree families of each view are compiled into an immutable {@link VacmViewTree} on first use, so that
+ * {@link #isAccessAllowed(OctetString, OID)} neither copies nor decodes table rows. A compiled view is discarded
+ * when a row of that view is added, removed, or updated in the vacmViewTreeFamilyTable.
+ * <p>
+ * Likewise, the view names resolved by {@link #getViewName(OctetString, OctetString, int, int, int)} are cached
+ * per context, security name, security model, security level, and view type. The cache is invalidated whenever
+ * the vacmSecurityToGroupTable, the vacmAccessTable, or the context set of the servers changes.
  *
  * @author Frank Fock
  * @version 3.0
@@ -167,6 +177,17 @@ public class VacmMIB implements MOGroup, MutableVACM {
     private DefaultMOTable<DefaultMOMutableRow2PC, MOColumn, DefaultMOMutableTableModel<DefaultMOMutableRow2PC>>
             vacmViewTreeFamilyTable;
     private DefaultMOMutableTableModel<DefaultMOMutableRow2PC> vacmViewTreeFamilyTableModel;
+    private final Map<OctetString, VacmViewTree> compiledViews = new ConcurrentHashMap<>();
+
+    /**
+     * The default maximum number of view name resolutions cached by a {@code VacmMIB}.
+     * @since 3.4.0
+     */
+    public static final int DEFAULT_VIEW_NAME_CACHE_SIZE = 4096;
+
+    private final Map<ViewNameKey, ViewNameResolution> viewNameCache = new ConcurrentHashMap<>();
+    private final AtomicLong viewNameCacheGeneration = new AtomicLong();
+    private volatile int viewNameCacheSize = DEFAULT_VIEW_NAME_CACHE_SIZE;
 
 
     public VacmMIB(MOServer[] server) {
@@ -176,6 +197,14 @@ public class VacmMIB implements MOGroup, MutableVACM {
         createVacmAccessTable();
         createVacmViewTreeFamilyTable();
         vacmViewSpinLock = new TestAndIncr(vacmViewSpinLockOID);
+        ViewNameCacheInvalidator viewNameCacheInvalidator = new ViewNameCacheInvalidator();
+        vacmSecurityToGroupTableModel.addMOTableModelListener(viewNameCacheInvalidator);
+        vacmSecurityToGroupTable.addMOTableRowListener(viewNameCacheInvalidator);
+        vacmAccessTableModel.addMOTableModelListener(viewNameCacheInvalidator);
+        vacmAccessTable.addMOTableRowListener(viewNameCacheInvalidator);
+        for (MOServer s : server) {
+            s.addContextListener(viewNameCacheInvalidator);
+        }
     }
 
     public void registerMOs(MOServer server, OctetString context) throws
@@ -285,6 +314,9 @@ public class VacmMIB implements MOGroup, MutableVACM {
         vacmViewTreeFamilyTableModel = new DefaultMOMutableTableModel<>();
         vacmViewTreeFamilyTableModel.setRowFactory(new DefaultMOMutableRow2PCFactory());
         vacmViewTreeFamilyTable.setModel(vacmViewTreeFamilyTableModel);
+        ViewTreeFamilyListener viewTreeFamilyListener = new ViewTreeFamilyListener();
+        vacmViewTreeFamilyTableModel.addMOTableModelListener(viewTreeFamilyListener);
+        vacmViewTreeFamilyTable.addMOTableRowListener(viewTreeFamilyListener);
     }
 
     public void unregisterMOs(MOServer server, OctetString context) {
@@ -313,17 +345,15 @@ public class VacmMIB implements MOGroup, MutableVACM {
             }
             return VACM.VACM_NO_SUCH_CONTEXT;
         }
-        OctetString groupName = getGroupName(securityName, securityModel);
-        if (groupName == null) {
+        ViewNameResolution resolution = resolveViewName(context, securityName, securityModel, securityLevel, viewType);
+        if (resolution.groupName == null) {
             if (logger.isDebugEnabled()) {
                 logger.debug("No group name for securityName=" + securityName +
                         " and securityModel=" + securityModel);
             }
             return VACM.VACM_NO_GROUP_NAME;
         }
-        OctetString viewName = getViewNameByGroup(context, securityModel,
-                securityLevel, viewType,
-                groupName);
+        OctetString viewName = resolution.viewName;
         if (viewName == null) {
             return VACM.VACM_NO_ACCESS_ENTRY;
         }
@@ -349,12 +379,80 @@ public class VacmMIB implements MOGroup, MutableVACM {
                                    int securityModel,
                                    int securityLevel,
                                    int viewType) {
+        return resolveViewName(context, securityName, securityModel, securityLevel, viewType).viewName;
+    }
+
+    /**
+     * Resolves the group and view name for the supplied parameters from the view name cache or, if not cached
+     * (or invalidated since), from the vacmSecurityToGroupTable and the vacmAccessTable.
+     * <p>
+     * A resolution is stamped with the cache generation read before the tables are read. Since the table models
+     * fire their events (that increment the generation) either after a modification or before it while holding
+     * their monitor, a resolution based on outdated rows is never returned from the cache.
+     *
+     * @return the resolution whose group and/or view name may be {@code null}.
+     */
+    private ViewNameResolution resolveViewName(OctetString context, OctetString securityName,
+                                               int securityModel, int securityLevel, int viewType) {
+        int maxCacheSize = viewNameCacheSize;
+        long generation = viewNameCacheGeneration.get();
+        ViewNameKey key = null;
+        if (maxCacheSize > 0) {
+            key = new ViewNameKey(context, securityName, securityModel, securityLevel, viewType);
+            ViewNameResolution cached = viewNameCache.get(key);
+            if ((cached != null) && (cached.generation == generation)) {
+                return cached;
+            }
+        }
         OctetString groupName = getGroupName(securityName, securityModel);
-        if (groupName == null) {
-            return null;
+        OctetString viewName = (groupName == null) ? null :
+                getViewNameByGroup(context, securityModel, securityLevel, viewType, groupName);
+        ViewNameResolution resolution = new ViewNameResolution(generation, groupName, viewName);
+        if (key != null) {
+            if (viewNameCache.size() >= maxCacheSize) {
+                viewNameCache.clear();
+            }
+            // copy the key values because the caller might modify them afterwards
+            viewNameCache.put(new ViewNameKey((context == null) ? null : new OctetString(context),
+                    (securityName == null) ? null : new OctetString(securityName),
+                    securityModel, securityLevel, viewType), resolution);
         }
-        return getViewNameByGroup(context, securityModel, securityLevel,
-                viewType, groupName);
+        return resolution;
+    }
+
+    /**
+     * Discards all cached view name resolutions. This is done automatically when the rows of the
+     * vacmSecurityToGroupTable or the vacmAccessTable are added, removed, or updated through the table or its
+     * model, and when a context is added or removed.
+     *
+     * @since 3.4.0
+     */
+    public void invalidateViewNameCache() {
+        viewNameCacheGeneration.incrementAndGet();
+        viewNameCache.clear();
+    }
+
+    /**
+     * Returns the maximum number of view name resolutions cached by this VACM.
+     *
+     * @return the maximum view name cache size, {@code 0} if the cache is disabled.
+     * @since 3.4.0
+     */
+    public int getViewNameCacheSize() {
+        return viewNameCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of view name resolutions cached by this VACM. If the cache is full, it is cleared
+     * before a new resolution is added.
+     *
+     * @param viewNameCacheSize
+     *         the maximum number of cached view name resolutions, {@code 0} disables the cache.
+     * @since 3.4.0
+     */
+    public void setViewNameCacheSize(int viewNameCacheSize) {
+        this.viewNameCacheSize = Math.max(0, viewNameCacheSize);
+        invalidateViewNameCache();
     }
 
     private OctetString getViewNameByGroup(OctetString context, int securityModel,
@@ -471,58 +569,98 @@ public class VacmMIB implements MOGroup, MutableVACM {
     }
 
     public int isAccessAllowed(OctetString viewName, OID oid) {
-        List<MOTableRow> views = getViews(viewName);
-        if (views.size() == 0) {
-            if (logger.isDebugEnabled()) {
-                logger.debug("No view tree family entry for view '" + viewName + "'");
+        VacmViewTree view = getViewTree(viewName);
+        if (!logger.isDebugEnabled()) {
+            return view.isAccessAllowed(oid);
+        }
+        VacmViewTree.Node family = view.getMatchingFamily(oid);
+        if (view == VacmViewTree.NO_SUCH_VIEW) {
+            logger.debug("No view tree family entry for view '" + viewName + "'");
+        } else if (family != null) {
+            logger.debug("Access " + (family.isIncluded() ? "allowed" : "denied") + " for view '" + viewName +
+                    "' by subtree " + family.getSubtree() + " for OID " + oid + " and mask " +
+                    family.getMask().toHexString());
+        }
+        return view.isAccessAllowed(oid);
+    }
+
+    /**
+     * Returns a lower bound for the next OID within the specified view after an OID that is not in the view,
+     * based on the compiled view tree families of the view (see {@link VacmViewTree#getNextPermittedBound(OID)}).
+     *
+     * @param viewName
+     *         the view name.
+     * @param oid
+     *         an OID that is not in the view.
+     *
+     * @return an OID greater than {@code oid} or {@code null} if no OID greater than {@code oid} is in the view.
+     * @since 3.4.0
+     */
+    @Override
+    public OID getNextPermittedBound(OctetString viewName, OID oid) {
+        return getViewTree(viewName).getNextPermittedBound(oid);
+    }
+
+    /**
+     * Returns the compiled view tree of the specified view. If the view has not been compiled yet (or has been
+     * modified since), it is compiled from the rows returned by {@link #getViews(OctetString)} while holding the
+     * monitor of the view tree family table model. Since the model fires its events while holding the same
+     * monitor, a compilation never interleaves with a structural modification of the table.
+     *
+     * @param viewName
+     *         the view name.
+     *
+     * @return the compiled view, {@link VacmViewTree#NO_SUCH_VIEW} if the view has no view tree families.
+     */
+    private VacmViewTree getViewTree(OctetString viewName) {
+        if (viewName.length() == 0) {
+            return VacmViewTree.NO_SUCH_VIEW;
+        }
+        VacmViewTree view = compiledViews.get(viewName);
+        if (view == null) {
+            synchronized (vacmViewTreeFamilyTableModel) {
+                view = compiledViews.get(viewName);
+                if (view == null) {
+                    view = compileView(viewName);
+                    compiledViews.put(new OctetString(viewName), view);
+                }
             }
-            return VACM.VACM_NO_SUCH_VIEW;
         }
-        // iterate from back to forth because the views list must be ordered by
-        // subtree length (view name is the same for all entries) which is the
-        // criteria to find the appropriate view access entry.
-        for (int v = views.size() - 1; v >= 0; v--) {
-            MOTableRow row = views.get(v);
-            if (((Integer32) row.getValue(idxVacmViewTreeFamilyRowStatus)).getValue() !=
-                    RowStatus.active) {
+        return view;
+    }
+
+    private VacmViewTree compileView(OctetString viewName) {
+        VacmViewTree.Builder builder = new VacmViewTree.Builder();
+        // the rows are ordered by subtree length and then lexicographically which is the order of precedence
+        for (MOTableRow row : getViews(viewName)) {
+            builder.setViewExists();
+            if (((Integer32) row.getValue(idxVacmViewTreeFamilyRowStatus)).getValue() != RowStatus.active) {
                 // only active rows are relevant
                 continue;
             }
-            OID index = row.getIndex();
-            Variable[] indexValues = vacmViewTreeFamilyIndex.getIndexValues(index);
-            OID subtree = (OID) indexValues[idxVacmViewTreeSubtree];
-            if (oid.size() < subtree.size()) {
-                // no match
-                continue;
-            }
-            OctetString mask = (OctetString) row.getValue(idxVacmViewTreeFamilyMask);
-            boolean match = true;
-            for (int i = 0; i < subtree.size(); i++) {
-                if ((subtree.get(i) != oid.get(i)) && isBitSet(i, mask)) {
-                    match = false;
-                    break;
-                }
-            }
-            if (match) {
-                // we found the matching entry
-                if (((Integer32) row.getValue(idxVacmViewTreeFamilyType)).getValue() ==
-                        vacmViewIncluded) {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Access allowed for view '" + viewName + "' by subtree " +
-                                subtree + " for OID " + oid + " and mask " + mask.toHexString());
-                    }
-                    return VACM.VACM_OK;
-                } else {
-                    // excluded
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Access denied for view '" + viewName + "' by subtree " +
-                                subtree + " for OID " + oid + " and mask " + mask.toHexString());
-                    }
-                    return VACM.VACM_NOT_IN_VIEW;
-                }
+            Variable[] indexValues = vacmViewTreeFamilyIndex.getIndexValues(row.getIndex());
+            builder.add((OID) indexValues[idxVacmViewTreeSubtree],
+                    (OctetString) row.getValue(idxVacmViewTreeFamilyMask),
+                    ((Integer32) row.getValue(idxVacmViewTreeFamilyType)).getValue() == vacmViewIncluded);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Discards the compiled view tree of the view the supplied vacmViewTreeFamilyTable row belongs to.
+     *
+     * @param row
+     *         a row of the vacmViewTreeFamilyTable or {@code null} to discard all compiled views.
+     */
+    private void invalidateViewTree(MOTableRow row) {
+        synchronized (vacmViewTreeFamilyTableModel) {
+            if (row == null) {
+                compiledViews.clear();
+            } else {
+                Variable[] indexValues = vacmViewTreeFamilyIndex.getIndexValues(row.getIndex());
+                compiledViews.remove((OctetString) indexValues[0]);
             }
         }
-        return VACM.VACM_NOT_IN_VIEW;
     }
 
     /**
@@ -766,6 +904,114 @@ public class VacmMIB implements MOGroup, MutableVACM {
         return vacmViewTreeFamilyTableModel.getRows(lowerOID, upperOID);
     }
 
+    /**
+     * Discards compiled views when view tree families are added, removed, or updated.
+     */
+    private class ViewTreeFamilyListener implements MOTableModelListener, MOTableRowListener<DefaultMOMutableRow2PC> {
+
+        @Override
+        public void tableModelChanged(MOTableModelEvent changeEvent) {
+            switch (changeEvent.getType()) {
+                case MOTableModelEvent.ROW_ADDED:
+                case MOTableModelEvent.ROW_REMOVED:
+                case MOTableModelEvent.ROW_CHANGED:
+                    invalidateViewTree(changeEvent.getAffectedRow());
+                    break;
+                default:
+                    invalidateViewTree(null);
+            }
+        }
+
+        @Override
+        public void rowChanged(MOTableRowEvent<DefaultMOMutableRow2PC> event) {
+            if (event.getType() == MOTableRowEvent.UPDATED) {
+                invalidateViewTree(event.getRow());
+            }
+        }
+    }
+
+    /**
+     * Invalidates the view name cache when security to group mappings, access entries, or contexts change.
+     */
+    private class ViewNameCacheInvalidator
+            implements MOTableModelListener, MOTableRowListener<DefaultMOMutableRow2PC>, ContextListener {
+
+        @Override
+        public void tableModelChanged(MOTableModelEvent changeEvent) {
+            invalidateViewNameCache();
+        }
+
+        @Override
+        public void rowChanged(MOTableRowEvent<DefaultMOMutableRow2PC> event) {
+            if (event.getType() == MOTableRowEvent.UPDATED) {
+                invalidateViewNameCache();
+            }
+        }
+
+        @Override
+        public void contextChanged(ContextEvent event) {
+            invalidateViewNameCache();
+        }
+    }
+
+    /**
+     * The parameters of a view name resolution.
+     */
+    private static final class ViewNameKey {
+        private final OctetString context;
+        private final OctetString securityName;
+        private final int securityModel;
+        private final int securityLevel;
+        private final int viewType;
+
+        ViewNameKey(OctetString context, OctetString securityName, int securityModel, int securityLevel,
+                    int viewType) {
+            this.context = context;
+            this.securityName = securityName;
+            this.securityModel = securityModel;
+            this.securityLevel = securityLevel;
+            this.viewType = viewType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ViewNameKey)) {
+                return false;
+            }
+            ViewNameKey other = (ViewNameKey) o;
+            return (securityModel == other.securityModel) && (securityLevel == other.securityLevel) &&
+                    (viewType == other.viewType) && Objects.equals(securityName, other.securityName) &&
+                    Objects.equals(context, other.context);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hashCode(context);
+            result = 31 * result + Objects.hashCode(securityName);
+            result = 31 * result + securityModel;
+            result = 31 * result + securityLevel;
+            return 31 * result + viewType;
+        }
+    }
+
+    /**
+     * The result of a view name resolution together with the cache generation it is based on.
+     */
+    private static final class ViewNameResolution {
+        private final long generation;
+        private final OctetString groupName;
+        private final OctetString viewName;
+
+        ViewNameResolution(long generation, OctetString groupName, OctetString viewName) {
+            this.generation = generation;
+            this.groupName = groupName;
+            this.viewName = viewName;
+        }
+    }
+
     public static class VacmContextIterator implements Iterator<MOTableRow> {
 
         private int index = 0;
@@ -0,0 +1,353 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - VacmViewTree.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo.snmp;
+
+import org.snmp4j.agent.security.VACM;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A {@code VacmViewTree} is the immutable, compiled form of the view tree families of a single MIB view. The
+ * families are stored in a prefix tree whose edges are sub-identifiers. A sub-identifier position whose mask bit
+ * is zero is stored as wildcard edge that matches any sub-identifier. Checking an OID is a descent along the OID's
+ * sub-identifiers that follows the wildcard edges in addition to the matching sub-identifier edge and does not
+ * allocate any objects.
+ * <p>
+ * If more than one family matches an OID, the family added last to the {@link Builder} takes precedence. Thus,
+ * the families have to be added in the order of the vacmViewTreeFamilyTable, which orders families by the length
+ * of their subtree and then lexicographically as required by RFC 3415.
+ * <p>
+ * For OIDs that are not in the view, {@link #getNextPermittedBound(OID)} determines how far a walk can skip
+ * without missing an OID of the view.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+final class VacmViewTree {
+
+    /**
+     * The tree of a view without any view tree family.
+     */
+    static final VacmViewTree NO_SUCH_VIEW = new VacmViewTree(null, null, null, null);
+
+    private final Node root;
+    private final int[][] familySubtrees;
+    private final boolean[][] familyWildcards;
+    private final boolean[] familyIncluded;
+
+    private VacmViewTree(Node root, int[][] familySubtrees, boolean[][] familyWildcards, boolean[] familyIncluded) {
+        this.root = root;
+        this.familySubtrees = familySubtrees;
+        this.familyWildcards = familyWildcards;
+        this.familyIncluded = familyIncluded;
+    }
+
+    /**
+     * Checks whether the specified OID is in this view.
+     *
+     * @param oid
+     *         an OID.
+     *
+     * @return {@link VACM#VACM_OK} if the OID is included, {@link VACM#VACM_NOT_IN_VIEW} if it is excluded or
+     * not covered by any (active) family, and {@link VACM#VACM_NO_SUCH_VIEW} if the view has no families at all.
+     */
+    int isAccessAllowed(OID oid) {
+        if (root == null) {
+            return VACM.VACM_NO_SUCH_VIEW;
+        }
+        Node match = getMatchingFamily(oid);
+        return ((match != null) && match.included) ? VACM.VACM_OK : VACM.VACM_NOT_IN_VIEW;
+    }
+
+    /**
+     * Returns the node of the family that determines the access to the specified OID.
+     *
+     * @param oid
+     *         an OID.
+     *
+     * @return the matching family with the highest precedence or {@code null} if no family matches.
+     */
+    Node getMatchingFamily(OID oid) {
+        if (root == null) {
+            return null;
+        }
+        return match(root, oid.getValue(), oid.size(), 0, null);
+    }
+
+    private static Node match(Node node, int[] oid, int length, int depth, Node best) {
+        if ((node.rank >= 0) && ((best == null) || (node.rank > best.rank))) {
+            best = node;
+        }
+        if (depth < length) {
+            if (node.arcs.length > 0) {
+                int pos = Arrays.binarySearch(node.arcs, oid[depth]);
+                if (pos >= 0) {
+                    best = match(node.children[pos], oid, length, depth + 1, best);
+                }
+            }
+            if (node.wildcard != null) {
+                best = match(node.wildcard, oid, length, depth + 1, best);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns a lower bound for the next OID in this view. All OIDs greater than or equal to {@code oid} and less
+     * than the returned bound are not in the view.
+     * <p>
+     * An OID is only in the view if an included family matches it. If {@code oid} is matched by an excluded family
+     * with a subtree of length k, then all OIDs with the same first k sub-identifiers are excluded too, unless a
+     * family with a longer subtree matches them. Thus, the bound is the minimum of the end of that region and the
+     * smallest OID greater than {@code oid} matched by an included family with a longer subtree. If {@code oid} is
+     * not matched by any family, the bound is the smallest OID greater than {@code oid} matched by any included
+     * family.
+     *
+     * @param oid
+     *         an OID that is not in the view.
+     *
+     * @return an OID greater than {@code oid}, {@code oid} itself if it is in the view, or {@code null} if no OID
+     * greater than {@code oid} is in the view.
+     */
+    OID getNextPermittedBound(OID oid) {
+        if (root == null) {
+            return null;
+        }
+        int[] value = oid.getValue();
+        int length = oid.size();
+        Node match = getMatchingFamily(oid);
+        int[] bound = null;
+        int minSubtreeLength = 0;
+        if (match != null) {
+            if (match.included) {
+                return oid;
+            }
+            minSubtreeLength = match.subtree.size() + 1;
+            bound = nextPeer(value, match.subtree.size());
+        }
+        for (int f = 0; f < familySubtrees.length; f++) {
+            if (familyIncluded[f] && (familySubtrees[f].length >= minSubtreeLength)) {
+                int[] candidate = nextMatch(f, value, length);
+                if ((candidate != null) && ((bound == null) || (Arrays.compareUnsigned(candidate, bound) < 0))) {
+                    bound = candidate;
+                }
+            }
+        }
+        return (bound == null) ? null : new OID(bound);
+    }
+
+    /**
+     * Returns the smallest OID that is greater than all OIDs starting with the first {@code prefixLength}
+     * sub-identifiers of {@code oid}.
+     *
+     * @return the next peer of the prefix or {@code null} if there is no such OID.
+     */
+    private static int[] nextPeer(int[] oid, int prefixLength) {
+        for (int i = prefixLength - 1; i >= 0; i--) {
+            if (oid[i] != -1) {
+                int[] peer = Arrays.copyOf(oid, i + 1);
+                peer[i]++;
+                return peer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the smallest OID greater than or equal to {@code oid} that is matched by the specified family.
+     *
+     * @return the matching OID or {@code null} if the family does not match any OID greater than or equal to
+     * {@code oid}.
+     */
+    private int[] nextMatch(int family, int[] oid, int length) {
+        int[] subtree = familySubtrees[family];
+        boolean[] wildcards = familyWildcards[family];
+        int i = 0;
+        while ((i < subtree.length) && (i < length) && (wildcards[i] || (subtree[i] == oid[i]))) {
+            i++;
+        }
+        if (i == subtree.length) {
+            return Arrays.copyOf(oid, length);
+        }
+        int[] next = new int[subtree.length];
+        if ((i < length) && (Integer.compareUnsigned(subtree[i], oid[i]) < 0)) {
+            // the smallest match greater than oid needs an incremented wildcard sub-identifier before i
+            int j = i - 1;
+            while ((j >= 0) && (!wildcards[j] || (oid[j] == -1))) {
+                j--;
+            }
+            if (j < 0) {
+                return null;
+            }
+            System.arraycopy(oid, 0, next, 0, j);
+            next[j] = oid[j] + 1;
+            i = j + 1;
+        } else {
+            System.arraycopy(oid, 0, next, 0, i);
+        }
+        for (; i < subtree.length; i++) {
+            next[i] = wildcards[i] ? 0 : subtree[i];
+        }
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        return "VacmViewTree[root=" + root + "]";
+    }
+
+    /**
+     * A node of the view tree. A node that terminates a view tree family has a non-negative rank.
+     */
+    static final class Node {
+
+        private static final int[] NO_ARCS = new int[0];
+
+        private int[] arcs = NO_ARCS;
+        private Node[] children;
+        private Node wildcard;
+        private int rank = -1;
+        private boolean included;
+        private OID subtree;
+        private OctetString mask;
+
+        private Map<Integer, Node> pendingChildren;
+
+        private Node child(int arc) {
+            if (pendingChildren == null) {
+                pendingChildren = new TreeMap<>();
+            }
+            return pendingChildren.computeIfAbsent(arc, k -> new Node());
+        }
+
+        private Node wildcard() {
+            if (wildcard == null) {
+                wildcard = new Node();
+            }
+            return wildcard;
+        }
+
+        private void freeze() {
+            if (pendingChildren != null) {
+                arcs = new int[pendingChildren.size()];
+                children = new Node[arcs.length];
+                int i = 0;
+                // TreeMap order of Integer keys is the order expected by Arrays.binarySearch
+                for (Map.Entry<Integer, Node> entry : pendingChildren.entrySet()) {
+                    arcs[i] = entry.getKey();
+                    children[i++] = entry.getValue();
+                }
+                pendingChildren = null;
+                for (Node child : children) {
+                    child.freeze();
+                }
+            }
+            if (wildcard != null) {
+                wildcard.freeze();
+            }
+        }
+
+        boolean isIncluded() {
+            return included;
+        }
+
+        OID getSubtree() {
+            return subtree;
+        }
+
+        OctetString getMask() {
+            return mask;
+        }
+
+        @Override
+        public String toString() {
+            return "Node[arcs=" + Arrays.toString(arcs) + ",wildcard=" + (wildcard != null) + ",rank=" + rank +
+                    ",included=" + included + ",subtree=" + subtree + "]";
+        }
+    }
+
+    /**
+     * Builds a {@link VacmViewTree} from view tree families added in ascending order of precedence.
+     */
+    static final class Builder {
+
+        private final Node root = new Node();
+        private final List<int[]> familySubtrees = new ArrayList<>();
+        private final List<boolean[]> familyWildcards = new ArrayList<>();
+        private final List<Boolean> familyIncluded = new ArrayList<>();
+        private int familyCount;
+        private boolean viewExists;
+
+        /**
+         * Marks the view as existing even if no family is added, because all of its families are inactive.
+         */
+        void setViewExists() {
+            viewExists = true;
+        }
+
+        /**
+         * Adds a view tree family with a higher precedence than all previously added families.
+         *
+         * @param subtree
+         *         the subtree OID of the family.
+         * @param mask
+         *         the family mask, a zero bit at position n makes sub-identifier n a wildcard. Missing bits are
+         *         ones.
+         * @param included
+         *         {@code true} if the family is included in the view and {@code false} if it is excluded.
+         */
+        void add(OID subtree, OctetString mask, boolean included) {
+            viewExists = true;
+            Node node = root;
+            boolean[] wildcards = new boolean[subtree.size()];
+            for (int i = 0; i < subtree.size(); i++) {
+                wildcards[i] = !VacmMIB.isBitSet(i, mask);
+                node = wildcards[i] ? node.wildcard() : node.child(subtree.get(i));
+            }
+            familySubtrees.add(subtree.toIntArray());
+            familyWildcards.add(wildcards);
+            familyIncluded.add(included);
+            node.rank = familyCount++;
+            node.included = included;
+            node.subtree = subtree;
+            node.mask = mask;
+        }
+
+        VacmViewTree build() {
+            if (!viewExists) {
+                return NO_SUCH_VIEW;
+            }
+            root.freeze();
+            boolean[] included = new boolean[familyCount];
+            for (int i = 0; i < included.length; i++) {
+                included[i] = familyIncluded.get(i);
+            }
+            return new VacmViewTree(root, familySubtrees.toArray(new int[0][]),
+                    familyWildcards.toArray(new boolean[0][]), included);
+        }
+    }
+}
@@ -47,10 +47,26 @@ public class SnmpRequest extends AbstractRequest<SnmpRequest.SnmpSubRequest, Com
     private CoexistenceInfo coexistenceInfo;
     private OctetString viewName;
 
+    /**
+     * The maximum number of bytes the BER encoding of a response PDU can grow beyond the sum of its variable
+     * binding lengths and its (empty) header when variable bindings are added: the length-of-length fields of
+     * the variable bindings sequence, the PDU, and the scoped PDU each grow by at most three bytes for
+     * lengths below 2^24.
+     */
+    private static final int MAX_LENGTH_OF_LENGTH_GROWTH = 9;
+
     private static int nextTransactionID = 0;
 
     protected Map<Object, Object> processingUserObjects;
 
+    private long deadlineNanos;
+    private boolean deadlineSet;
+
+    private int responseHeaderBERLength = -1;
+    private int[] responseVBLengths;
+    private int accountedVBCount;
+    private int accountedVBLength;
+
     public SnmpRequest(CommandResponderEvent<?> request, CoexistenceInfo cinfo) {
         super(request);
         this.coexistenceInfo = cinfo;
@@ -62,6 +78,51 @@ public class SnmpRequest extends AbstractRequest<SnmpRequest.SnmpSubRequest, Com
         return nextTransactionID++;
     }
 
+    /**
+     * Sets the deadline of this request. After the deadline, the command sender has most likely given up waiting
+     * for the response, so processing of the request can be abandoned (see {@link #isExpired()}).
+     *
+     * @param deadlineNanos
+     *         the deadline as {@link System#nanoTime()} value.
+     *
+     * @since 3.4.0
+     */
+    public void setDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+        this.deadlineSet = true;
+    }
+
+    /**
+     * Gets the deadline of this request.
+     *
+     * @return the deadline as {@link System#nanoTime()} value, only meaningful if {@link #hasDeadline()} returns
+     * {@code true}.
+     * @since 3.4.0
+     */
+    public long getDeadline() {
+        return deadlineNanos;
+    }
+
+    /**
+     * Checks whether a deadline has been set for this request.
+     *
+     * @return {@code true} if this request has a deadline.
+     * @since 3.4.0
+     */
+    public boolean hasDeadline() {
+        return deadlineSet;
+    }
+
+    /**
+     * Checks whether the deadline of this request has passed.
+     *
+     * @return {@code true} if this request has a deadline and it has passed, {@code false} otherwise.
+     * @since 3.4.0
+     */
+    public boolean isExpired() {
+        return deadlineSet && (System.nanoTime() - deadlineNanos >= 0);
+    }
+
     protected synchronized void setupSubRequests() {
         PDU pdu = source.getPDU();
         int capacity = pdu.size();
@@ -176,6 +237,107 @@ public class SnmpRequest extends AbstractRequest<SnmpRequest.SnmpSubRequest, Com
         response.setErrorIndex(getErrorIndex());
     }
 
+    /**
+     * Checks whether the BER encoded response PDU is (still) smaller than the maximum response PDU size
+     * accepted by the command sender. The check is based on the running sum of the BER lengths of the
+     * completed variable bindings maintained by this request. Each completed variable binding is thus
+     * measured only once instead of re-encoding the whole response on each check. Only if the estimate is
+     * within a few bytes of the limit, the exact length of the response is computed.
+     *
+     * @return {@code true} if the response has room for more variable bindings.
+     * @since 3.4.0
+     */
+    protected synchronized boolean isResponseBelowMaxSize() {
+        int maxSize = source.getMaxSizeResponsePDU();
+        int length = getAccountedResponseBERLength();
+        if (length >= maxSize) {
+            return false;
+        }
+        if (length + MAX_LENGTH_OF_LENGTH_GROWTH < maxSize) {
+            return true;
+        }
+        return (response.getBERLength() < maxSize);
+    }
+
+    /**
+     * Gets a lower bound of the BER length of the response PDU, which is the BER length of the response
+     * without variable bindings plus the sum of the BER lengths of its variable bindings. The lengths of the
+     * leading completed variable bindings are accounted once, the remaining (incomplete) ones are measured
+     * on each call.
+     *
+     * @return the sum of the response header length and the variable binding lengths.
+     */
+    private int getAccountedResponseBERLength() {
+        if (responseHeaderBERLength < 0) {
+            responseHeaderBERLength = createResponse().getBERLength();
+        }
+        int vbCount = Math.min(subrequests.size(), response.size());
+        if ((responseVBLengths == null) || (responseVBLengths.length < vbCount)) {
+            int capacity = Math.max(vbCount, (responseVBLengths == null) ? 16 : responseVBLengths.length * 2);
+            responseVBLengths = (responseVBLengths == null) ?
+                    new int[capacity] : Arrays.copyOf(responseVBLengths, capacity);
+        }
+        while ((accountedVBCount < vbCount) && subrequests.get(accountedVBCount).isComplete()) {
+            int vbLength = response.get(accountedVBCount).getBERLength();
+            responseVBLengths[accountedVBCount++] = vbLength;
+            accountedVBLength += vbLength;
+        }
+        int length = responseHeaderBERLength + accountedVBLength;
+        for (int i = accountedVBCount; i < response.size(); i++) {
+            length += response.get(i).getBERLength();
+        }
+        return length;
+    }
+
+    /**
+     * Removes the accounted lengths of the variable bindings at and after the specified index of the
+     * response PDU from the running response length.
+     *
+     * @param size
+     *         the new number of variable bindings in the response.
+     */
+    private void truncateResponseAccounting(int size) {
+        while (accountedVBCount > size) {
+            accountedVBLength -= responseVBLengths[--accountedVBCount];
+        }
+    }
+
+    /**
+     * Removes trailing variable bindings from the response of a GETBULK request, so that the BER encoded
+     * response PDU does not exceed the specified size. The variable bindings to remove are determined from
+     * the BER lengths of the individual variable bindings, thus the response is cut in one step (instead of
+     * trimming one variable binding after the other and re-encoding the response each time).
+     *
+     * @param maxSizeResponsePDU
+     *         the maximum size of the response PDU in bytes.
+     *
+     * @return the number of removed variable bindings.
+     * @since 3.4.0
+     */
+    public synchronized int trimResponse(int maxSizeResponsePDU) {
+        if ((response == null) || (!isBulkRequest()) || (response.size() == 0)) {
+            return 0;
+        }
+        int excess = response.getBERLength() - maxSizeResponsePDU;
+        if (excess <= 0) {
+            return 0;
+        }
+        List<? extends VariableBinding> vbs = response.getVariableBindings();
+        int size = vbs.size();
+        int cut = size;
+        int removedLength = 0;
+        while ((cut > 0) && (removedLength < excess)) {
+            removedLength += vbs.get(--cut).getBERLength();
+        }
+        // the binding at cut may remain if the shrinking length-of-length fields compensate its length
+        vbs.subList(cut + 1, size).clear();
+        if (response.getBERLength() > maxSizeResponsePDU) {
+            vbs.remove(cut);
+        }
+        truncateResponseAccounting(vbs.size());
+        return size - vbs.size();
+    }
+
     private PDU createResponse() {
         PDU resp = (PDU) source.getPDU().clone();
         resp.clear();
@@ -436,6 +598,10 @@ public class SnmpRequest extends AbstractRequest<SnmpRequest.SnmpSubRequest, Com
                     if (noAppending && (cursor >= subrequests.size())) {
                         return false;
                     }
+                    if (isExpired()) {
+                        // nobody is waiting for the response anymore
+                        return false;
+                    }
                     if (cursor < Math.min(reqPDU.size(), reqPDU.getNonRepeaters())) {
                         return true;
                     } else {
@@ -463,12 +629,12 @@ public class SnmpRequest extends AbstractRequest<SnmpRequest.SnmpSubRequest, Com
                                         tail = response.getVariableBindings().
                                                 subList(lastElementIndex + 1, response.size());
                                         tail.clear();
+                                        truncateResponseAccounting(response.size());
                                     }
                                     return false;
                                 }
                             }
-                            return (response.getBERLength() <
-                                    source.getMaxSizeResponsePDU());
+                            return isResponseBelowMaxSize();
                         } else if ((reqPDU.getNonRepeaters() == 0) &&
                                 (reqPDU.getMaxRepetitions() == 0)) {
                             SnmpRequest.this.subrequests.clear();
@@ -476,6 +642,7 @@ public class SnmpRequest extends AbstractRequest<SnmpRequest.SnmpSubRequest, Com
                                 while (response.size() > 0) {
                                     response.remove(0);
                                 }
+                                truncateResponseAccounting(0);
                             }
                         }
                     }
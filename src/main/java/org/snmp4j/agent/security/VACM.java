@@ -90,6 +90,27 @@ public interface VACM {
    */
   int isAccessAllowed(OctetString viewName, OID oid);
 
+  /**
+   * Returns a lower bound for the next OID within the specified view after an OID that is not in the view.
+   * All OIDs greater than or equal to {@code oid} and less than the returned bound are not in the view.
+   * Command responders use the bound to skip excluded regions of a walk in a single step instead of checking
+   * the object instances of the excluded region one by one.
+   * <p>
+   * The default implementation returns {@code oid}, which means that no OID can be skipped.
+   * @param viewName
+   *    the name of an existing view, i.e. that has bee retrieved by
+   *    {@link #getViewName} before.
+   * @param oid
+   *    an OID for which {@link #isAccessAllowed(OctetString, OID)} did not return {@link #VACM_OK}.
+   * @return
+   *    an OID greater than or equal to {@code oid}, or {@code null} if no OID greater than or equal
+   *    to {@code oid} is in the view.
+   * @since 3.4.0
+   */
+  default OID getNextPermittedBound(OctetString viewName, OID oid) {
+    return oid;
+  }
+
   /**
    * Gets the view name of the view defined by the supplied credentials.
    * @param context
@@ -0,0 +1,300 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - TimerWheelTemporaryList.java
+  _##
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.util;
+
+import org.snmp4j.mp.SnmpConstants;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code TimerWheelTemporaryList} is a concurrent {@link TemporaryList} for many short-lived items, like the
+ * requests being processed by a {@link org.snmp4j.agent.CommandProcessor}. The items are kept in a hash map, so
+ * {@link #add(Object)}, {@link #remove(Object)}, and {@link #contains(Object)} take constant time and do not block
+ * each other. Items are aged out by a hashed timing wheel: each item is linked into the wheel slot of the tick in
+ * which its timeout elapses (each slot is striped by item hash to avoid contention of the items added within the
+ * same tick). Removing an item unlinks it from its slot in constant time. On {@link #add(Object)} and
+ * {@link #remove(Object)}, the slots of the ticks passed since the last expiration are scanned by one of the calling
+ * threads and the matured items found there are removed. Items whose timeout elapses in a later round of the wheel
+ * stay in their slot.
+ * <p>
+ * Unlike {@link TemporaryList}, this list does not contain an item twice: adding an item equal to a contained one
+ * replaces it and restarts its timeout. The iteration order is unspecified.
+ *
+ * @param <T>
+ *         the item type, which must provide consistent {@link Object#equals(Object)} and {@link Object#hashCode()}.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+public class TimerWheelTemporaryList<T> extends TemporaryList<T> {
+
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final int STRIPES = 16;
+
+    private final ConcurrentHashMap<T, Entry<T>> items = new ConcurrentHashMap<>();
+    private final Bucket<T>[] wheel;
+    private final int slotMask;
+    private final long tickNanos;
+    private final long startNanos;
+    private final ReentrantLock expirationLock = new ReentrantLock();
+    /**
+     * The slots up to this tick have been scanned for matured items.
+     */
+    private volatile long expiredTick;
+
+    /**
+     * Creates a temporary list with the given timeout, a tick duration of {@link #DEFAULT_TICK_MILLIS}, and
+     * {@link #DEFAULT_WHEEL_SIZE} slots.
+     *
+     * @param timeout
+     *         the milliseconds to wait before an entry may get removed from this list.
+     */
+    public TimerWheelTemporaryList(int timeout) {
+        this(timeout, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Creates a temporary list with the given timeout and timing wheel parameters. Items are removed within one
+     * tick after their timeout elapsed.
+     *
+     * @param timeout
+     *         the milliseconds to wait before an entry may get removed from this list.
+     * @param tickMillis
+     *         the duration of a tick of the timing wheel in milliseconds.
+     * @param wheelSize
+     *         the number of slots of the timing wheel (rounded up to a power of two).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimerWheelTemporaryList(int timeout, long tickMillis, int wheelSize) {
+        super(timeout);
+        int slots = 1;
+        while (slots < wheelSize) {
+            slots <<= 1;
+        }
+        this.slotMask = slots - 1;
+        this.tickNanos = Math.max(1, tickMillis) * (long) SnmpConstants.MILLISECOND_TO_NANOSECOND;
+        this.wheel = new Bucket[slots * STRIPES];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket<>();
+        }
+        this.startNanos = System.nanoTime();
+    }
+
+    private long tick(long nanoTime) {
+        return (nanoTime - startNanos) / tickNanos;
+    }
+
+    private Bucket<T> bucket(long tick, T item) {
+        return wheel[(int) (tick & slotMask) * STRIPES + (spread(item.hashCode()) & (STRIPES - 1))];
+    }
+
+    private static int spread(int hashCode) {
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    @Override
+    public void add(T o) {
+        long now = System.nanoTime();
+        expire(now);
+        Entry<T> entry = new Entry<>(o, now + (getTimeout() * (long) SnmpConstants.MILLISECOND_TO_NANOSECOND));
+        // the entry matures within its tick, thus it is expired when the following tick is processed
+        long tick = Math.max(tick(entry.timeOfMaturity) + 1, expiredTick + 1);
+        bucket(tick, o).link(entry);
+        Entry<T> previous = items.put(o, entry);
+        if (previous != null) {
+            previous.unlink();
+        }
+    }
+
+    @Override
+    public boolean contains(T o) {
+        return items.containsKey(o);
+    }
+
+    @Override
+    public boolean remove(T o) {
+        expire(System.nanoTime());
+        Entry<T> entry = items.remove(o);
+        if (entry == null) {
+            return false;
+        }
+        entry.unlink();
+        return true;
+    }
+
+    /**
+     * Removes the matured items from the slots of the ticks passed since the last call. If another thread is
+     * already expiring items, this method returns immediately.
+     *
+     * @param now
+     *         the current {@link System#nanoTime()}.
+     */
+    private void expire(long now) {
+        long currentTick = tick(now);
+        if ((currentTick <= expiredTick) || !expirationLock.tryLock()) {
+            return;
+        }
+        try {
+            long firstTick = Math.max(expiredTick + 1, currentTick - slotMask);
+            for (long t = firstTick; t <= currentTick; t++) {
+                int slot = (int) (t & slotMask) * STRIPES;
+                for (int s = 0; s < STRIPES; s++) {
+                    wheel[slot + s].expire(now, items);
+                }
+            }
+            expiredTick = currentTick;
+        } finally {
+            expirationLock.unlock();
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        final Iterator<Map.Entry<T, Entry<T>>> iterator = items.entrySet().iterator();
+        return new Iterator<T>() {
+
+            private Map.Entry<T, Entry<T>> current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!iterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                current = iterator.next();
+                return current.getKey();
+            }
+
+            @Override
+            public void remove() {
+                if (current == null) {
+                    throw new IllegalStateException();
+                }
+                if (items.remove(current.getKey(), current.getValue())) {
+                    current.getValue().unlink();
+                }
+                current = null;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public void clear() {
+        for (Iterator<Entry<T>> it = items.values().iterator(); it.hasNext(); ) {
+            Entry<T> entry = it.next();
+            it.remove();
+            entry.unlink();
+        }
+    }
+
+    /**
+     * An item of the list, linked into the bucket of the wheel slot in which it matures.
+     */
+    private static final class Entry<T> {
+
+        private final T item;
+        private final long timeOfMaturity;
+        private volatile Bucket<T> bucket;
+        private Entry<T> previous;
+        private Entry<T> next;
+
+        private Entry(T item, long timeOfMaturity) {
+            this.item = item;
+            this.timeOfMaturity = timeOfMaturity;
+        }
+
+        private boolean atMaturity(long referenceTime) {
+            return (referenceTime - timeOfMaturity > 0);
+        }
+
+        private void unlink() {
+            Bucket<T> b = bucket;
+            if (b != null) {
+                b.unlink(this);
+            }
+        }
+    }
+
+    /**
+     * A doubly linked list of the entries of a wheel slot (stripe).
+     */
+    private static final class Bucket<T> {
+
+        private Entry<T> head;
+
+        private synchronized void link(Entry<T> entry) {
+            entry.bucket = this;
+            entry.next = head;
+            if (head != null) {
+                head.previous = entry;
+            }
+            head = entry;
+        }
+
+        private synchronized void unlink(Entry<T> entry) {
+            if (entry.bucket != this) {
+                return;
+            }
+            remove(entry);
+        }
+
+        private void remove(Entry<T> entry) {
+            if (entry.previous != null) {
+                entry.previous.next = entry.next;
+            } else {
+                head = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.previous = entry.previous;
+            }
+            entry.previous = null;
+            entry.next = null;
+            entry.bucket = null;
+        }
+
+        private synchronized void expire(long now, ConcurrentHashMap<T, Entry<T>> items) {
+            Entry<T> entry = head;
+            while (entry != null) {
+                Entry<T> next = entry.next;
+                if (entry.atMaturity(now)) {
+                    remove(entry);
+                    items.remove(entry.item, entry);
+                }
+                entry = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - VirtualThreadWorkerPool.java
+  _##
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.util;
+
+import org.snmp4j.log.LogAdapter;
+import org.snmp4j.log.LogFactory;
+import org.snmp4j.util.WorkerPool;
+import org.snmp4j.util.WorkerTask;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code VirtualThreadWorkerPool} is a {@link WorkerPool} that executes each task on its own virtual thread.
+ * A task blocked by slow instrumentation, a sub-agent, or a lock wait then occupies only its (cheap) virtual
+ * thread instead of a worker of a fixed size {@link org.snmp4j.util.ThreadPool}. CPU bound tasks still run in
+ * parallel on all cores, because the virtual threads are scheduled by the JVM on a carrier thread pool sized by
+ * the number of available processors.
+ * <p>
+ * Virtual threads require Java 21 or later (or Java 19 and 20 with preview features enabled). On other runtimes
+ * {@link #isAvailable()} returns {@code false} and the constructor throws an {@link UnsupportedOperationException}.
+ * The number of concurrently executed tasks can be bounded optionally: {@link #execute(WorkerTask)} then waits for
+ * a free slot and {@link #tryToExecute(WorkerTask)} returns {@code false} if there is none.
+ *
+ * @author Frank Fock
+ * @since 3.4.0
+ */
+public class VirtualThreadWorkerPool implements WorkerPool {
+
+    private static final LogAdapter logger = LogFactory.getLogger(VirtualThreadWorkerPool.class);
+
+    private static final Method THREAD_OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builderClass.getMethod("name", String.class, long.class);
+            factory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            // Java 19 and 20 throw an UnsupportedOperationException if preview features are not enabled
+            ofVirtual.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            ofVirtual = null;
+        }
+        THREAD_OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private final String name;
+    private final int maxConcurrentTasks;
+    private final ExecutorService executor;
+    private final Semaphore slots;
+    private final Set<WorkerTask> activeTasks = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+
+    /**
+     * Creates a virtual thread worker pool without a limit for the number of concurrently executed tasks.
+     *
+     * @param name
+     *         the name prefix of the virtual threads created by this pool.
+     *
+     * @throws UnsupportedOperationException
+     *         if the Java runtime does not support virtual threads.
+     */
+    public VirtualThreadWorkerPool(String name) {
+        this(name, 0);
+    }
+
+    /**
+     * Creates a virtual thread worker pool.
+     *
+     * @param name
+     *         the name prefix of the virtual threads created by this pool.
+     * @param maxConcurrentTasks
+     *         the maximum number of tasks executed concurrently or zero (or a negative value) for no limit.
+     *
+     * @throws UnsupportedOperationException
+     *         if the Java runtime does not support virtual threads.
+     */
+    public VirtualThreadWorkerPool(String name, int maxConcurrentTasks) {
+        if (!isAvailable()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by Java " +
+                    System.getProperty("java.version"));
+        }
+        this.name = name;
+        this.maxConcurrentTasks = Math.max(0, maxConcurrentTasks);
+        this.slots = (maxConcurrentTasks > 0) ? new Semaphore(maxConcurrentTasks) : null;
+        try {
+            Object builder = BUILDER_NAME.invoke(THREAD_OF_VIRTUAL.invoke(null), name + ".", 0L);
+            ThreadFactory threadFactory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            this.executor = (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException ex) {
+            throw new UnsupportedOperationException("Failed to create virtual thread executor: " + ex.getMessage(),
+                    ex);
+        }
+    }
+
+    /**
+     * Checks whether the Java runtime supports virtual threads.
+     *
+     * @return {@code true} if a {@code VirtualThreadWorkerPool} can be created.
+     */
+    public static boolean isAvailable() {
+        return (THREAD_OF_VIRTUAL != null);
+    }
+
+    /**
+     * Executes a task on a new virtual thread. If the number of concurrently executed tasks is limited, this
+     * method blocks until a running task finished when the limit is reached.
+     *
+     * @param task
+     *         the task to execute.
+     */
+    @Override
+    public void execute(WorkerTask task) {
+        if (slots != null) {
+            try {
+                slots.acquire();
+            } catch (InterruptedException iex) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while waiting to execute task " + task + " in " + name);
+                return;
+            }
+        }
+        submit(task);
+    }
+
+    /**
+     * Tries to execute a task on a new virtual thread.
+     *
+     * @param task
+     *         the task to execute.
+     *
+     * @return {@code false} if the limit of concurrently executed tasks is reached or this pool has been stopped,
+     * {@code true} otherwise.
+     */
+    @Override
+    public boolean tryToExecute(WorkerTask task) {
+        if ((slots != null) && !slots.tryAcquire()) {
+            return false;
+        }
+        return submit(task);
+    }
+
+    private boolean submit(final WorkerTask task) {
+        pendingTasks.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                activeTasks.add(task);
+                try {
+                    task.run();
+                } catch (RuntimeException rex) {
+                    logger.error("Task " + task + " failed in " + name + ": " + rex.getMessage(), rex);
+                } finally {
+                    activeTasks.remove(task);
+                    release();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException rex) {
+            logger.warn("Task " + task + " rejected by stopped worker pool " + name);
+            release();
+            return false;
+        }
+    }
+
+    private void release() {
+        pendingTasks.decrementAndGet();
+        if (slots != null) {
+            slots.release();
+        }
+    }
+
+    /**
+     * Stops this pool after the tasks already submitted have been executed. This method blocks until all tasks
+     * are finished.
+     */
+    @Override
+    public void stop() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Waiting for " + pendingTasks.get() + " tasks of " + name + " to finish");
+                }
+            }
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Cancels the execution of all tasks of this pool. Running tasks are terminated and their threads are
+     * interrupted.
+     */
+    @Override
+    public void cancel() {
+        for (WorkerTask task : activeTasks) {
+            task.terminate();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Checks whether this pool executes no task.
+     *
+     * @return {@code true} if there are no submitted tasks that are still running.
+     */
+    @Override
+    public boolean isIdle() {
+        return (pendingTasks.get() == 0);
+    }
+
+    /**
+     * Gets the number of tasks submitted to this pool that are not yet finished.
+     *
+     * @return the number of pending and running tasks.
+     */
+    public int getPendingTaskCount() {
+        return pendingTasks.get();
+    }
+
+    /**
+     * Gets the maximum number of concurrently executed tasks.
+     *
+     * @return the limit of concurrently executed tasks or zero if there is no limit.
+     */
+    public int getMaxConcurrentTasks() {
+        return maxConcurrentTasks;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualThreadWorkerPool{" +
+                "name='" + name + '\'' +
+                ", pendingTasks=" + pendingTasks.get() +
+                ", maxConcurrentTasks=" + maxConcurrentTasks +
+                '}';
+    }
+}
@@ -0,0 +1,214 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - FairRequestSchedulerTest.java
+  _##
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.mp.MPv2c;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.util.WorkerPool;
+import org.snmp4j.util.WorkerTask;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FairRequestSchedulerTest {
+
+    private static final UdpAddress SOURCE_A = new UdpAddress("10.0.0.1/1161");
+    private static final UdpAddress SOURCE_B = new UdpAddress("10.0.0.2/1161");
+
+    private FairRequestScheduler scheduler;
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch blockerStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseBlocker = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        WorkerPool threadPerTask = new WorkerPool() {
+            @Override
+            public void execute(WorkerTask task) {
+                new Thread(task).start();
+            }
+
+            @Override
+            public boolean tryToExecute(WorkerTask task) {
+                execute(task);
+                return true;
+            }
+
+            @Override
+            public void stop() {
+            }
+
+            @Override
+            public void cancel() {
+            }
+
+            @Override
+            public boolean isIdle() {
+                return true;
+            }
+        };
+        scheduler = new FairRequestScheduler(threadPerTask, 1, FairRequestScheduler.SourceKey.peerAddress);
+        scheduler.setQuantum(1);
+    }
+
+    private static CommandResponderEvent<UdpAddress> createEvent(UdpAddress source) {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.GET);
+        pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.1.1.0")));
+        return new CommandResponderEvent<>(new MessageDispatcherImpl(), null, source, MPv2c.ID,
+                SecurityModel.SECURITY_MODEL_SNMPv2c, "public".getBytes(), SecurityLevel.NOAUTH_NOPRIV, null, pdu,
+                65535, null);
+    }
+
+    private static CommandResponderEvent<UdpAddress> createBulkEvent(UdpAddress source, int maxRepetitions) {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.GETBULK);
+        pdu.setMaxRepetitions(maxRepetitions);
+        pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2")));
+        return new CommandResponderEvent<>(new MessageDispatcherImpl(), null, source, MPv2c.ID,
+                SecurityModel.SECURITY_MODEL_SNMPv2c, "public".getBytes(), SecurityLevel.NOAUTH_NOPRIV, null, pdu,
+                1500, null);
+    }
+
+    private WorkerTask task(final String name, final CountDownLatch done) {
+        return new WorkerTask() {
+            @Override
+            public void run() {
+                if (name == null) {
+                    blockerStarted.countDown();
+                    try {
+                        releaseBlocker.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                } else {
+                    executed.add(name);
+                }
+                done.countDown();
+            }
+
+            @Override
+            public void terminate() {
+            }
+
+            @Override
+            public void join() {
+            }
+
+            @Override
+            public void interrupt() {
+            }
+        };
+    }
+
+    private void startBlocker(CountDownLatch done) throws InterruptedException {
+        assertTrue(scheduler.schedule(createEvent(SOURCE_A), task(null, done)));
+        assertTrue(blockerStarted.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void roundRobinBetweenSources() throws Exception {
+        CountDownLatch done = new CountDownLatch(9);
+        startBlocker(done);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(scheduler.schedule(createEvent(SOURCE_A), task("A", done)));
+        }
+        assertTrue(scheduler.schedule(createEvent(SOURCE_B), task("B", done)));
+        assertTrue(scheduler.schedule(createEvent(SOURCE_B), task("B", done)));
+        assertEquals(8, scheduler.getQueueDepth());
+        assertEquals(2, scheduler.getQueueDepth(SOURCE_B.getInetAddress()));
+        releaseBlocker.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("A", "B", "A", "B", "A", "A", "A", "A"), executed);
+        assertEquals(0, scheduler.getQueueDepth());
+    }
+
+    @Test
+    public void weightedSources() throws Exception {
+        scheduler.setWeight(InetAddress.getByName("10.0.0.1"), 2);
+        CountDownLatch done = new CountDownLatch(7);
+        startBlocker(done);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(scheduler.schedule(createEvent(SOURCE_A), task("A", done)));
+        }
+        assertTrue(scheduler.schedule(createEvent(SOURCE_B), task("B", done)));
+        assertTrue(scheduler.schedule(createEvent(SOURCE_B), task("B", done)));
+        releaseBlocker.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("A", "A", "B", "A", "A", "B"), executed);
+    }
+
+    @Test
+    public void dropWhenSourceQueueFull() throws Exception {
+        scheduler.setMaxQueueLengthPerSource(2);
+        CountDownLatch done = new CountDownLatch(4);
+        startBlocker(done);
+        assertTrue(scheduler.schedule(createEvent(SOURCE_A), task("A", done)));
+        assertTrue(scheduler.schedule(createEvent(SOURCE_A), task("A", done)));
+        assertFalse(scheduler.schedule(createEvent(SOURCE_A), task("A", done)));
+        assertTrue(scheduler.schedule(createEvent(SOURCE_B), task("B", done)));
+        assertEquals(1, scheduler.getDropped());
+        assertEquals(3, scheduler.getQueueDepth());
+        releaseBlocker.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(3, executed.size());
+        assertTrue(scheduler.getMaxWaitTime() >= scheduler.getAverageWaitTime());
+    }
+
+    @Test
+    public void hugeMaxRepetitions() throws Exception {
+        assertTrue(scheduler.getCost(createBulkEvent(SOURCE_A, Integer.MAX_VALUE)) <= 1500);
+        CountDownLatch done = new CountDownLatch(4);
+        startBlocker(done);
+        assertTrue(scheduler.schedule(createBulkEvent(SOURCE_A, Integer.MAX_VALUE), task("A", done)));
+        assertTrue(scheduler.schedule(createEvent(SOURCE_B), task("B", done)));
+        assertTrue(scheduler.schedule(createEvent(SOURCE_B), task("B", done)));
+        releaseBlocker.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("B", "B", "A"), executed);
+    }
+
+    @Test
+    public void skippedRoundsKeepOrder() throws Exception {
+        CountDownLatch done = new CountDownLatch(3);
+        startBlocker(done);
+        assertTrue(scheduler.schedule(createBulkEvent(SOURCE_A, 50), task("A50", done)));
+        assertTrue(scheduler.schedule(createBulkEvent(SOURCE_B, 30), task("B30", done)));
+        releaseBlocker.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("B30", "A50"), executed);
+    }
+}
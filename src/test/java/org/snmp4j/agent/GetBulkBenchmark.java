@@ -0,0 +1,141 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - GetBulkBenchmark.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.agent.mo.*;
+import org.snmp4j.agent.request.SnmpRequest;
+import org.snmp4j.agent.security.VACM;
+import org.snmp4j.mp.MPv2c;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.smi.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing the default GETBULK handler of the {@link CommandProcessor} with the
+ * {@link RowMajorGetBulkHandler} for a GETBULK request walking all 20 columns of an ifXTable like table. Run its
+ * {@link #main(String[])} method (or {@code org.openjdk.jmh.Main GetBulkBenchmark}) with the test class path after
+ * {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GetBulkBenchmark {
+
+    private static final OID IF_X_ENTRY = new OID("1.3.6.1.2.1.31.1.1.1");
+    private static final int NUM_COLUMNS = 20;
+
+    @Param({ "default", "rowMajor" })
+    public String handlerType;
+
+    @Param({ "10000" })
+    public int rowCount;
+
+    @Param({ "25" })
+    public int maxRepetitions;
+
+    private DefaultMOServer server;
+    private RequestHandler<SnmpRequest> handler;
+    private MessageDispatcherImpl dispatcher = new MessageDispatcherImpl();
+    private int startRow;
+
+    @Setup
+    public void setUp() throws DuplicateRegistrationException {
+        server = new DefaultMOServer();
+        MOColumn<?>[] columns = new MOColumn<?>[NUM_COLUMNS];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = new MOColumn<>(c + 1, (c == 0) ?
+                    SMIConstants.SYNTAX_OCTET_STRING : SMIConstants.SYNTAX_COUNTER64, MOAccessImpl.ACCESS_READ_ONLY);
+        }
+        DefaultMOTable<DefaultMOTableRow, MOColumn, DefaultMOMutableTableModel<DefaultMOTableRow>> table =
+                new DefaultMOTable<>(IF_X_ENTRY,
+                        new MOTableIndex(new MOTableSubIndex[] { new MOTableSubIndex(SMIConstants.SYNTAX_INTEGER) }),
+                        columns);
+        for (int r = 1; r <= rowCount; r++) {
+            Variable[] values = new Variable[NUM_COLUMNS];
+            values[0] = new OctetString("if" + r);
+            for (int c = 1; c < values.length; c++) {
+                values[c] = new Counter64(r * 1000L + c);
+            }
+            table.addRow(new DefaultMOTableRow(new OID(new int[] { r }), values));
+        }
+        server.register(table, null);
+        CommandProcessor commandProcessor = new CommandProcessor(new OctetString("engine"));
+        commandProcessor.setVacm(new VACM() {
+            @Override
+            public int isAccessAllowed(OctetString context, OctetString securityName, int securityModel,
+                                       int securityLevel, int viewType, OID oid) {
+                return VACM_OK;
+            }
+
+            @Override
+            public int isAccessAllowed(OctetString viewName, OID oid) {
+                return VACM_OK;
+            }
+
+            @Override
+            public OctetString getViewName(OctetString context, OctetString securityName, int securityModel,
+                                           int securityLevel, int viewType) {
+                return new OctetString();
+            }
+        });
+        handler = "rowMajor".equals(handlerType) ?
+                new RowMajorGetBulkHandler(commandProcessor) : commandProcessor.getHandler(PDU.GETBULK);
+    }
+
+    @Benchmark
+    public PDU getBulk() {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.GETBULK);
+        pdu.setMaxRepetitions(maxRepetitions);
+        int row = startRow;
+        startRow = (startRow + maxRepetitions) % (rowCount - maxRepetitions);
+        for (int c = 1; c <= NUM_COLUMNS; c++) {
+            pdu.add(new VariableBinding(new OID(IF_X_ENTRY.getValue(), new int[] { c, row })));
+        }
+        CommandResponderEvent<UdpAddress> event = new CommandResponderEvent<>(dispatcher, null,
+                new UdpAddress("127.0.0.1/161"), MPv2c.ID, SecurityModel.SECURITY_MODEL_SNMPv2c,
+                "public".getBytes(), SecurityLevel.NOAUTH_NOPRIV, null, pdu, 65535, null);
+        SnmpRequest request = new SnmpRequest(event, null);
+        request.setViewName(new OctetString());
+        handler.processPdu(request, server);
+        return request.getResponse();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(GetBulkBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
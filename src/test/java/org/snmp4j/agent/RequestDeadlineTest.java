@@ -0,0 +1,146 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - RequestDeadlineTest.java
+  _##
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.agent.mo.GenericManagedObject;
+import org.snmp4j.agent.mo.MOAccessImpl;
+import org.snmp4j.agent.mo.MOScalar;
+import org.snmp4j.agent.mo.lock.LockRequest;
+import org.snmp4j.agent.mo.snmp.CoexistenceInfo;
+import org.snmp4j.agent.request.SnmpRequest;
+import org.snmp4j.agent.security.VACM;
+import org.snmp4j.mp.MPv2c;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.smi.*;
+
+import static org.junit.Assert.*;
+
+public class RequestDeadlineTest {
+
+    private static final OID SCALAR_PREFIX = new OID("1.3.6.1.4.1.4976.6.3.3");
+    private static final int NUM_SCALARS = 100;
+
+    private DefaultMOServer server;
+    private CommandProcessor commandProcessor;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new DefaultMOServer();
+        for (int i = 1; i <= NUM_SCALARS; i++) {
+            server.register(new MOScalar<>(new OID(SCALAR_PREFIX.getValue(), new int[]{i, 0}),
+                    MOAccessImpl.ACCESS_READ_ONLY, new Integer32(i)), null);
+        }
+        commandProcessor = new CommandProcessor(new OctetString("engine"));
+        commandProcessor.addMOServer(server);
+        commandProcessor.setVacm(new VACM() {
+            @Override
+            public int isAccessAllowed(OctetString context, OctetString securityName, int securityModel,
+                                       int securityLevel, int viewType, OID oid) {
+                return VACM_OK;
+            }
+
+            @Override
+            public int isAccessAllowed(OctetString viewName, OID oid) {
+                return VACM_OK;
+            }
+
+            @Override
+            public OctetString getViewName(OctetString context, OctetString securityName, int securityModel,
+                                           int securityLevel, int viewType) {
+                return new OctetString();
+            }
+        });
+    }
+
+    private static CommandResponderEvent<UdpAddress> createEvent(String securityName) {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.GETBULK);
+        pdu.setMaxRepetitions(NUM_SCALARS);
+        pdu.add(new VariableBinding(SCALAR_PREFIX));
+        return new CommandResponderEvent<>(new MessageDispatcherImpl(), null,
+                new UdpAddress("127.0.0.1/161"), MPv2c.ID, SecurityModel.SECURITY_MODEL_SNMPv2c,
+                securityName.getBytes(), SecurityLevel.NOAUTH_NOPRIV, null, pdu, 65535, null);
+    }
+
+    @Test
+    public void deadlineConfiguration() {
+        assertEquals(0, commandProcessor.getRequestDeadline(new OctetString("public")));
+        commandProcessor.setDefaultRequestDeadline(5000);
+        commandProcessor.setRequestDeadline(new OctetString("slow"), 20000);
+        assertEquals(5000, commandProcessor.getRequestDeadline(new OctetString("public")));
+        assertEquals(20000, commandProcessor.getRequestDeadline(new OctetString("slow")));
+        commandProcessor.setRequestDeadline(new OctetString("slow"), -1);
+        assertEquals(5000, commandProcessor.getRequestDeadline(new OctetString("slow")));
+    }
+
+    @Test
+    public void bulkStopsAtDeadline() {
+        SnmpRequest request = new SnmpRequest(createEvent("public"), null);
+        request.setViewName(new OctetString());
+        request.setDeadline(System.nanoTime() - 1);
+        assertTrue(request.isExpired());
+        commandProcessor.getHandler(PDU.GETBULK).processPdu(request, server);
+        assertTrue(request.getResponse().size() <= 1);
+
+        SnmpRequest unlimited = new SnmpRequest(createEvent("public"), null);
+        unlimited.setViewName(new OctetString());
+        assertFalse(unlimited.isExpired());
+        commandProcessor.getHandler(PDU.GETBULK).processPdu(unlimited, server);
+        assertEquals(NUM_SCALARS, unlimited.getResponse().size());
+    }
+
+    @Test
+    public void lookupAbandonedAtDeadline() {
+        LockRequest lockRequest = new LockRequest(this, 1000);
+        lockRequest.setDeadline(System.nanoTime() - 1);
+        assertTrue(lockRequest.isExpired());
+        DefaultMOContextScope scope = new DefaultMOContextScope(null, SCALAR_PREFIX, true, null, false);
+        MOServerLookupEvent event = new MOServerLookupEvent(this, null, new DefaultMOQuery(scope),
+                MOServerLookupEvent.IntendedUse.getNext);
+        assertNull(server.lookup(new DefaultMOQuery(scope), lockRequest, event, GenericManagedObject.class));
+        assertEquals(LockRequest.LockStatus.lockTimedOut, lockRequest.getLockRequestStatus());
+
+        LockRequest noDeadline = new LockRequest(this, 1000);
+        assertEquals(1000, noDeadline.getEffectiveTimeoutMillis());
+        assertNotNull(server.lookup(new DefaultMOQuery(scope), noDeadline, event, GenericManagedObject.class));
+    }
+
+    @Test
+    public void expiredRequestDropped() throws Exception {
+        commandProcessor.registerMOs(server, null);
+        assertEquals(new Counter32(0),
+                DefaultMOServer.getValue(server, null, CommandProcessor.oidSnmp4jAgentRequestsExpired));
+        commandProcessor.setRequestDeadline(new OctetString("public"), 10);
+        long receivedSecondAgo = System.nanoTime() - 1000000000L;
+        commandProcessor.processRequest(createEvent("public"), new CoexistenceInfo(
+                        new OctetString("public"), new OctetString("engine"), new OctetString()),
+                commandProcessor.getHandler(PDU.GETBULK), receivedSecondAgo);
+        assertEquals(1, commandProcessor.getExpiredRequestCount());
+        assertEquals(new Counter32(1),
+                DefaultMOServer.getValue(server, null, CommandProcessor.oidSnmp4jAgentRequestsExpired));
+    }
+}
@@ -0,0 +1,238 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - RowMajorGetBulkHandlerTest.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.agent.mo.*;
+import org.snmp4j.agent.request.SnmpRequest;
+import org.snmp4j.agent.security.VACM;
+import org.snmp4j.mp.MPv2c;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.smi.*;
+
+import static org.junit.Assert.*;
+
+public class RowMajorGetBulkHandlerTest {
+
+    private static final OID TABLE_ENTRY_OID = new OID("1.3.6.1.4.1.4976.6.3.1.4.1");
+    private static final OID SCALAR_OID = new OID("1.3.6.1.4.1.4976.6.3.1.5.0");
+    private static final int NUM_COLUMNS = 8;
+    private static final int NOT_ACCESSIBLE_COLUMN = 3;
+    private static final int SPARSE_COLUMN = 5;
+    private static final int DENIED_COLUMN = 6;
+
+    private DefaultMOServer server;
+    private CommandProcessor commandProcessor;
+    private MOScalar<Integer32> scalar;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new DefaultMOServer();
+        MOColumn<?>[] columns = new MOColumn<?>[NUM_COLUMNS];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = new MOColumn<>(c + 1, (c % 2 == 0) ?
+                    SMIConstants.SYNTAX_COUNTER64 : SMIConstants.SYNTAX_OCTET_STRING,
+                    (c == NOT_ACCESSIBLE_COLUMN) ? MOAccessImpl.ACCESS_FOR_NOTIFY : MOAccessImpl.ACCESS_READ_ONLY);
+        }
+        DefaultMOTable<DefaultMOTableRow, MOColumn, DefaultMOMutableTableModel<DefaultMOTableRow>> table =
+                new DefaultMOTable<>(TABLE_ENTRY_OID,
+                        new MOTableIndex(new MOTableSubIndex[] { new MOTableSubIndex(SMIConstants.SYNTAX_INTEGER) }),
+                        columns);
+        for (int r = 1; r <= 40; r++) {
+            Variable[] values = new Variable[NUM_COLUMNS];
+            for (int c = 0; c < values.length; c++) {
+                if ((c == SPARSE_COLUMN) && (r % 3 == 0)) {
+                    continue;
+                }
+                values[c] = (c % 2 == 0) ? new Counter64(r * 100 + c) : new OctetString("r" + r + "c" + c);
+            }
+            table.addRow(new DefaultMOTableRow(new OID(new int[] { r * 2 }), values));
+        }
+        server.register(table, null);
+        scalar = new MOScalar<>(SCALAR_OID, MOAccessImpl.ACCESS_READ_ONLY, new Integer32(42));
+        server.register(scalar, null);
+        commandProcessor = new CommandProcessor(new OctetString("engine"));
+        final OID deniedColumn = new OID(TABLE_ENTRY_OID.getValue(), new int[] { DENIED_COLUMN + 1 });
+        commandProcessor.setVacm(new VACM() {
+            @Override
+            public int isAccessAllowed(OctetString context, OctetString securityName, int securityModel,
+                                       int securityLevel, int viewType, OID oid) {
+                return VACM_OK;
+            }
+
+            @Override
+            public int isAccessAllowed(OctetString viewName, OID oid) {
+                return (oid.startsWith(deniedColumn) && oid.last() > 40) ? VACM_NOT_IN_VIEW : VACM_OK;
+            }
+
+            @Override
+            public OctetString getViewName(OctetString context, OctetString securityName, int securityModel,
+                                           int securityLevel, int viewType) {
+                return new OctetString();
+            }
+        });
+    }
+
+    private SnmpRequest createRequest(int nonRepeaters, int maxRepetitions, int maxSizeResponsePDU, OID... oids) {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.GETBULK);
+        pdu.setNonRepeaters(nonRepeaters);
+        pdu.setMaxRepetitions(maxRepetitions);
+        for (OID oid : oids) {
+            pdu.add(new VariableBinding(oid));
+        }
+        CommandResponderEvent<UdpAddress> event = new CommandResponderEvent<>(new MessageDispatcherImpl(), null,
+                new UdpAddress("127.0.0.1/161"), MPv2c.ID, SecurityModel.SECURITY_MODEL_SNMPv2c,
+                "public".getBytes(), SecurityLevel.NOAUTH_NOPRIV, null, pdu, maxSizeResponsePDU, null);
+        SnmpRequest request = new SnmpRequest(event, null);
+        request.setViewName(new OctetString());
+        return request;
+    }
+
+    private PDU process(RequestHandler<SnmpRequest> handler, int nonRepeaters, int maxRepetitions,
+                        int maxSizeResponsePDU, OID... oids) {
+        SnmpRequest request = createRequest(nonRepeaters, maxRepetitions, maxSizeResponsePDU, oids);
+        handler.processPdu(request, server);
+        assertTrue(request.isComplete());
+        return request.getResponse();
+    }
+
+    private void assertSameResponse(int nonRepeaters, int maxRepetitions, int maxSizeResponsePDU, OID... oids) {
+        PDU expected = process(commandProcessor.getHandler(PDU.GETBULK), nonRepeaters, maxRepetitions,
+                maxSizeResponsePDU, oids);
+        PDU actual = process(new RowMajorGetBulkHandler(commandProcessor), nonRepeaters, maxRepetitions,
+                maxSizeResponsePDU, oids);
+        assertEquals(expected.getVariableBindings(), actual.getVariableBindings());
+        assertEquals(expected.getErrorStatus(), actual.getErrorStatus());
+    }
+
+    private static OID column(int c) {
+        return new OID(TABLE_ENTRY_OID.getValue(), new int[] { c + 1 });
+    }
+
+    @Test
+    public void walkAllColumns() {
+        OID[] oids = new OID[NUM_COLUMNS];
+        for (int c = 0; c < oids.length; c++) {
+            oids[c] = column(c);
+        }
+        assertSameResponse(0, 50, 65535, oids);
+        PDU response = process(new RowMajorGetBulkHandler(commandProcessor), 0, 50, 65535, oids);
+        assertEquals(NUM_COLUMNS * 50, response.size());
+        assertEquals(new OID(column(0).getValue(), new int[] { 2 }), response.get(0).getOid());
+        assertEquals(new Counter64(100), response.get(0).getVariable());
+    }
+
+    @Test
+    public void walkWithNonRepeatersAndOffsets() {
+        assertSameResponse(1, 45, 65535, SCALAR_OID, new OID(column(1).getValue(), new int[] { 10 }),
+                column(2), new OID(column(SPARSE_COLUMN).getValue(), new int[] { 5 }), column(DENIED_COLUMN),
+                new OID(column(NUM_COLUMNS - 1).getValue(), new int[] { 60 }));
+    }
+
+    @Test
+    public void walkUntilEndOfMibView() {
+        assertSameResponse(0, 100, 65535, column(NUM_COLUMNS - 2), column(NUM_COLUMNS - 1), SCALAR_OID);
+    }
+
+    @Test
+    public void walkWithResponseSizeLimit() {
+        assertSameResponse(0, 50, 1000, column(0), column(1), column(2));
+    }
+
+    @Test
+    public void trimResponseToMaxSize() {
+        for (int maxSize = 400; maxSize <= 1600; maxSize += 37) {
+            SnmpRequest request = createRequest(0, 50, maxSize, column(0), column(1), column(2));
+            commandProcessor.getHandler(PDU.GETBULK).processPdu(request, server);
+            PDU response = request.getResponse();
+            PDU expected = (PDU) response.clone();
+            while ((expected.size() > 0) && (expected.getBERLength() > maxSize)) {
+                expected.trim();
+            }
+            int size = response.size();
+            assertEquals(size - expected.size(), request.trimResponse(maxSize));
+            assertEquals(expected.getVariableBindings(), response.getVariableBindings());
+            assertTrue(response.getBERLength() <= maxSize);
+            assertEquals(0, request.trimResponse(maxSize));
+        }
+    }
+
+    @Test
+    public void zeroRepetitions() {
+        assertSameResponse(1, 0, 65535, SCALAR_OID, column(0));
+    }
+
+    @Test
+    public void replaceDefaultHandler() {
+        RequestHandler<SnmpRequest> defaultHandler = commandProcessor.getHandler(PDU.GETBULK);
+        RowMajorGetBulkHandler handler = new RowMajorGetBulkHandler(commandProcessor);
+        assertEquals(1, commandProcessor.replacePduHandler(PDU.GETBULK, handler).size());
+        assertSame(handler, commandProcessor.getHandler(PDU.GETBULK));
+        assertNotSame(defaultHandler, handler);
+        assertNotNull(commandProcessor.getHandler(PDU.GETNEXT));
+    }
+
+    @Test
+    public void scalarLookedUpOncePerRepetition() {
+        OID beforeScalar = SCALAR_OID.trim();
+        assertSameResponse(0, 3, 65535, beforeScalar);
+        final int[] lookups = new int[1];
+        server.addLookupListener(new MOServerLookupListener() {
+            @Override
+            public void lookupEvent(MOServerLookupEvent event) {
+                lookups[0]++;
+            }
+
+            @Override
+            public void queryEvent(MOServerLookupEvent event) {
+            }
+        }, scalar);
+        PDU response = process(new RowMajorGetBulkHandler(commandProcessor), 0, 3, 65535, beforeScalar);
+        assertEquals(1, lookups[0]);
+        assertEquals(new VariableBinding(SCALAR_OID, new Integer32(42)), response.get(0));
+        assertEquals(Null.endOfMibView, response.get(1).getVariable());
+    }
+
+    @Test
+    public void lockTimeout() {
+        server.setLockStrategy((managedObjectLookedUp, query) -> true);
+        commandProcessor.setInternalRequestTimeout(50);
+        Object otherOwner = new Object();
+        assertTrue(server.lock(otherOwner, scalar));
+        try {
+            SnmpRequest request = createRequest(0, 3, 65535, SCALAR_OID.trim());
+            new RowMajorGetBulkHandler(commandProcessor).processPdu(request, server);
+            assertEquals(PDU.genErr, request.getErrorStatus());
+            assertEquals(1, request.getErrorIndex());
+        } finally {
+            server.unlock(otherOwner, scalar);
+        }
+        PDU response = process(new RowMajorGetBulkHandler(commandProcessor), 0, 3, 65535, SCALAR_OID.trim());
+        assertEquals(PDU.noError, response.getErrorStatus());
+        assertEquals(new VariableBinding(SCALAR_OID, new Integer32(42)), response.get(0));
+    }
+}
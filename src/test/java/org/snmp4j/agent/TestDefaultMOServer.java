@@ -22,6 +22,7 @@ package org.snmp4j.agent;
 
 import junit.framework.*;
 import org.snmp4j.agent.mo.GenericManagedObject;
+import org.snmp4j.agent.mo.lock.DefaultMOLockStrategy;
 import org.snmp4j.agent.mo.lock.LockRequest;
 import org.snmp4j.agent.mo.lock.MOLockStrategy;
 import org.snmp4j.agent.request.SnmpRequest;
@@ -32,6 +33,11 @@ import org.snmp4j.agent.mo.MOScalar;
 import org.snmp4j.mp.SnmpConstants;
 import org.snmp4j.agent.mo.MOAccessImpl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
 public class TestDefaultMOServer extends TestCase {
 
     private static final OID TEST_ENT_OID_LOW = new OID("1.3.6.1.4.1.777777.80.2.8888.1.1.1.2.1");
@@ -138,6 +144,194 @@ public class TestDefaultMOServer extends TestCase {
         }
     }
 
+    public void testLockTimeout() throws InterruptedException {
+        Object owner1 = new Object();
+        Object owner2 = new Object();
+        assertTrue(defaultMOServer.lock(owner1, table, 100));
+        assertTrue(defaultMOServer.lock(owner1, table, 100));
+        assertFalse(defaultMOServer.lock(owner2, table, 50));
+        assertEquals(1, defaultMOServer.getLockTimeoutCount());
+        assertEquals(1, defaultMOServer.getLockWaitCount());
+        assertTrue(defaultMOServer.getLockWaitTimeNanos() >= 50 * SnmpConstants.MILLISECOND_TO_NANOSECOND);
+        assertTrue(defaultMOServer.lock(owner2, table2, 50));
+        assertFalse(defaultMOServer.unlock(owner1, table));
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            defaultMOServer.unlock(owner1, table);
+        });
+        releaser.start();
+        assertTrue(defaultMOServer.lock(owner2, table, 5000));
+        releaser.join();
+        assertTrue(defaultMOServer.unlock(owner2, table));
+        assertTrue(defaultMOServer.unlock(owner2, table2));
+    }
+
+    public void testFairLocking() throws InterruptedException {
+        DefaultMOServer fairServer = new DefaultMOServer(1, true);
+        Object holder = new Object();
+        assertTrue(fairServer.lock(holder, table));
+        List<String> grants = Collections.synchronizedList(new ArrayList<>());
+        LockRequest.LockMode[] modes = {
+                LockRequest.LockMode.exclusive, LockRequest.LockMode.shared,
+                LockRequest.LockMode.shared, LockRequest.LockMode.exclusive
+        };
+        List<Thread> waiters = new ArrayList<>();
+        for (int i = 0; i < modes.length; i++) {
+            final String name = modes[i] + "" + i;
+            final LockRequest.LockMode mode = modes[i];
+            Thread waiter = new Thread(() -> {
+                Object owner = new Object();
+                if (fairServer.lock(owner, table, 5000, mode)) {
+                    grants.add(name);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                    fairServer.unlock(owner, table);
+                }
+            });
+            waiter.start();
+            waiters.add(waiter);
+            // make sure the waiters arrive in order
+            while (fairServer.getLockWaitCount() <= i) {
+                Thread.sleep(1);
+            }
+        }
+        assertTrue(fairServer.unlock(holder, table));
+        // a new owner must not overtake the waiters
+        assertFalse(fairServer.lock(new Object(), table, 1, LockRequest.LockMode.shared));
+        for (Thread waiter : waiters) {
+            waiter.join();
+        }
+        assertEquals(modes.length, grants.size());
+        assertEquals("exclusive0", grants.get(0));
+        assertTrue(grants.subList(1, 3).contains("shared1"));
+        assertTrue(grants.subList(1, 3).contains("shared2"));
+        assertEquals("exclusive3", grants.get(3));
+        assertTrue(fairServer.lock(holder, table, 100));
+        assertTrue(fairServer.unlock(holder, table));
+    }
+
+    public void testSharedLocks() {
+        Object reader1 = new Object();
+        Object reader2 = new Object();
+        Object writer = new Object();
+        assertTrue(defaultMOServer.lock(reader1, table, 50, LockRequest.LockMode.shared));
+        assertTrue(defaultMOServer.lock(reader2, table, 50, LockRequest.LockMode.shared));
+        assertFalse(defaultMOServer.lock(writer, table, 20, LockRequest.LockMode.exclusive));
+        assertTrue(defaultMOServer.unlock(reader1, table));
+        assertFalse(defaultMOServer.lock(writer, table, 20, LockRequest.LockMode.exclusive));
+        // sole shared owner may upgrade
+        assertTrue(defaultMOServer.lock(reader2, table, 20, LockRequest.LockMode.exclusive));
+        assertFalse(defaultMOServer.lock(reader1, table, 20, LockRequest.LockMode.shared));
+        assertTrue(defaultMOServer.downgradeLock(reader2, table));
+        assertTrue(defaultMOServer.lock(reader1, table, 20, LockRequest.LockMode.shared));
+        assertFalse(defaultMOServer.unlock(reader2, table));
+        assertTrue(defaultMOServer.unlock(reader2, table));
+        assertTrue(defaultMOServer.unlock(reader1, table));
+        assertTrue(defaultMOServer.lock(writer, table, 20, LockRequest.LockMode.exclusive));
+        assertTrue(defaultMOServer.unlock(writer, table));
+    }
+
+    public void testSharedLockModeForReadAccess() {
+        MOQuery query = new DefaultMOQuery(
+                new DefaultMOContextScope(new OctetString(), SnmpConstants.sysServices, true,
+                        SnmpConstants.sysServices, true));
+        defaultMOServer.setLockStrategy(new DefaultMOLockStrategy() {
+            @Override
+            public boolean isLockNeeded(ManagedObject<?> managedObjectLookedUp, MOQuery query) {
+                return true;
+            }
+        });
+        Object reader1 = new Object();
+        Object reader2 = new Object();
+        LockRequest lockRequest1 = new LockRequest(reader1, 50);
+        LockRequest lockRequest2 = new LockRequest(reader2, 50);
+        ManagedObject<?> mo = defaultMOServer.lookup(query, lockRequest1,
+                new MOServerLookupEvent(this, null, query, MOServerLookupEvent.IntendedUse.get));
+        assertNotNull(mo);
+        assertEquals(LockRequest.LockMode.shared, lockRequest1.getLockMode());
+        assertNotNull(defaultMOServer.lookup(query, lockRequest2,
+                new MOServerLookupEvent(this, null, query, MOServerLookupEvent.IntendedUse.getNext)));
+        assertEquals(LockRequest.LockStatus.locked, lockRequest2.getLockRequestStatus());
+        LockRequest writeRequest = new LockRequest(new Object(), 20);
+        assertNull(defaultMOServer.lookup(query, writeRequest,
+                new MOServerLookupEvent(this, null, query, MOServerLookupEvent.IntendedUse.prepare)));
+        assertEquals(LockRequest.LockStatus.lockTimedOut, writeRequest.getLockRequestStatus());
+        assertTrue(defaultMOServer.unlock(reader1, mo));
+        assertTrue(defaultMOServer.unlock(reader2, mo));
+    }
+
+    public void testUpdateLockFallbackWithinTimeout() throws InterruptedException {
+        UpdatableTestRange mo = new UpdatableTestRange(tableScope1);
+        MOQuery query = new DefaultMOQuery(tableScope1);
+        defaultMOServer.setUpdateStrategy((server, updatable, q) -> true);
+        Object reader1 = new Object();
+        Object reader2 = new Object();
+        assertTrue(defaultMOServer.lock(reader1, mo, 200, LockRequest.LockMode.shared));
+        assertTrue(defaultMOServer.lock(reader2, mo, 200, LockRequest.LockMode.shared));
+        // a waiting writer prevents new shared locks for owners that do not hold one
+        Thread writer = new Thread(() -> defaultMOServer.lock(new Object(), mo, 5000, LockRequest.LockMode.exclusive));
+        writer.start();
+        Thread.sleep(50);
+        LockRequest lockRequest = new LockRequest(reader1, 200);
+        lockRequest.setLockRequestStatus(LockRequest.LockStatus.locked);
+        long start = System.nanoTime();
+        assertFalse(defaultMOServer.checkForUpdateExclusively(mo, query, lockRequest));
+        long elapsedMillis = (System.nanoTime() - start) / SnmpConstants.MILLISECOND_TO_NANOSECOND;
+        assertTrue("Waited " + elapsedMillis + "ms", elapsedMillis < 350);
+        assertEquals(LockRequest.LockStatus.lockTimedOut, lockRequest.getLockRequestStatus());
+        assertFalse(mo.updated);
+        assertTrue(defaultMOServer.unlock(reader2, mo));
+        writer.join();
+    }
+
+    public void testLookupWhileRegistering() throws Exception {
+        final OID base = new OID("1.3.6.1.4.1.777777.80.3");
+        Thread registrar = new Thread(() -> {
+            for (int i = 1; i <= 200; i++) {
+                MOScalar<Integer32> scalar = new MOScalar<>(new OID(base.getValue(), new int[] { i, 0 }),
+                        MOAccessImpl.ACCESS_READ_ONLY, new Integer32(i));
+                try {
+                    defaultMOServer.register(scalar, null);
+                } catch (DuplicateRegistrationException drex) {
+                    fail(drex.getMessage());
+                }
+                if (i % 2 == 0) {
+                    defaultMOServer.unregister(scalar, null);
+                }
+            }
+        });
+        registrar.start();
+        MOQuery query = new DefaultMOQuery(
+                new DefaultMOContextScope(new OctetString(), SnmpConstants.sysDescr, true,
+                        SnmpConstants.sysDescr, true));
+        while (registrar.isAlive()) {
+            assertNotNull(defaultMOServer.lookup(query));
+        }
+        registrar.join();
+        for (int i = 1; i <= 200; i++) {
+            ManagedObject<?> mo = defaultMOServer.getManagedObject(new OID(base.getValue(), new int[] { i, 0 }), null, false);
+            if (i % 2 == 0) {
+                assertNull(mo);
+            }
+            else {
+                assertNotNull(mo);
+            }
+        }
+        try {
+            defaultMOServer.getRegistry().clear();
+            fail("Registry snapshot must not be modifiable");
+        } catch (UnsupportedOperationException uoex) {
+            // expected
+        }
+    }
+
     public void _testRegister() throws DuplicateRegistrationException {
         ManagedObject<SubRequest<?>> mo = null;
         OctetString context = null;
@@ -159,6 +353,95 @@ public class TestDefaultMOServer extends TestCase {
         assertNull(defaultMOServer.getManagedObject(SnmpConstants.sysDescr, context));
     }
 
+    public void testLookupCache() throws DuplicateRegistrationException {
+        OID instance = new OID(SnmpConstants.sysDescr);
+        MOQuery query = new DefaultMOQuery(new DefaultMOContextScope(new OctetString("context2"),
+                instance, true, instance, true));
+        ManagedObject<?> mo = defaultMOServer.lookup(query);
+        assertEquals(new OctetString("context2"), ((MOScalar<?>) mo).getValue());
+        assertEquals(0, defaultMOServer.getLookupCacheHits());
+        assertEquals(1, defaultMOServer.getLookupCacheMisses());
+        // the cache must not be affected by modifications of the query OID
+        instance.append(1);
+        query = new DefaultMOQuery(new DefaultMOContextScope(new OctetString("context2"),
+                SnmpConstants.sysDescr, true, SnmpConstants.sysDescr, true));
+        assertSame(mo, defaultMOServer.lookup(query));
+        assertEquals(1, defaultMOServer.getLookupCacheHits());
+        query = new DefaultMOQuery(new DefaultMOContextScope(new OctetString("context3"),
+                SnmpConstants.sysDescr, true, SnmpConstants.sysDescr, true));
+        assertEquals(new OctetString("contextDefault"), ((MOScalar<?>) defaultMOServer.lookup(query)).getValue());
+        assertEquals(2, defaultMOServer.getLookupCacheMisses());
+
+        // registering a more specific object invalidates the cache
+        MOScalar<OctetString> context3Descr = new MOScalar<OctetString>(SnmpConstants.sysDescr,
+                MOAccessImpl.ACCESS_READ_WRITE, new OctetString("context3"));
+        defaultMOServer.register(context3Descr, new OctetString("context3"));
+        assertSame(context3Descr, defaultMOServer.lookup(query));
+        assertEquals(3, defaultMOServer.getLookupCacheMisses());
+        assertSame(context3Descr, defaultMOServer.lookup(query));
+        assertEquals(2, defaultMOServer.getLookupCacheHits());
+        defaultMOServer.unregister(context3Descr, new OctetString("context3"));
+        assertEquals(new OctetString("contextDefault"), ((MOScalar<?>) defaultMOServer.lookup(query)).getValue());
+        assertEquals(4, defaultMOServer.getLookupCacheMisses());
+
+        // unknown instances are cached as well
+        OID unknown = new OID("1.3.6.1.4.1.777777.99.0");
+        query = new DefaultMOQuery(new DefaultMOContextScope(new OctetString(), unknown, true, unknown, true));
+        assertNull(defaultMOServer.lookup(query));
+        assertNull(defaultMOServer.lookup(query));
+        assertEquals(3, defaultMOServer.getLookupCacheHits());
+        defaultMOServer.addContext(new OctetString("context4"));
+        assertNull(defaultMOServer.lookup(query));
+        assertEquals(6, defaultMOServer.getLookupCacheMisses());
+
+        defaultMOServer.setLookupCacheSize(0);
+        assertNull(defaultMOServer.lookup(query));
+        assertEquals(3, defaultMOServer.getLookupCacheHits());
+        assertEquals(6, defaultMOServer.getLookupCacheMisses());
+    }
+
+
+    public void testLookupCacheCounters() throws DuplicateRegistrationException {
+        defaultMOServer.registerMOs(defaultMOServer, null);
+        assertEquals(new OctetString("contextDefault"),
+                DefaultMOServer.getValue(defaultMOServer, new OctetString(), SnmpConstants.sysDescr));
+        assertEquals(new OctetString("contextDefault"),
+                DefaultMOServer.getValue(defaultMOServer, new OctetString(), SnmpConstants.sysDescr));
+        // reading a counter is a lookup itself, which is counted before the counter's value is returned
+        assertEquals(new Counter32(1), DefaultMOServer.getValue(defaultMOServer, null,
+                DefaultMOServer.oidSnmp4jRequestLookupCacheHits));
+        assertEquals(new Counter32(3), DefaultMOServer.getValue(defaultMOServer, null,
+                DefaultMOServer.oidSnmp4jRequestLookupCacheMisses));
+        assertEquals(new Counter32(2), DefaultMOServer.getValue(defaultMOServer, null,
+                DefaultMOServer.oidSnmp4jRequestLookupCacheHits));
+        assertEquals(2, defaultMOServer.getLookupCacheHits());
+        assertEquals(3, defaultMOServer.getLookupCacheMisses());
+        defaultMOServer.unregisterMOs(defaultMOServer, null);
+        assertNull(DefaultMOServer.getValue(defaultMOServer, null, DefaultMOServer.oidSnmp4jRequestLookupCacheHits));
+    }
+
+    class UpdatableTestRange extends TestRange implements UpdatableManagedObject<SubRequest<?>> {
+        private boolean updated;
+
+        public UpdatableTestRange(MOContextScope scope) {
+            super(scope);
+        }
+
+        @Override
+        public Date getLastUpdate() {
+            return null;
+        }
+
+        @Override
+        public Object getLastUpdateSource() {
+            return null;
+        }
+
+        @Override
+        public void update(MOQuery updateScope) {
+            updated = true;
+        }
+    }
 
     class TestRange implements GenericManagedObject {
         private MOContextScope tableScope;
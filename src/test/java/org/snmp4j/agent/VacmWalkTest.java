@@ -0,0 +1,179 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - VacmWalkTest.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.agent.mo.*;
+import org.snmp4j.agent.mo.snmp.StorageType;
+import org.snmp4j.agent.mo.snmp.VacmMIB;
+import org.snmp4j.agent.request.SnmpRequest;
+import org.snmp4j.agent.security.VACM;
+import org.snmp4j.mp.MPv2c;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.smi.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests GETNEXT and GETBULK processing with views that exclude parts of the walked objects.
+ */
+public class VacmWalkTest {
+
+    private static final OID ENTERPRISE_OID = new OID("1.3.6.1.4.1.4976.6.3.2");
+    private static final OID TABLE_ENTRY_OID = new OID("1.3.6.1.4.1.4976.6.3.2.1.1");
+    private static final OID SCALAR_OID = new OID("1.3.6.1.4.1.4976.6.3.2.2.0");
+    private static final OctetString VIEW_NAME = new OctetString("restricted");
+    private static final int NUM_COLUMNS = 4;
+    private static final int NUM_ROWS = 1000;
+
+    private DefaultMOServer server;
+    private CommandProcessor commandProcessor;
+    private CountingVacmMIB vacm;
+    private List<OID> instances;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new DefaultMOServer();
+        MOColumn<?>[] columns = new MOColumn<?>[NUM_COLUMNS];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = new MOColumn<>(c + 1, SMIConstants.SYNTAX_INTEGER32, MOAccessImpl.ACCESS_READ_ONLY);
+        }
+        DefaultMOTable<DefaultMOTableRow, MOColumn, DefaultMOMutableTableModel<DefaultMOTableRow>> table =
+                new DefaultMOTable<>(TABLE_ENTRY_OID,
+                        new MOTableIndex(new MOTableSubIndex[] { new MOTableSubIndex(SMIConstants.SYNTAX_INTEGER) }),
+                        columns);
+        instances = new ArrayList<>();
+        for (int r = 1; r <= NUM_ROWS; r++) {
+            Variable[] values = new Variable[NUM_COLUMNS];
+            for (int c = 0; c < values.length; c++) {
+                values[c] = new Integer32(r * 10 + c);
+            }
+            table.addRow(new DefaultMOTableRow(new OID(new int[] { r }), values));
+        }
+        for (int c = 1; c <= NUM_COLUMNS; c++) {
+            for (int r = 1; r <= NUM_ROWS; r++) {
+                instances.add(new OID(TABLE_ENTRY_OID.getValue(), new int[] { c, r }));
+            }
+        }
+        instances.add(SCALAR_OID);
+        server.register(table, null);
+        server.register(new MOScalar<>(SCALAR_OID, MOAccessImpl.ACCESS_READ_ONLY, new Integer32(42)), null);
+
+        vacm = new CountingVacmMIB(server);
+        vacm.addViewTreeFamily(VIEW_NAME, ENTERPRISE_OID, new OctetString(),
+                VacmMIB.vacmViewIncluded, StorageType.volatile_);
+        // the first column with row indexes below 500
+        vacm.addViewTreeFamily(VIEW_NAME, new OID(TABLE_ENTRY_OID.getValue(), new int[] { 1 }), new OctetString(),
+                VacmMIB.vacmViewExcluded, StorageType.volatile_);
+        vacm.addViewTreeFamily(VIEW_NAME, new OID(TABLE_ENTRY_OID.getValue(), new int[] { 1, 500 }),
+                new OctetString(), VacmMIB.vacmViewIncluded, StorageType.volatile_);
+        // the whole second column
+        vacm.addViewTreeFamily(VIEW_NAME, new OID(TABLE_ENTRY_OID.getValue(), new int[] { 2 }), new OctetString(),
+                VacmMIB.vacmViewExcluded, StorageType.volatile_);
+        // row 7 of all columns (the column sub-identifier is masked out)
+        vacm.addViewTreeFamily(VIEW_NAME, new OID(TABLE_ENTRY_OID.getValue(), new int[] { 0, 7 }),
+                OctetString.fromHexString("ff:ef"), VacmMIB.vacmViewExcluded, StorageType.volatile_);
+        commandProcessor = new CommandProcessor(new OctetString("engine"));
+        commandProcessor.setVacm(vacm);
+    }
+
+    private List<OID> expectedWalk() {
+        List<OID> expected = new ArrayList<>();
+        for (OID oid : instances) {
+            if (vacm.isAccessAllowed(VIEW_NAME, oid) == VACM.VACM_OK) {
+                expected.add(oid);
+            }
+        }
+        vacm.checks = 0;
+        return expected;
+    }
+
+    private PDU process(int pduType, int maxRepetitions, OID oid) {
+        PDU pdu = new PDU();
+        pdu.setType(pduType);
+        pdu.setMaxRepetitions(maxRepetitions);
+        pdu.add(new VariableBinding(oid));
+        CommandResponderEvent<UdpAddress> event = new CommandResponderEvent<>(new MessageDispatcherImpl(), null,
+                new UdpAddress("127.0.0.1/161"), MPv2c.ID, SecurityModel.SECURITY_MODEL_SNMPv2c,
+                "public".getBytes(), SecurityLevel.NOAUTH_NOPRIV, null, pdu, 65535, null);
+        SnmpRequest request = new SnmpRequest(event, null);
+        request.setViewName(VIEW_NAME);
+        commandProcessor.getHandler(pduType).processPdu(request, server);
+        assertTrue(request.isComplete());
+        return request.getResponse();
+    }
+
+    @Test
+    public void walkWithGetNext() {
+        List<OID> expected = expectedWalk();
+        List<OID> walked = new ArrayList<>();
+        OID oid = ENTERPRISE_OID;
+        while (true) {
+            VariableBinding vb = process(PDU.GETNEXT, 0, oid).get(0);
+            if (vb.isException()) {
+                assertEquals(Null.endOfMibView, vb.getVariable());
+                break;
+            }
+            oid = vb.getOid();
+            walked.add(oid);
+        }
+        assertEquals(expected, walked);
+        // excluded regions are skipped with a few checks instead of one check per excluded instance
+        assertTrue("VACM checks: " + vacm.checks, vacm.checks < expected.size() + 100);
+    }
+
+    @Test
+    public void walkWithGetBulk() {
+        List<OID> expected = expectedWalk();
+        PDU response = process(PDU.GETBULK, expected.size() + 1, ENTERPRISE_OID);
+        List<OID> walked = new ArrayList<>();
+        for (VariableBinding vb : response.getVariableBindings()) {
+            if (!vb.isException()) {
+                walked.add(vb.getOid());
+            }
+        }
+        assertEquals(expected, walked);
+        assertTrue("VACM checks: " + vacm.checks, vacm.checks < expected.size() + 100);
+    }
+
+    private static class CountingVacmMIB extends VacmMIB {
+
+        private int checks;
+
+        CountingVacmMIB(MOServer server) {
+            super(new MOServer[] { server });
+        }
+
+        @Override
+        public int isAccessAllowed(OctetString viewName, OID oid) {
+            checks++;
+            return super.isAccessAllowed(viewName, oid);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - ColumnarMOTableModelTest.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.junit.Test;
+import org.snmp4j.smi.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ColumnarMOTableModelTest {
+
+    private static final int[] SYNTAXES = {
+            SMIConstants.SYNTAX_OCTET_STRING, SMIConstants.SYNTAX_INTEGER, SMIConstants.SYNTAX_COUNTER64,
+            SMIConstants.SYNTAX_COUNTER32, SMIConstants.SYNTAX_OBJECT_IDENTIFIER
+    };
+
+    private static Variable[] createValues(Random random, int i) {
+        byte[] octets = new byte[random.nextInt(12)];
+        random.nextBytes(octets);
+        return new Variable[] {
+                new OctetString(octets), new Integer32(-i), new Counter64(random.nextLong()),
+                (i % 5 == 0) ? null : new Counter32(i & 0xFFFFFFFFL), new OID(new int[] { 1, 3, i })
+        };
+    }
+
+    @Test
+    public void compareWithTreeMap() {
+        ColumnarMOTableModel model = new ColumnarMOTableModel(SYNTAXES, 2);
+        TreeMap<OID, Variable[]> reference = new TreeMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            OID index = new OID(new int[] { random.nextInt(40), random.nextInt(40) });
+            switch (random.nextInt(4)) {
+                case 0: {
+                    Variable[] removed = reference.remove(index);
+                    ColumnarMOTableModel.ColumnarRow row = model.removeRow(index);
+                    if (removed == null) {
+                        assertNull(row);
+                    } else {
+                        assertFalse(row.isAttached());
+                        assertArrayEquals(removed, row.getValues());
+                    }
+                    break;
+                }
+                case 1: {
+                    ColumnarMOTableModel.ColumnarRow row = model.getRow(index);
+                    if (row != null) {
+                        Variable value = new OctetString(new byte[random.nextInt(20)]);
+                        row.setValue(0, value);
+                        reference.get(index)[0] = value;
+                    }
+                    break;
+                }
+                default: {
+                    Variable[] values = createValues(random, i);
+                    reference.put(index, values.clone());
+                    model.addRow(model.createRow(index, values));
+                }
+            }
+        }
+        assertEquals(reference.size(), model.getRowCount());
+        assertEquals(reference.firstKey(), model.firstIndex());
+        assertEquals(reference.lastKey(), model.lastIndex());
+        Iterator<ColumnarMOTableModel.ColumnarRow> it = model.iterator();
+        for (Map.Entry<OID, Variable[]> e : reference.entrySet()) {
+            ColumnarMOTableModel.ColumnarRow row = it.next();
+            assertEquals(e.getKey(), row.getIndex());
+            assertTrue(row.isAttached());
+            for (int c = 0; c < SYNTAXES.length; c++) {
+                assertEquals(e.getValue()[c], row.getValue(c));
+            }
+        }
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void rowViews() {
+        ColumnarMOTableModel model = new ColumnarMOTableModel(SYNTAXES);
+        OID index = new OID(new int[] { 7 });
+        ColumnarMOTableModel.ColumnarRow row = model.createRow(index,
+                new Variable[] { new OctetString("eth0"), new Integer32(1), new Counter64(-1L), null, null });
+        assertFalse(row.isAttached());
+        assertNull(model.addRow(row));
+        assertTrue(row.isAttached());
+        ColumnarMOTableModel.ColumnarRow view = model.getRow(index);
+        row.setValue(2, new Counter64(42));
+        assertEquals(new Counter64(42), view.getValue(2));
+        // values of another syntax are kept as they are
+        view.setValue(1, new Null());
+        assertEquals(new Null(), row.getValue(1));
+        assertNull(row.getValue(3));
+        assertEquals(SYNTAXES.length, view.size());
+        ColumnarMOTableModel.ColumnarRow removed = model.removeRow(index);
+        assertEquals(new OctetString("eth0"), removed.getValue(0));
+        assertNull(view.getValue(0));
+        view.setValue(0, new OctetString("ignored"));
+        model.addRow(index, new Variable[] { new OctetString("eth1"), null, null, null, null });
+        assertNull(view.getValue(0));
+        assertEquals(new OctetString("eth1"), model.getRow(index).getValue(0));
+        assertTrue(model.containsRow(index));
+        model.clear();
+        assertTrue(model.isEmpty());
+        assertNull(model.firstRow());
+    }
+}
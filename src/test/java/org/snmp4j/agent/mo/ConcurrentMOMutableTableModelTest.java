@@ -0,0 +1,86 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - ConcurrentMOMutableTableModelTest.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.junit.Test;
+import org.snmp4j.agent.DefaultMOContextScope;
+import org.snmp4j.smi.*;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentMOMutableTableModelTest {
+
+    private static final OID TEST_TABLE_OID = new OID("1.3.6.1.4.1.4976.6.3.1.4");
+
+    private static DefaultMOTableRow createRow(int index) {
+        return new DefaultMOTableRow(new OID(new int[] { index }),
+                new Variable[] { new Integer32(index), new OctetString("row" + index) });
+    }
+
+    @Test
+    public void tailIteratorWhileModifying() {
+        ConcurrentMOMutableTableModel<DefaultMOTableRow> model = new ConcurrentMOMutableTableModel<>();
+        for (int i = 1; i <= 100; i++) {
+            model.addRow(createRow(i * 2));
+        }
+        assertEquals(new OID(new int[] { 2 }), model.firstIndex());
+        assertEquals(new OID(new int[] { 200 }), model.lastIndex());
+        Iterator<DefaultMOTableRow> it = model.tailIterator(new OID(new int[] { 11 }));
+        assertEquals(new OID(new int[] { 12 }), it.next().getIndex());
+        // modifications while iterating must not fail
+        model.removeRow(new OID(new int[] { 14 }));
+        model.addRow(createRow(13));
+        int count = 0;
+        OID last = new OID(new int[] { 12 });
+        while (it.hasNext()) {
+            OID index = it.next().getIndex();
+            assertTrue(index.compareTo(last) > 0);
+            last = index;
+            count++;
+        }
+        assertTrue(count >= 93);
+        assertEquals(100, model.getRowCount());
+        assertEquals(3, model.getRows(new OID(new int[] { 12 }), new OID(new int[] { 17 })).size());
+    }
+
+    @Test
+    public void findCellWithConcurrentModel() {
+        MOColumn<?>[] columns = new MOColumn<?>[] {
+                new MOColumn<>(2, SMIConstants.SYNTAX_INTEGER32),
+                new MOColumn<>(3, SMIConstants.SYNTAX_OCTET_STRING)
+        };
+        DefaultMOTable<DefaultMOTableRow, MOColumn, ConcurrentMOMutableTableModel<DefaultMOTableRow>> table =
+                new DefaultMOTable<>(TEST_TABLE_OID,
+                        new MOTableIndex(new MOTableSubIndex[] { new MOTableSubIndex(SMIConstants.SYNTAX_INTEGER32) }),
+                        columns, new ConcurrentMOMutableTableModel<>());
+        for (int i = 1; i <= 10; i++) {
+            table.addRow(createRow(i));
+        }
+        OID lowerBound = new OID(TEST_TABLE_OID);
+        lowerBound.append(2).append(10);
+        OID next = table.find(new DefaultMOContextScope(null, lowerBound, false, null, false));
+        OID expected = new OID(TEST_TABLE_OID);
+        expected.append(3).append(1);
+        assertEquals(expected, next);
+    }
+}
@@ -0,0 +1,276 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - MOTableBulkUpdateTest.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.junit.Test;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.agent.request.SnmpRequest;
+import org.snmp4j.mp.MPv2c;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.smi.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class MOTableBulkUpdateTest {
+
+    private static final int ROWS = 100;
+    private static final OID TABLE_ENTRY_OID = new OID("1.3.6.1.4.1.4976.6.3.4.1");
+
+    private static OID index(int i) {
+        return new OID(new int[] { i });
+    }
+
+    private static MOTableBulkUpdate createUpdate(long value) {
+        MOTableBulkUpdate update = new MOTableBulkUpdate();
+        for (int i = 1; i <= ROWS; i++) {
+            update.add(index(i), 0, SMIConstants.SYNTAX_COUNTER64, value);
+            update.add(index(i), 1, SMIConstants.SYNTAX_INTEGER32, value);
+        }
+        return update;
+    }
+
+    @Test
+    public void defaultModel() {
+        DefaultMOMutableTableModel<DefaultMOMutableRow2PC> model = new DefaultMOMutableTableModel<>();
+        for (int i = 1; i <= ROWS; i++) {
+            model.addRow(new DefaultMOMutableRow2PC(index(i), new Variable[] { new Counter64(0), new Integer32(0) }));
+        }
+        List<MOTableModelEvent> events = new ArrayList<>();
+        model.addMOTableModelListener(events::add);
+        MOTableBulkUpdate update = createUpdate(5);
+        update.add(index(ROWS + 1), 0, new Counter64(1));
+        assertEquals(2 * ROWS, model.applyUpdates(update));
+        assertEquals(1, events.size());
+        assertEquals(MOTableModelEvent.ROWS_UPDATED, events.get(0).getType());
+        assertSame(update, events.get(0).getBulkUpdate());
+        assertEquals(2 * ROWS, events.get(0).getUpdatedCells());
+        assertEquals(new Counter64(5), model.getRow(index(ROWS)).getValue(0));
+        assertEquals(new Integer32(5), model.getRow(index(1)).getValue(1));
+    }
+
+    @Test
+    public void columnarModelAtomicity() throws InterruptedException {
+        ColumnarMOTableModel model = new ColumnarMOTableModel(
+                new int[] { SMIConstants.SYNTAX_COUNTER64, SMIConstants.SYNTAX_INTEGER32 });
+        for (int i = 1; i <= ROWS; i++) {
+            model.addRow(index(i), new Variable[] { new Counter64(0), new Integer32(0) });
+        }
+        List<MOTableModelEvent> events = new ArrayList<>();
+        model.addMOTableModelListener(events::add);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean torn = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                for (ColumnarMOTableModel.ColumnarRow row : (Iterable<ColumnarMOTableModel.ColumnarRow>) model::iterator) {
+                    Variable[] values = row.getValues();
+                    if (values[0].toLong() != values[1].toLong()) {
+                        torn.set(true);
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int v = 1; v <= 500; v++) {
+            assertEquals(2 * ROWS, model.applyUpdates(createUpdate(v)));
+        }
+        running.set(false);
+        reader.join();
+        assertFalse(torn.get());
+        assertEquals(500, events.size());
+        assertEquals(new Counter64(500), model.getRow(index(ROWS)).getValue(0));
+        assertEquals(new Integer32(500), model.getRow(index(ROWS)).getValue(1));
+        // a value of a different syntax is stored as object
+        MOTableBulkUpdate update = new MOTableBulkUpdate(1);
+        update.add(index(1), 0, SMIConstants.SYNTAX_GAUGE32, 7);
+        assertEquals(1, model.applyUpdates(update));
+        assertEquals(new Gauge32(7), model.getRow(index(1)).getValue(0));
+    }
+
+    @Test
+    public void columnarModelCrossRowReads() throws InterruptedException {
+        MOColumn<?>[] columns = new MOColumn<?>[] {
+                new MOColumn<>(1, SMIConstants.SYNTAX_COUNTER64, MOAccessImpl.ACCESS_READ_ONLY),
+                new MOColumn<>(2, SMIConstants.SYNTAX_INTEGER32, MOAccessImpl.ACCESS_READ_ONLY)
+        };
+        ColumnarMOTableModel model = ColumnarMOTableModel.forColumns(columns);
+        for (int i = 1; i <= ROWS; i++) {
+            model.addRow(index(i), new Variable[] { new Counter64(0), new Integer32(0) });
+        }
+        DefaultMOTable<ColumnarMOTableModel.ColumnarRow, MOColumn<?>, ColumnarMOTableModel> table =
+                new DefaultMOTable<>(new OID("1.3.6.1.4.1.4976.6.3.4.1"),
+                        new MOTableIndex(new MOTableSubIndex[] { new MOTableSubIndex(SMIConstants.SYNTAX_INTEGER) }),
+                        columns, model);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean walkTorn = new AtomicBoolean();
+        AtomicBoolean snapshotTorn = new AtomicBoolean();
+        Thread walker = new Thread(() -> {
+            while (running.get()) {
+                // a walk may see a later bulk update in later rows, but never an earlier one
+                long previous = 0;
+                for (int i = 1; i <= ROWS; i++) {
+                    long value = table.getValue(index(i), i % 2).toLong();
+                    if (value < previous) {
+                        walkTorn.set(true);
+                    }
+                    previous = value;
+                }
+            }
+        });
+        Thread snapshotReader = new Thread(() -> {
+            while (running.get()) {
+                model.getLock().readLock().lock();
+                try {
+                    long first = table.getValue(index(1), 0).toLong();
+                    for (int i = 2; i <= ROWS; i++) {
+                        if (table.getValue(index(i), 1).toLong() != first) {
+                            snapshotTorn.set(true);
+                        }
+                    }
+                } finally {
+                    model.getLock().readLock().unlock();
+                }
+            }
+        });
+        walker.start();
+        snapshotReader.start();
+        for (int v = 1; v <= 500; v++) {
+            assertEquals(2 * ROWS, table.applyUpdates(createUpdate(v)));
+        }
+        running.set(false);
+        walker.join();
+        snapshotReader.join();
+        assertFalse(walkTorn.get());
+        assertFalse(snapshotTorn.get());
+    }
+
+    private static <R extends MOTableRow, M extends MOMutableTableModel<R>> void assertAtomicReads(M model)
+            throws InterruptedException {
+        MOColumn<?>[] columns = new MOColumn<?>[] {
+                new MOColumn<>(1, SMIConstants.SYNTAX_COUNTER64, MOAccessImpl.ACCESS_READ_ONLY),
+                new MOColumn<>(2, SMIConstants.SYNTAX_INTEGER32, MOAccessImpl.ACCESS_READ_ONLY)
+        };
+        DefaultMOTable<R, MOColumn<?>, M> table = new DefaultMOTable<>(TABLE_ENTRY_OID,
+                new MOTableIndex(new MOTableSubIndex[] { new MOTableSubIndex(SMIConstants.SYNTAX_INTEGER) }),
+                columns, model);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean walkTorn = new AtomicBoolean();
+        AtomicBoolean rowTorn = new AtomicBoolean();
+        Thread walker = new Thread(() -> {
+            while (running.get()) {
+                // a walk may see a later bulk update in later rows, but never an earlier one
+                long previous = 0;
+                for (int i = 1; i <= ROWS; i++) {
+                    long value = table.getValue(index(i), i % 2).toLong();
+                    if (value < previous) {
+                        walkTorn.set(true);
+                    }
+                    previous = value;
+                }
+            }
+        });
+        Thread rowReader = new Thread(() -> {
+            while (running.get()) {
+                for (int i = 0; i < ROWS; i++) {
+                    // both columns of the successor row of index i must stem from the same bulk update
+                    SnmpRequest request = createGetNextRequest(new OID(TABLE_ENTRY_OID.getValue(), new int[] { 1, i }),
+                            new OID(TABLE_ENTRY_OID.getValue(), new int[] { 2, i }));
+                    List<SnmpRequest.SnmpSubRequest> subRequests = new ArrayList<>(2);
+                    for (Iterator<SnmpRequest.SnmpSubRequest> it = request.iterator(); it.hasNext(); ) {
+                        subRequests.add(it.next());
+                    }
+                    if ((table.nextRow(subRequests, oid -> true) != 2) ||
+                            subRequests.get(0).getVariableBinding().getVariable().toLong() !=
+                            subRequests.get(1).getVariableBinding().getVariable().toLong()) {
+                        rowTorn.set(true);
+                    }
+                }
+            }
+        });
+        walker.start();
+        rowReader.start();
+        for (int v = 1; v <= 500; v++) {
+            assertEquals(2 * ROWS, table.applyUpdates(createUpdate(v)));
+        }
+        running.set(false);
+        walker.join();
+        rowReader.join();
+        assertFalse(walkTorn.get());
+        assertFalse(rowTorn.get());
+        assertEquals(new Counter64(500), table.getValue(index(ROWS), 0));
+    }
+
+    private static SnmpRequest createGetNextRequest(OID... oids) {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.GETNEXT);
+        for (OID oid : oids) {
+            pdu.add(new VariableBinding(oid));
+        }
+        CommandResponderEvent<UdpAddress> event = new CommandResponderEvent<>(new MessageDispatcherImpl(), null,
+                new UdpAddress("127.0.0.1/161"), MPv2c.ID, SecurityModel.SECURITY_MODEL_SNMPv2c,
+                "public".getBytes(), SecurityLevel.NOAUTH_NOPRIV, null, pdu, 65535, null);
+        return new SnmpRequest(event, null);
+    }
+
+    private static <M extends MOMutableTableModel<DefaultMOMutableRow2PC>> M addRows(M model) {
+        for (int i = 1; i <= ROWS; i++) {
+            model.addRow(new DefaultMOMutableRow2PC(index(i), new Variable[] { new Counter64(0), new Integer32(0) }));
+        }
+        return model;
+    }
+
+    @Test
+    public void defaultModelAtomicReads() throws InterruptedException {
+        assertAtomicReads(addRows(new DefaultMOMutableTableModel<>()));
+    }
+
+    @Test
+    public void concurrentModelAtomicReads() throws InterruptedException {
+        assertAtomicReads(addRows(new ConcurrentMOMutableTableModel<>()));
+    }
+
+    @Test
+    public void packedIndexModelAtomicReads() throws InterruptedException {
+        assertAtomicReads(addRows(new PackedIndexMOTableModel<>()));
+    }
+
+    @Test
+    public void columnarModelAtomicReads() throws InterruptedException {
+        ColumnarMOTableModel model = new ColumnarMOTableModel(
+                new int[] { SMIConstants.SYNTAX_COUNTER64, SMIConstants.SYNTAX_INTEGER32 });
+        for (int i = 1; i <= ROWS; i++) {
+            model.addRow(index(i), new Variable[] { new Counter64(0), new Integer32(0) });
+        }
+        assertAtomicReads(model);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonNumericSyntax() {
+        new MOTableBulkUpdate().add(index(1), 0, SMIConstants.SYNTAX_OCTET_STRING, 1);
+    }
+}
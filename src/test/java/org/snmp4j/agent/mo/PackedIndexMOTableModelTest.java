@@ -0,0 +1,96 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - PackedIndexMOTableModelTest.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.junit.Test;
+import org.snmp4j.smi.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PackedIndexMOTableModelTest {
+
+    private static DefaultMOTableRow createRow(OID index) {
+        return new DefaultMOTableRow(index, new Variable[] { new Counter32(index.size()) });
+    }
+
+    @Test
+    public void compareWithTreeMap() {
+        PackedIndexMOTableModel<DefaultMOTableRow> model = new PackedIndexMOTableModel<>(4);
+        TreeMap<OID, DefaultMOTableRow> reference = new TreeMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            int[] subIDs = new int[1 + random.nextInt(3)];
+            for (int s = 0; s < subIDs.length; s++) {
+                // include sub-identifiers above 2^31 to check unsigned ordering
+                subIDs[s] = (random.nextInt(10) == 0) ? -1 - random.nextInt(5) : random.nextInt(50);
+            }
+            OID index = new OID(subIDs);
+            if (random.nextInt(4) == 0) {
+                assertEquals(reference.remove(index), model.removeRow(index));
+            } else {
+                DefaultMOTableRow row = createRow(index);
+                assertEquals(reference.put(index, row), model.addRow(row));
+            }
+        }
+        assertEquals(reference.size(), model.getRowCount());
+        assertEquals(reference.firstKey(), model.firstIndex());
+        assertEquals(reference.lastKey(), model.lastIndex());
+        Iterator<DefaultMOTableRow> it = model.iterator();
+        for (DefaultMOTableRow row : reference.values()) {
+            assertSame(row, it.next());
+        }
+        assertFalse(it.hasNext());
+        for (int i = 0; i < 200; i++) {
+            OID lowerBound = new OID(new int[] { random.nextInt(50), random.nextInt(50) });
+            Iterator<DefaultMOTableRow> tail = model.tailIterator(lowerBound);
+            Map.Entry<OID, DefaultMOTableRow> expected = reference.ceilingEntry(lowerBound);
+            if (expected == null) {
+                assertFalse(tail.hasNext());
+            } else {
+                assertSame(expected.getValue(), tail.next());
+            }
+            assertEquals(reference.get(lowerBound), model.getRow(lowerBound));
+        }
+    }
+
+    @Test
+    public void iteratorAfterModification() {
+        PackedIndexMOTableModel<DefaultMOTableRow> model = new PackedIndexMOTableModel<>();
+        for (int i = 1; i <= 10; i++) {
+            model.addRow(createRow(new OID(new int[] { i * 10 })));
+        }
+        Iterator<DefaultMOTableRow> it = model.tailIterator(new OID(new int[] { 25 }));
+        assertEquals(new OID(new int[] { 30 }), it.next().getIndex());
+        model.removeRow(new OID(new int[] { 10 }));
+        model.removeRow(new OID(new int[] { 40 }));
+        model.addRow(createRow(new OID(new int[] { 35 })));
+        assertEquals(new OID(new int[] { 35 }), it.next().getIndex());
+        assertEquals(new OID(new int[] { 50 }), it.next().getIndex());
+        it.remove();
+        assertNull(model.getRow(new OID(new int[] { 50 })));
+        assertEquals(new OID(new int[] { 60 }), it.next().getIndex());
+        assertEquals(4, model.clear(row -> row.getIndex().get(0) < 70).size());
+        assertEquals(4, model.getRowCount());
+        assertEquals(new OID(new int[] { 60 }), model.lastIndex());
+    }
+}
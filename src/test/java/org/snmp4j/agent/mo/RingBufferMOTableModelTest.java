@@ -0,0 +1,145 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - RingBufferMOTableModelTest.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.junit.Test;
+import org.snmp4j.smi.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RingBufferMOTableModelTest {
+
+    private static final OID[] PARTITIONS = {
+            new OctetString("").toSubIndex(false),
+            new OctetString("a").toSubIndex(false),
+            new OctetString("ab").toSubIndex(false),
+            new OctetString("b").toSubIndex(false)
+    };
+
+    private static DefaultMOTableRow createRow(OID index) {
+        return new DefaultMOTableRow(index, new Variable[] { new Counter32(index.size()) });
+    }
+
+    private static OID index(int partition, int... suffix) {
+        OID index = new OID(PARTITIONS[partition]);
+        for (int subID : suffix) {
+            index.append(subID);
+        }
+        return index;
+    }
+
+    @Test
+    public void compareWithTreeMap() {
+        RingBufferMOTableModel<DefaultMOTableRow> model = new RingBufferMOTableModel<>(1);
+        TreeMap<OID, DefaultMOTableRow> reference = new TreeMap<>();
+        Random random = new Random(1);
+        int[] next = new int[PARTITIONS.length];
+        for (int i = 0; i < 5000; i++) {
+            int partition = random.nextInt(PARTITIONS.length);
+            int op = random.nextInt(10);
+            if (op < 6) {
+                // append
+                DefaultMOTableRow row = createRow(index(partition, ++next[partition]));
+                assertEquals(reference.put(row.getIndex(), row), model.addRow(row));
+            } else if (op < 7) {
+                // insert or replace anywhere
+                DefaultMOTableRow row = createRow(index(partition, random.nextInt(next[partition] + 2)));
+                assertEquals(reference.put(row.getIndex(), row), model.addRow(row));
+            } else if (op < 8) {
+                OID index = index(partition, random.nextInt(next[partition] + 2));
+                assertEquals(reference.remove(index), model.removeRow(index));
+            } else if (op < 9) {
+                OID lowerBound = index(partition, random.nextInt(next[partition] + 2));
+                OID upperBound = index(partition, lowerBound.last() + random.nextInt(5));
+                List<DefaultMOTableRow> expected = new ArrayList<>(reference.subMap(lowerBound, upperBound).values());
+                reference.subMap(lowerBound, upperBound).clear();
+                assertEquals(expected, model.removeRows(lowerBound, upperBound));
+            } else {
+                DefaultMOTableRow oldest = model.removeOldestRow(PARTITIONS[partition]);
+                Map.Entry<OID, DefaultMOTableRow> expected = reference.ceilingEntry(PARTITIONS[partition]);
+                if ((expected == null) || !expected.getKey().startsWith(PARTITIONS[partition])) {
+                    assertNull(oldest);
+                } else {
+                    assertSame(expected.getValue(), oldest);
+                    reference.remove(expected.getKey());
+                }
+            }
+        }
+        assertEquals(reference.size(), model.getRowCount());
+        assertEquals(reference.firstKey(), model.firstIndex());
+        assertEquals(reference.lastKey(), model.lastIndex());
+        Iterator<DefaultMOTableRow> it = model.iterator();
+        for (DefaultMOTableRow row : reference.values()) {
+            assertSame(row, it.next());
+        }
+        assertFalse(it.hasNext());
+        for (int i = 0; i < 200; i++) {
+            int partition = random.nextInt(PARTITIONS.length);
+            OID lowerBound = index(partition, random.nextInt(next[partition] + 2));
+            Iterator<DefaultMOTableRow> tail = model.tailIterator(lowerBound);
+            for (DefaultMOTableRow row : reference.tailMap(lowerBound).values()) {
+                assertSame(row, tail.next());
+            }
+            assertFalse(tail.hasNext());
+            assertEquals(reference.get(lowerBound), model.getRow(lowerBound));
+        }
+        for (OID partition : PARTITIONS) {
+            assertEquals(reference.subMap(partition, partition.nextPeer()).size(), model.getRowCount(partition));
+        }
+    }
+
+    @Test
+    public void removeOldestRowAcrossPartitions() {
+        RingBufferMOTableModel<DefaultMOTableRow> model = new RingBufferMOTableModel<>(1);
+        List<DefaultMOTableRow> added = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            DefaultMOTableRow row = createRow(index(i % PARTITIONS.length, i));
+            model.addRow(row);
+            added.add(row);
+        }
+        for (DefaultMOTableRow row : added) {
+            assertSame(row, model.getOldestRow(null));
+            assertSame(row, model.removeOldestRow(null));
+        }
+        assertTrue(model.isEmpty());
+        assertNull(model.removeOldestRow(null));
+    }
+
+    @Test
+    public void iteratorAfterModification() {
+        RingBufferMOTableModel<DefaultMOTableRow> model = new RingBufferMOTableModel<>(1);
+        for (int i = 1; i <= 10; i++) {
+            model.addRow(createRow(index(i % 2, i)));
+        }
+        Iterator<DefaultMOTableRow> it = model.iterator();
+        assertEquals(index(0, 2), it.next().getIndex());
+        assertEquals(index(0, 4), it.next().getIndex());
+        model.removeRow(index(0, 6));
+        model.removeOldestRow(PARTITIONS[1]);
+        model.addRow(createRow(index(0, 5)));
+        assertEquals(index(0, 5), it.next().getIndex());
+        assertEquals(index(0, 8), it.next().getIndex());
+        assertEquals(index(0, 10), it.next().getIndex());
+        assertEquals(index(1, 3), it.next().getIndex());
+    }
+}
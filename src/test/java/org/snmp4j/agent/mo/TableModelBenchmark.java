@@ -0,0 +1,113 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - TableModelBenchmark.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.snmp4j.smi.Counter64;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.Variable;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing row lookup and GETNEXT style successor search of {@link DefaultMOMutableTableModel},
+ * {@link ConcurrentMOMutableTableModel}, and {@link PackedIndexMOTableModel}. Run its {@link #main(String[])}
+ * method (or {@code org.openjdk.jmh.Main TableModelBenchmark}) with the test class path after
+ * {@code mvn test-compile}. The GC profiler output ({@code gc.alloc.rate.norm}) shows the allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableModelBenchmark {
+
+    @Param({ "default", "concurrent", "packed" })
+    public String modelType;
+
+    @Param({ "1000000" })
+    public int rowCount;
+
+    private MOMutableTableModel<DefaultMOTableRow> model;
+    private OID[] probes;
+    private int probe;
+
+    @Setup
+    public void setUp() {
+        switch (modelType) {
+            case "concurrent":
+                model = new ConcurrentMOMutableTableModel<>();
+                break;
+            case "packed":
+                model = new PackedIndexMOTableModel<>(rowCount);
+                break;
+            default:
+                model = new DefaultMOMutableTableModel<>();
+        }
+        for (int i = 0; i < rowCount; i++) {
+            // ifIndex.flowId style two sub-identifier index
+            OID index = new OID(new int[] { 1 + i / 1000, i % 1000 });
+            model.addRow(new DefaultMOTableRow(index, new Variable[] { new Counter64(i) }));
+        }
+        Random random = new Random(4976);
+        probes = new OID[1024];
+        for (int i = 0; i < probes.length; i++) {
+            int row = random.nextInt(rowCount);
+            probes[i] = new OID(new int[] { 1 + row / 1000, row % 1000 });
+        }
+    }
+
+    private OID nextProbe() {
+        return probes[(probe++) & (probes.length - 1)];
+    }
+
+    @Benchmark
+    public DefaultMOTableRow getRow() {
+        return model.getRow(nextProbe());
+    }
+
+    @Benchmark
+    public void getNext(Blackhole blackhole) {
+        Iterator<DefaultMOTableRow> it = model.tailIterator(nextProbe());
+        if (it.hasNext()) {
+            blackhole.consume(it.next());
+        }
+        if (it.hasNext()) {
+            blackhole.consume(it.next());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TableModelBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
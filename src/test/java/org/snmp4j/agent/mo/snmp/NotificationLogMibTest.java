@@ -0,0 +1,100 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - NotificationLogMibTest.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo.snmp;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snmp4j.agent.DefaultMOServer;
+import org.snmp4j.agent.mo.DefaultMOFactory;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.*;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the log entry limits of {@link NotificationLogMib}.
+ */
+public class NotificationLogMibTest {
+
+  private NotificationLogMib notificationLogMib;
+
+  @Before
+  public void setUp() throws Exception {
+    new SNMPv2MIB(new OctetString("test"), new OID("1.3.6.1.4.1.4976"), new Integer32(72))
+        .registerMOs(new DefaultMOServer(), null);
+    notificationLogMib = new NotificationLogMib(DefaultMOFactory.getInstance(), null, new SnmpNotificationMIB());
+    addLog("", 0);
+    addLog("limited", 3);
+  }
+
+  private void addLog(String name, long limit) {
+    NotificationLogMib.NlmConfigLogEntryRow row = notificationLogMib.getNlmConfigLogEntry().createRow(
+        new OctetString(name).toSubIndex(false), new Variable[] {
+            new OctetString(),
+            new UnsignedInteger32(limit),
+            new Integer32(NotificationLogMib.NlmConfigLogAdminStatusEnum.enabled),
+            new Integer32(),
+            new Integer32(StorageType.volatile_),
+            new Integer32(RowStatus.active)
+        });
+    notificationLogMib.getNlmConfigLogEntry().addRow(row);
+  }
+
+  private void log(int n) {
+    notificationLogMib.notificationLogEvent(new NotificationLogEvent<Address>(this, new OctetString(), null,
+        new OctetString(), new OctetString(), SnmpConstants.linkDown, null, new VariableBinding[] {
+            new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.1.1"), new Integer32(n)),
+            new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.7.1"), new Integer32(1))
+        }, n, false));
+  }
+
+  @Test
+  public void testEntryLimits() {
+    for (int i = 1; i <= 5; i++) {
+      log(i);
+    }
+    OID limited = new OctetString("limited").toSubIndex(false);
+    int limitedRows = 0;
+    for (Iterator<NotificationLogMib.NlmLogEntryRow> it = notificationLogMib.getNlmLogEntry().getModel().iterator();
+         it.hasNext(); ) {
+      if (it.next().getIndex().startsWith(limited)) {
+        limitedRows++;
+      }
+    }
+    assertEquals(3, limitedRows);
+    assertEquals(8, notificationLogMib.getNlmLogEntry().getModel().getRowCount());
+    assertEquals(16, notificationLogMib.getNlmLogVariableEntry().getModel().getRowCount());
+    assertEquals(2, notificationLogMib.getNlmStatsGlobalNotificationsBumped().getValue().getValue());
+
+    notificationLogMib.getNlmConfigGlobalEntryLimit().setValue(new UnsignedInteger32(4));
+    log(6);
+    assertEquals(4, notificationLogMib.getNlmLogEntry().getModel().getRowCount());
+    assertEquals(8, notificationLogMib.getNlmLogVariableEntry().getModel().getRowCount());
+    assertEquals(8, notificationLogMib.getNlmStatsGlobalNotificationsBumped().getValue().getValue());
+    // the oldest entries are removed first
+    for (Iterator<NotificationLogMib.NlmLogEntryRow> it = notificationLogMib.getNlmLogEntry().getModel().iterator();
+         it.hasNext(); ) {
+      assertTrue(it.next().getIndex().last() > 8);
+    }
+  }
+}
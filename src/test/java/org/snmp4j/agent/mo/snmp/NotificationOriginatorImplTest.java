@@ -0,0 +1,430 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - NotificationOriginatorImplTest.java  
+  _## 
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo.snmp;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.ScopedPDU;
+import org.snmp4j.Session;
+import org.snmp4j.Target;
+import org.snmp4j.TransportMapping;
+import org.snmp4j.agent.DefaultMOServer;
+import org.snmp4j.agent.mo.DefaultMOMutableRow2PC;
+import org.snmp4j.agent.mo.DefaultMOMutableTableModel;
+import org.snmp4j.agent.mo.DefaultMOTable;
+import org.snmp4j.agent.mo.MOColumn;
+import org.snmp4j.agent.mo.MOScalar;
+import org.snmp4j.agent.security.VACM;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.mp.MessageProcessingModel;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.smi.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the notification dispatch, routing, throttling, and inform retry queue of {@link NotificationOriginatorImpl}.
+ */
+public class NotificationOriginatorImplTest {
+
+  private static final long RESPONSE_DELAY_MILLIS = 200;
+
+  private SnmpTargetMIB targetMIB;
+  private SnmpNotificationMIB notificationMIB;
+  private DelayedResponseSession session;
+  private NotificationOriginatorImpl notificationOriginator;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Before
+  public void setUp() throws Exception {
+    targetMIB = new SnmpTargetMIB(new MessageDispatcherImpl());
+    targetMIB.addDefaultTDomains();
+    targetMIB.addTargetParams(new OctetString("v2c"), MessageProcessingModel.MPv2c,
+        SecurityModel.SECURITY_MODEL_SNMPv2c, new OctetString("public"), SecurityLevel.NOAUTH_NOPRIV,
+        StorageType.volatile_);
+    notificationMIB = new SnmpNotificationMIB();
+    notificationMIB.addNotifyEntry(new OctetString("informs"), new OctetString("inform"),
+        SnmpNotificationMIB.SnmpNotifyTypeEnum.inform, StorageType.volatile_);
+    session = new DelayedResponseSession();
+    notificationOriginator = new NotificationOriginatorImpl(session, new AllowAllVACM(),
+        new SNMPv2MIB.SysUpTimeImpl(), targetMIB, notificationMIB);
+  }
+
+  private void addTargets(int count) {
+    TDomainAddressFactoryImpl addressFactory = new TDomainAddressFactoryImpl();
+    for (int i = 0; i < count; i++) {
+      targetMIB.addTargetAddress(new OctetString("receiver" + i), TransportDomains.transportDomainUdpIpv4,
+          addressFactory.getAddress(new UdpAddress("127.0.0.1/" + (10162 + i))), 100, 1,
+          new OctetString("inform"), new OctetString("v2c"), StorageType.volatile_);
+    }
+  }
+
+  @Test
+  public void testSyncDispatch() throws Exception {
+    addTargets(2);
+    Object result = notificationOriginator.notify(new OctetString(), SnmpConstants.coldStart, new VariableBinding[0]);
+    assertTrue(result instanceof ResponseEvent<?>[]);
+    ResponseEvent<?>[] responses = (ResponseEvent<?>[]) result;
+    assertEquals(2, responses.length);
+    for (ResponseEvent<?> response : responses) {
+      assertNotNull(response.getResponse());
+    }
+  }
+
+  @Test
+  public void testAsyncDispatchInParallel() throws Exception {
+    addTargets(30);
+    notificationOriginator.setAsyncDispatch(true);
+    long start = System.nanoTime();
+    Object result = notificationOriginator.notify(new OctetString(), SnmpConstants.linkDown, new VariableBinding[] {
+        new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.1.1"), new Integer32(1))
+    });
+    assertTrue(result instanceof CompletableFuture);
+    @SuppressWarnings("unchecked")
+    ResponseEvent<?>[] responses = ((CompletableFuture<ResponseEvent<?>[]>) result).get(10, TimeUnit.SECONDS);
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertEquals(30, responses.length);
+    for (ResponseEvent<?> response : responses) {
+      assertNotNull(response.getResponse());
+    }
+    // sending one after another would take 30 round trips
+    assertTrue("Elapsed " + elapsedMillis + "ms", elapsedMillis < 10 * RESPONSE_DELAY_MILLIS);
+    assertEquals(30, session.sent.get());
+  }
+
+  @Test
+  public void testMaxOutstandingInformsPerTarget() throws Exception {
+    addTargets(1);
+    notificationOriginator.setMaxOutstandingInformsPerTarget(2);
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[7];
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] = notificationOriginator.notifyAsync(new OctetString(), SnmpConstants.linkUp, null,
+          new VariableBinding[0]);
+    }
+    CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+    for (CompletableFuture<?> future : futures) {
+      ResponseEvent<?>[] responses = (ResponseEvent<?>[]) future.get();
+      assertEquals(1, responses.length);
+      assertNotNull(responses[0].getResponse());
+    }
+    assertEquals(7, session.sent.get());
+    assertEquals(2, session.maxOutstanding.get());
+  }
+
+  @Test
+  public void testRoutingCacheInvalidation() throws Exception {
+    addTargets(1);
+    ResponseEvent<?>[] responses = (ResponseEvent<?>[])
+        notificationOriginator.notify(new OctetString(), SnmpConstants.coldStart, new VariableBinding[0]);
+    assertEquals(1, responses.length);
+    addTargets(3);
+    responses = (ResponseEvent<?>[])
+        notificationOriginator.notify(new OctetString(), SnmpConstants.coldStart, new VariableBinding[0]);
+    assertEquals(3, responses.length);
+    notificationMIB.removeNotifyEntry(new OctetString("informs"));
+    responses = (ResponseEvent<?>[])
+        notificationOriginator.notify(new OctetString(), SnmpConstants.coldStart, new VariableBinding[0]);
+    assertEquals(0, responses.length);
+  }
+
+  @Test
+  public void testNotifyFilterProfile() throws Exception {
+    addTargets(1);
+    VariableBinding[] vbs = new VariableBinding[] {
+        new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.7.1"), new Integer32(1))
+    };
+    assertEquals(1, ((ResponseEvent<?>[])
+        notificationOriginator.notify(new OctetString(), SnmpConstants.linkDown, vbs)).length);
+    OctetString profileName = new OctetString("traps");
+    addNotifyFilter(profileName, new OID("1.3.6.1.6.3.1.1.5"), SnmpNotificationMIB.SnmpNotifyFilterTypeEnum.included);
+    addNotifyFilter(profileName, SnmpConstants.linkDown, SnmpNotificationMIB.SnmpNotifyFilterTypeEnum.excluded);
+    addNotifyFilter(profileName, new OID("1.3.6.1.2.1.2.2.1.7"),
+        SnmpNotificationMIB.SnmpNotifyFilterTypeEnum.excluded);
+    DefaultMOTable<DefaultMOMutableRow2PC, MOColumn, DefaultMOMutableTableModel<DefaultMOMutableRow2PC>> profiles =
+        notificationMIB.getNotifyFilterProfileTable();
+    profiles.getModel().addRow(profiles.createRow(new OctetString("v2c").toSubIndex(true),
+        new Variable[] { profileName, new Integer32(StorageType.volatile_), new Integer32(RowStatus.active) }));
+    assertEquals(0, ((ResponseEvent<?>[])
+        notificationOriginator.notify(new OctetString(), SnmpConstants.linkDown, new VariableBinding[0])).length);
+    assertEquals(1, ((ResponseEvent<?>[])
+        notificationOriginator.notify(new OctetString(), SnmpConstants.linkUp, new VariableBinding[0])).length);
+    assertEquals(0, ((ResponseEvent<?>[])
+        notificationOriginator.notify(new OctetString(), SnmpConstants.linkUp, vbs)).length);
+    assertEquals(0, ((ResponseEvent<?>[])
+        notificationOriginator.notify(new OctetString(), SnmpConstants.sysDescr, new VariableBinding[0])).length);
+  }
+
+  @Test
+  public void testThrottleDeduplication() throws Exception {
+    addTargets(1);
+    NotificationThrottle throttle = new NotificationThrottle(notificationOriginator);
+    throttle.setDeduplicationWindow(60000);
+    OID ifIndex = new OID("1.3.6.1.2.1.2.2.1.1");
+    OID ifAdminStatus = new OID("1.3.6.1.2.1.2.2.1.7");
+    throttle.setDeduplicationKey(SnmpConstants.linkDown, ifIndex);
+    assertEquals(1, ((ResponseEvent<?>[]) throttle.notify(new OctetString(), SnmpConstants.linkDown,
+        new VariableBinding[] { new VariableBinding(new OID(ifIndex).append(1), new Integer32(1)),
+            new VariableBinding(new OID(ifAdminStatus).append(1), new Integer32(1)) })).length);
+    assertEquals(0, ((ResponseEvent<?>[]) throttle.notify(new OctetString(), SnmpConstants.linkDown,
+        new VariableBinding[] { new VariableBinding(new OID(ifIndex).append(1), new Integer32(1)),
+            new VariableBinding(new OID(ifAdminStatus).append(1), new Integer32(2)) })).length);
+    assertEquals(1, ((ResponseEvent<?>[]) throttle.notify(new OctetString(), SnmpConstants.linkDown,
+        new VariableBinding[] { new VariableBinding(new OID(ifIndex).append(2), new Integer32(2)) })).length);
+    // without a key, all variable bindings are compared
+    assertEquals(1, ((ResponseEvent<?>[]) throttle.notify(new OctetString(), SnmpConstants.linkUp,
+        new VariableBinding[] { new VariableBinding(new OID(ifAdminStatus).append(1), new Integer32(1)) })).length);
+    assertEquals(1, ((ResponseEvent<?>[]) throttle.notify(new OctetString(), SnmpConstants.linkUp,
+        new VariableBinding[] { new VariableBinding(new OID(ifAdminStatus).append(1), new Integer32(2)) })).length);
+    assertEquals(0, ((ResponseEvent<?>[]) throttle.notify(new OctetString(), SnmpConstants.linkUp,
+        new VariableBinding[] { new VariableBinding(new OID(ifAdminStatus).append(1), new Integer32(2)) })).length);
+    assertEquals(2, throttle.getDuplicatesSuppressed());
+    assertEquals(4, session.sent.get());
+    throttle.setDeduplicationWindow(0);
+    assertEquals(1, ((ResponseEvent<?>[]) throttle.notify(new OctetString(), SnmpConstants.linkUp,
+        new VariableBinding[] { new VariableBinding(new OID(ifAdminStatus).append(1), new Integer32(2)) })).length);
+  }
+
+  @Test
+  public void testThrottleTargetRateLimit() throws Exception {
+    addTargets(2);
+    NotificationThrottle throttle = new NotificationThrottle(notificationOriginator);
+    throttle.setTargetRateLimit(0.001, 2);
+    for (int i = 0; i < 2; i++) {
+      assertEquals(2, ((ResponseEvent<?>[])
+          throttle.notify(new OctetString(), SnmpConstants.coldStart, new VariableBinding[0])).length);
+    }
+    assertEquals(0, ((ResponseEvent<?>[])
+        throttle.notify(new OctetString(), SnmpConstants.coldStart, new VariableBinding[0])).length);
+    assertEquals(4, session.sent.get());
+    assertEquals(2, throttle.getRateLimited());
+    assertEquals(1, throttle.getRateLimited(new OctetString("receiver0")));
+    DefaultMOServer server = new DefaultMOServer();
+    throttle.registerMOs(server, null);
+    MOScalar<?> counter = (MOScalar<?>) server.getManagedObject(NotificationThrottle.oidSnmp4jNotifyThrottleRateLimited,
+        null);
+    assertEquals(new Counter32(2), counter.getValue());
+  }
+
+  @Test
+  public void testInformRetryQueue() throws Exception {
+    addTargets(1);
+    File journalFile = temporaryFolder.newFile("informs.journal");
+    session.unreachable = true;
+    InformRetryQueue retryQueue = new InformRetryQueue(journalFile);
+    retryQueue.setRetryDelay(20, 100);
+    notificationOriginator.setInformRetryQueue(retryQueue);
+    for (int i = 0; i < 2; i++) {
+      ResponseEvent<?>[] responses = (ResponseEvent<?>[])
+          notificationOriginator.notify(new OctetString(), SnmpConstants.linkDown, new VariableBinding[] {
+              new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.1").append(i), new Integer32(i))
+          });
+      assertNull(responses[0].getResponse());
+    }
+    assertEquals(2, retryQueue.getQueueDepth());
+    assertEquals(2, retryQueue.getQueueDepth(new OctetString("receiver0")));
+    Thread.sleep(2 * RESPONSE_DELAY_MILLIS);
+    assertTrue(session.sent.get() > 2);
+    assertEquals(2, retryQueue.getQueueDepth());
+    retryQueue.close();
+
+    InformRetryQueue restoredQueue = new InformRetryQueue(journalFile);
+    assertEquals(2, restoredQueue.getQueueDepth());
+    assertTrue(restoredQueue.getOldestPendingAge() >= 2 * RESPONSE_DELAY_MILLIS);
+    session.unreachable = false;
+    int sent = session.sent.get();
+    notificationOriginator.setInformRetryQueue(restoredQueue);
+    for (int i = 0; (i < 100) && (restoredQueue.getQueueDepth() > 0); i++) {
+      Thread.sleep(50);
+    }
+    assertEquals(0, restoredQueue.getQueueDepth());
+    assertEquals(0, restoredQueue.getOldestPendingAge());
+    assertEquals(sent + 2, session.sent.get());
+    restoredQueue.close();
+    assertEquals(0, new InformRetryQueue(journalFile).getQueueDepth());
+  }
+
+  @Test
+  public void testInformRetryQueueBound() throws Exception {
+    InformRetryQueue retryQueue = new InformRetryQueue(temporaryFolder.newFile("informs.journal"));
+    retryQueue.setMaxQueuedInformsPerTarget(2);
+    for (int i = 0; i < 3; i++) {
+      ScopedPDU pdu = new ScopedPDU();
+      pdu.setType(PDU.INFORM);
+      pdu.setContextName(new OctetString("context"));
+      pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, SnmpConstants.coldStart));
+      retryQueue.enqueue(new OctetString("receiver"), new OctetString("context"), pdu);
+    }
+    assertEquals(2, retryQueue.getQueueDepth());
+    assertEquals(1, retryQueue.getDropped());
+    retryQueue.close();
+    assertFalse(retryQueue.enqueue(new OctetString("receiver"), new OctetString(), new PDU()));
+  }
+
+  @Test
+  public void testInformRetryQueueTruncatedJournal() throws Exception {
+    File journalFile = temporaryFolder.newFile("informs.journal");
+    InformRetryQueue retryQueue = new InformRetryQueue(journalFile);
+    for (int i = 0; i < 3; i++) {
+      ScopedPDU pdu = new ScopedPDU();
+      pdu.setType(PDU.INFORM);
+      pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, SnmpConstants.coldStart));
+      retryQueue.enqueue(new OctetString("receiver"), new OctetString(), pdu);
+    }
+    retryQueue.close();
+    try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+      file.setLength(file.length() - 5);
+    }
+    InformRetryQueue restoredQueue = new InformRetryQueue(journalFile);
+    assertEquals(2, restoredQueue.getQueueDepth());
+    restoredQueue.close();
+    assertEquals(2, new InformRetryQueue(journalFile).getQueueDepth());
+  }
+
+  @Test
+  public void testInformRetryQueueUnreadableJournal() throws Exception {
+    File journalFile = temporaryFolder.newFile("informs.journal");
+    byte[] content = "no inform journal".getBytes();
+    Files.write(journalFile.toPath(), content);
+    InformRetryQueue retryQueue = new InformRetryQueue(journalFile);
+    assertEquals(0, retryQueue.getQueueDepth());
+    retryQueue.close();
+    File unreadableFile = new File(journalFile.getPath() + ".unreadable");
+    assertArrayEquals(content, Files.readAllBytes(unreadableFile.toPath()));
+  }
+
+  private void addNotifyFilter(OctetString profileName, OID subtree, int type) {
+    DefaultMOTable<DefaultMOMutableRow2PC, MOColumn, DefaultMOMutableTableModel<DefaultMOMutableRow2PC>> filters =
+        notificationMIB.getNotifyFilterTable();
+    OID index = new OID(profileName.toSubIndex(false));
+    index.append(subtree);
+    filters.getModel().addRow(filters.createRow(index, new Variable[] {
+        new OctetString(), new Integer32(type), new Integer32(StorageType.volatile_), new Integer32(RowStatus.active)
+    }));
+  }
+
+  /**
+   * A session that answers informs after {@link #RESPONSE_DELAY_MILLIS}.
+   */
+  private static class DelayedResponseSession implements Session {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Map<Address, AtomicInteger> outstanding = new ConcurrentHashMap<>();
+    private final AtomicInteger maxOutstanding = new AtomicInteger();
+    private final AtomicInteger sent = new AtomicInteger();
+    private volatile boolean unreachable;
+
+    private PDU createResponse(PDU request) {
+      PDU response = (PDU) request.clone();
+      response.setType(PDU.RESPONSE);
+      return response;
+    }
+
+    @Override
+    public void close() {
+      scheduler.shutdownNow();
+    }
+
+    @Override
+    public <A extends Address> ResponseEvent<A> send(PDU pdu, Target<A> target) {
+      sent.incrementAndGet();
+      try {
+        Thread.sleep(RESPONSE_DELAY_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return new ResponseEvent<>(this, target.getAddress(), pdu, unreachable ? null : createResponse(pdu), null);
+    }
+
+    @Override
+    public <A extends Address> void send(PDU pdu, Target<A> target, Object userHandle, ResponseListener listener) {
+      sent.incrementAndGet();
+      AtomicInteger count = outstanding.computeIfAbsent(target.getAddress(), a -> new AtomicInteger());
+      int n = count.incrementAndGet();
+      maxOutstanding.accumulateAndGet(n, Math::max);
+      scheduler.schedule(() -> {
+        count.decrementAndGet();
+        listener.onResponse(new ResponseEvent<>(this, target.getAddress(), pdu,
+            unreachable ? null : createResponse(pdu), userHandle));
+      }, RESPONSE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public <A extends Address> ResponseEvent<A> send(PDU pdu, Target<A> target,
+                                                     TransportMapping<? super A> transport) {
+      return send(pdu, target);
+    }
+
+    @Override
+    public <A extends Address> void send(PDU pdu, Target<A> target, TransportMapping<? super A> transport,
+                                         Object userHandle, ResponseListener listener) {
+      send(pdu, target, userHandle, listener);
+    }
+
+    @Override
+    public void cancel(PDU request, ResponseListener listener) {
+    }
+
+    @Override
+    public void setLocalEngine(byte[] engineID, int engineBoots, int engineTime) {
+    }
+
+    @Override
+    public byte[] getLocalEngineID() {
+      return new byte[0];
+    }
+  }
+
+  private static class AllowAllVACM implements VACM {
+
+    @Override
+    public int isAccessAllowed(OctetString context, OctetString securityName, int securityModel,
+                               int securityLevel, int viewType, OID oid) {
+      return VACM_OK;
+    }
+
+    @Override
+    public int isAccessAllowed(OctetString viewName, OID oid) {
+      return VACM_OK;
+    }
+
+    @Override
+    public OctetString getViewName(OctetString context, OctetString securityName, int securityModel,
+                                   int securityLevel, int viewType) {
+      return new OctetString("all");
+    }
+  }
+}
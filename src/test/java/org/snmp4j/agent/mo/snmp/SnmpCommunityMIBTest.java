@@ -24,6 +24,8 @@ import org.junit.Test;
 import org.snmp4j.MessageDispatcherImpl;
 import org.snmp4j.mp.MPv3;
 import org.snmp4j.security.USM;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.UdpAddress;
 import org.snmp4j.smi.OctetString;
 
 import static org.junit.Assert.*;
@@ -71,4 +73,94 @@ public class SnmpCommunityMIBTest {
     coexistenceInfos = snmpCommunityMIB.getCoexistenceInfo(new OctetString("public2"));
     assertTrue(coexistenceInfos == null || coexistenceInfos.length == 0);
   }
+
+  @Test
+  public void testCoexistenceIndex() throws Exception {
+    SnmpCommunityMIB snmpCommunityMIB = new SnmpCommunityMIB(new SnmpTargetMIB(messageDispatcher));
+    snmpCommunityMIB.addSnmpCommunityEntry(new OctetString("b"), new OctetString("public"),
+        new OctetString("sec2"), new OctetString(), new OctetString(), null, StorageType.readOnly);
+    snmpCommunityMIB.addSnmpCommunityEntry(new OctetString("a"), new OctetString("public"),
+        new OctetString("sec1"), new OctetString(), new OctetString(), null, StorageType.readOnly);
+    CoexistenceInfo[] coexistenceInfos = snmpCommunityMIB.getCoexistenceInfo(new OctetString("public"));
+    assertEquals(2, coexistenceInfos.length);
+    assertEquals(new OctetString("sec1"), coexistenceInfos[0].getSecurityName());
+    assertEquals(new OctetString("sec2"), coexistenceInfos[1].getSecurityName());
+    // unchanged table: the index is shared
+    assertSame(coexistenceInfos, snmpCommunityMIB.getCoexistenceInfo(new OctetString("public")));
+
+    SnmpCommunityMIB.SnmpCommunityEntryRow row =
+        snmpCommunityMIB.getSnmpCommunityEntry().getModel().getRow(new OctetString("a").toSubIndex(true));
+    row.setSnmpCommunityStatus(new Integer32(RowStatus.notInService));
+    coexistenceInfos = snmpCommunityMIB.getCoexistenceInfo(new OctetString("public"));
+    assertEquals(1, coexistenceInfos.length);
+    assertEquals(new OctetString("sec2"), coexistenceInfos[0].getSecurityName());
+
+    row.setSnmpCommunityStatus(new Integer32(RowStatus.active));
+    row.setSnmpCommunityName(new OctetString("private"));
+    coexistenceInfos = snmpCommunityMIB.getCoexistenceInfo(new OctetString("public"));
+    assertEquals(1, coexistenceInfos.length);
+    assertEquals(new OctetString("sec2"), coexistenceInfos[0].getSecurityName());
+    coexistenceInfos = snmpCommunityMIB.getCoexistenceInfo(new OctetString("private"));
+    assertEquals(1, coexistenceInfos.length);
+    assertEquals(new OctetString("sec1"), coexistenceInfos[0].getSecurityName());
+    assertNull(snmpCommunityMIB.getCoexistenceInfo(new OctetString("unknown")));
+
+    // source address filtering modifies the returned objects, thus they must not be shared
+    snmpCommunityMIB.setSourceAddressFiltering(true);
+    CoexistenceInfo[] copies = snmpCommunityMIB.getCoexistenceInfo(new OctetString("private"));
+    assertTrue(copies != snmpCommunityMIB.getCoexistenceInfo(new OctetString("private")));
+    assertEquals(coexistenceInfos[0], copies[0]);
+    assertTrue(coexistenceInfos[0] != copies[0]);
+  }
+
+  @Test
+  public void testPassesFilter() throws Exception {
+    SnmpTargetMIB targetMIB = new SnmpTargetMIB(messageDispatcher);
+    targetMIB.addDefaultTDomains();
+    SnmpCommunityMIB snmpCommunityMIB = new SnmpCommunityMIB(targetMIB);
+    snmpCommunityMIB.setSourceAddressFiltering(true);
+    TDomainAddressFactoryImpl addressFactory = new TDomainAddressFactoryImpl();
+    OctetString tag = new OctetString("managers");
+    targetMIB.addTargetAddress(new OctetString("net"), TransportDomains.transportDomainUdpIpv4,
+        addressFactory.getAddress(new UdpAddress("10.1.0.0/0")), 200, 1, new OctetString("managers other"),
+        new OctetString("v2c"), StorageType.volatile_);
+    targetMIB.addTargetAddress(new OctetString("host"), TransportDomains.transportDomainUdpIpv4,
+        addressFactory.getAddress(new UdpAddress("10.1.2.3/0")), 200, 1, tag,
+        new OctetString("v2c"), StorageType.volatile_);
+    SnmpCommunityMIB.SnmpTargetAddrExtEntryRow netRow = (SnmpCommunityMIB.SnmpTargetAddrExtEntryRow)
+        snmpCommunityMIB.getSnmpTargetAddrExtEntry().getModel().getRow(new OctetString("net").toSubIndex(true));
+    SnmpCommunityMIB.SnmpTargetAddrExtEntryRow hostRow = (SnmpCommunityMIB.SnmpTargetAddrExtEntryRow)
+        snmpCommunityMIB.getSnmpTargetAddrExtEntry().getModel().getRow(new OctetString("host").toSubIndex(true));
+    assertNotNull(netRow);
+    assertNotNull(hostRow);
+    netRow.setSnmpTargetAddrTMask(OctetString.fromHexString("ff:ff:00:00:00:00"));
+    netRow.setSnmpTargetAddrMMS(new Integer32(1000));
+    hostRow.setSnmpTargetAddrTMask(OctetString.fromHexString("ff:ff:ff:ff:00:00"));
+    hostRow.setSnmpTargetAddrMMS(new Integer32(2000));
+
+    CoexistenceInfo info = new CoexistenceInfo(new OctetString("public"), new OctetString(), new OctetString(), tag);
+    assertTrue(snmpCommunityMIB.passesFilter(new UdpAddress("10.1.9.9/161"), info));
+    assertEquals(1000, info.getMaxMessageSize());
+    // the longest prefix match determines the maximum message size
+    assertTrue(snmpCommunityMIB.passesFilter(new UdpAddress("10.1.2.3/1161"), info));
+    assertEquals(2000, info.getMaxMessageSize());
+    assertFalse(snmpCommunityMIB.passesFilter(new UdpAddress("10.2.2.3/161"), info));
+    assertFalse(snmpCommunityMIB.passesFilter(new UdpAddress("10.1.2.3/161"),
+        new CoexistenceInfo(new OctetString("public"), new OctetString(), new OctetString(),
+            new OctetString("unknown"))));
+
+    // an empty mask requires an exact match
+    hostRow.setSnmpTargetAddrTMask(new OctetString());
+    assertTrue(snmpCommunityMIB.passesFilter(new UdpAddress("10.1.2.3/1161"), info));
+    assertEquals(1000, info.getMaxMessageSize());
+    assertTrue(snmpCommunityMIB.passesFilter(new UdpAddress("10.1.2.3/0"), info));
+    assertEquals(2000, info.getMaxMessageSize());
+
+    targetMIB.removeTargetAddress(new OctetString("net"));
+    assertFalse(snmpCommunityMIB.passesFilter(new UdpAddress("10.1.9.9/161"), info));
+    assertTrue(snmpCommunityMIB.passesFilter(new UdpAddress("10.1.2.3/0"), info));
+
+    snmpCommunityMIB.setSourceAddressFiltering(false);
+    assertTrue(snmpCommunityMIB.passesFilter(new UdpAddress("10.2.2.3/161"), info));
+  }
 }
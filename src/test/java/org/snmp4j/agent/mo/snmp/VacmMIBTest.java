@@ -22,11 +22,16 @@ package org.snmp4j.agent.mo.snmp;
 import org.junit.Test;
 import org.snmp4j.agent.DefaultMOServer;
 import org.snmp4j.agent.mo.MOTableRow;
+import org.snmp4j.agent.security.VACM;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.smi.Integer32;
 import org.snmp4j.smi.OID;
 import org.snmp4j.smi.OctetString;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -70,4 +75,202 @@ public class VacmMIBTest {
         List<MOTableRow> views = vacmMIB.getViews(viewName);
         assertEquals(3, views.size());
     }
+
+    @Test
+    public void testCompiledViewAccess() {
+        OctetString viewName = new OctetString("restricted");
+        VacmMIB vacmMIB = new VacmMIB(new DefaultMOServer[] { new DefaultMOServer() });
+        OID ifEntry = new OID("1.3.6.1.2.1.2.2.1");
+        assertEquals(VACM.VACM_NO_SUCH_VIEW, vacmMIB.isAccessAllowed(viewName, ifEntry));
+        vacmMIB.addViewTreeFamily(viewName, new OID("1.3.6.1.2.1"), new OctetString(),
+                VacmMIB.vacmViewIncluded, StorageType.nonVolatile);
+        assertEquals(VACM.VACM_OK, vacmMIB.isAccessAllowed(viewName, ifEntry));
+        assertEquals(VACM.VACM_NOT_IN_VIEW, vacmMIB.isAccessAllowed(viewName, new OID("1.3.6.1.2")));
+        assertEquals(VACM.VACM_NOT_IN_VIEW, vacmMIB.isAccessAllowed(viewName, new OID("1.3.6.1.4.1")));
+        // excluding ifDescr of all interfaces with a wildcard mask (11111111:110)
+        vacmMIB.addViewTreeFamily(viewName, new OID("1.3.6.1.2.1.2.2.1.2.1"), OctetString.fromHexString("ff:c0"),
+                VacmMIB.vacmViewExcluded, StorageType.nonVolatile);
+        assertEquals(VACM.VACM_NOT_IN_VIEW, vacmMIB.isAccessAllowed(viewName, new OID("1.3.6.1.2.1.2.2.1.2.7")));
+        assertEquals(VACM.VACM_OK, vacmMIB.isAccessAllowed(viewName, new OID("1.3.6.1.2.1.2.2.1.3.7")));
+        // a longer subtree takes precedence
+        vacmMIB.addViewTreeFamily(viewName, new OID("1.3.6.1.2.1.2.2.1.2.2"), new OctetString(),
+                VacmMIB.vacmViewIncluded, StorageType.nonVolatile);
+        assertEquals(VACM.VACM_OK, vacmMIB.isAccessAllowed(viewName, new OID("1.3.6.1.2.1.2.2.1.2.2")));
+        assertEquals(VACM.VACM_NOT_IN_VIEW, vacmMIB.isAccessAllowed(viewName, new OID("1.3.6.1.2.1.2.2.1.2.3")));
+        assertTrue(vacmMIB.removeViewTreeFamily(viewName, new OID("1.3.6.1.2.1.2.2.1.2.1")));
+        assertEquals(VACM.VACM_OK, vacmMIB.isAccessAllowed(viewName, new OID("1.3.6.1.2.1.2.2.1.2.3")));
+        // replacing an existing family
+        vacmMIB.addViewTreeFamily(viewName, new OID("1.3.6.1.2.1"), new OctetString(),
+                VacmMIB.vacmViewExcluded, StorageType.nonVolatile);
+        assertEquals(VACM.VACM_NOT_IN_VIEW, vacmMIB.isAccessAllowed(viewName, ifEntry));
+        assertTrue(vacmMIB.removeViewTreeFamily(viewName, new OID("1.3.6.1.2.1")));
+        assertTrue(vacmMIB.removeViewTreeFamily(viewName, new OID("1.3.6.1.2.1.2.2.1.2.2")));
+        assertEquals(VACM.VACM_NO_SUCH_VIEW, vacmMIB.isAccessAllowed(viewName, ifEntry));
+    }
+
+    @Test
+    public void testCompiledViewMatchesRowEvaluation() {
+        OctetString viewName = new OctetString("random");
+        VacmMIB vacmMIB = new VacmMIB(new DefaultMOServer[] { new DefaultMOServer() });
+        Random random = new Random(4976);
+        for (int i = 0; i < 40; i++) {
+            OID subtree = randomOID(random, 1 + random.nextInt(6));
+            OctetString mask = new OctetString(new byte[] { (byte) (0xFF & ~(1 << random.nextInt(8))) });
+            vacmMIB.addViewTreeFamily(viewName, subtree, random.nextBoolean() ? mask : new OctetString(),
+                    random.nextBoolean() ? VacmMIB.vacmViewIncluded : VacmMIB.vacmViewExcluded,
+                    StorageType.nonVolatile);
+        }
+        List<MOTableRow> views = vacmMIB.getViews(viewName);
+        for (int i = 0; i < 5000; i++) {
+            OID oid = randomOID(random, 1 + random.nextInt(8));
+            assertEquals(oid.toString(), evaluateRows(views, oid), vacmMIB.isAccessAllowed(viewName, oid));
+        }
+    }
+
+    @Test
+    public void testViewNameCache() {
+        OctetString context = new OctetString();
+        OctetString user = new OctetString("user1");
+        OctetString group = new OctetString("group1");
+        int usm = SecurityModel.SECURITY_MODEL_USM;
+        VacmMIB vacmMIB = new VacmMIB(new DefaultMOServer[] { new DefaultMOServer() });
+        assertNull(vacmMIB.getViewName(context, user, usm, SecurityLevel.AUTH_PRIV, VACM.VIEW_READ));
+        assertEquals(VACM.VACM_NO_GROUP_NAME, vacmMIB.isAccessAllowed(context, user, usm, SecurityLevel.AUTH_PRIV,
+                VACM.VIEW_READ, new OID("1.3.6.1.2.1.1.1.0")));
+        vacmMIB.addGroup(usm, user, group, StorageType.volatile_);
+        assertNull(vacmMIB.getViewName(context, user, usm, SecurityLevel.AUTH_PRIV, VACM.VIEW_READ));
+        assertEquals(VACM.VACM_NO_ACCESS_ENTRY, vacmMIB.isAccessAllowed(context, user, usm,
+                SecurityLevel.AUTH_PRIV, VACM.VIEW_READ, new OID("1.3.6.1.2.1.1.1.0")));
+        vacmMIB.addAccess(group, new OctetString(), usm, SecurityLevel.AUTH_NOPRIV, VacmMIB.vacmExactMatch,
+                new OctetString("authRead"), new OctetString("authWrite"), new OctetString(), StorageType.volatile_);
+        assertEquals(new OctetString("authRead"),
+                vacmMIB.getViewName(context, user, usm, SecurityLevel.AUTH_PRIV, VACM.VIEW_READ));
+        assertEquals(new OctetString("authWrite"),
+                vacmMIB.getViewName(context, user, usm, SecurityLevel.AUTH_PRIV, VACM.VIEW_WRITE));
+        assertNull(vacmMIB.getViewName(context, user, usm, SecurityLevel.NOAUTH_NOPRIV, VACM.VIEW_READ));
+        // a better matching access entry (higher security level) replaces the cached resolution
+        vacmMIB.addAccess(group, new OctetString(), usm, SecurityLevel.AUTH_PRIV, VacmMIB.vacmExactMatch,
+                new OctetString("privRead"), new OctetString(), new OctetString(), StorageType.volatile_);
+        assertEquals(new OctetString("privRead"),
+                vacmMIB.getViewName(context, user, usm, SecurityLevel.AUTH_PRIV, VACM.VIEW_READ));
+        assertTrue(vacmMIB.removeAccess(group, new OctetString(), usm, SecurityLevel.AUTH_PRIV));
+        assertEquals(new OctetString("authRead"),
+                vacmMIB.getViewName(context, user, usm, SecurityLevel.AUTH_PRIV, VACM.VIEW_READ));
+        // changing the group mapping
+        vacmMIB.addGroup(usm, user, new OctetString("group2"), StorageType.volatile_);
+        assertNull(vacmMIB.getViewName(context, user, usm, SecurityLevel.AUTH_PRIV, VACM.VIEW_READ));
+        assertTrue(vacmMIB.removeGroup(usm, user));
+        vacmMIB.addGroup(usm, user, group, StorageType.volatile_);
+        assertEquals(new OctetString("authRead"),
+                vacmMIB.getViewName(context, user, usm, SecurityLevel.AUTH_PRIV, VACM.VIEW_READ));
+        vacmMIB.setViewNameCacheSize(0);
+        assertEquals(new OctetString("authWrite"),
+                vacmMIB.getViewName(context, user, usm, SecurityLevel.AUTH_PRIV, VACM.VIEW_WRITE));
+    }
+
+    @Test
+    public void testNextPermittedBound() {
+        OctetString viewName = new OctetString("restricted");
+        VacmMIB vacmMIB = new VacmMIB(new DefaultMOServer[] { new DefaultMOServer() });
+        vacmMIB.addViewTreeFamily(viewName, new OID("1.3.6.1.2.1"), new OctetString(),
+                VacmMIB.vacmViewIncluded, StorageType.nonVolatile);
+        vacmMIB.addViewTreeFamily(viewName, new OID("1.3.6.1.2.1.2.2"), new OctetString(),
+                VacmMIB.vacmViewExcluded, StorageType.nonVolatile);
+        vacmMIB.addViewTreeFamily(viewName, new OID("1.3.6.1.2.1.2.2.1.5"), new OctetString(),
+                VacmMIB.vacmViewIncluded, StorageType.nonVolatile);
+        // before the view
+        assertEquals(new OID("1.3.6.1.2.1"), vacmMIB.getNextPermittedBound(viewName, new OID("1.3.6.1.1.9")));
+        // excluded ifTable up to the included ifSpeed column
+        assertEquals(new OID("1.3.6.1.2.1.2.2.1.5"),
+                vacmMIB.getNextPermittedBound(viewName, new OID("1.3.6.1.2.1.2.2.1.2.1")));
+        // excluded ifTable after ifSpeed
+        assertEquals(new OID("1.3.6.1.2.1.2.3"),
+                vacmMIB.getNextPermittedBound(viewName, new OID("1.3.6.1.2.1.2.2.1.6.1")));
+        // after the view
+        assertNull(vacmMIB.getNextPermittedBound(viewName, new OID("1.3.6.1.4.1")));
+        assertNull(vacmMIB.getNextPermittedBound(new OctetString("unknown"), new OID("1.3.6.1.4.1")));
+    }
+
+    @Test
+    public void testNextPermittedBoundMatchesRowEvaluation() {
+        OctetString viewName = new OctetString("random");
+        VacmMIB vacmMIB = new VacmMIB(new DefaultMOServer[] { new DefaultMOServer() });
+        Random random = new Random(3415);
+        for (int i = 0; i < 12; i++) {
+            OID subtree = randomOID(random, 1 + random.nextInt(5));
+            OctetString mask = new OctetString(new byte[] { (byte) (0xFF & ~(1 << random.nextInt(8))) });
+            vacmMIB.addViewTreeFamily(viewName, subtree, random.nextBoolean() ? mask : new OctetString(),
+                    random.nextBoolean() ? VacmMIB.vacmViewIncluded : VacmMIB.vacmViewExcluded,
+                    StorageType.nonVolatile);
+        }
+        List<MOTableRow> views = vacmMIB.getViews(viewName);
+        // all OIDs with up to six sub-identifiers in 0..2 in lexicographic order
+        List<OID> oids = new java.util.ArrayList<>();
+        addOIDs(oids, new OID(), 6);
+        for (int i = 0; i < oids.size(); i++) {
+            OID oid = oids.get(i);
+            if (evaluateRows(views, oid) == VACM.VACM_OK) {
+                continue;
+            }
+            OID bound = vacmMIB.getNextPermittedBound(viewName, oid);
+            if (bound != null) {
+                assertTrue(oid + " < " + bound, oid.compareTo(bound) < 0);
+            }
+            for (int j = i + 1; (j < oids.size()) && ((bound == null) || (oids.get(j).compareTo(bound) < 0)); j++) {
+                assertTrue(oid + " -> " + bound, evaluateRows(views, oids.get(j)) != VACM.VACM_OK);
+            }
+        }
+    }
+
+    private static void addOIDs(List<OID> oids, OID prefix, int depth) {
+        if (prefix.size() > 0) {
+            oids.add(prefix);
+        }
+        if (prefix.size() < depth) {
+            for (int i = 0; i < 3; i++) {
+                OID child = new OID(prefix);
+                child.append(i);
+                addOIDs(oids, child, depth);
+            }
+        }
+    }
+
+    private static OID randomOID(Random random, int length) {
+        int[] value = new int[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = random.nextInt(3);
+        }
+        return new OID(value);
+    }
+
+    /**
+     * Evaluates the view tree family rows according to RFC 3415 (longest and then lexicographically greatest
+     * matching subtree wins).
+     */
+    private static int evaluateRows(List<MOTableRow> views, OID oid) {
+        OID best = null;
+        boolean included = false;
+        for (MOTableRow row : views) {
+            OID index = row.getIndex();
+            OID subtree = new OID(index.getValue(), index.get(0) + 2, index.get(index.get(0) + 1));
+            OctetString mask = (OctetString) row.getValue(VacmMIB.idxVacmViewTreeFamilyMask);
+            if (oid.size() < subtree.size()) {
+                continue;
+            }
+            boolean match = true;
+            for (int i = 0; i < subtree.size(); i++) {
+                if ((subtree.get(i) != oid.get(i)) && VacmMIB.isBitSet(i, mask)) {
+                    match = false;
+                    break;
+                }
+            }
+            if (match && ((best == null) || (subtree.size() > best.size()) ||
+                    ((subtree.size() == best.size()) && (subtree.compareTo(best) > 0)))) {
+                best = subtree;
+                included = ((Integer32) row.getValue(VacmMIB.idxVacmViewTreeFamilyType)).getValue() ==
+                        VacmMIB.vacmViewIncluded;
+            }
+        }
+        return included ? VACM.VACM_OK : VACM.VACM_NOT_IN_VIEW;
+    }
 }
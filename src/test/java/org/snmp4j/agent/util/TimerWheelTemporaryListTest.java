@@ -0,0 +1,104 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - TimerWheelTemporaryListTest.java
+  _##
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.util;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TimerWheelTemporaryListTest {
+
+    @Test
+    public void addRemoveContains() {
+        TimerWheelTemporaryList<Integer> list = new TimerWheelTemporaryList<>(60000);
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+        }
+        list.add(5);
+        assertEquals(100, list.size());
+        assertTrue(list.contains(42));
+        assertTrue(list.remove(42));
+        assertFalse(list.remove(42));
+        assertFalse(list.contains(42));
+        assertEquals(99, list.size());
+        for (Iterator<Integer> it = list.iterator(); it.hasNext(); ) {
+            if (it.next() % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(50, list.size());
+        assertFalse(list.contains(10));
+        list.clear();
+        assertEquals(0, list.size());
+    }
+
+    @Test
+    public void expiration() throws Exception {
+        TimerWheelTemporaryList<String> list = new TimerWheelTemporaryList<>(20, 5, 8);
+        list.add("old");
+        Thread.sleep(60);
+        list.add("new");
+        assertFalse(list.contains("old"));
+        assertTrue(list.contains("new"));
+        assertEquals(1, list.size());
+        // several rounds of the wheel must not expire an item before its timeout
+        list.setTimeout(500);
+        list.add("long");
+        Thread.sleep(100);
+        list.add("trigger");
+        assertTrue(list.contains("long"));
+    }
+
+    @Test
+    public void defaultTimeout() throws Exception {
+        TimerWheelTemporaryList<String> list = new TimerWheelTemporaryList<>(TemporaryList.DEFAULT_ITEM_TIMEOUT, 1, 8);
+        list.add("request");
+        Thread.sleep(50);
+        list.add("trigger");
+        assertTrue(list.contains("request"));
+        assertTrue(list.remove("request"));
+        assertEquals(1, list.size());
+    }
+
+    @Test
+    public void concurrentAddRemove() throws Exception {
+        final TimerWheelTemporaryList<Integer> list = new TimerWheelTemporaryList<>(60000, 1, 16);
+        final int threads = 4;
+        final int itemsPerThread = 10000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * itemsPerThread;
+            new Thread(() -> {
+                for (int i = offset; i < offset + itemsPerThread; i++) {
+                    list.add(i);
+                    assertTrue(list.remove(i));
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(0, list.size());
+    }
+}
@@ -0,0 +1,111 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - VirtualThreadWorkerPoolTest.java
+  _##
+  _##  Copyright (C) 2005-2018  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.util;
+
+import org.junit.Test;
+import org.snmp4j.util.WorkerTask;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualThreadWorkerPoolTest {
+
+    private static class BlockingTask implements WorkerTask {
+
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        BlockingTask(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public void run() {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void terminate() {
+        }
+
+        @Override
+        public void join() {
+        }
+
+        @Override
+        public void interrupt() {
+        }
+    }
+
+    @Test
+    public void unsupportedRuntime() {
+        assumeTrue(!VirtualThreadWorkerPool.isAvailable());
+        try {
+            new VirtualThreadWorkerPool("test");
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException uoex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void manyBlockedTasks() throws Exception {
+        assumeTrue(VirtualThreadWorkerPool.isAvailable());
+        VirtualThreadWorkerPool pool = new VirtualThreadWorkerPool("test");
+        int tasks = 5000;
+        CountDownLatch started = new CountDownLatch(tasks);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < tasks; i++) {
+            pool.execute(new BlockingTask(started, release));
+        }
+        assertTrue(started.await(30, TimeUnit.SECONDS));
+        assertEquals(tasks, pool.getPendingTaskCount());
+        assertFalse(pool.isIdle());
+        release.countDown();
+        pool.stop();
+        assertTrue(pool.isIdle());
+        assertFalse(pool.tryToExecute(new BlockingTask(new CountDownLatch(1), release)));
+    }
+
+    @Test
+    public void boundedConcurrency() throws Exception {
+        assumeTrue(VirtualThreadWorkerPool.isAvailable());
+        VirtualThreadWorkerPool pool = new VirtualThreadWorkerPool("test", 2);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(pool.tryToExecute(new BlockingTask(started, release)));
+        assertTrue(pool.tryToExecute(new BlockingTask(started, release)));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertFalse(pool.tryToExecute(new BlockingTask(started, release)));
+        release.countDown();
+        pool.stop();
+        assertTrue(pool.isIdle());
+    }
+}